@@ -29,10 +29,12 @@ public class AppEngineAppYamlExtension implements AppEngineCoreExtensionProperti
   @InternalProperty private static final String TOOLS_EXT = "tools";
   @InternalProperty private static final String DEPLOY_EXT = "deploy";
   @InternalProperty private static final String STAGE_EXT = "stage";
+  @InternalProperty private static final String COLD_START_PROBE_EXT = "coldStartProbe";
 
   @InternalProperty private ToolsExtension tools;
   @InternalProperty private DeployExtension deploy;
   @InternalProperty private StageAppYamlExtension stage;
+  @InternalProperty private ColdStartProbeExtension coldStartProbe;
 
   /** Create nested configuration blocks as Extensions. */
   public void createSubExtensions(Project project) {
@@ -44,6 +46,10 @@ public class AppEngineAppYamlExtension implements AppEngineCoreExtensionProperti
         ((ExtensionAware) this)
             .getExtensions()
             .create(STAGE_EXT, StageAppYamlExtension.class, project);
+    coldStartProbe =
+        ((ExtensionAware) this)
+            .getExtensions()
+            .create(COLD_START_PROBE_EXT, ColdStartProbeExtension.class, project);
   }
 
   public void tools(Action<? super ToolsExtension> action) {
@@ -58,6 +64,10 @@ public class AppEngineAppYamlExtension implements AppEngineCoreExtensionProperti
     action.execute(stage);
   }
 
+  public void coldStartProbe(Action<? super ColdStartProbeExtension> action) {
+    action.execute(coldStartProbe);
+  }
+
   @Override
   public ToolsExtension getTools() {
     return tools;
@@ -71,4 +81,8 @@ public class AppEngineAppYamlExtension implements AppEngineCoreExtensionProperti
   public StageAppYamlExtension getStage() {
     return stage;
   }
+
+  public ColdStartProbeExtension getColdStartProbe() {
+    return coldStartProbe;
+  }
 }
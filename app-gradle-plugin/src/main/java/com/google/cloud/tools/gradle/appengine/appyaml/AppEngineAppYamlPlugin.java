@@ -40,6 +40,8 @@ public class AppEngineAppYamlPlugin implements Plugin<Project> {
 
   public static final String APP_ENGINE_APP_YAML_TASK_GROUP = "App Engine app.yaml based projects";
   private static final String STAGE_TASK_NAME = "appengineStage";
+  private static final String STAGE_DRY_RUN_TASK_NAME = "appengineStageDryRun";
+  private static final String COLD_START_PROBE_TASK_NAME = "appengineColdStartProbe";
 
   private static final String STAGED_APP_DIR_NAME = "staged-app";
 
@@ -60,6 +62,8 @@ public class AppEngineAppYamlPlugin implements Plugin<Project> {
 
     configureExtensions();
     createStageTask();
+    createStageDryRunTask();
+    createColdStartProbeTask();
   }
 
   private void configureExtensions() {
@@ -148,4 +152,40 @@ public class AppEngineAppYamlPlugin implements Plugin<Project> {
         .getByName(AppEngineCorePluginConfiguration.DEPLOY_ALL_TASK_NAME)
         .dependsOn(stageTask);
   }
+
+  private void createStageDryRunTask() {
+    project
+        .getTasks()
+        .create(
+            STAGE_DRY_RUN_TASK_NAME,
+            StageAppYamlDryRunTask.class,
+            dryRunTask -> {
+              dryRunTask.setGroup(APP_ENGINE_APP_YAML_TASK_GROUP);
+              dryRunTask.setDescription(
+                  "Show the files staging an App Engine app.yaml based project would write");
+              dryRunTask.dependsOn(BasePlugin.ASSEMBLE_TASK_NAME);
+
+              project.afterEvaluate(project -> dryRunTask.setStagingConfig(stageExtension));
+            });
+  }
+
+  private void createColdStartProbeTask() {
+    project
+        .getTasks()
+        .create(
+            COLD_START_PROBE_TASK_NAME,
+            ColdStartProbeTask.class,
+            probeTask -> {
+              probeTask.setGroup(APP_ENGINE_APP_YAML_TASK_GROUP);
+              probeTask.setDescription(
+                  "Measure how long the staged App Engine app.yaml based project takes to start");
+              probeTask.dependsOn(STAGE_TASK_NAME);
+
+              project.afterEvaluate(
+                  project -> {
+                    probeTask.setProbeConfig(appengineExtension.getColdStartProbe());
+                    probeTask.setStagingDirectory(stageExtension.getStagingDirectory());
+                  });
+            });
+  }
 }
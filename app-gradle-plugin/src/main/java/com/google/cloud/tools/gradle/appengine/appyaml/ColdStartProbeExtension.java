@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.google.cloud.tools.gradle.appengine.appyaml;
+
+import com.google.cloud.tools.appengine.configuration.ColdStartProbeConfiguration;
+import com.google.cloud.tools.gradle.appengine.util.NullSafe;
+import java.io.File;
+import org.gradle.api.Project;
+
+/** Extension element to define how the cold start of a staged app.yaml based project is probed. */
+public class ColdStartProbeExtension {
+
+  private final Project project;
+
+  private Integer runs;
+  private String path;
+  private Integer port;
+  private Integer timeout;
+  private File javaHome;
+
+  public ColdStartProbeExtension(Project project) {
+    this.project = project;
+  }
+
+  public Integer getRuns() {
+    return runs;
+  }
+
+  /** Number of times the application is started and measured. */
+  public void setRuns(Integer runs) {
+    this.runs = runs;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  /** Path of the local URL polled until the application responds. */
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  public Integer getPort() {
+    return port;
+  }
+
+  /** Port the application is told to listen on through {@code $PORT}. */
+  public void setPort(Integer port) {
+    this.port = port;
+  }
+
+  public Integer getTimeout() {
+    return timeout;
+  }
+
+  /** Seconds to wait for the application to respond in each run. */
+  public void setTimeout(Integer timeout) {
+    this.timeout = timeout;
+  }
+
+  public File getJavaHome() {
+    return javaHome;
+  }
+
+  public void setJavaHome(Object javaHome) {
+    this.javaHome = project.file(javaHome);
+  }
+
+  ColdStartProbeConfiguration toColdStartProbeConfiguration(File stagingDirectory) {
+    return ColdStartProbeConfiguration.builder()
+        .stagingDirectory(stagingDirectory.toPath())
+        .runs(runs)
+        .path(path)
+        .port(port)
+        .timeout(timeout)
+        .javaHome(NullSafe.convert(javaHome, File::toPath))
+        .build();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.google.cloud.tools.gradle.appengine.appyaml;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.operations.ColdStartProbe;
+import com.google.cloud.tools.appengine.operations.ColdStartReport;
+import java.io.File;
+import java.io.IOException;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Start a staged App Engine app.yaml based application locally several times, and report how long
+ * it takes to respond.
+ */
+public class ColdStartProbeTask extends DefaultTask {
+
+  private ColdStartProbeExtension probeExtension;
+  private File stagingDirectory;
+
+  @Internal("the application is measured on every run")
+  public ColdStartProbeExtension getProbeExtension() {
+    return probeExtension;
+  }
+
+  public void setProbeConfig(ColdStartProbeExtension probeConfig) {
+    this.probeExtension = probeConfig;
+  }
+
+  @Internal("the application is measured on every run")
+  public File getStagingDirectory() {
+    return stagingDirectory;
+  }
+
+  public void setStagingDirectory(File stagingDirectory) {
+    this.stagingDirectory = stagingDirectory;
+  }
+
+  /** Task entrypoint : Probe the staged application and write the report to the build dir. */
+  @TaskAction
+  public void probeAction() throws AppEngineException, IOException {
+    ColdStartReport report =
+        new ColdStartProbe()
+            .probe(probeExtension.toColdStartProbeConfiguration(stagingDirectory));
+
+    getLogger().lifecycle(report.getSummary());
+    for (int i = 0; i < report.getRuns().size(); i++) {
+      ColdStartReport.Run run = report.getRuns().get(i);
+      getLogger()
+          .info(
+              "  Run "
+                  + (i + 1)
+                  + ": "
+                  + run.getFirstResponse().toMillis()
+                  + " ms, "
+                  + run.getLoadedClasses()
+                  + " classes loaded ("
+                  + run.getSharedClasses()
+                  + " shared)");
+    }
+    File reportFile = new File(getProject().getBuildDir(), ColdStartReport.FILE_NAME);
+    report.writeJson(reportFile.toPath());
+    getLogger().lifecycle("Wrote cold start report to " + reportFile);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.google.cloud.tools.gradle.appengine.appyaml;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.operations.AppYamlProjectStaging;
+import com.google.cloud.tools.appengine.operations.StagingPhase;
+import com.google.cloud.tools.appengine.operations.StagingPlan;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.TaskAction;
+
+/** Show what staging an App Engine app.yaml based application would do, without staging it. */
+public class StageAppYamlDryRunTask extends DefaultTask {
+
+  private StageAppYamlExtension appYamlExtension;
+
+  @Nested
+  public StageAppYamlExtension getStagingExtension() {
+    return appYamlExtension;
+  }
+
+  public void setStagingConfig(StageAppYamlExtension stagingConfig) {
+    this.appYamlExtension = stagingConfig;
+  }
+
+  /** Task entrypoint : Print the staging plan of the app.yaml based application. */
+  @TaskAction
+  public void dryRunAction() throws AppEngineException {
+    StagingPlan plan =
+        new AppYamlProjectStaging()
+            .planStaging(appYamlExtension.toAppYamlProjectStageConfiguration());
+
+    getLogger()
+        .lifecycle(
+            "Staging would write "
+                + plan.getFileCount()
+                + " files ("
+                + plan.getTotalBytes()
+                + " bytes) to "
+                + plan.getStagingDirectory());
+    for (StagingPhase phase : StagingPhase.values()) {
+      if (plan.getFileCount(phase) > 0) {
+        getLogger()
+            .lifecycle(
+                "  "
+                    + phase
+                    + ": "
+                    + plan.getFileCount(phase)
+                    + " files ("
+                    + plan.getTotalBytes(phase)
+                    + " bytes)");
+      }
+    }
+    for (StagingPlan.Entry entry : plan.getEntries()) {
+      getLogger()
+          .info(
+              "  "
+                  + entry.getDestination()
+                  + " <- "
+                  + entry.getSource()
+                  + " ("
+                  + entry.getPhase()
+                  + ", "
+                  + entry.getSize()
+                  + " bytes)");
+    }
+  }
+}
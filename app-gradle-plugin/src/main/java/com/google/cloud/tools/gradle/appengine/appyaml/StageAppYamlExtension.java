@@ -18,12 +18,15 @@
 package com.google.cloud.tools.gradle.appengine.appyaml;
 
 import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfiguration;
+import com.google.cloud.tools.appengine.configuration.LinkStrategy;
 import com.google.cloud.tools.gradle.appengine.util.NullSafe;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import org.gradle.api.Project;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
@@ -41,6 +44,23 @@ public class StageAppYamlExtension {
   private File artifact;
   private File stagingDirectory;
   private List<File> extraFilesDirectories;
+  private List<String> extraFilesExcludes;
+  private Boolean incremental;
+  private Boolean sync;
+  private Boolean writeStagingResult;
+  private Integer copyThreads;
+  private String linkStrategy;
+  private File contentStoreDirectory;
+  private File cacheDirectory;
+  private Long cacheMaxSize;
+  private Boolean splitFatJar;
+  private Boolean normalizeJars;
+  private Boolean appCds;
+  private File appCdsJavaHome;
+  private List<String> appCdsTrainingArgs;
+  private Integer appCdsTrainingTimeout;
+  private Boolean tuneJvm;
+  private List<String> jvmFlags;
 
   public StageAppYamlExtension(Project project) {
     this.project = project;
@@ -106,6 +126,171 @@ public class StageAppYamlExtension {
     this.extraFilesDirectories = new ArrayList<>(project.files(extraFilesDirectories).getFiles());
   }
 
+  @Input
+  @Optional
+  public List<String> getExtraFilesExcludes() {
+    return extraFilesExcludes;
+  }
+
+  /** Globs, relative to each extra files directory, or regex: patterns of files not to stage. */
+  public void setExtraFilesExcludes(List<String> extraFilesExcludes) {
+    this.extraFilesExcludes = extraFilesExcludes;
+  }
+
+  @Input
+  @Optional
+  public Boolean getIncremental() {
+    return incremental;
+  }
+
+  public void setIncremental(Boolean incremental) {
+    this.incremental = incremental;
+  }
+
+  @Input
+  @Optional
+  public Boolean getSplitFatJar() {
+    return splitFatJar;
+  }
+
+  public void setSplitFatJar(Boolean splitFatJar) {
+    this.splitFatJar = splitFatJar;
+  }
+
+  @Input
+  @Optional
+  public Boolean getNormalizeJars() {
+    return normalizeJars;
+  }
+
+  public void setNormalizeJars(Boolean normalizeJars) {
+    this.normalizeJars = normalizeJars;
+  }
+
+  @Input
+  @Optional
+  public Boolean getAppCds() {
+    return appCds;
+  }
+
+  public void setAppCds(Boolean appCds) {
+    this.appCds = appCds;
+  }
+
+  @Internal("its version must match the runtime, which is an input")
+  public File getAppCdsJavaHome() {
+    return appCdsJavaHome;
+  }
+
+  public void setAppCdsJavaHome(Object appCdsJavaHome) {
+    this.appCdsJavaHome = project.file(appCdsJavaHome);
+  }
+
+  @Input
+  @Optional
+  public List<String> getAppCdsTrainingArgs() {
+    return appCdsTrainingArgs;
+  }
+
+  /** Arguments passed to the application while it runs to create the AppCDS archive. */
+  public void setAppCdsTrainingArgs(List<String> appCdsTrainingArgs) {
+    this.appCdsTrainingArgs = appCdsTrainingArgs;
+  }
+
+  @Internal("does not affect the staged output")
+  public Integer getAppCdsTrainingTimeout() {
+    return appCdsTrainingTimeout;
+  }
+
+  public void setAppCdsTrainingTimeout(Integer appCdsTrainingTimeout) {
+    this.appCdsTrainingTimeout = appCdsTrainingTimeout;
+  }
+
+  @Input
+  @Optional
+  public Boolean getTuneJvm() {
+    return tuneJvm;
+  }
+
+  public void setTuneJvm(Boolean tuneJvm) {
+    this.tuneJvm = tuneJvm;
+  }
+
+  @Input
+  @Optional
+  public List<String> getJvmFlags() {
+    return jvmFlags;
+  }
+
+  /** JVM flags added to, or replacing, the flags tuned to the instance class. */
+  public void setJvmFlags(List<String> jvmFlags) {
+    this.jvmFlags = jvmFlags;
+  }
+
+  @Internal("does not affect the staged output")
+  public Boolean getSync() {
+    return sync;
+  }
+
+  public void setSync(Boolean sync) {
+    this.sync = sync;
+  }
+
+  @Internal("does not affect the staged output")
+  public Boolean getWriteStagingResult() {
+    return writeStagingResult;
+  }
+
+  public void setWriteStagingResult(Boolean writeStagingResult) {
+    this.writeStagingResult = writeStagingResult;
+  }
+
+  @Internal("does not affect the staged output")
+  public Integer getCopyThreads() {
+    return copyThreads;
+  }
+
+  public void setCopyThreads(Integer copyThreads) {
+    this.copyThreads = copyThreads;
+  }
+
+  @Internal("does not affect the staged output")
+  public String getLinkStrategy() {
+    return linkStrategy;
+  }
+
+  /** One of {@code copy}, {@code hardlink} or {@code reflink}. */
+  public void setLinkStrategy(String linkStrategy) {
+    this.linkStrategy = linkStrategy;
+  }
+
+  @Internal("does not affect the staged output")
+  public File getContentStoreDirectory() {
+    return contentStoreDirectory;
+  }
+
+  public void setContentStoreDirectory(Object contentStoreDirectory) {
+    this.contentStoreDirectory = project.file(contentStoreDirectory);
+  }
+
+  @Internal("does not affect the staged output")
+  public File getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  public void setCacheDirectory(Object cacheDirectory) {
+    this.cacheDirectory = project.file(cacheDirectory);
+  }
+
+  @Internal("does not affect the staged output")
+  public Long getCacheMaxSize() {
+    return cacheMaxSize;
+  }
+
+  public void setCacheMaxSize(Long cacheMaxSize) {
+    this.cacheMaxSize = cacheMaxSize;
+  }
+
   AppYamlProjectStageConfiguration toAppYamlProjectStageConfiguration() {
     return AppYamlProjectStageConfiguration.builder()
         .appEngineDirectory(appEngineDirectory.toPath())
@@ -113,6 +298,24 @@ public class StageAppYamlExtension {
         .stagingDirectory(stagingDirectory.toPath())
         .dockerDirectory(NullSafe.convert(dockerDirectory, File::toPath))
         .extraFilesDirectories(NullSafe.convert(extraFilesDirectories, File::toPath))
+        .extraFilesExcludes(extraFilesExcludes)
+        .incremental(incremental)
+        .sync(sync)
+        .copyThreads(copyThreads)
+        .linkStrategy(
+            NullSafe.convert(
+                linkStrategy, strategy -> LinkStrategy.valueOf(strategy.toUpperCase(Locale.US))))
+        .contentStoreDirectory(NullSafe.convert(contentStoreDirectory, File::toPath))
+        .cacheDirectory(NullSafe.convert(cacheDirectory, File::toPath))
+        .cacheMaxSize(cacheMaxSize)
+        .splitFatJar(splitFatJar)
+        .normalizeJars(normalizeJars)
+        .appCds(appCds)
+        .appCdsJavaHome(NullSafe.convert(appCdsJavaHome, File::toPath))
+        .appCdsTrainingArgs(appCdsTrainingArgs)
+        .appCdsTrainingTimeout(appCdsTrainingTimeout)
+        .tuneJvm(tuneJvm)
+        .jvmFlags(jvmFlags)
         .build();
   }
 }
@@ -19,6 +19,9 @@ package com.google.cloud.tools.gradle.appengine.appyaml;
 
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.operations.AppYamlProjectStaging;
+import com.google.cloud.tools.appengine.operations.StagingResult;
+import com.google.cloud.tools.gradle.appengine.util.StagingResultReporter;
+import java.io.IOException;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.TaskAction;
@@ -39,11 +42,21 @@ public class StageAppYamlTask extends DefaultTask {
 
   /** Task entrypoint : Stage the app.yaml based application. */
   @TaskAction
-  public void stageAction() throws AppEngineException {
-    getProject().delete(appYamlExtension.getStagingDirectory());
+  public void stageAction() throws AppEngineException, IOException {
+    // incremental and sync staging reuse the previous staging output
+    if (!Boolean.TRUE.equals(appYamlExtension.getIncremental())
+        && !Boolean.TRUE.equals(appYamlExtension.getSync())) {
+      getProject().delete(appYamlExtension.getStagingDirectory());
+    }
     getProject().mkdir(appYamlExtension.getStagingDirectory().getAbsolutePath());
 
     AppYamlProjectStaging staging = new AppYamlProjectStaging();
-    staging.stageArchive(appYamlExtension.toAppYamlProjectStageConfiguration());
+    StagingResult result =
+        staging.stageArchive(appYamlExtension.toAppYamlProjectStageConfiguration());
+    StagingResultReporter.report(
+        result,
+        getLogger(),
+        getProject().getBuildDir(),
+        Boolean.TRUE.equals(appYamlExtension.getWriteStagingResult()));
   }
 }
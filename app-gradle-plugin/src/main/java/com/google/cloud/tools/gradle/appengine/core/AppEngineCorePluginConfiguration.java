@@ -23,8 +23,13 @@ import com.google.cloud.tools.managedcloudsdk.BadCloudSdkVersionException;
 import com.google.cloud.tools.managedcloudsdk.ManagedCloudSdk;
 import com.google.cloud.tools.managedcloudsdk.UnsupportedOsException;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.gradle.api.GradleException;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
 import org.gradle.util.GradleVersion;
 
 /**
@@ -54,6 +59,9 @@ public class AppEngineCorePluginConfiguration {
   private ManagedCloudSdk managedCloudSdk;
   private boolean requiresAppEngineJava;
   private String taskGroup;
+  private Spec<Task> cloudSdkUnused = Specs.satisfyNone();
+  private Object[] cloudSdkUnusedInputs = new Object[0];
+  private volatile boolean cloudSdkSkipped;
 
   /** Configure core tasks for appengine app.yaml and appengine-web.xml based project plugins. */
   public void configureCoreProperties(
@@ -83,6 +91,49 @@ public class AppEngineCorePluginConfiguration {
     createShowConfigurationTask();
   }
 
+  /**
+   * Skips the Cloud SDK download and check tasks when every task of this project in the build that
+   * depends on them matches {@code cloudSdkUnused}, evaluated when the download and check tasks
+   * run. They run after {@code inputs}, so that {@code cloudSdkUnused} can inspect what those
+   * produce.
+   */
+  public void setCloudSdkUnused(Spec<Task> cloudSdkUnused, Object... inputs) {
+    this.cloudSdkUnused = cloudSdkUnused;
+    this.cloudSdkUnusedInputs = inputs;
+  }
+
+  /**
+   * Fails if {@code task} needs the Cloud SDK, but the download and check tasks were skipped
+   * because {@link #setCloudSdkUnused} expected it not to.
+   */
+  public void requireCloudSdk(Task task) {
+    if (cloudSdkSkipped) {
+      throw new GradleException(
+          task.getPath()
+              + " needs the Cloud SDK, but "
+              + DOWNLOAD_CLOUD_SDK_TASK_NAME
+              + " and "
+              + CHECK_CLOUD_SDK_TASK_NAME
+              + " were skipped because it was not expected to. Run the build again.");
+    }
+  }
+
+  /** Whether the tasks of the build that depend on the Cloud SDK tasks use the Cloud SDK. */
+  private boolean isCloudSdkUsed() {
+    List<Task> dependents =
+        project.getGradle().getTaskGraph().getAllTasks().stream()
+            .filter(task -> task.getProject() == project && requiresCloudSdk(task))
+            .collect(Collectors.toList());
+    // without dependents, the download or check task was requested directly
+    boolean used =
+        dependents.isEmpty() || !dependents.stream().allMatch(cloudSdkUnused::isSatisfiedBy);
+    if (!used) {
+      cloudSdkSkipped = true;
+      project.getLogger().info("Skipping the Cloud SDK tasks, no task of this build uses it");
+    }
+    return used;
+  }
+
   private void configureFactories() {
     project.afterEvaluate(
         projectAfterEvaluated -> {
@@ -143,13 +194,19 @@ public class AppEngineCorePluginConfiguration {
                         return;
                       }
                       p.getTasks()
-                          .matching(task -> task.getName().startsWith("appengine"))
+                          .matching(this::requiresCloudSdk)
                           .forEach(task -> task.dependsOn(downloadCloudSdkTask));
+                      downloadCloudSdkTask.mustRunAfter(cloudSdkUnusedInputs);
+                      downloadCloudSdkTask.onlyIf(ignored -> isCloudSdkUsed());
                     }
                   });
             });
   }
 
+  private boolean requiresCloudSdk(Task task) {
+    return task.getName().startsWith("appengine");
+  }
+
   private void createCheckCloudSdkTask() {
     project
         .getTasks()
@@ -167,8 +224,10 @@ public class AppEngineCorePluginConfiguration {
                       checkCloudSdkTask.setCloudSdk(cloudSdkOperations.getCloudSdk());
                       checkCloudSdkTask.requiresAppEngineJava(requiresAppEngineJava);
                       p.getTasks()
-                          .matching(task -> task.getName().startsWith("appengine"))
+                          .matching(this::requiresCloudSdk)
                           .forEach(task -> task.dependsOn(checkCloudSdkTask));
+                      checkCloudSdkTask.mustRunAfter(cloudSdkUnusedInputs);
+                      checkCloudSdkTask.onlyIf(ignored -> isCloudSdkUsed());
                     }
                   });
             });
@@ -17,6 +17,8 @@
 
 package com.google.cloud.tools.gradle.appengine.standard;
 
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.operations.AppEngineWebXmlProjectStaging;
 import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkNotFoundException;
 import com.google.cloud.tools.gradle.appengine.core.AppEngineCorePluginConfiguration;
 import com.google.cloud.tools.gradle.appengine.core.CloudSdkOperations;
@@ -70,6 +72,11 @@ public class AppEngineStandardPlugin implements Plugin<Project> {
     appEngineCorePluginConfiguration = new AppEngineCorePluginConfiguration();
     appEngineCorePluginConfiguration.configureCoreProperties(
         project, appengineExtension, APP_ENGINE_STANDARD_TASK_GROUP, true);
+    // native staging only needs the Cloud SDK if it falls back to appcfg, which is decided from
+    // the assembled application
+    appEngineCorePluginConfiguration.setCloudSdkUnused(
+        task -> task instanceof StageStandardTask && isStagedNatively((StageStandardTask) task),
+        BasePlugin.ASSEMBLE_TASK_NAME);
 
     explodedWarDir = new File(project.getBuildDir(), "exploded-" + project.getName());
 
@@ -163,7 +170,14 @@ public class AppEngineStandardPlugin implements Plugin<Project> {
         .whenTaskAdded(
             stageStandardTask ->
                 project.afterEvaluate(
-                    ignored -> stageStandardTask.setAppCfg(cloudSdkOperations.getAppcfg())));
+                    ignored -> {
+                      stageStandardTask.setAppCfg(
+                          () -> {
+                            appEngineCorePluginConfiguration.requireCloudSdk(stageStandardTask);
+                            return cloudSdkOperations.getAppcfg();
+                          });
+                      stageStandardTask.setCloudSdk(() -> cloudSdkOperations.getCloudSdk());
+                    }));
 
     StageStandardTask stageTask =
         project
@@ -269,4 +283,16 @@ public class AppEngineStandardPlugin implements Plugin<Project> {
                   });
             });
   }
+
+  private static boolean isStagedNatively(StageStandardTask stageTask) {
+    StageStandardExtension stage = stageTask.getStageStandardExtension();
+    if (stage == null || !Boolean.TRUE.equals(stage.getNativeStaging())) {
+      return false;
+    }
+    try {
+      return AppEngineWebXmlProjectStaging.isStagedNatively(stage.toStageStandardConfiguration());
+    } catch (AppEngineException ex) {
+      throw new GradleException("Failed to read the application to stage: " + ex.getMessage(), ex);
+    }
+  }
 }
@@ -24,6 +24,7 @@ import org.gradle.api.Project;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
 
@@ -44,6 +45,13 @@ public class StageStandardExtension {
   private Boolean enableJarClasses;
   private Boolean disableJarJsps;
   private String runtime;
+  private Boolean sync;
+  private Boolean inProcess;
+  private Boolean nativeStaging;
+  private File cacheDirectory;
+  private Long cacheMaxSize;
+  private File contentStoreDirectory;
+  private Boolean writeStagingResult;
 
   /** Constuctor. */
   public StageStandardExtension(Project project) {
@@ -168,6 +176,70 @@ public class StageStandardExtension {
     this.runtime = runtime;
   }
 
+  @Internal("does not affect the staged output")
+  public Boolean getSync() {
+    return sync;
+  }
+
+  public void setSync(Boolean sync) {
+    this.sync = sync;
+  }
+
+  @Internal("does not affect the staged output")
+  public Boolean getInProcess() {
+    return inProcess;
+  }
+
+  public void setInProcess(Boolean inProcess) {
+    this.inProcess = inProcess;
+  }
+
+  @Input
+  @Optional
+  public Boolean getNativeStaging() {
+    return nativeStaging;
+  }
+
+  public void setNativeStaging(Boolean nativeStaging) {
+    this.nativeStaging = nativeStaging;
+  }
+
+  @Internal("does not affect the staged output")
+  public File getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  public void setCacheDirectory(Object cacheDirectory) {
+    this.cacheDirectory = project.file(cacheDirectory);
+  }
+
+  @Internal("does not affect the staged output")
+  public Long getCacheMaxSize() {
+    return cacheMaxSize;
+  }
+
+  public void setCacheMaxSize(Long cacheMaxSize) {
+    this.cacheMaxSize = cacheMaxSize;
+  }
+
+  @Internal("does not affect the staged output")
+  public File getContentStoreDirectory() {
+    return contentStoreDirectory;
+  }
+
+  public void setContentStoreDirectory(Object contentStoreDirectory) {
+    this.contentStoreDirectory = project.file(contentStoreDirectory);
+  }
+
+  @Internal("does not affect the staged output")
+  public Boolean getWriteStagingResult() {
+    return writeStagingResult;
+  }
+
+  public void setWriteStagingResult(Boolean writeStagingResult) {
+    this.writeStagingResult = writeStagingResult;
+  }
+
   AppEngineWebXmlProjectStageConfiguration toStageStandardConfiguration() {
     return AppEngineWebXmlProjectStageConfiguration.builder()
         .sourceDirectory(sourceDirectory.toPath())
@@ -182,6 +254,12 @@ public class StageStandardExtension {
         .enableQuickstart(enableQuickstart)
         .jarSplittingExcludes(jarSplittingExcludes)
         .runtime(runtime)
+        .sync(sync)
+        .inProcess(inProcess)
+        .nativeStaging(nativeStaging)
+        .cacheDirectory(NullSafe.convert(cacheDirectory, File::toPath))
+        .cacheMaxSize(cacheMaxSize)
+        .contentStoreDirectory(NullSafe.convert(contentStoreDirectory, File::toPath))
         .build();
   }
 }
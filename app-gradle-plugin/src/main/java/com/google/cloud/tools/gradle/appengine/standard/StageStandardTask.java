@@ -19,7 +19,12 @@ package com.google.cloud.tools.gradle.appengine.standard;
 
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.operations.AppCfg;
+import com.google.cloud.tools.appengine.operations.CloudSdk;
+import com.google.cloud.tools.appengine.operations.StagingResult;
 import com.google.cloud.tools.gradle.appengine.core.CloudSdkOperations;
+import com.google.cloud.tools.gradle.appengine.util.StagingResultReporter;
+import java.io.IOException;
+import java.util.function.Supplier;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.TaskAction;
@@ -28,7 +33,8 @@ import org.gradle.api.tasks.TaskAction;
 public class StageStandardTask extends DefaultTask {
 
   private StageStandardExtension stageStandardExtension;
-  private AppCfg appCfg;
+  private Supplier<AppCfg> appCfg;
+  private Supplier<CloudSdk> cloudSdk;
 
   @Nested
   public StageStandardExtension getStageStandardExtension() {
@@ -39,16 +45,37 @@ public class StageStandardTask extends DefaultTask {
     this.stageStandardExtension = stageStandardExtension;
   }
 
-  public void setAppCfg(AppCfg appCfg) {
+  /**
+   * Sets the appcfg to stage with. It is only requested if staging falls back to appcfg, so native
+   * staging can run without the Cloud SDK.
+   */
+  public void setAppCfg(Supplier<AppCfg> appCfg) {
     this.appCfg = appCfg;
   }
 
+  /**
+   * Sets the Cloud SDK that the appcfg would use. It keys the staging cache, and must not need
+   * the Cloud SDK tasks to have run.
+   */
+  public void setCloudSdk(Supplier<CloudSdk> cloudSdk) {
+    this.cloudSdk = cloudSdk;
+  }
+
   /** Task entrypoint : stage the standard app. */
   @TaskAction
-  public void stageAction() throws AppEngineException {
-    getProject().delete(stageStandardExtension.getStagingDirectory());
-    appCfg
-        .newStaging(CloudSdkOperations.getDefaultHandler(getLogger()))
-        .stageStandard(stageStandardExtension.toStageStandardConfiguration());
+  public void stageAction() throws AppEngineException, IOException {
+    // sync staging updates the previous staging output in place
+    if (!Boolean.TRUE.equals(stageStandardExtension.getSync())) {
+      getProject().delete(stageStandardExtension.getStagingDirectory());
+    }
+    StagingResult result =
+        AppCfg.newLazyStaging(
+                appCfg, cloudSdk, CloudSdkOperations.getDefaultHandler(getLogger()))
+            .stageStandard(stageStandardExtension.toStageStandardConfiguration());
+    StagingResultReporter.report(
+        result,
+        getLogger(),
+        getProject().getBuildDir(),
+        Boolean.TRUE.equals(stageStandardExtension.getWriteStagingResult()));
   }
 }
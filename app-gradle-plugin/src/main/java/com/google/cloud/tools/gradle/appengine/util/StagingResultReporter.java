@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.gradle.appengine.util;
+
+import com.google.cloud.tools.appengine.operations.StagingPhase;
+import com.google.cloud.tools.appengine.operations.StagingResult;
+import java.io.File;
+import java.io.IOException;
+import org.gradle.api.logging.Logger;
+
+/** Reports the statistics of a staging run. */
+public class StagingResultReporter {
+
+  private StagingResultReporter() {
+    // Prevent instantiation and extension.
+  }
+
+  /**
+   * Logs the totals of a staging run and, at info level, each of its phases.
+   *
+   * @param result the statistics to report
+   * @param logger the task logger
+   * @param buildDir the build directory, which receives the statistics as JSON if {@code
+   *     writeJson} is set
+   * @param writeJson whether to write the statistics as JSON
+   */
+  public static void report(
+      StagingResult result, Logger logger, File buildDir, boolean writeJson) throws IOException {
+    logger.lifecycle(result.getSummary());
+    for (StagingPhase phase : result.getPhases().keySet()) {
+      logger.info("  " + result.getPhaseSummary(phase));
+    }
+    if (writeJson) {
+      File resultFile = new File(buildDir, StagingResult.FILE_NAME);
+      result.writeJson(resultFile.toPath());
+      logger.info("Wrote staging statistics to " + resultFile);
+    }
+  }
+}
@@ -65,6 +65,12 @@ public class TestProject {
     return this;
   }
 
+  /** Add a standard appengine-gradle-plugin build file that enables native staging. */
+  public TestProject addStandardBuildFileWithNativeStaging() throws IOException {
+    addBuildFile("projects/AppEnginePluginTest/build-standard-nativeStaging.gradle");
+    return this;
+  }
+
   /** Add a appyaml based appengine-gradle-plugin build file. */
   public TestProject addAppYamlBuildFile() throws IOException {
     addBuildFile("projects/AppEnginePluginTest/build-appyaml.gradle");
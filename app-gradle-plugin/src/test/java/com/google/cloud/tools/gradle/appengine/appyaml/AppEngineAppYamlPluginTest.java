@@ -129,6 +129,39 @@ public class AppEngineAppYamlPluginTest {
     assertEquals(expected, BuildResultFilter.extractTasks(buildResult));
   }
 
+  @Test
+  public void testStageDryRun_taskTree() throws IOException {
+    BuildResult buildResult =
+        createTestProject().applyGradleRunner("appengineStageDryRun", "--dry-run");
+
+    final List<String> expected =
+        ImmutableList.of(
+            ":compileJava",
+            ":processResources",
+            ":classes",
+            ":war",
+            ":assemble",
+            ":appengineStageDryRun");
+    assertEquals(expected, BuildResultFilter.extractTasks(buildResult));
+  }
+
+  @Test
+  public void testColdStartProbe_taskTree() throws IOException {
+    BuildResult buildResult =
+        createTestProject().applyGradleRunner("appengineColdStartProbe", "--dry-run");
+
+    final List<String> expected =
+        ImmutableList.of(
+            ":compileJava",
+            ":processResources",
+            ":classes",
+            ":war",
+            ":assemble",
+            ":appengineStage",
+            ":appengineColdStartProbe");
+    assertEquals(expected, BuildResultFilter.extractTasks(buildResult));
+  }
+
   @Test
   public void testDeployCron_taskTree() throws IOException {
     BuildResult buildResult =
@@ -19,6 +19,7 @@ package com.google.cloud.tools.gradle.appengine.appyaml;
 import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfiguration;
 import com.google.cloud.tools.gradle.appengine.TestProject;
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -67,6 +68,8 @@ public class StageAppYamlExtensionTest {
     extension.setArtifact(artifact);
     extension.setDockerDirectory(dockerDirectory);
     extension.setExtraFilesDirectories(extraFilesDirectories);
+    extension.setExtraFilesExcludes(ImmutableList.of("**/*.log"));
+    extension.setIncremental(true);
 
     AppYamlProjectStageConfiguration generatedConfig =
         extension.toAppYamlProjectStageConfiguration();
@@ -77,6 +80,8 @@ public class StageAppYamlExtensionTest {
     Assert.assertEquals(
         extraFilesDirectories.stream().map(File::toPath).collect(Collectors.toList()),
         generatedConfig.getExtraFilesDirectory());
+    Assert.assertEquals(ImmutableList.of("**/*.log"), generatedConfig.getExtraFilesExcludes());
+    Assert.assertTrue(generatedConfig.getIncremental());
   }
 
   @Test
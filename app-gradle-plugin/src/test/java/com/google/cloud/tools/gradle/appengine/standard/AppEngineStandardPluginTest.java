@@ -117,6 +117,29 @@ public class AppEngineStandardPluginTest {
     assertEquals(expected, BuildResultFilter.extractTasks(buildResult));
   }
 
+  @Test
+  public void testStage_nativeStagingTaskTree() throws IOException {
+    BuildResult buildResult =
+        new TestProject(testProjectDir.getRoot())
+            .addStandardBuildFileWithNativeStaging()
+            .addAppEngineWebXml()
+            .applyGradleRunner("appengineStage", "--dry-run");
+
+    // the Cloud SDK tasks are kept, after the application they decide from is assembled
+    final List<String> expected =
+        ImmutableList.of(
+            ":compileJava",
+            ":processResources",
+            ":classes",
+            ":war",
+            ":explodeWar",
+            ":assemble",
+            ":downloadCloudSdk",
+            ":appengineStage");
+
+    assertEquals(expected, BuildResultFilter.extractTasks(buildResult));
+  }
+
   @Test
   public void testDeployCron_taskTree() throws IOException {
     BuildResult buildResult =
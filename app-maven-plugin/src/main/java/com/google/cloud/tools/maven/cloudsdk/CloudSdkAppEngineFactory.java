@@ -61,9 +61,12 @@ public class CloudSdkAppEngineFactory {
     return getGcloud().newAuth(newDefaultProcessHandler());
   }
 
-  /** Constructs an object used for appengine-web.xml based staging. */
+  /**
+   * Constructs an object used for appengine-web.xml based staging. The Cloud SDK is only set up
+   * when appcfg is needed, which native staging may avoid.
+   */
   public AppEngineWebXmlProjectStaging appengineWebXmlStaging() {
-    return getAppCfg().newStaging(newDefaultProcessHandler());
+    return AppCfg.newLazyStaging(this::getAppCfg, this::locateCloudSdk, newDefaultProcessHandler());
   }
 
   /** Constructs an object used for app.yaml based staging. */
@@ -167,6 +170,20 @@ public class CloudSdkAppEngineFactory {
     return AppCfg.builder(buildCloudSdkWithAppEngineComponents()).build();
   }
 
+  /** Locates the Cloud SDK {@link #getAppCfg} would use, without downloading or checking it. */
+  private CloudSdk locateCloudSdk() {
+    Path sdkPath = mojo.getCloudSdkHome();
+    if (sdkPath == null) {
+      sdkPath =
+          CloudSdkDownloader.newManagedSdkFactory().apply(mojo.getCloudSdkVersion()).getSdkHome();
+    }
+    try {
+      return new CloudSdk.Builder().sdkPath(sdkPath).build();
+    } catch (CloudSdkNotFoundException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
   private DevServers getDevServers() {
     return DevServers.builder(buildCloudSdkWithAppEngineComponents()).build();
   }
@@ -16,13 +16,19 @@
 
 package com.google.cloud.tools.maven.stage;
 
+import com.google.cloud.tools.appengine.configuration.LinkStrategy;
+import com.google.cloud.tools.appengine.operations.StagingPhase;
+import com.google.cloud.tools.appengine.operations.StagingResult;
 import com.google.cloud.tools.maven.cloudsdk.CloudSdkMojo;
 import com.google.common.collect.ImmutableList;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Collectors;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 
 public abstract class AbstractStageMojo extends CloudSdkMojo {
@@ -142,6 +148,16 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
   @Parameter(alias = "stage.extraFilesDirectories", property = "app.stage.extraFilesDirectories")
   private List<File> extraFilesDirectories;
 
+  /**
+   * Files to leave out when copying the extra files directories. Each entry is a glob relative to
+   * an extra files directory, such as {@code secrets/**} or {@code **}{@code /*.log}, or a {@code
+   * regex:} pattern.
+   *
+   * <p>Applies to App Engine app.yaml based applications.
+   */
+  @Parameter(alias = "stage.extraFilesExcludes", property = "app.stage.extraFilesExcludes")
+  private List<String> extraFilesExcludes;
+
   /**
    * The directory containing the Dockerfile and other Docker resources.
    *
@@ -164,6 +180,153 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
       property = "app.stage.artifact")
   private File artifact;
 
+  /**
+   * Only copy new or changed files into the staging directory instead of restaging everything.
+   *
+   * <p>Applies to App Engine app.yaml based applications.
+   */
+  @Parameter(alias = "stage.incremental", property = "app.stage.incremental")
+  private boolean incremental;
+
+  /**
+   * Make the staging directory match the staged application by writing only new or changed files
+   * and deleting everything else, instead of deleting and recreating the staging directory.
+   */
+  @Parameter(alias = "stage.sync", property = "app.stage.sync")
+  private boolean sync;
+
+  /**
+   * Run appcfg inside the Maven JVM, reusing its loaded classes across modules, instead of starting
+   * a new JVM for every appengine-web.xml based module. Applies to appengine-web.xml based
+   * applications only.
+   */
+  @Parameter(alias = "stage.inProcess", property = "app.stage.inProcess")
+  private boolean inProcess;
+
+  /**
+   * Stage appengine-web.xml based applications without appcfg, and without installing the App
+   * Engine Java components, when they do not need JSP compilation, quickstart or other appcfg
+   * features. Other applications are still staged with appcfg.
+   */
+  @Parameter(alias = "stage.nativeStaging", property = "app.stage.nativeStaging")
+  private boolean nativeStaging;
+
+  /**
+   * A directory in which staging output, including appcfg's compiled JSPs, is cached by a hash of
+   * its inputs, so that unchanged applications are restored instead of staged again. It can be
+   * shared by builds on the same machine.
+   */
+  @Parameter(alias = "stage.cacheDirectory", property = "app.stage.cacheDirectory")
+  private File cacheDirectory;
+
+  /**
+   * The size in bytes beyond which the least recently used results are evicted from the staging
+   * cache. Defaults to 2 GiB.
+   */
+  @Parameter(alias = "stage.cacheMaxSize", property = "app.stage.cacheMaxSize")
+  private Long cacheMaxSize;
+
+  /**
+   * Split a fat jar artifact into a thin jar and dependency jars in {@code lib}, so that unchanged
+   * dependencies are not uploaded again on deployment. Spring Boot style jars are split into their
+   * nested jars, and shaded jars into one jar per package prefix.
+   *
+   * <p>Applies to App Engine app.yaml based applications on second generation runtimes.
+   */
+  @Parameter(alias = "stage.splitFatJar", property = "app.stage.splitFatJar")
+  private boolean splitFatJar;
+
+  /**
+   * Rewrite the artifact and its {@code Class-Path} jars with sorted entries and fixed timestamps
+   * as they are staged, so that rebuilt jars with unchanged content are not uploaded again.
+   *
+   * <p>Applies to App Engine app.yaml based applications.
+   */
+  @Parameter(alias = "stage.normalizeJars", property = "app.stage.normalizeJars")
+  private boolean normalizeJars;
+
+  /**
+   * Create an AppCDS archive of the classes the application loads at startup and add it to the
+   * staged app.yaml entrypoint, so that instances start faster. The staged application is run once
+   * to record its classes, until it exits or {@code appCdsTrainingTimeout} passes.
+   *
+   * <p>Applies to App Engine app.yaml based applications on the java17 and later runtimes.
+   */
+  @Parameter(alias = "stage.appCds", property = "app.stage.appCds")
+  private boolean appCds;
+
+  /**
+   * The JDK the AppCDS archive is created with, whose version must match the runtime. Defaults to
+   * the JDK running Maven.
+   */
+  @Parameter(alias = "stage.appCdsJavaHome", property = "app.stage.appCdsJavaHome")
+  private File appCdsJavaHome;
+
+  /**
+   * Arguments passed to the application while it runs to create the AppCDS archive, for example to
+   * make it exit once it has started.
+   */
+  @Parameter(alias = "stage.appCdsTrainingArgs", property = "app.stage.appCdsTrainingArgs")
+  private List<String> appCdsTrainingArgs;
+
+  /**
+   * Seconds after which the application run to create the AppCDS archive is stopped. Defaults to
+   * 60.
+   */
+  @Parameter(alias = "stage.appCdsTrainingTimeout", property = "app.stage.appCdsTrainingTimeout")
+  private Integer appCdsTrainingTimeout;
+
+  /**
+   * Generate the staged app.yaml entrypoint with JVM flags tuned to the memory and CPU of its
+   * {@code instance_class}. The app.yaml must not define an entrypoint of its own.
+   *
+   * <p>Applies to App Engine app.yaml based applications on second generation runtimes.
+   */
+  @Parameter(alias = "stage.tuneJvm", property = "app.stage.tuneJvm")
+  private boolean tuneJvm;
+
+  /**
+   * JVM flags added to the flags tuned to the instance class, replacing any tuned flag for the same
+   * option.
+   */
+  @Parameter(alias = "stage.jvmFlags", property = "app.stage.jvmFlags")
+  private List<String> jvmFlags;
+
+  /**
+   * Write the file counts, sizes and timings of each staging run as JSON to {@code
+   * appengine-staging-result.json} in the build directory.
+   */
+  @Parameter(alias = "stage.writeStagingResult", property = "app.stage.writeStagingResult")
+  private boolean writeStagingResult;
+
+  /**
+   * The number of threads used to copy directories and the artifact's {@code Class-Path} jars into
+   * the staging directory.
+   *
+   * <p>Applies to App Engine app.yaml based applications.
+   */
+  @Parameter(alias = "stage.copyThreads", property = "app.stage.copyThreads")
+  private Integer copyThreads;
+
+  /**
+   * How the artifact and the jars in its manifest {@code Class-Path} are placed into the staging
+   * directory: {@code COPY}, {@code HARDLINK} (hard link, then reflink, then copy) or {@code
+   * REFLINK} (reflink, then copy).
+   *
+   * <p>Applies to App Engine app.yaml based applications.
+   */
+  @Parameter(alias = "stage.linkStrategy", property = "app.stage.linkStrategy")
+  private LinkStrategy linkStrategy;
+
+  /**
+   * A content-addressed store through which dependency jars are linked into the staging directory,
+   * so that a jar shared by several services of a build is written to disk once. Point every module
+   * at the same directory, for example {@code
+   * ${session.executionRootDirectory}/target/appengine-content-store}.
+   */
+  @Parameter(alias = "stage.contentStoreDirectory", property = "app.stage.contentStoreDirectory")
+  private File contentStoreDirectory;
+
   public boolean isAppEngineCompatiblePackaging() {
     return ImmutableList.of("jar", "war").contains(getMavenProject().getPackaging());
   }
@@ -239,6 +402,10 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
         : extraFilesDirectories.stream().map(File::toPath).collect(Collectors.toList());
   }
 
+  public List<String> getExtraFilesExcludes() {
+    return extraFilesExcludes;
+  }
+
   public Path getDockerDirectory() {
     return dockerDirectory == null ? null : dockerDirectory.toPath();
   }
@@ -246,4 +413,96 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
   public Path getArtifact() {
     return artifact == null ? null : artifact.toPath();
   }
+
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  public boolean isSync() {
+    return sync;
+  }
+
+  public boolean isInProcess() {
+    return inProcess;
+  }
+
+  public boolean isNativeStaging() {
+    return nativeStaging;
+  }
+
+  public Path getCacheDirectory() {
+    return cacheDirectory == null ? null : cacheDirectory.toPath();
+  }
+
+  public Long getCacheMaxSize() {
+    return cacheMaxSize;
+  }
+
+  public boolean isSplitFatJar() {
+    return splitFatJar;
+  }
+
+  public boolean isNormalizeJars() {
+    return normalizeJars;
+  }
+
+  public boolean isAppCds() {
+    return appCds;
+  }
+
+  public Path getAppCdsJavaHome() {
+    return appCdsJavaHome == null ? null : appCdsJavaHome.toPath();
+  }
+
+  public List<String> getAppCdsTrainingArgs() {
+    return appCdsTrainingArgs;
+  }
+
+  public Integer getAppCdsTrainingTimeout() {
+    return appCdsTrainingTimeout;
+  }
+
+  public boolean isTuneJvm() {
+    return tuneJvm;
+  }
+
+  public List<String> getJvmFlags() {
+    return jvmFlags;
+  }
+
+  public boolean isWriteStagingResult() {
+    return writeStagingResult;
+  }
+
+  /**
+   * Logs the statistics of a staging run, and writes them as JSON into the build directory if
+   * requested.
+   */
+  public void reportStagingResult(StagingResult result) throws MojoExecutionException {
+    getLog().info(result.getSummary());
+    for (StagingPhase phase : result.getPhases().keySet()) {
+      getLog().info("  " + result.getPhaseSummary(phase));
+    }
+    if (writeStagingResult) {
+      Path resultFile =
+          Paths.get(getMavenProject().getBuild().getDirectory()).resolve(StagingResult.FILE_NAME);
+      try {
+        result.writeJson(resultFile);
+      } catch (IOException ex) {
+        throw new MojoExecutionException("Unable to write staging statistics.", ex);
+      }
+    }
+  }
+
+  public Integer getCopyThreads() {
+    return copyThreads;
+  }
+
+  public LinkStrategy getLinkStrategy() {
+    return linkStrategy;
+  }
+
+  public Path getContentStoreDirectory() {
+    return contentStoreDirectory == null ? null : contentStoreDirectory.toPath();
+  }
 }
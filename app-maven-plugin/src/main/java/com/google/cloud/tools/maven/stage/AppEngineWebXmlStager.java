@@ -17,19 +17,14 @@
 package com.google.cloud.tools.maven.stage;
 
 import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.DescriptorCache;
 import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.cloud.tools.appengine.operations.StagingResult;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.plugin.MojoExecutionException;
-import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 public class AppEngineWebXmlStager implements Stager {
@@ -54,8 +49,8 @@ public class AppEngineWebXmlStager implements Stager {
     stageMojo.getLog().info("Staging the application to: " + stagingDirectory);
     stageMojo.getLog().info("Detected App Engine appengine-web.xml based application.");
 
-    // delete staging directory if it exists
-    if (Files.exists(stagingDirectory)) {
+    // delete staging directory if it exists, unless sync staging will update it in place
+    if (Files.exists(stagingDirectory) && !stageMojo.isSync()) {
       stageMojo.getLog().info("Deleting the staging directory: " + stagingDirectory);
       try {
         FileUtils.deleteDirectory(stagingDirectory.toFile());
@@ -63,12 +58,14 @@ public class AppEngineWebXmlStager implements Stager {
         throw new MojoExecutionException("Unable to delete staging directory.", ex);
       }
     }
-    if (!stagingDirectory.toFile().mkdir()) {
+    if (!Files.isDirectory(stagingDirectory) && !stagingDirectory.toFile().mkdir()) {
       throw new MojoExecutionException("Unable to create staging directory");
     }
 
     try {
-      stageMojo.getAppEngineFactory().appengineWebXmlStaging().stageStandard(config);
+      StagingResult result =
+          stageMojo.getAppEngineFactory().appengineWebXmlStaging().stageStandard(config);
+      stageMojo.reportStagingResult(result);
     } catch (AppEngineException ex) {
       throw new RuntimeException(ex);
     }
@@ -95,6 +92,12 @@ public class AppEngineWebXmlStager implements Stager {
           .enableQuickstart(stageMojo.isEnableQuickstart())
           .jarSplittingExcludes(stageMojo.getJarSplittingExcludes())
           .runtime(processRuntime())
+          .sync(stageMojo.isSync())
+          .inProcess(stageMojo.isInProcess())
+          .nativeStaging(stageMojo.isNativeStaging())
+          .cacheDirectory(stageMojo.getCacheDirectory())
+          .cacheMaxSize(stageMojo.getCacheMaxSize())
+          .contentStoreDirectory(stageMojo.getContentStoreDirectory())
           .build();
     }
 
@@ -123,16 +126,10 @@ public class AppEngineWebXmlStager implements Stager {
 
     private boolean isVm(Path appengineWebXml) throws MojoExecutionException {
       try {
-        Document document =
-            DocumentBuilderFactory.newInstance()
-                .newDocumentBuilder()
-                .parse(appengineWebXml.toFile());
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        String expression = "/appengine-web-app/vm/text()='true'";
-        return (Boolean) xpath.evaluate(expression, document, XPathConstants.BOOLEAN);
-      } catch (XPathExpressionException ex) {
-        throw new MojoExecutionException("XPath evaluation failed on appengine-web.xml", ex);
-      } catch (SAXException | IOException | ParserConfigurationException ex) {
+        return DescriptorCache.getInstance().getAppEngineDescriptor(appengineWebXml).isVm();
+      } catch (AppEngineException ex) {
+        throw new MojoExecutionException("Failed to read vm from appengine-web.xml", ex);
+      } catch (SAXException | IOException ex) {
         throw new MojoExecutionException("Failed to parse appengine-web.xml", ex);
       }
     }
@@ -18,6 +18,8 @@ package com.google.cloud.tools.maven.stage;
 
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfiguration;
+import com.google.cloud.tools.appengine.operations.StagingPlan;
+import com.google.cloud.tools.appengine.operations.StagingResult;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -54,12 +56,23 @@ public class AppYamlStager implements Stager {
     }
 
     try {
-      stageMojo.getAppEngineFactory().appYamlStaging().stageArchive(config);
+      StagingResult result = stageMojo.getAppEngineFactory().appYamlStaging().stageArchive(config);
+      stageMojo.reportStagingResult(result);
     } catch (AppEngineException ex) {
       throw new RuntimeException(ex);
     }
   }
 
+  /** Computes the files staging would write, without writing anything. */
+  public StagingPlan plan() throws MojoExecutionException {
+    AppYamlProjectStageConfiguration config = configBuilder.buildConfiguration();
+    try {
+      return stageMojo.getAppEngineFactory().appYamlStaging().planStaging(config);
+    } catch (AppEngineException ex) {
+      throw new MojoExecutionException("Unable to plan staging: " + ex.getMessage(), ex);
+    }
+  }
+
   static class ConfigBuilder {
 
     private final AbstractStageMojo stageMojo;
@@ -74,7 +87,23 @@ public class AppYamlStager implements Stager {
               stageMojo.getArtifact(),
               stageMojo.getStagingDirectory())
           .extraFilesDirectories(stageMojo.getExtraFilesDirectories())
+          .extraFilesExcludes(stageMojo.getExtraFilesExcludes())
           .dockerDirectory(stageMojo.getDockerDirectory())
+          .incremental(stageMojo.isIncremental())
+          .sync(stageMojo.isSync())
+          .copyThreads(stageMojo.getCopyThreads())
+          .linkStrategy(stageMojo.getLinkStrategy())
+          .contentStoreDirectory(stageMojo.getContentStoreDirectory())
+          .cacheDirectory(stageMojo.getCacheDirectory())
+          .cacheMaxSize(stageMojo.getCacheMaxSize())
+          .splitFatJar(stageMojo.isSplitFatJar())
+          .normalizeJars(stageMojo.isNormalizeJars())
+          .appCds(stageMojo.isAppCds())
+          .appCdsJavaHome(stageMojo.getAppCdsJavaHome())
+          .appCdsTrainingArgs(stageMojo.getAppCdsTrainingArgs())
+          .appCdsTrainingTimeout(stageMojo.getAppCdsTrainingTimeout())
+          .tuneJvm(stageMojo.isTuneJvm())
+          .jvmFlags(stageMojo.getJvmFlags())
           .build();
     }
 
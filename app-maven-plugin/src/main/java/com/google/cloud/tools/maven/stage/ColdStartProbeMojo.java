@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.configuration.ColdStartProbeConfiguration;
+import com.google.cloud.tools.appengine.operations.ColdStartProbe;
+import com.google.cloud.tools.appengine.operations.ColdStartReport;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Starts a staged App Engine app.yaml based application locally several times, and reports how long
+ * it takes to respond.
+ */
+@Mojo(name = "coldStartProbe")
+public class ColdStartProbeMojo extends AbstractStageMojo {
+
+  /** Number of times the application is started and measured. Defaults to 5. */
+  @Parameter(alias = "probe.runs", property = "app.probe.runs")
+  private Integer runs;
+
+  /** Path of the local URL polled until the application responds. Defaults to {@code /}. */
+  @Parameter(alias = "probe.path", property = "app.probe.path")
+  private String path;
+
+  /** Port the application is told to listen on through {@code $PORT}. Defaults to a free port. */
+  @Parameter(alias = "probe.port", property = "app.probe.port")
+  private Integer port;
+
+  /** Seconds to wait for the application to respond in each run. Defaults to 60. */
+  @Parameter(alias = "probe.timeout", property = "app.probe.timeout")
+  private Integer timeout;
+
+  /** The JDK the application is started with. Defaults to the JDK running Maven. */
+  @Parameter(alias = "probe.javaHome", property = "app.probe.javaHome")
+  private File javaHome;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("Skipping appengine:coldStartProbe");
+      return;
+    }
+    if (!isAppEngineCompatiblePackaging()) {
+      return;
+    }
+    if (isAppEngineWebXmlBased()) {
+      throw new MojoExecutionException(
+          "appengine:coldStartProbe only supports app.yaml based applications.");
+    }
+    if (!Files.isDirectory(getStagingDirectory())) {
+      throw new MojoExecutionException(
+          "\nCould not find the staged application, did you stage your application?"
+              + "\nRun 'mvn package appengine:stage appengine:coldStartProbe'");
+    }
+
+    ColdStartProbeConfiguration configuration =
+        ColdStartProbeConfiguration.builder()
+            .stagingDirectory(getStagingDirectory())
+            .runs(runs)
+            .path(path)
+            .port(port)
+            .timeout(timeout)
+            .javaHome(javaHome == null ? null : javaHome.toPath())
+            .build();
+    try {
+      ColdStartReport report = new ColdStartProbe().probe(configuration);
+      getLog().info(report.getSummary());
+      Path reportFile =
+          Paths.get(getMavenProject().getBuild().getDirectory()).resolve(ColdStartReport.FILE_NAME);
+      report.writeJson(reportFile);
+      getLog().info("Wrote cold start report to " + reportFile);
+    } catch (AppEngineException | IOException ex) {
+      throw new MojoExecutionException("Cold start probe failed.", ex);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.operations.StagingPhase;
+import com.google.cloud.tools.appengine.operations.StagingPlan;
+import java.nio.file.Files;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Lists the files staging an App Engine app.yaml based application would write, and why, without
+ * staging it.
+ */
+@Mojo(name = "stageDryRun")
+public class StageDryRunMojo extends AbstractStageMojo {
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("Skipping appengine:stageDryRun");
+      return;
+    }
+    if (!isAppEngineCompatiblePackaging()) {
+      return;
+    }
+    if (getArtifact() == null || !Files.exists(getArtifact())) {
+      throw new MojoExecutionException(
+          "\nCould not find the application artifact, did you package your application?"
+              + "\nRun 'mvn package appengine:stageDryRun'");
+    }
+    if (isAppEngineWebXmlBased()) {
+      throw new MojoExecutionException(
+          "appengine:stageDryRun only supports app.yaml based applications.");
+    }
+
+    StagingPlan plan = AppYamlStager.newAppYamlStager(this).plan();
+    getLog()
+        .info(
+            "Staging would write "
+                + plan.getFileCount()
+                + " files ("
+                + plan.getTotalBytes()
+                + " bytes) to "
+                + plan.getStagingDirectory());
+    for (StagingPhase phase : StagingPhase.values()) {
+      if (plan.getFileCount(phase) > 0) {
+        getLog()
+            .info(
+                "  "
+                    + phase
+                    + ": "
+                    + plan.getFileCount(phase)
+                    + " files ("
+                    + plan.getTotalBytes(phase)
+                    + " bytes)");
+      }
+    }
+    for (StagingPlan.Entry entry : plan.getEntries()) {
+      getLog()
+          .info(
+              "  "
+                  + entry.getDestination()
+                  + " <- "
+                  + entry.getSource()
+                  + " ("
+                  + entry.getPhase()
+                  + ", "
+                  + entry.getSize()
+                  + " bytes)");
+    }
+  }
+}
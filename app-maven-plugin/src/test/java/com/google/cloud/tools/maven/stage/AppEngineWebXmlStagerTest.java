@@ -21,6 +21,7 @@ import static org.mockito.Mockito.when;
 
 import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
 import com.google.cloud.tools.appengine.operations.AppEngineWebXmlProjectStaging;
+import com.google.cloud.tools.appengine.operations.StagingResult;
 import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
 import com.google.cloud.tools.maven.stage.AppEngineWebXmlStager.ConfigBuilder;
 import com.google.common.base.Strings;
@@ -70,6 +71,8 @@ public class AppEngineWebXmlStagerTest {
 
   @Test
   public void testStage() throws Exception {
+    StagingResult result = Mockito.mock(StagingResult.class);
+    when(staging.stageStandard(stagingConfiguration)).thenReturn(result);
 
     // invoke
     testStager.stage();
@@ -77,9 +80,23 @@ public class AppEngineWebXmlStagerTest {
     // verify
     verify(appengineFactory).appengineWebXmlStaging();
     verify(staging).stageStandard(stagingConfiguration);
+    verify(stageMojo).reportStagingResult(result);
     verify(logMock).info("Detected App Engine appengine-web.xml based application.");
   }
 
+  @Test
+  public void testStage_syncKeepsStagingDirectory() throws Exception {
+    Path stagingDirectory = tempFolder.newFolder("staging").toPath();
+    Path previouslyStaged = Files.createFile(stagingDirectory.resolve("app.yaml"));
+    when(stagingConfiguration.getStagingDirectory()).thenReturn(stagingDirectory);
+    when(stageMojo.isSync()).thenReturn(true);
+
+    testStager.stage();
+
+    Assert.assertTrue(Files.exists(previouslyStaged));
+    verify(staging).stageStandard(stagingConfiguration);
+  }
+
   @Test
   @Parameters({
     "dockerfile|dockerfile1|dockerfile2|dockerfile",
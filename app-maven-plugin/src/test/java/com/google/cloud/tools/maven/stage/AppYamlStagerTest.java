@@ -16,17 +16,25 @@
 
 package com.google.cloud.tools.maven.stage;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfiguration;
 import com.google.cloud.tools.appengine.operations.AppYamlProjectStaging;
+import com.google.cloud.tools.appengine.operations.StagingPlan;
+import com.google.cloud.tools.appengine.operations.StagingResult;
 import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
 import com.google.cloud.tools.maven.stage.AppYamlStager.ConfigBuilder;
 import junitparams.JUnitParamsRunner;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -58,4 +66,37 @@ public class AppYamlStagerTest {
     when(configBuilder.buildConfiguration()).thenReturn(stagingConfiguration);
     when(stagingConfiguration.getStagingDirectory()).thenReturn(tempFolder.getRoot().toPath());
   }
+
+  @Test
+  public void testStage() throws MojoExecutionException, AppEngineException {
+    StagingResult result = mock(StagingResult.class);
+    when(staging.stageArchive(stagingConfiguration)).thenReturn(result);
+
+    testStager.stage();
+
+    verify(stageMojo).reportStagingResult(result);
+  }
+
+  @Test
+  public void testPlan() throws MojoExecutionException, AppEngineException {
+    StagingPlan plan = mock(StagingPlan.class);
+    when(staging.planStaging(stagingConfiguration)).thenReturn(plan);
+
+    Assert.assertSame(plan, testStager.plan());
+  }
+
+  @Test
+  public void testPlan_failure() throws AppEngineException {
+    when(staging.planStaging(stagingConfiguration))
+        .thenThrow(new AppEngineException("Cannot process application with runtime: moose"));
+
+    try {
+      testStager.plan();
+      Assert.fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Unable to plan staging: Cannot process application with runtime: moose",
+          ex.getMessage());
+    }
+  }
 }
@@ -17,6 +17,7 @@
 package com.google.cloud.tools.appengine;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
@@ -27,22 +28,48 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
-/** Utilities to obtain information from appengine-web.xml. */
+/**
+ * Utilities to obtain information from appengine-web.xml. The values are read from the document
+ * when the descriptor is created, and the document is not kept, so instances are immutable and can
+ * be shared between threads.
+ */
 public class AppEngineDescriptor {
 
   private static final String APP_ENGINE_NAMESPACE = "http://appengine.google.com/ns/1.0";
   private static final String DISALLOW_DOCTYPE_DECLARATIONS =
       "http://apache.org/xml/features/disallow-doctype-decl";
-  private final Document document;
 
-  // private to force use of parse method
+  @Nullable private final String projectId;
+  @Nullable private final String runtime;
+  @Nullable private final String projectVersion;
+  @Nullable private final String serviceId;
+  private final boolean vm;
+  private final ImmutableMap<String, String> environment;
+
+  /**
+   * Reads the values of a parsed appengine-web.xml. Private to force use of parse method.
+   *
+   * @throws DOMException if the text of an element cannot be read
+   */
   protected AppEngineDescriptor(Document document) {
-    this.document = document;
+    projectId = getText(getNode(document, "appengine-web-app", "application"));
+    runtime = getText(getNode(document, "appengine-web-app", "runtime"));
+    projectVersion = getText(getNode(document, "appengine-web-app", "version"));
+    String service = getText(getNode(document, "appengine-web-app", "service"));
+    serviceId =
+        service != null ? service : getText(getNode(document, "appengine-web-app", "module"));
+    vm = readVm(document);
+    Node environmentParentNode = getNode(document, "appengine-web-app", "env-variables");
+    environment =
+        environmentParentNode == null
+            ? ImmutableMap.of()
+            : getAttributeMap(environmentParentNode, "env-var", "name", "value");
   }
 
   /**
@@ -61,7 +88,7 @@ public class AppEngineDescriptor {
       documentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
       documentBuilderFactory.setFeature(DISALLOW_DOCTYPE_DECLARATIONS, true);
       return new AppEngineDescriptor(documentBuilderFactory.newDocumentBuilder().parse(in));
-    } catch (ParserConfigurationException exception) {
+    } catch (ParserConfigurationException | DOMException exception) {
       throw new SAXException("Cannot parse appengine-web.xml", exception);
     }
   }
@@ -72,7 +99,7 @@ public class AppEngineDescriptor {
    */
   @Nullable
   public String getProjectId() throws AppEngineException {
-    return getText(getNode(document, "appengine-web-app", "application"));
+    return projectId;
   }
 
   /**
@@ -80,9 +107,8 @@ public class AppEngineDescriptor {
    * when it is missing.
    */
   public String getRuntime() throws AppEngineException {
-    String runtime = getText(getNode(document, "appengine-web-app", "runtime"));
     if (runtime == null) {
-      runtime = "java7"; // the default runtime when not specified.
+      return "java7"; // the default runtime when not specified.
     }
     return runtime;
   }
@@ -93,7 +119,7 @@ public class AppEngineDescriptor {
    */
   @Nullable
   public String getProjectVersion() throws AppEngineException {
-    return getText(getNode(document, "appengine-web-app", "version"));
+    return projectVersion;
   }
 
   /**
@@ -102,11 +128,7 @@ public class AppEngineDescriptor {
    */
   @Nullable
   public String getServiceId() throws AppEngineException {
-    String serviceId = getText(getNode(document, "appengine-web-app", "service"));
-    if (serviceId != null) {
-      return serviceId;
-    }
-    return getText(getNode(document, "appengine-web-app", "module"));
+    return serviceId;
   }
 
   /** Returns true if the runtime read from appengine-web.xml is Java8. */
@@ -123,6 +145,29 @@ public class AppEngineDescriptor {
     return "java7".equals(getRuntime());
   }
 
+  /**
+   * Returns true if the &lt;vm&gt; element of the appengine-web.xml is {@code true}. The elements
+   * are matched by name only, since older flexible compat descriptors often omit the namespace.
+   */
+  public boolean isVm() throws AppEngineException {
+    return vm;
+  }
+
+  private static boolean readVm(Document document) {
+    Element root = document.getDocumentElement();
+    if (root == null || !"appengine-web-app".equals(root.getNodeName())) {
+      return false;
+    }
+    NodeList children = root.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      Node child = children.item(i);
+      if ("vm".equals(child.getNodeName()) && "true".equals(getText(child))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Given the following structure:
    *
@@ -137,31 +182,17 @@ public class AppEngineDescriptor {
    * @return a map representing the environment variable settings in the appengine-web.xml
    */
   public Map<String, String> getEnvironment() throws AppEngineException {
-    Node environmentParentNode = getNode(document, "appengine-web-app", "env-variables");
-    if (environmentParentNode != null) {
-      return getAttributeMap(environmentParentNode, "env-var", "name", "value");
-    }
-    return new HashMap<>();
+    return new HashMap<>(environment);
   }
 
   @Nullable
-  private static String getText(@Nullable Node node) throws AppEngineException {
-    if (node != null) {
-      try {
-        return node.getTextContent();
-      } catch (DOMException ex) {
-        throw new AppEngineException(
-            "Failed to parse text content from node " + node.getNodeName(), ex);
-      }
-    }
-
-    return null;
+  private static String getText(@Nullable Node node) {
+    return node == null ? null : node.getTextContent();
   }
 
   /** Returns a map formed from the attributes of the nodes contained within the parent node. */
-  private static Map<String, String> getAttributeMap(
-      Node parent, String nodeName, String keyAttributeName, String valueAttributeName)
-      throws AppEngineException {
+  private static ImmutableMap<String, String> getAttributeMap(
+      Node parent, String nodeName, String keyAttributeName, String valueAttributeName) {
 
     Map<String, String> nameValueAttributeMap = new HashMap<>();
     if (parent.hasChildNodes()) {
@@ -174,18 +205,13 @@ public class AppEngineDescriptor {
 
           if (keyNode != null) {
             Node valueNode = attributeMap.getNamedItem(valueAttributeName);
-            try {
-              nameValueAttributeMap.put(keyNode.getTextContent(), valueNode.getTextContent());
-            } catch (DOMException ex) {
-              throw new AppEngineException(
-                  "Failed to parse value from attribute node " + keyNode.getNodeName(), ex);
-            }
+            nameValueAttributeMap.put(keyNode.getTextContent(), valueNode.getTextContent());
           }
         }
       }
     }
 
-    return nameValueAttributeMap;
+    return ImmutableMap.copyOf(nameValueAttributeMap);
   }
 
   /** Returns the first node found matching the given name contained within the parent node. */
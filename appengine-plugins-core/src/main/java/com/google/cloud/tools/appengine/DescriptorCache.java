@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine;
+
+import com.google.cloud.tools.project.AppYaml;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.xml.sax.SAXException;
+
+/**
+ * Shares parsed {@code app.yaml} and {@code appengine-web.xml} descriptors across callers. An entry
+ * is keyed by the file's path and stays valid while the file's modification time and size are
+ * unchanged; otherwise the file is parsed again. Only the latest version of each file is kept.
+ * Cached descriptors are immutable, so builds running in parallel can share them.
+ */
+public class DescriptorCache {
+
+  private static final DescriptorCache INSTANCE = new DescriptorCache();
+
+  /** Returns the cache shared by this class loader. */
+  public static DescriptorCache getInstance() {
+    return INSTANCE;
+  }
+
+  private final Map<Path, Entry<AppYaml>> appYamls = new ConcurrentHashMap<>();
+  private final Map<Path, Entry<AppEngineDescriptor>> appEngineDescriptors =
+      new ConcurrentHashMap<>();
+
+  @VisibleForTesting
+  DescriptorCache() {}
+
+  /**
+   * Returns the parsed contents of an {@code app.yaml} file.
+   *
+   * @param appYaml path to the {@code app.yaml} file
+   * @throws IOException if the file cannot be read
+   * @throws AppEngineException if the file is malformed
+   */
+  public AppYaml getAppYaml(Path appYaml) throws IOException, AppEngineException {
+    Path key = appYaml.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    Entry<AppYaml> entry = appYamls.get(key);
+    if (entry != null && entry.matches(attributes)) {
+      return entry.descriptor;
+    }
+    try (InputStream input = Files.newInputStream(key)) {
+      AppYaml parsed = AppYaml.parse(input);
+      appYamls.put(key, new Entry<>(attributes, parsed));
+      return parsed;
+    }
+  }
+
+  /**
+   * Returns the parsed contents of an {@code appengine-web.xml} file.
+   *
+   * @param appEngineWebXml path to the {@code appengine-web.xml} file
+   * @throws IOException if the file cannot be read
+   * @throws SAXException if the file is malformed
+   */
+  public AppEngineDescriptor getAppEngineDescriptor(Path appEngineWebXml)
+      throws IOException, SAXException {
+    Path key = appEngineWebXml.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    Entry<AppEngineDescriptor> entry = appEngineDescriptors.get(key);
+    if (entry != null && entry.matches(attributes)) {
+      return entry.descriptor;
+    }
+    try (InputStream input = Files.newInputStream(key)) {
+      AppEngineDescriptor parsed = AppEngineDescriptor.parse(input);
+      appEngineDescriptors.put(key, new Entry<>(attributes, parsed));
+      return parsed;
+    }
+  }
+
+  /** Drops every cached descriptor. */
+  public void clear() {
+    appYamls.clear();
+    appEngineDescriptors.clear();
+  }
+
+  private static class Entry<T> {
+    private final long lastModified;
+    private final long size;
+    private final T descriptor;
+
+    private Entry(BasicFileAttributes attributes, T descriptor) {
+      this.lastModified = attributes.lastModifiedTime().toMillis();
+      this.size = attributes.size();
+      this.descriptor = descriptor;
+    }
+
+    private boolean matches(BasicFileAttributes attributes) {
+      return lastModified == attributes.lastModifiedTime().toMillis() && size == attributes.size();
+    }
+  }
+}
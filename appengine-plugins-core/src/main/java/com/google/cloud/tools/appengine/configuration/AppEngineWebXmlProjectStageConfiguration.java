@@ -37,6 +37,12 @@ public class AppEngineWebXmlProjectStageConfiguration {
   @Nullable private final Boolean enableJarClasses;
   @Nullable private final Boolean disableJarJsps;
   @Nullable private final String runtime;
+  @Nullable private final Boolean sync;
+  @Nullable private final Boolean inProcess;
+  @Nullable private final Boolean nativeStaging;
+  @Nullable private final Path cacheDirectory;
+  @Nullable private final Long cacheMaxSize;
+  @Nullable private final Path contentStoreDirectory;
 
   private AppEngineWebXmlProjectStageConfiguration(
       Path sourceDirectory,
@@ -50,7 +56,13 @@ public class AppEngineWebXmlProjectStageConfiguration {
       @Nullable Boolean deleteJsps,
       @Nullable Boolean enableJarClasses,
       @Nullable Boolean disableJarJsps,
-      @Nullable String runtime) {
+      @Nullable String runtime,
+      @Nullable Boolean sync,
+      @Nullable Boolean inProcess,
+      @Nullable Boolean nativeStaging,
+      @Nullable Path cacheDirectory,
+      @Nullable Long cacheMaxSize,
+      @Nullable Path contentStoreDirectory) {
     this.sourceDirectory = sourceDirectory;
     this.stagingDirectory = stagingDirectory;
     this.dockerfile = dockerfile;
@@ -63,6 +75,12 @@ public class AppEngineWebXmlProjectStageConfiguration {
     this.enableJarClasses = enableJarClasses;
     this.disableJarJsps = disableJarJsps;
     this.runtime = runtime;
+    this.sync = sync;
+    this.inProcess = inProcess;
+    this.nativeStaging = nativeStaging;
+    this.cacheDirectory = cacheDirectory;
+    this.cacheMaxSize = cacheMaxSize;
+    this.contentStoreDirectory = contentStoreDirectory;
   }
 
   /** The exploded war directory to stage from. */
@@ -127,6 +145,69 @@ public class AppEngineWebXmlProjectStageConfiguration {
     return runtime;
   }
 
+  /**
+   * Make the staging directory match the staged application exactly instead of deleting and
+   * recreating it: files are staged to a temporary directory first, then only new and changed files
+   * are moved into the staging directory and files that are no longer staged are deleted. Identical
+   * files are left untouched.
+   */
+  @Nullable
+  public Boolean getSync() {
+    return sync;
+  }
+
+  /**
+   * Run appcfg inside the build's JVM instead of forking a new one. The App Engine tools jar is
+   * loaded once into an isolated class loader that is reused by later staging runs. Falls back to
+   * forking when the tools jar cannot be loaded.
+   */
+  @Nullable
+  public Boolean getInProcess() {
+    return inProcess;
+  }
+
+  /**
+   * Stage without appcfg when the application only uses what the native stager supports: copying
+   * the exploded war, generating app.yaml, jar splitting and jarring classes. Applications that
+   * need JSP compilation, quickstart or other appcfg features are still staged with appcfg.
+   */
+  @Nullable
+  public Boolean getNativeStaging() {
+    return nativeStaging;
+  }
+
+  /**
+   * A directory in which appcfg's staging output is cached, keyed by a hash of the exploded war and
+   * the staging flags. When the same inputs are staged again the output, including compiled JSPs
+   * and quickstart-web.xml, is restored from the cache instead of running appcfg. The directory can
+   * be shared by builds on the same machine. The least recently used outputs are evicted once the
+   * cache holds more than {@link #getCacheMaxSize()}.
+   */
+  @Nullable
+  public Path getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  /**
+   * Maximum size in bytes of the files in the staging cache, beyond which the least recently used
+   * outputs are evicted. Defaults to 2 GiB.
+   */
+  @Nullable
+  public Long getCacheMaxSize() {
+    return cacheMaxSize;
+  }
+
+  /**
+   * A content-addressed store through which the staged {@code WEB-INF/lib} jars are linked, so that
+   * a jar shared by several services is written to disk once. The directory can be shared by the
+   * services of a build and by builds on the same machine, and should be on the same file system as
+   * the staging directory for the jars to be hard linked.
+   */
+  @Nullable
+  public Path getContentStoreDirectory() {
+    return contentStoreDirectory;
+  }
+
   public static Builder builder() {
     return new Builder();
   }
@@ -155,6 +236,12 @@ public class AppEngineWebXmlProjectStageConfiguration {
     @Nullable private Boolean enableJarClasses;
     @Nullable private Boolean disableJarJsps;
     @Nullable private String runtime;
+    @Nullable private Boolean sync;
+    @Nullable private Boolean inProcess;
+    @Nullable private Boolean nativeStaging;
+    @Nullable private Path cacheDirectory;
+    @Nullable private Long cacheMaxSize;
+    @Nullable private Path contentStoreDirectory;
 
     public Builder dockerfile(@Nullable Path dockerfile) {
       this.dockerfile = dockerfile;
@@ -206,6 +293,39 @@ public class AppEngineWebXmlProjectStageConfiguration {
       return this;
     }
 
+    public Builder sync(@Nullable Boolean sync) {
+      this.sync = sync;
+      return this;
+    }
+
+    public Builder inProcess(@Nullable Boolean inProcess) {
+      this.inProcess = inProcess;
+      return this;
+    }
+
+    public Builder nativeStaging(@Nullable Boolean nativeStaging) {
+      this.nativeStaging = nativeStaging;
+      return this;
+    }
+
+    public Builder cacheDirectory(@Nullable Path cacheDirectory) {
+      this.cacheDirectory = cacheDirectory;
+      return this;
+    }
+
+    /** Sets the maximum size of the staging cache in bytes, which must be positive. */
+    public Builder cacheMaxSize(@Nullable Long cacheMaxSize) {
+      Preconditions.checkArgument(
+          cacheMaxSize == null || cacheMaxSize > 0, "cacheMaxSize must be positive");
+      this.cacheMaxSize = cacheMaxSize;
+      return this;
+    }
+
+    public Builder contentStoreDirectory(@Nullable Path contentStoreDirectory) {
+      this.contentStoreDirectory = contentStoreDirectory;
+      return this;
+    }
+
     public Builder sourceDirectory(Path sourceDirectory) {
       this.sourceDirectory = Preconditions.checkNotNull(sourceDirectory);
       return this;
@@ -234,7 +354,13 @@ public class AppEngineWebXmlProjectStageConfiguration {
           this.deleteJsps,
           this.enableJarClasses,
           this.disableJarJsps,
-          this.runtime);
+          this.runtime,
+          this.sync,
+          this.inProcess,
+          this.nativeStaging,
+          this.cacheDirectory,
+          this.cacheMaxSize,
+          this.contentStoreDirectory);
     }
   }
 }
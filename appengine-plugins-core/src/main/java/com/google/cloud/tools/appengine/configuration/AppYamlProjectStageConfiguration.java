@@ -31,21 +31,71 @@ public class AppYamlProjectStageConfiguration {
   private final Path appEngineDirectory;
   @Nullable private final Path dockerDirectory;
   @Nullable private final List<Path> extraFilesDirectories;
+  @Nullable private final List<String> extraFilesExcludes;
   private final Path artifact;
   private final Path stagingDirectory;
+  @Nullable private final Boolean incremental;
+  @Nullable private final Boolean sync;
+  @Nullable private final Integer copyThreads;
+  @Nullable private final LinkStrategy linkStrategy;
+  @Nullable private final Path contentStoreDirectory;
+  @Nullable private final Path cacheDirectory;
+  @Nullable private final Long cacheMaxSize;
+  @Nullable private final Boolean splitFatJar;
+  @Nullable private final Boolean normalizeJars;
+  @Nullable private final Boolean appCds;
+  @Nullable private final Path appCdsJavaHome;
+  @Nullable private final List<String> appCdsTrainingArgs;
+  @Nullable private final Integer appCdsTrainingTimeout;
+  @Nullable private final Boolean tuneJvm;
+  @Nullable private final List<String> jvmFlags;
 
   private AppYamlProjectStageConfiguration(
       Path appEngineDirectory,
       @Nullable Path dockerDirectory,
       @Nullable List<Path> extraFilesDirectories,
+      @Nullable List<String> extraFilesExcludes,
       Path artifact,
-      Path stagingDirectory) {
+      Path stagingDirectory,
+      @Nullable Boolean incremental,
+      @Nullable Boolean sync,
+      @Nullable Integer copyThreads,
+      @Nullable LinkStrategy linkStrategy,
+      @Nullable Path contentStoreDirectory,
+      @Nullable Path cacheDirectory,
+      @Nullable Long cacheMaxSize,
+      @Nullable Boolean splitFatJar,
+      @Nullable Boolean normalizeJars,
+      @Nullable Boolean appCds,
+      @Nullable Path appCdsJavaHome,
+      @Nullable List<String> appCdsTrainingArgs,
+      @Nullable Integer appCdsTrainingTimeout,
+      @Nullable Boolean tuneJvm,
+      @Nullable List<String> jvmFlags) {
     this.appEngineDirectory = appEngineDirectory;
     this.dockerDirectory = dockerDirectory;
     this.artifact = artifact;
     this.stagingDirectory = stagingDirectory;
+    this.incremental = incremental;
+    this.sync = sync;
+    this.copyThreads = copyThreads;
+    this.linkStrategy = linkStrategy;
+    this.contentStoreDirectory = contentStoreDirectory;
+    this.cacheDirectory = cacheDirectory;
+    this.cacheMaxSize = cacheMaxSize;
+    this.splitFatJar = splitFatJar;
+    this.normalizeJars = normalizeJars;
+    this.appCds = appCds;
+    this.appCdsJavaHome = appCdsJavaHome;
+    this.appCdsTrainingTimeout = appCdsTrainingTimeout;
+    this.tuneJvm = tuneJvm;
     this.extraFilesDirectories =
         (extraFilesDirectories == null) ? null : ImmutableList.copyOf(extraFilesDirectories);
+    this.extraFilesExcludes =
+        (extraFilesExcludes == null) ? null : ImmutableList.copyOf(extraFilesExcludes);
+    this.appCdsTrainingArgs =
+        (appCdsTrainingArgs == null) ? null : ImmutableList.copyOf(appCdsTrainingArgs);
+    this.jvmFlags = (jvmFlags == null) ? null : ImmutableList.copyOf(jvmFlags);
   }
 
   /** Directory containing {@code app.yaml}. */
@@ -65,6 +115,16 @@ public class AppYamlProjectStageConfiguration {
     return extraFilesDirectories;
   }
 
+  /**
+   * Files to leave out when copying the extra files directories. Each entry is a glob relative to
+   * an extra files directory, such as {@code secrets/**} or {@code **}{@code /*.log}, or a {@code
+   * regex:} pattern. An excluded directory is skipped with all its contents.
+   */
+  @Nullable
+  public List<String> getExtraFilesExcludes() {
+    return extraFilesExcludes;
+  }
+
   /** Artifact to deploy such as WAR or JAR. */
   public Path getArtifact() {
     return artifact;
@@ -72,12 +132,195 @@ public class AppYamlProjectStageConfiguration {
 
   /**
    * Directory where {@code app.yaml}, files in docker directory, and the artifact to deploy will be
-   * copied for deploying.
+   * copied for deploying. It may be on any {@link java.nio.file.FileSystem}, for example the root
+   * directory of a zip file system, to stage straight into an archive.
    */
   public Path getStagingDirectory() {
     return stagingDirectory;
   }
 
+  /**
+   * Only copy new or changed files into the staging directory, and remove files that are no longer
+   * part of the staged application. Changes are tracked with a manifest kept next to the staging
+   * directory.
+   */
+  @Nullable
+  public Boolean getIncremental() {
+    return incremental;
+  }
+
+  /**
+   * Make the staging directory match the staged application exactly, like {@code rsync --delete}:
+   * new and changed files are written, identical files are left untouched and anything else in the
+   * staging directory is deleted. Takes precedence over {@link #getIncremental()}.
+   */
+  @Nullable
+  public Boolean getSync() {
+    return sync;
+  }
+
+  /**
+   * Number of threads used to copy directories and the artifact's {@code Class-Path} jars into the
+   * staging directory.
+   */
+  @Nullable
+  public Integer getCopyThreads() {
+    return copyThreads;
+  }
+
+  /**
+   * How the artifact and the jars referenced by its {@code Class-Path} are placed into the staging
+   * directory.
+   */
+  @Nullable
+  public LinkStrategy getLinkStrategy() {
+    return linkStrategy;
+  }
+
+  /**
+   * A content-addressed store through which the artifact and its {@code Class-Path} jars are linked
+   * into the staging directory, so that a jar shared by several services is written to disk once.
+   * The directory can be shared by the services of a build and by builds on the same machine, and
+   * should be on the same file system as the staging directory for the jars to be hard linked.
+   */
+  @Nullable
+  public Path getContentStoreDirectory() {
+    return contentStoreDirectory;
+  }
+
+  /**
+   * A directory in which staging results are cached, keyed by a hash of every staged file and where
+   * it is staged. When the same inputs are staged again, the result is linked into the staging
+   * directory from the cache instead of being staged. The directory can be shared by builds on the
+   * same machine. Not used with {@link #getIncremental()} or {@link #getSync()}, which avoid
+   * rewriting unchanged files already.
+   */
+  @Nullable
+  public Path getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  /**
+   * Maximum size in bytes of the files in the staging cache, beyond which the least recently used
+   * results are evicted. Defaults to 2 GiB.
+   */
+  @Nullable
+  public Long getCacheMaxSize() {
+    return cacheMaxSize;
+  }
+
+  /**
+   * Split a fat jar artifact into a thin jar and separate dependency jars in {@code lib},
+   * referenced from the thin jar's manifest {@code Class-Path}. Unchanged dependencies then stage
+   * as identical files, which deployment does not upload again. Jars that nest their dependencies
+   * in {@code BOOT-INF/lib} are split into those jars, and shaded jars into one jar per package
+   * prefix. The parts are kept beside the staging directory and reused until the fat jar changes.
+   * Applies to jar artifacts of second generation runtimes.
+   */
+  @Nullable
+  public Boolean getSplitFatJar() {
+    return splitFatJar;
+  }
+
+  /**
+   * Rewrite the artifact and its {@code Class-Path} jars as they are staged, with sorted entries,
+   * fixed timestamps and default compression, so that jars with the same content are staged as the
+   * same bytes and deployment does not upload them again. Jars this tool already normalized are
+   * staged as they are.
+   */
+  @Nullable
+  public Boolean getNormalizeJars() {
+    return normalizeJars;
+  }
+
+  /**
+   * Create an AppCDS archive of the classes the application loads at startup, and add it to the
+   * staged {@code app.yaml} entrypoint, so that instances start without loading those classes from
+   * the jars. The staged application is run once from the staging directory to record its classes,
+   * with {@code $PORT} set to a free port, until it exits or {@link #getAppCdsTrainingTimeout()}
+   * passes. Applies to jar artifacts of the {@code java17} and later runtimes, staged to a local
+   * directory. The JVM only uses the archive if it is the same JDK build that created it.
+   */
+  @Nullable
+  public Boolean getAppCds() {
+    return appCds;
+  }
+
+  /**
+   * The JDK the AppCDS archive is created with, whose feature version must match the runtime.
+   * Defaults to the JDK running this tool.
+   */
+  @Nullable
+  public Path getAppCdsJavaHome() {
+    return appCdsJavaHome;
+  }
+
+  /**
+   * Arguments passed to the application while the AppCDS archive is created, for example to make it
+   * exit once it has started, such as {@code --spring.context.exit=onRefresh}.
+   */
+  @Nullable
+  public List<String> getAppCdsTrainingArgs() {
+    return appCdsTrainingArgs;
+  }
+
+  /**
+   * Seconds after which the application run to create the AppCDS archive is stopped, if it has not
+   * exited by itself. Defaults to 60.
+   */
+  @Nullable
+  public Integer getAppCdsTrainingTimeout() {
+    return appCdsTrainingTimeout;
+  }
+
+  /**
+   * Generate the staged {@code app.yaml} entrypoint with JVM flags tuned to the memory and CPU of
+   * its {@code instance_class}: heap size, garbage collector, tiered compilation and the processor
+   * count the JVM sizes its threads by. The app.yaml must not define an entrypoint of its own.
+   * Unknown instance classes and heaps that do not fit the instance are rejected. Applies to jar
+   * artifacts of second generation runtimes.
+   */
+  @Nullable
+  public Boolean getTuneJvm() {
+    return tuneJvm;
+  }
+
+  /**
+   * JVM flags added to the tuned ones, such as {@code -Xss1m}, replacing any tuned flag for the
+   * same option. Any garbage collector flag replaces the tuned collector, and any heap limit the
+   * tuned {@code -Xmx}. Used with {@link #getTuneJvm()}.
+   */
+  @Nullable
+  public List<String> getJvmFlags() {
+    return jvmFlags;
+  }
+
+  /** Creates a builder initialized with this configuration. */
+  public Builder toBuilder() {
+    return new Builder()
+        .appEngineDirectory(appEngineDirectory)
+        .artifact(artifact)
+        .stagingDirectory(stagingDirectory)
+        .dockerDirectory(dockerDirectory)
+        .extraFilesDirectories(extraFilesDirectories)
+        .extraFilesExcludes(extraFilesExcludes)
+        .incremental(incremental)
+        .sync(sync)
+        .copyThreads(copyThreads)
+        .linkStrategy(linkStrategy)
+        .contentStoreDirectory(contentStoreDirectory)
+        .cacheDirectory(cacheDirectory)
+        .cacheMaxSize(cacheMaxSize)
+        .splitFatJar(splitFatJar)
+        .normalizeJars(normalizeJars)
+        .appCds(appCds)
+        .appCdsJavaHome(appCdsJavaHome)
+        .appCdsTrainingArgs(appCdsTrainingArgs)
+        .appCdsTrainingTimeout(appCdsTrainingTimeout)
+        .tuneJvm(tuneJvm)
+        .jvmFlags(jvmFlags);
+  }
+
   public static Builder builder() {
     return new Builder();
   }
@@ -100,8 +343,24 @@ public class AppYamlProjectStageConfiguration {
     @Nullable private Path appEngineDirectory;
     @Nullable private Path dockerDirectory;
     @Nullable private List<Path> extraFilesDirectories;
+    @Nullable private List<String> extraFilesExcludes;
     @Nullable private Path artifact;
     @Nullable private Path stagingDirectory;
+    @Nullable private Boolean incremental;
+    @Nullable private Boolean sync;
+    @Nullable private Integer copyThreads;
+    @Nullable private LinkStrategy linkStrategy;
+    @Nullable private Path contentStoreDirectory;
+    @Nullable private Path cacheDirectory;
+    @Nullable private Long cacheMaxSize;
+    @Nullable private Boolean splitFatJar;
+    @Nullable private Boolean normalizeJars;
+    @Nullable private Boolean appCds;
+    @Nullable private Path appCdsJavaHome;
+    @Nullable private List<String> appCdsTrainingArgs;
+    @Nullable private Integer appCdsTrainingTimeout;
+    @Nullable private Boolean tuneJvm;
+    @Nullable private List<String> jvmFlags;
 
     private Builder() {}
 
@@ -132,6 +391,101 @@ public class AppYamlProjectStageConfiguration {
       return this;
     }
 
+    public AppYamlProjectStageConfiguration.Builder extraFilesExcludes(
+        @Nullable List<String> extraFilesExcludes) {
+      this.extraFilesExcludes = extraFilesExcludes;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder incremental(@Nullable Boolean incremental) {
+      this.incremental = incremental;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder sync(@Nullable Boolean sync) {
+      this.sync = sync;
+      return this;
+    }
+
+    /** Sets the number of threads used to copy directories, which must be positive. */
+    public AppYamlProjectStageConfiguration.Builder copyThreads(@Nullable Integer copyThreads) {
+      Preconditions.checkArgument(
+          copyThreads == null || copyThreads > 0, "copyThreads must be positive");
+      this.copyThreads = copyThreads;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder linkStrategy(
+        @Nullable LinkStrategy linkStrategy) {
+      this.linkStrategy = linkStrategy;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder contentStoreDirectory(
+        @Nullable Path contentStoreDirectory) {
+      this.contentStoreDirectory = contentStoreDirectory;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder cacheDirectory(@Nullable Path cacheDirectory) {
+      this.cacheDirectory = cacheDirectory;
+      return this;
+    }
+
+    /** Sets the maximum size of the staging cache in bytes, which must be positive. */
+    public AppYamlProjectStageConfiguration.Builder cacheMaxSize(@Nullable Long cacheMaxSize) {
+      Preconditions.checkArgument(
+          cacheMaxSize == null || cacheMaxSize > 0, "cacheMaxSize must be positive");
+      this.cacheMaxSize = cacheMaxSize;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder splitFatJar(@Nullable Boolean splitFatJar) {
+      this.splitFatJar = splitFatJar;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder normalizeJars(@Nullable Boolean normalizeJars) {
+      this.normalizeJars = normalizeJars;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder appCds(@Nullable Boolean appCds) {
+      this.appCds = appCds;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder appCdsJavaHome(@Nullable Path appCdsJavaHome) {
+      this.appCdsJavaHome = appCdsJavaHome;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder appCdsTrainingArgs(
+        @Nullable List<String> appCdsTrainingArgs) {
+      this.appCdsTrainingArgs = appCdsTrainingArgs;
+      return this;
+    }
+
+    /** Sets the AppCDS training timeout in seconds, which must be positive. */
+    public AppYamlProjectStageConfiguration.Builder appCdsTrainingTimeout(
+        @Nullable Integer appCdsTrainingTimeout) {
+      Preconditions.checkArgument(
+          appCdsTrainingTimeout == null || appCdsTrainingTimeout > 0,
+          "appCdsTrainingTimeout must be positive");
+      this.appCdsTrainingTimeout = appCdsTrainingTimeout;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder tuneJvm(@Nullable Boolean tuneJvm) {
+      this.tuneJvm = tuneJvm;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder jvmFlags(@Nullable List<String> jvmFlags) {
+      this.jvmFlags = jvmFlags;
+      return this;
+    }
+
     /** Build a {@link AppYamlProjectStageConfiguration}. */
     @SuppressWarnings("NullAway")
     public AppYamlProjectStageConfiguration build() {
@@ -143,8 +497,24 @@ public class AppYamlProjectStageConfiguration {
           this.appEngineDirectory,
           this.dockerDirectory,
           this.extraFilesDirectories,
+          this.extraFilesExcludes,
           this.artifact,
-          this.stagingDirectory);
+          this.stagingDirectory,
+          this.incremental,
+          this.sync,
+          this.copyThreads,
+          this.linkStrategy,
+          this.contentStoreDirectory,
+          this.cacheDirectory,
+          this.cacheMaxSize,
+          this.splitFatJar,
+          this.normalizeJars,
+          this.appCds,
+          this.appCdsJavaHome,
+          this.appCdsTrainingArgs,
+          this.appCdsTrainingTimeout,
+          this.tuneJvm,
+          this.jvmFlags);
     }
   }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.configuration;
+
+import com.google.common.base.Preconditions;
+import java.nio.file.Path;
+import javax.annotation.Nullable;
+
+/**
+ * Arguments needed to measure the cold start of a staged App Engine app.yaml based application.
+ * Null return values indicate that the configuration was not set, and thus assumes the tool default
+ * value.
+ */
+public class ColdStartProbeConfiguration {
+
+  private final Path stagingDirectory;
+  @Nullable private final Integer runs;
+  @Nullable private final String path;
+  @Nullable private final Integer port;
+  @Nullable private final Integer timeout;
+  @Nullable private final Path javaHome;
+
+  private ColdStartProbeConfiguration(
+      Path stagingDirectory,
+      @Nullable Integer runs,
+      @Nullable String path,
+      @Nullable Integer port,
+      @Nullable Integer timeout,
+      @Nullable Path javaHome) {
+    this.stagingDirectory = stagingDirectory;
+    this.runs = runs;
+    this.path = path;
+    this.port = port;
+    this.timeout = timeout;
+    this.javaHome = javaHome;
+  }
+
+  /** Directory of the staged application, which it is started from. */
+  public Path getStagingDirectory() {
+    return stagingDirectory;
+  }
+
+  /** Number of times the application is started and measured. Defaults to 5. */
+  @Nullable
+  public Integer getRuns() {
+    return runs;
+  }
+
+  /** Path of the local URL polled until the application responds. Defaults to {@code /}. */
+  @Nullable
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Port the application is told to listen on through {@code $PORT}, and which is polled. Defaults
+   * to a free port.
+   */
+  @Nullable
+  public Integer getPort() {
+    return port;
+  }
+
+  /** Seconds to wait for the application to respond in each run. Defaults to 60. */
+  @Nullable
+  public Integer getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * JDK whose {@code java} runs the application, if its entrypoint starts with {@code java} or it
+   * has none. Defaults to the JDK running this tool.
+   */
+  @Nullable
+  public Path getJavaHome() {
+    return javaHome;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+    @Nullable private Path stagingDirectory;
+    @Nullable private Integer runs;
+    @Nullable private String path;
+    @Nullable private Integer port;
+    @Nullable private Integer timeout;
+    @Nullable private Path javaHome;
+
+    private Builder() {}
+
+    public Builder stagingDirectory(Path stagingDirectory) {
+      this.stagingDirectory = Preconditions.checkNotNull(stagingDirectory);
+      return this;
+    }
+
+    /** Sets the number of runs, which must be positive. */
+    public Builder runs(@Nullable Integer runs) {
+      Preconditions.checkArgument(runs == null || runs > 0, "runs must be positive");
+      this.runs = runs;
+      return this;
+    }
+
+    /** Sets the path of the polled URL, which must start with {@code /}. */
+    public Builder path(@Nullable String path) {
+      Preconditions.checkArgument(path == null || path.startsWith("/"), "path must start with /");
+      this.path = path;
+      return this;
+    }
+
+    /** Sets the port the application listens on, which must be between 1 and 65535. */
+    public Builder port(@Nullable Integer port) {
+      Preconditions.checkArgument(
+          port == null || (port > 0 && port < 65536), "port must be between 1 and 65535");
+      this.port = port;
+      return this;
+    }
+
+    /** Sets the timeout of each run in seconds, which must be positive. */
+    public Builder timeout(@Nullable Integer timeout) {
+      Preconditions.checkArgument(timeout == null || timeout > 0, "timeout must be positive");
+      this.timeout = timeout;
+      return this;
+    }
+
+    public Builder javaHome(@Nullable Path javaHome) {
+      this.javaHome = javaHome;
+      return this;
+    }
+
+    /** Build a {@link ColdStartProbeConfiguration}. */
+    @SuppressWarnings("NullAway")
+    public ColdStartProbeConfiguration build() {
+      Preconditions.checkState(stagingDirectory != null, "No staging directory supplied");
+      return new ColdStartProbeConfiguration(
+          this.stagingDirectory, this.runs, this.path, this.port, this.timeout, this.javaHome);
+    }
+  }
+}
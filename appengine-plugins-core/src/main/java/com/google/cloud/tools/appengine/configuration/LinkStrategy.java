@@ -0,0 +1,35 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.configuration;
+
+/** How the artifact and its {@code Class-Path} jars are placed into the staging directory. */
+public enum LinkStrategy {
+  /** Always copy the file. */
+  COPY,
+
+  /**
+   * Hard link the file, falling back to a reflink and then to a copy. A hard linked file shares its
+   * content with the source, so writing to either changes both.
+   */
+  HARDLINK,
+
+  /**
+   * Reflink (copy-on-write clone) the file where the filesystem supports it, falling back to a
+   * copy.
+   */
+  REFLINK
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Builds an AppCDS archive for a staged jar. The application is run once from the staging directory
+ * to record the classes it loads, and those classes are then dumped into a shared archive, which
+ * the JVM maps at startup instead of loading, parsing and verifying the classes again.
+ *
+ * <p>A JVM only uses the archive if it is the same JDK build that created it, and if the jars on
+ * its class path are the ones the archive was created from. Otherwise it ignores the archive and
+ * starts as usual.
+ */
+class AppCdsArchiver {
+
+  private static final Logger log = Logger.getLogger(AppCdsArchiver.class.getName());
+
+  static final Duration DEFAULT_TRAINING_TIMEOUT = Duration.ofSeconds(60);
+
+  /** How long a training run may take to shut down after it is asked to. */
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+  private static final Pattern JAVA_VERSION = Pattern.compile("\"?(1\\.)?(\\d+).*");
+
+  private final Path javaHome;
+  private final List<String> trainingArguments;
+  private final Duration trainingTimeout;
+
+  /**
+   * Creates an archiver.
+   *
+   * @param javaHome the JDK the application is trained with and the archive is dumped by
+   * @param trainingArguments arguments passed to the application while it is trained
+   * @param trainingTimeout how long the application may run before it is stopped, for applications
+   *     that do not exit by themselves
+   */
+  AppCdsArchiver(Path javaHome, List<String> trainingArguments, Duration trainingTimeout) {
+    this.javaHome = javaHome;
+    this.trainingArguments = ImmutableList.copyOf(trainingArguments);
+    this.trainingTimeout = trainingTimeout;
+  }
+
+  /** The name of the archive created for a jar, {@code app.jsa} for {@code app.jar}. */
+  static String archiveName(String jarName) {
+    String baseName =
+        jarName.endsWith(".jar") ? jarName.substring(0, jarName.length() - 4) : jarName;
+    return baseName + ".jsa";
+  }
+
+  /**
+   * Reads the feature version of a JDK from its {@code release} file.
+   *
+   * @return the feature version, such as 17, or null if it cannot be determined
+   */
+  @Nullable
+  static Integer javaVersion(Path javaHome) throws IOException {
+    Path release = javaHome.resolve("release");
+    if (!Files.isRegularFile(release)) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(release)) {
+      properties.load(in);
+    }
+    String version = properties.getProperty("JAVA_VERSION");
+    if (version == null) {
+      return null;
+    }
+    Matcher matcher = JAVA_VERSION.matcher(version);
+    return matcher.matches() ? Integer.valueOf(matcher.group(2)) : null;
+  }
+
+  /**
+   * Adds the archive to an entrypoint that runs {@code java}, or creates the entrypoint App Engine
+   * would use for the jar if there is none.
+   *
+   * @throws AppEngineException if {@code entrypoint} does not start with {@code java}
+   */
+  static String withSharedArchive(@Nullable String entrypoint, String jarName, String archiveName)
+      throws AppEngineException {
+    String option = "-XX:SharedArchiveFile=" + archiveName;
+    if (entrypoint == null) {
+      return "java " + option + " -jar " + jarName;
+    }
+    String trimmed = entrypoint.trim();
+    if (!trimmed.startsWith("java ")) {
+      throw new AppEngineException(
+          "An AppCDS archive can only be used with an entrypoint that starts with 'java', found: "
+              + entrypoint);
+    }
+    return "java " + option + trimmed.substring("java".length());
+  }
+
+  /**
+   * Trains the application and dumps its archive into {@code stagingDirectory}.
+   *
+   * @param stagingDirectory the staging directory, which the application is run from
+   * @param jarName the file name of the staged jar
+   * @return the archive
+   * @throws AppEngineException if the application or the archive dump fails
+   */
+  Path createArchive(Path stagingDirectory, String jarName) throws IOException, AppEngineException {
+    if (!stagingDirectory.getFileSystem().equals(FileSystems.getDefault())) {
+      throw new AppEngineException(
+          "An AppCDS archive can only be created in a staging directory on the local file system");
+    }
+    String java = Processes.java(javaHome).toString();
+    String archiveName = archiveName(jarName);
+    Path workDirectory = Files.createTempDirectory("appengine-appcds");
+    try {
+      Path classList = workDirectory.resolve("classes.lst");
+      train(
+          ImmutableList.<String>builder()
+              .add(java, "-Xshare:off", "-XX:DumpLoadedClassList=" + classList)
+              .add("-jar", jarName)
+              .addAll(trainingArguments)
+              .build(),
+          stagingDirectory,
+          workDirectory.resolve("training.log"));
+      if (!Files.isRegularFile(classList) || Files.size(classList) == 0) {
+        throw new AppEngineException(
+            "The AppCDS training run of " + jarName + " loaded no classes");
+      }
+
+      // the class path must be relative for the archive to match the deployed application
+      Path dumpOutput = workDirectory.resolve("dump.log");
+      Process dump =
+          start(
+              ImmutableList.of(
+                  java,
+                  "-Xshare:dump",
+                  "-XX:SharedClassListFile=" + classList,
+                  "-XX:SharedArchiveFile=" + archiveName,
+                  "-cp",
+                  jarName),
+              stagingDirectory,
+              dumpOutput);
+      int exitCode = waitFor(dump);
+      if (exitCode != 0) {
+        throw new AppEngineException(
+            "Dumping the AppCDS archive failed with exit code "
+                + exitCode
+                + Processes.tail(dumpOutput));
+      }
+      return stagingDirectory.resolve(archiveName);
+    } finally {
+      MoreFiles.deleteRecursively(workDirectory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  /** Runs the application until it exits, or stops it once the training timeout has passed. */
+  private void train(List<String> command, Path directory, Path output)
+      throws IOException, AppEngineException {
+    Process process = start(command, directory, output);
+    try {
+      if (process.waitFor(trainingTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        int exitCode = process.exitValue();
+        if (exitCode != 0) {
+          throw new AppEngineException(
+              "The AppCDS training run failed with exit code " + exitCode + Processes.tail(output));
+        }
+        return;
+      }
+      log.info(
+          "Stopping the AppCDS training run after " + trainingTimeout.getSeconds() + " seconds");
+      // a graceful shutdown completes the class list
+      process.destroy();
+      if (!process.waitFor(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+        process.destroyForcibly().waitFor();
+      }
+    } catch (InterruptedException ex) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while training the AppCDS archive", ex);
+    }
+  }
+
+  private static Process start(List<String> command, Path directory, Path output)
+      throws IOException {
+    log.fine("Running: " + Joiner.on(' ').join(command));
+    ProcessBuilder processBuilder =
+        new ProcessBuilder(command)
+            .directory(directory.toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(output.toFile());
+    // App Engine applications listen on $PORT, which must not clash with anything running locally
+    processBuilder.environment().put("PORT", String.valueOf(Processes.freePort()));
+    return processBuilder.start();
+  }
+
+  private static int waitFor(Process process) throws IOException {
+    try {
+      return process.waitFor();
+    } catch (InterruptedException ex) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while dumping the AppCDS archive", ex);
+    }
+  }
+}
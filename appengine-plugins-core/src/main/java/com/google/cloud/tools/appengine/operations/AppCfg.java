@@ -18,6 +18,8 @@ package com.google.cloud.tools.appengine.operations;
 
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandler;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
+import java.util.function.Supplier;
 
 /** Operations that use appcfg. */
 public class AppCfg {
@@ -31,7 +33,25 @@ public class AppCfg {
   }
 
   public AppEngineWebXmlProjectStaging newStaging(ProcessHandler processHandler) {
-    return new AppEngineWebXmlProjectStaging(getRunner(processHandler));
+    return new AppEngineWebXmlProjectStaging(getRunner(processHandler), sdk);
+  }
+
+  /**
+   * Creates appengine-web.xml based staging that only builds its {@link AppCfg}, and with it the
+   * Cloud SDK, when appcfg is actually needed. Native staging can then run without the App Engine
+   * Java components.
+   *
+   * @param appCfg builds the appcfg to stage with, setting up the Cloud SDK
+   * @param cloudSdk locates the Cloud SDK that {@code appCfg} would use, without installing or
+   *     validating it. It keys the staging cache, so that restoring cached output needs no Cloud
+   *     SDK setup.
+   * @param processHandler handles the appcfg process
+   */
+  public static AppEngineWebXmlProjectStaging newLazyStaging(
+      Supplier<AppCfg> appCfg, Supplier<CloudSdk> cloudSdk, ProcessHandler processHandler) {
+    Supplier<AppCfg> memoized = Suppliers.memoize(appCfg::get);
+    return new AppEngineWebXmlProjectStaging(
+        () -> memoized.get().getRunner(processHandler), Suppliers.memoize(cloudSdk::get));
   }
 
   @VisibleForTesting
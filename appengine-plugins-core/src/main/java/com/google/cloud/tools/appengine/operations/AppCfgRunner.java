@@ -21,25 +21,42 @@ import com.google.cloud.tools.appengine.operations.cloudsdk.InvalidJavaSdkExcept
 import com.google.cloud.tools.appengine.operations.cloudsdk.internal.process.ProcessBuilderFactory;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandler;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandlerException;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 public class AppCfgRunner {
 
   private static final Logger logger = Logger.getLogger(AppCfgRunner.class.getName());
 
+  /** Whether it was reported that appcfg cannot run in process, which holds for the whole JVM. */
+  private static final AtomicBoolean warnedUnguarded = new AtomicBoolean();
+
   private final CloudSdk sdk;
   private final ProcessBuilderFactory processBuilderFactory;
   private final ProcessHandler processHandler;
+  private final InProcessAppCfg inProcessAppCfg;
 
   AppCfgRunner(
       CloudSdk sdk, ProcessBuilderFactory processBuilderFactory, ProcessHandler processHandler) {
+    this(sdk, processBuilderFactory, processHandler, new InProcessAppCfg());
+  }
+
+  @VisibleForTesting
+  AppCfgRunner(
+      CloudSdk sdk,
+      ProcessBuilderFactory processBuilderFactory,
+      ProcessHandler processHandler,
+      InProcessAppCfg inProcessAppCfg) {
     this.sdk = sdk;
     this.processBuilderFactory = processBuilderFactory;
     this.processHandler = processHandler;
+    this.inProcessAppCfg = inProcessAppCfg;
   }
 
   /**
@@ -75,6 +92,48 @@ public class AppCfgRunner {
     processHandler.handleProcess(process);
   }
 
+  /**
+   * Executes an App Engine SDK CLI command inside the current JVM, without changing global state
+   * once it returns. Its output and exit status are passed to the process handler as for {@link
+   * #run}. Falls back to {@link #run} in a new JVM when the tools jar cannot be loaded, or when
+   * this JVM does not allow guarding against appcfg calling {@code System.exit}, as on Java 18 and
+   * later.
+   *
+   * @throws AppEngineJavaComponentsNotInstalledException when the App Engine Java components are
+   *     not installed in the Cloud SDK
+   * @throws InvalidJavaSdkException java not found, when falling back to a new JVM
+   */
+  public void runInProcess(List<String> args)
+      throws ProcessHandlerException, AppEngineJavaComponentsNotInstalledException,
+          InvalidJavaSdkException, IOException {
+    sdk.validateAppEngineJavaComponents();
+
+    Constructor<?> appCfg;
+    try {
+      appCfg = inProcessAppCfg.load(sdk.getAppEngineToolsJar());
+    } catch (IOException | ReflectiveOperationException | LinkageError ex) {
+      logger.warning("Unable to load appcfg in process, running it in a new JVM: " + ex);
+      run(args);
+      return;
+    }
+
+    logger.info("running in process: AppCfg " + Joiner.on(" ").join(args));
+    Process process = inProcessAppCfg.run(appCfg, sdk.getAppEngineSdkForJavaPath(), args);
+    if (process == null) {
+      String message =
+          "Unable to guard appcfg against exiting the JVM, running it in a new JVM. Running appcfg"
+              + " in process requires Java 17 or earlier, or -Djava.security.manager=allow.";
+      if (warnedUnguarded.compareAndSet(false, true)) {
+        logger.warning(message);
+      } else {
+        logger.fine(message);
+      }
+      run(args);
+      return;
+    }
+    processHandler.handleProcess(process);
+  }
+
   static class Factory {
     private final ProcessBuilderFactory processBuilderFactory;
 
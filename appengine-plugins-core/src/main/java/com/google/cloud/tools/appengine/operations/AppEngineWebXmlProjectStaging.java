@@ -18,36 +18,66 @@ package com.google.cloud.tools.appengine.operations;
 
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkVersionFileException;
 import com.google.cloud.tools.appengine.operations.cloudsdk.internal.args.AppCfgArgs;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandlerException;
+import com.google.cloud.tools.io.ContentStore;
+import com.google.cloud.tools.io.DirectorySync;
 import com.google.common.base.Preconditions;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 /** Application stager for appengine-web.xml based applications before deployment. */
 public class AppEngineWebXmlProjectStaging {
 
-  private AppCfgRunner runner;
+  private static final Logger log = Logger.getLogger(AppEngineWebXmlProjectStaging.class.getName());
 
-  AppEngineWebXmlProjectStaging(AppCfgRunner runner) {
+  private final Supplier<AppCfgRunner> runner;
+  private final Supplier<CloudSdk> sdk;
+
+  AppEngineWebXmlProjectStaging(AppCfgRunner runner, CloudSdk sdk) {
+    this(() -> runner, () -> sdk);
+  }
+
+  /**
+   * Creates staging that only asks for the appcfg runner when appcfg is needed. {@code sdk} locates
+   * the Cloud SDK the runner would use without installing or validating it, and only keys the
+   * staging cache.
+   */
+  AppEngineWebXmlProjectStaging(Supplier<AppCfgRunner> runner, Supplier<CloudSdk> sdk) {
     this.runner = runner;
+    this.sdk = sdk;
   }
 
   /**
    * Stages an appengine-web.xml based project for deployment. Calls out to appcfg to execute this
-   * staging.
+   * staging, unless native staging is enabled and supports the project. In sync mode the project is
+   * staged into a temporary directory, which is then synced into the staging directory.
    *
    * @param config Specifies source config and staging destination
+   * @return file count, size and timing of the staging run, which has no separate phases
    * @throws AppEngineException When staging fails
    */
-  public void stageStandard(AppEngineWebXmlProjectStageConfiguration config)
+  public StagingResult stageStandard(AppEngineWebXmlProjectStageConfiguration config)
       throws AppEngineException {
+    long start = System.nanoTime();
     Preconditions.checkNotNull(config);
     Preconditions.checkNotNull(config.getSourceDirectory());
     Preconditions.checkNotNull(config.getStagingDirectory());
@@ -69,11 +99,17 @@ public class AppEngineWebXmlProjectStaging {
     }
     arguments.add("stage");
     arguments.add(config.getSourceDirectory().toString());
-    arguments.add(config.getStagingDirectory().toString());
 
     Path dockerfile = config.getDockerfile();
+    boolean sync = Boolean.TRUE.equals(config.getSync());
+    Path outputDirectory = config.getStagingDirectory();
 
     try {
+      if (sync) {
+        // stage next to the staging directory, so that changed files can be moved over cheaply
+        outputDirectory = createSyncDirectory(config.getStagingDirectory());
+      }
+      arguments.add(outputDirectory.toString());
 
       if (dockerfile != null && Files.exists(dockerfile)) {
         Files.copy(
@@ -82,19 +118,212 @@ public class AppEngineWebXmlProjectStaging {
             StandardCopyOption.REPLACE_EXISTING);
       }
 
-      runner.run(arguments);
-
-      // TODO : Move this fix up the chain (appcfg)
-      if (config.getRuntime() != null && config.getRuntime().equals("java")) {
-        Path appYaml = config.getStagingDirectory().resolve("app.yaml");
-        Files.write(
-            appYaml,
-            "\nruntime_config:\n  jdk: openjdk8\n".getBytes(StandardCharsets.UTF_8),
-            StandardOpenOption.APPEND);
+      if (stageNatively(config)) {
+        NativeStandardStager.stage(config, outputDirectory);
+      } else {
+        stageWithAppCfg(config, arguments, outputDirectory);
+        if (config.getContentStoreDirectory() != null) {
+          linkLibraries(
+              ContentStore.forDirectory(config.getContentStoreDirectory()),
+              outputDirectory.resolve("WEB-INF/lib"));
+        }
       }
 
+      if (sync) {
+        DirectorySync.Summary summary =
+            DirectorySync.syncMoving(outputDirectory, config.getStagingDirectory());
+        log.info("Synced staging directory: " + summary);
+      }
+      return summarize(config.getStagingDirectory(), start);
     } catch (IOException | ProcessHandlerException e) {
       throw new AppEngineException(e);
+    } finally {
+      if (sync && !outputDirectory.equals(config.getStagingDirectory())) {
+        deleteSyncDirectory(outputDirectory);
+      }
+    }
+  }
+
+  /**
+   * Runs appcfg, or restores its output from the staging cache when the same inputs were staged
+   * before. JSP compilation and quickstart make appcfg slow even when nothing changed.
+   */
+  private void stageWithAppCfg(
+      AppEngineWebXmlProjectStageConfiguration config, List<String> arguments, Path outputDirectory)
+      throws IOException, ProcessHandlerException, AppEngineException {
+    Path cacheDirectory = config.getCacheDirectory();
+    StagingCache cache = null;
+    String cacheKey = null;
+    if (cacheDirectory != null) {
+      cache = new StagingCache(cacheDirectory);
+      cacheKey = cacheKey(config, arguments);
+      if (cache.restore(cacheKey, outputDirectory)) {
+        log.info("Restored staging output from the staging cache");
+        return;
+      }
+    }
+
+    if (Boolean.TRUE.equals(config.getInProcess())) {
+      runner.get().runInProcess(arguments);
+    } else {
+      runner.get().run(arguments);
+    }
+
+    // TODO : Move this fix up the chain (appcfg)
+    if (config.getRuntime() != null && config.getRuntime().equals("java")) {
+      Path appYaml = outputDirectory.resolve("app.yaml");
+      Files.write(
+          appYaml,
+          "\nruntime_config:\n  jdk: openjdk8\n".getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.APPEND);
+    }
+
+    if (cache != null && cacheKey != null) {
+      cache.store(cacheKey, outputDirectory);
+      Long cacheMaxSize = config.getCacheMaxSize();
+      cache.trim(cacheMaxSize == null ? StagingCache.DEFAULT_MAX_SIZE : cacheMaxSize);
+    }
+  }
+
+  /**
+   * Hashes what appcfg's output depends on: its flags, the Cloud SDK, the JDK that compiles the
+   * JSPs, and the content of the exploded war, which covers web.xml, classes, jars and JSP sources.
+   * This doesn't build the appcfg runner, so a cache hit doesn't install or validate the Cloud SDK.
+   */
+  private String cacheKey(AppEngineWebXmlProjectStageConfiguration config, List<String> arguments)
+      throws IOException {
+    StagingCache.KeyBuilder key = new StagingCache.KeyBuilder();
+    // the last two arguments are the source and output directories
+    for (String argument : arguments.subList(0, arguments.size() - 2)) {
+      key.putString(argument);
+    }
+    CloudSdk cloudSdk = sdk.get();
+    key.putString(cloudSdk.getPath().toAbsolutePath().toString());
+    try {
+      key.putString(cloudSdk.getVersion().toString());
+    } catch (CloudSdkVersionFileException ex) {
+      // not installed yet, so nothing can have been cached against this installation
+      key.putString("no version");
+    }
+    putJavaVersion(key, cloudSdk, Boolean.TRUE.equals(config.getInProcess()));
+    return key.putDirectory(config.getSourceDirectory()).build();
+  }
+
+  /**
+   * Adds the version of the JDK that compiles the JSPs to {@code key}: the one running this JVM in
+   * process, and otherwise the java executable appcfg is started with.
+   */
+  private static void putJavaVersion(
+      StagingCache.KeyBuilder key, CloudSdk cloudSdk, boolean inProcess) throws IOException {
+    Path javaHome = cloudSdk.getJavaHomePath().toAbsolutePath().normalize();
+    if (inProcess || javaHome.equals(Paths.get(System.getProperty("java.home")).normalize())) {
+      key.putString(System.getProperty("java.vendor") + " " + System.getProperty("java.version"));
+      return;
+    }
+    // the release file names the version of a JDK, or of the JDK around a Java 8 jre directory
+    for (Path release :
+        new Path[] {javaHome.resolve("release"), javaHome.resolveSibling("release")}) {
+      if (Files.isRegularFile(release)) {
+        key.putFile(release);
+        return;
+      }
+    }
+    Path java = cloudSdk.getJavaExecutablePath();
+    key.putString(java.toString());
+    if (Files.exists(java)) {
+      key.putString(Files.size(java) + ":" + Files.getLastModifiedTime(java).toMillis());
+    }
+  }
+
+  /**
+   * Replaces the jars appcfg staged into {@code lib} with links to their copies in the content
+   * store, so that a jar staged by several services takes up disk space once.
+   */
+  private static void linkLibraries(ContentStore contentStore, Path lib) throws IOException {
+    if (!Files.isDirectory(lib)) {
+      return;
+    }
+    int linked = 0;
+    try (DirectoryStream<Path> jars = Files.newDirectoryStream(lib, "*.jar")) {
+      for (Path jar : jars) {
+        if (Files.isRegularFile(jar)) {
+          contentStore.link(jar, jar);
+          linked++;
+        }
+      }
+    }
+    log.fine("Linked " + linked + " jars through the content store");
+  }
+
+  /**
+   * Checks whether {@link #stageStandard} would stage a project without appcfg, because native
+   * staging is enabled and supports the project. This only reads the project's configuration, so
+   * build tools can call it before staging to decide whether the Cloud SDK is needed.
+   *
+   * @param config Specifies source config and staging destination
+   * @return true if the project is staged without appcfg, and so without the Cloud SDK
+   * @throws AppEngineException When the project's configuration cannot be read
+   */
+  public static boolean isStagedNatively(AppEngineWebXmlProjectStageConfiguration config)
+      throws AppEngineException {
+    Preconditions.checkNotNull(config);
+    try {
+      return Boolean.TRUE.equals(config.getNativeStaging())
+          && NativeStandardStager.getUnsupportedReason(config) == null;
+    } catch (IOException ex) {
+      throw new AppEngineException(ex);
+    }
+  }
+
+  private static boolean stageNatively(AppEngineWebXmlProjectStageConfiguration config)
+      throws IOException, AppEngineException {
+    if (!Boolean.TRUE.equals(config.getNativeStaging())) {
+      return false;
+    }
+    String unsupportedReason = NativeStandardStager.getUnsupportedReason(config);
+    if (unsupportedReason != null) {
+      log.info("Staging with appcfg, " + unsupportedReason);
+      return false;
+    }
+    log.info("Staging without appcfg");
+    return true;
+  }
+
+  private static StagingResult summarize(Path stagingDirectory, long startNanos)
+      throws IOException {
+    int[] fileCount = {0};
+    long[] totalBytes = {0};
+    Files.walkFileTree(
+        stagingDirectory,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            fileCount[0]++;
+            totalBytes[0] += attrs.size();
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return new StagingResult(
+        stagingDirectory,
+        fileCount[0],
+        totalBytes[0],
+        Duration.ofNanos(System.nanoTime() - startNanos),
+        Collections.emptyMap());
+  }
+
+  private static Path createSyncDirectory(Path stagingDirectory) throws IOException {
+    Path parent =
+        Preconditions.checkNotNull(
+            stagingDirectory.toAbsolutePath().getParent(), "Staging directory has no parent");
+    Files.createDirectories(parent);
+    return Files.createTempDirectory(parent, stagingDirectory.getFileName() + "-sync");
+  }
+
+  private static void deleteSyncDirectory(Path syncDirectory) {
+    try {
+      MoreFiles.deleteRecursively(syncDirectory, RecursiveDeleteOption.ALLOW_INSECURE);
+    } catch (IOException ex) {
+      log.warning("Unable to delete temporary staging directory: " + syncDirectory);
     }
   }
 }
@@ -16,26 +16,58 @@
 
 package com.google.cloud.tools.appengine.operations;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.DescriptorCache;
 import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfiguration;
+import com.google.cloud.tools.appengine.configuration.LinkStrategy;
+import com.google.cloud.tools.io.ContentStore;
+import com.google.cloud.tools.io.DirectorySync;
+import com.google.cloud.tools.io.ExcludeSet;
+import com.google.cloud.tools.io.FileLinker;
 import com.google.cloud.tools.io.FileUtil;
 import com.google.cloud.tools.project.AppYaml;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.jar.Attributes;
-import java.util.jar.JarFile;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipException;
 import javax.annotation.Nullable;
 
 /** Application stager for app.yaml based applications before deployment. */
@@ -45,25 +77,253 @@ public class AppYamlProjectStaging {
 
   private static final String APP_YAML = "app.yaml";
 
+  /** Suffix of the directory beside the staging directory that split fat jars are kept in. */
+  private static final String SPLIT_SUFFIX = ".appengine-split";
+
   private static final ImmutableSet<String> GEN2_RUNTIMES =
       ImmutableSet.of("java11", "java17", "java21", "java25");
 
+  /** The first runtime whose JVM matches an AppCDS archive's relative class path. */
+  private static final int APP_CDS_MIN_RUNTIME_VERSION = 17;
+
   @VisibleForTesting
   static final ImmutableList<String> OTHER_YAMLS =
       ImmutableList.of("cron.yaml", "dos.yaml", "dispatch.yaml", "index.yaml", "queue.yaml");
 
+  /** How an application is staged, as decided by its app.yaml and artifact. */
+  private enum Layout {
+    FLEXIBLE,
+    STANDARD_ARCHIVE,
+    STANDARD_BINARY
+  }
+
   /**
    * Stages an app.yaml based App Engine project for deployment. Copies app.yaml, the project
    * artifact and any user defined extra files. Will also copy the Docker directory for flex
    * projects.
    *
    * @param config Specifies artifacts and staging destination
+   * @return file counts, sizes and timings of the staging run
    * @throws AppEngineException When staging fails
    */
-  public void stageArchive(AppYamlProjectStageConfiguration config) throws AppEngineException {
+  public StagingResult stageArchive(AppYamlProjectStageConfiguration config)
+      throws AppEngineException {
     Preconditions.checkNotNull(config);
-    Path stagingDirectory = config.getStagingDirectory();
+    checkStagingDirectory(config.getStagingDirectory());
+
+    try {
+      Layout layout = resolveLayout(config);
+      if ((Boolean.TRUE.equals(config.getAppCds()) || Boolean.TRUE.equals(config.getTuneJvm()))
+          && layout != Layout.STANDARD_ARCHIVE) {
+        log.warning(
+            "Not tuning the JVM or creating an AppCDS archive, they apply to jar artifacts of"
+                + " second generation runtimes only");
+      }
+      switch (layout) {
+        case FLEXIBLE:
+          return stageFlexibleArchive(config, findRuntime(config));
+        case STANDARD_ARCHIVE:
+          return stageStandardArchive(config);
+        default:
+          return stageStandardBinary(config);
+      }
+    } catch (IOException ex) {
+      throw new AppEngineException(ex);
+    }
+  }
+
+  /**
+   * Computes what {@link #stageArchive} would stage, without writing anything, and the staging
+   * directory does not need to exist. A fat jar to split is listed as the thin jar and dependency
+   * jars it splits into, which are only written when the plan is executed.
+   *
+   * @param config Specifies artifacts and staging destination
+   * @return the files that would be staged, in staging order
+   * @throws AppEngineException When the project cannot be staged
+   */
+  public StagingPlan planStaging(AppYamlProjectStageConfiguration config)
+      throws AppEngineException {
+    Preconditions.checkNotNull(config);
+
+    try {
+      switch (resolveLayout(config)) {
+        case FLEXIBLE:
+          return planFlexibleArchive(config, findRuntime(config));
+        case STANDARD_ARCHIVE:
+          return planSplitStandardArchive(config);
+        default:
+          return planStandardBinary(config);
+      }
+    } catch (IOException ex) {
+      throw new AppEngineException(ex);
+    }
+  }
+
+  /**
+   * Stages the files of a plan computed by {@link #planStaging}. Files are copied, linked or
+   * skipped as {@code config} specifies, exactly as {@link #stageArchive} would.
+   *
+   * @param plan the plan to apply
+   * @param config the configuration the plan was computed from
+   * @return file counts, sizes and timings of the staging run
+   * @throws AppEngineException When staging fails
+   */
+  public StagingResult executePlan(StagingPlan plan, AppYamlProjectStageConfiguration config)
+      throws AppEngineException {
+    return executePlan(plan, config, System.nanoTime(), null);
+  }
+
+  /**
+   * Stages the files of a plan, then runs {@code postProcessing}. With a staging cache, the files
+   * of the plan and those written by post processing are cached together, and a cached result is
+   * restored in place of both.
+   */
+  private StagingResult executePlan(
+      StagingPlan plan,
+      AppYamlProjectStageConfiguration config,
+      long startNanos,
+      @Nullable PostProcessing postProcessing)
+      throws AppEngineException {
+    Preconditions.checkNotNull(plan);
+    Preconditions.checkNotNull(config);
+    checkStagingDirectory(plan.getStagingDirectory());
+    if (plan.isSplitPending()) {
+      try {
+        plan = planStandardArchive(splitFatJar(config));
+      } catch (IOException ex) {
+        throw new AppEngineException(ex);
+      }
+    }
 
+    StagingCache cache = null;
+    String cacheKey = null;
+    Path cacheDirectory = config.getCacheDirectory();
+    if (cacheDirectory != null
+        && !Boolean.TRUE.equals(config.getSync())
+        && !Boolean.TRUE.equals(config.getIncremental())) {
+      try {
+        cache = new StagingCache(cacheDirectory);
+        cacheKey = cacheKey(plan, config, postProcessing != null);
+        if (cache.restore(cacheKey, plan.getStagingDirectory(), true)) {
+          log.info("Restored staging result from the staging cache");
+          return new StagingResult(
+              plan.getStagingDirectory(),
+              plan.getFileCount(),
+              plan.getTotalBytes(),
+              Duration.ofNanos(System.nanoTime() - startNanos),
+              Collections.emptyMap());
+        }
+      } catch (IOException ex) {
+        throw new AppEngineException(ex);
+      }
+    }
+
+    Map<StagingPhase, Long> phaseNanos = new EnumMap<>(StagingPhase.class);
+    try {
+      CopyService copyService = newCopyService(config);
+      // independent single file copies of a phase, like the 'Class-Path' jars, may run concurrently
+      List<Callable<Void>> batch = new ArrayList<>();
+      StagingPhase batchPhase = null;
+      for (StagingPlan.Step step : plan.getSteps()) {
+        if (!batch.isEmpty() && (!step.isIndependent() || step.getPhase() != batchPhase)) {
+          runPhaseBatch(batch, copyService, batchPhase, phaseNanos);
+          batch.clear();
+        }
+        if (step.isIndependent()) {
+          batch.add(
+              () -> {
+                step.apply(copyService);
+                return null;
+              });
+          batchPhase = step.getPhase();
+          continue;
+        }
+        long stepStart = System.nanoTime();
+        step.apply(copyService);
+        phaseNanos.merge(step.getPhase(), System.nanoTime() - stepStart, Long::sum);
+      }
+      if (!batch.isEmpty()) {
+        runPhaseBatch(batch, copyService, batchPhase, phaseNanos);
+      }
+      copyService.finish();
+      List<Path> postProcessed =
+          postProcessing == null ? Collections.emptyList() : postProcessing.run();
+      if (cache != null && cacheKey != null) {
+        // only what this run staged, not whatever else is in the staging directory
+        List<Path> staged = new ArrayList<>(postProcessed);
+        for (StagingPlan.Entry entry : plan.getEntries()) {
+          staged.add(entry.getDestination());
+        }
+        cache.store(cacheKey, plan.getStagingDirectory(), staged);
+        Long cacheMaxSize = config.getCacheMaxSize();
+        cache.trim(cacheMaxSize == null ? StagingCache.DEFAULT_MAX_SIZE : cacheMaxSize);
+      }
+    } catch (IOException ex) {
+      throw new AppEngineException(ex);
+    }
+
+    Map<StagingPhase, StagingResult.PhaseResult> phases = new EnumMap<>(StagingPhase.class);
+    for (StagingPhase phase : StagingPhase.values()) {
+      if (plan.getFileCount(phase) > 0) {
+        phases.put(
+            phase,
+            new StagingResult.PhaseResult(
+                plan.getFileCount(phase),
+                plan.getTotalBytes(phase),
+                Duration.ofNanos(phaseNanos.getOrDefault(phase, 0L))));
+      }
+    }
+    return new StagingResult(
+        plan.getStagingDirectory(),
+        plan.getFileCount(),
+        plan.getTotalBytes(),
+        Duration.ofNanos(System.nanoTime() - startNanos),
+        phases);
+  }
+
+  /**
+   * Hashes what a staging result depends on: every staged file's content and where it is staged,
+   * whether jars are normalized and the options of any post processing. The plan already reflects
+   * the runtime, the layout and the excluded extra files.
+   */
+  private static String cacheKey(
+      StagingPlan plan, AppYamlProjectStageConfiguration config, boolean postProcessed)
+      throws IOException {
+    StagingCache.KeyBuilder key = new StagingCache.KeyBuilder().putString(APP_YAML);
+    key.putString("normalizeJars=" + Boolean.TRUE.equals(config.getNormalizeJars()));
+    key.putString("postProcessed=" + postProcessed);
+    if (postProcessed) {
+      key.putString("tuneJvm=" + Boolean.TRUE.equals(config.getTuneJvm()));
+      key.putString("jvmFlags=" + config.getJvmFlags());
+      key.putString("appCds=" + Boolean.TRUE.equals(config.getAppCds()));
+      key.putString("appCdsTrainingArgs=" + config.getAppCdsTrainingArgs());
+      key.putString("appCdsTrainingTimeout=" + config.getAppCdsTrainingTimeout());
+      // an AppCDS archive is only used by the JDK build that created it
+      Path javaHome = appCdsJavaHome(config);
+      key.putString(javaHome.toAbsolutePath().toString());
+      key.putFile(javaHome.resolve("release"));
+    }
+    for (StagingPlan.Entry entry : plan.getEntries()) {
+      key.putString(entry.getDestination().toString().replace('\\', '/'));
+      key.putFile(entry.getSource());
+    }
+    return key.build();
+  }
+
+  private static void runPhaseBatch(
+      List<Callable<Void>> tasks,
+      CopyService copyService,
+      @Nullable StagingPhase phase,
+      Map<StagingPhase, Long> phaseNanos)
+      throws IOException {
+    long start = System.nanoTime();
+    runAll(tasks, copyService);
+    if (phase != null) {
+      phaseNanos.merge(phase, System.nanoTime() - start, Long::sum);
+    }
+  }
+
+  private static void checkStagingDirectory(Path stagingDirectory) throws AppEngineException {
     if (!Files.exists(stagingDirectory)) {
       throw new AppEngineException(
           "Staging directory does not exist. Location: " + stagingDirectory);
@@ -72,69 +332,376 @@ public class AppYamlProjectStaging {
       throw new AppEngineException(
           "Staging location is not a directory. Location: " + stagingDirectory);
     }
+  }
 
-    try {
-      String env = findEnv(config);
-      String runtime = findRuntime(config);
-      if ("flex".equals(env)) {
-        stageFlexibleArchive(config, runtime);
-        return;
+  private static Layout resolveLayout(AppYamlProjectStageConfiguration config)
+      throws IOException, AppEngineException {
+    String env = findEnv(config);
+    String runtime = findRuntime(config);
+    if ("flex".equals(env)) {
+      return Layout.FLEXIBLE;
+    }
+    if (GEN2_RUNTIMES.contains(runtime)) {
+      boolean isJar = config.getArtifact().getFileName().toString().endsWith(".jar");
+      if (isJar) {
+        return Layout.STANDARD_ARCHIVE;
       }
-      if (GEN2_RUNTIMES.contains(runtime)) {
-        boolean isJar = config.getArtifact().getFileName().toString().endsWith(".jar");
-        if (isJar) {
-          stageStandardArchive(config);
-          return;
-        }
-        if (hasCustomEntrypoint(config)) {
-          stageStandardBinary(config);
-          return;
-        }
-        // I cannot deploy non-jars without custom entrypoints
-        throw new AppEngineException(
-            "Cannot process application with runtime: "
-                + runtime
-                + "."
-                + " A custom entrypoint must be defined in your app.yaml for non-jar artifact: "
-                + config.getArtifact().toString());
+      if (hasCustomEntrypoint(config)) {
+        return Layout.STANDARD_BINARY;
       }
-      // I don't know how to deploy this
+      // I cannot deploy non-jars without custom entrypoints
       throw new AppEngineException(
           "Cannot process application with runtime: "
               + runtime
-              + (Strings.isNullOrEmpty(env) ? "" : " and env: " + env));
-    } catch (IOException ex) {
-      throw new AppEngineException(ex);
+              + "."
+              + " A custom entrypoint must be defined in your app.yaml for non-jar artifact: "
+              + config.getArtifact().toString());
     }
+    // I don't know how to deploy this
+    throw new AppEngineException(
+        "Cannot process application with runtime: "
+            + runtime
+            + (Strings.isNullOrEmpty(env) ? "" : " and env: " + env));
   }
 
   @VisibleForTesting
-  void stageFlexibleArchive(AppYamlProjectStageConfiguration config, @Nullable String runtime)
+  StagingResult stageFlexibleArchive(
+      AppYamlProjectStageConfiguration config, @Nullable String runtime)
       throws IOException, AppEngineException {
-    CopyService copyService = new CopyService();
-    copyDockerContext(config, copyService, runtime);
-    copyExtraFiles(config, copyService);
-    copyAppEngineContext(config, copyService);
-    copyArtifact(config, copyService);
+    long start = System.nanoTime();
+    return executePlan(planFlexibleArchive(config, runtime), config, start, null);
   }
 
   @VisibleForTesting
-  void stageStandardArchive(AppYamlProjectStageConfiguration config)
+  StagingResult stageStandardArchive(AppYamlProjectStageConfiguration config)
+      throws IOException, AppEngineException {
+    long start = System.nanoTime();
+    return stageStandardArchive(splitFatJar(config), start);
+  }
+
+  private StagingResult stageStandardArchive(AppYamlProjectStageConfiguration config, long start)
+      throws IOException, AppEngineException {
+    // fail before staging if the entrypoint cannot be generated
+    String entrypoint = stagedEntrypoint(config);
+    StagingPlan plan = planStandardArchive(config);
+    boolean appCds = Boolean.TRUE.equals(config.getAppCds());
+    PostProcessing postProcessing =
+        !appCds && entrypoint == null
+            ? null
+            : () -> {
+              List<Path> written = new ArrayList<>();
+              if (appCds) {
+                Path archive = createAppCdsArchive(config);
+                written.add(config.getStagingDirectory().relativize(archive));
+              }
+              if (entrypoint != null) {
+                StagedAppYaml.setEntrypoint(
+                    config.getStagingDirectory().resolve(APP_YAML), entrypoint);
+              }
+              return written;
+            };
+    final StagingResult result = executePlan(plan, config, start, postProcessing);
+    List<StagingPlan.Entry> classPath =
+        plan.getEntries().stream()
+            .filter(entry -> entry.getPhase() == StagingPhase.CLASS_PATH)
+            .collect(Collectors.toList());
+    if (!classPath.isEmpty()) {
+      log.info(
+          "Staged "
+              + classPath.size()
+              + " 'Class-Path' jars: "
+              + classPath.stream()
+                  .map(entry -> entry.getDestination().toString())
+                  .collect(Collectors.joining(", ")));
+    }
+    return result;
+  }
+
+  /**
+   * Returns {@code config} with its artifact replaced by the thin jar split from it, if {@code
+   * splitFatJar} is set and the artifact bundles dependencies. The parts are kept beside the
+   * staging directory in a directory named after the artifact's hash, so that a fat jar is split
+   * once and later runs stage the same files, which incremental and sync staging then skip.
+   */
+  private static AppYamlProjectStageConfiguration splitFatJar(
+      AppYamlProjectStageConfiguration config) throws IOException {
+    if (!Boolean.TRUE.equals(config.getSplitFatJar())) {
+      return config;
+    }
+    Path artifact = config.getArtifact();
+    Path splitDirectory = getSplitDirectory(config);
+    Path splitRoot = Preconditions.checkNotNull(splitDirectory.getParent());
+    Path thinJar = splitDirectory.resolve(String.valueOf(artifact.getFileName()));
+    if (!Files.isRegularFile(thinJar)) {
+      Files.createDirectories(splitRoot);
+      Path temporary = Files.createTempDirectory(splitRoot, ".split");
+      try {
+        if (FatJarSplitter.split(artifact, temporary) == null) {
+          log.info("Not splitting " + artifact + ", it does not bundle dependencies");
+          return config;
+        }
+        if (Files.exists(splitDirectory)) {
+          MoreFiles.deleteRecursively(splitDirectory, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+        Files.move(temporary, splitDirectory, ATOMIC_MOVE);
+      } finally {
+        if (Files.exists(temporary)) {
+          MoreFiles.deleteRecursively(temporary, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+      }
+    }
+    // only the parts of the current artifact are kept
+    try (Stream<Path> splits = Files.list(splitRoot)) {
+      for (Path split : splits.collect(Collectors.toList())) {
+        if (!split.equals(splitDirectory) && Files.isDirectory(split)) {
+          MoreFiles.deleteRecursively(split, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+      }
+    }
+    return config.toBuilder().artifact(thinJar).build();
+  }
+
+  /** The directory, named after the artifact's hash, that the artifact is split into. */
+  private static Path getSplitDirectory(AppYamlProjectStageConfiguration config)
+      throws IOException {
+    Path artifact = config.getArtifact();
+    String key =
+        Hashing.sha256()
+            .newHasher()
+            .putString(String.valueOf(artifact.getFileName()), StandardCharsets.UTF_8)
+            .putByte((byte) 0)
+            .putString(StagingManifest.hash(artifact), StandardCharsets.UTF_8)
+            .hash()
+            .toString();
+    return StagingDirectories.sibling(config.getStagingDirectory(), SPLIT_SUFFIX).resolve(key);
+  }
+
+  /**
+   * Plans a standard archive whose artifact is split if {@code splitFatJar} is set, without
+   * splitting it. An artifact that was already split is planned from its parts. Otherwise the parts
+   * are computed in memory, and the plan lists them in place of the artifact, to be split when the
+   * plan is executed.
+   */
+  private static StagingPlan planSplitStandardArchive(AppYamlProjectStageConfiguration config)
       throws IOException, AppEngineException {
-    CopyService copyService = new CopyService();
-    copyExtraFiles(config, copyService);
-    copyAppEngineContext(config, copyService);
-    copyArtifact(config, copyService);
-    copyArtifactJarClasspath(config, copyService);
+    if (!Boolean.TRUE.equals(config.getSplitFatJar())) {
+      return planStandardArchive(config);
+    }
+    Path artifact = config.getArtifact();
+    Path splitDirectory = getSplitDirectory(config);
+    Path thinJar = splitDirectory.resolve(String.valueOf(artifact.getFileName()));
+    if (Files.isRegularFile(thinJar)) {
+      return planStandardArchive(config.toBuilder().artifact(thinJar).build());
+    }
+    FatJarSplitter.Split split = FatJarSplitter.plan(artifact);
+    StagingPlan plan = planStandardArchive(config);
+    if (split == null) {
+      return plan;
+    }
+
+    // the thin jar's 'Class-Path' lists the dependency jars ahead of the artifact's own
+    Path stagingDirectory = config.getStagingDirectory();
+    Map<Path, StagingPlan.Entry> entries = new LinkedHashMap<>();
+    for (StagingPlan.Entry entry : plan.getEntries()) {
+      if (entry.getPhase() != StagingPhase.ARTIFACT || !entry.getSource().equals(artifact)) {
+        entries.put(entry.getDestination(), entry);
+        continue;
+      }
+      entries.put(
+          entry.getDestination(),
+          new StagingPlan.Entry(
+              thinJar, entry.getDestination(), split.getThinJarSize(), StagingPhase.ARTIFACT));
+      for (Map.Entry<String, Long> libJar : split.getLibJars().entrySet()) {
+        Path destination = stagingDirectory.relativize(stagingDirectory.resolve(libJar.getKey()));
+        entries.put(
+            destination,
+            new StagingPlan.Entry(
+                splitDirectory.resolve(libJar.getKey()),
+                destination,
+                libJar.getValue(),
+                StagingPhase.CLASS_PATH));
+      }
+    }
+    return new StagingPlan(
+        stagingDirectory, ImmutableList.copyOf(entries.values()), plan.getSteps(), true);
+  }
+
+  /**
+   * Generates the entrypoint of the staged app.yaml, with JVM flags tuned to the instance class or
+   * an AppCDS archive, or returns null to keep the entrypoint of the app.yaml.
+   */
+  @Nullable
+  private static String stagedEntrypoint(AppYamlProjectStageConfiguration config)
+      throws IOException, AppEngineException {
+    boolean tuneJvm = Boolean.TRUE.equals(config.getTuneJvm());
+    boolean appCds = Boolean.TRUE.equals(config.getAppCds());
+    if (!tuneJvm && !appCds) {
+      return null;
+    }
+    String jarName = String.valueOf(config.getArtifact().getFileName());
+    AppYaml appYaml =
+        DescriptorCache.getInstance().getAppYaml(config.getAppEngineDirectory().resolve(APP_YAML));
+    String entrypoint = appYaml.getEntrypoint();
+    if (tuneJvm) {
+      if (entrypoint != null) {
+        throw new AppEngineException(
+            "Cannot tune the JVM of an app.yaml with an entrypoint. Remove the entrypoint and pass"
+                + " any JVM flags of your own as jvmFlags instead.");
+      }
+      String instanceClass =
+          JvmTuning.instanceClass(appYaml.getInstanceClass(), appYaml.getScalingType());
+      List<String> jvmFlags = config.getJvmFlags();
+      List<String> flags =
+          JvmTuning.merge(
+              JvmTuning.tunedFlags(instanceClass),
+              jvmFlags == null ? Collections.emptyList() : jvmFlags);
+      JvmTuning.validate(flags, instanceClass);
+      entrypoint = JvmTuning.entrypoint(flags, jarName);
+      log.info("Tuned the JVM for instance class " + instanceClass + ": " + entrypoint);
+    }
+    if (appCds) {
+      checkAppCds(config);
+      entrypoint =
+          AppCdsArchiver.withSharedArchive(
+              entrypoint, jarName, AppCdsArchiver.archiveName(jarName));
+    }
+    return entrypoint;
+  }
+
+  /** Checks that the runtime and the JDK can create and use an AppCDS archive. */
+  private static void checkAppCds(AppYamlProjectStageConfiguration config)
+      throws IOException, AppEngineException {
+    String runtime = Preconditions.checkNotNull(findRuntime(config));
+    int runtimeVersion = Integer.parseInt(runtime.substring("java".length()));
+    if (runtimeVersion < APP_CDS_MIN_RUNTIME_VERSION) {
+      throw new AppEngineException(
+          "AppCDS archives require runtime java"
+              + APP_CDS_MIN_RUNTIME_VERSION
+              + " or later, found: "
+              + runtime);
+    }
+    Path javaHome = appCdsJavaHome(config);
+    Integer javaVersion = AppCdsArchiver.javaVersion(javaHome);
+    if (javaVersion == null) {
+      log.warning("Could not determine the Java version of " + javaHome);
+    } else if (javaVersion != runtimeVersion) {
+      throw new AppEngineException(
+          "An AppCDS archive for runtime "
+              + runtime
+              + " must be created with a Java "
+              + runtimeVersion
+              + " JDK, found Java "
+              + javaVersion
+              + " at "
+              + javaHome);
+    }
+  }
+
+  private static Path appCdsJavaHome(AppYamlProjectStageConfiguration config) {
+    Path javaHome = config.getAppCdsJavaHome();
+    return javaHome == null ? Paths.get(System.getProperty("java.home")) : javaHome;
+  }
+
+  /** Trains the staged jar and dumps its archive into the staging directory. */
+  private static Path createAppCdsArchive(AppYamlProjectStageConfiguration config)
+      throws IOException, AppEngineException {
+    long start = System.nanoTime();
+    List<String> trainingArgs = config.getAppCdsTrainingArgs();
+    Integer trainingTimeout = config.getAppCdsTrainingTimeout();
+    AppCdsArchiver archiver =
+        new AppCdsArchiver(
+            appCdsJavaHome(config),
+            trainingArgs == null ? Collections.emptyList() : trainingArgs,
+            trainingTimeout == null
+                ? AppCdsArchiver.DEFAULT_TRAINING_TIMEOUT
+                : Duration.ofSeconds(trainingTimeout));
+    Path archive =
+        archiver.createArchive(
+            config.getStagingDirectory(), String.valueOf(config.getArtifact().getFileName()));
+    log.info(
+        "Created AppCDS archive "
+            + archive
+            + " in "
+            + Duration.ofNanos(System.nanoTime() - start).toMillis()
+            + " ms");
+    return archive;
   }
 
   @VisibleForTesting
-  void stageStandardBinary(AppYamlProjectStageConfiguration config)
+  StagingResult stageStandardBinary(AppYamlProjectStageConfiguration config)
+      throws IOException, AppEngineException {
+    long start = System.nanoTime();
+    return executePlan(planStandardBinary(config), config, start, null);
+  }
+
+  private static StagingPlan planFlexibleArchive(
+      AppYamlProjectStageConfiguration config, @Nullable String runtime)
+      throws IOException, AppEngineException {
+    PlanningCopyService planner = new PlanningCopyService(config.getStagingDirectory());
+    planner.setPhase(StagingPhase.DOCKER_CONTEXT);
+    copyDockerContext(config, planner, runtime);
+    planner.setPhase(StagingPhase.EXTRA_FILES);
+    copyExtraFiles(config, planner);
+    planner.setPhase(StagingPhase.APP_ENGINE_CONTEXT);
+    copyAppEngineContext(config, planner);
+    planner.setPhase(StagingPhase.ARTIFACT);
+    copyArtifact(config, planner);
+    return planner.toPlan();
+  }
+
+  private static StagingPlan planStandardArchive(AppYamlProjectStageConfiguration config)
       throws IOException, AppEngineException {
-    CopyService copyService = new CopyService();
-    copyExtraFiles(config, copyService);
-    copyAppEngineContext(config, copyService);
-    copyArtifact(config, copyService);
+    PlanningCopyService planner = new PlanningCopyService(config.getStagingDirectory());
+    planner.setPhase(StagingPhase.EXTRA_FILES);
+    copyExtraFiles(config, planner);
+    planner.setPhase(StagingPhase.APP_ENGINE_CONTEXT);
+    copyAppEngineContext(config, planner);
+    planner.setPhase(StagingPhase.ARTIFACT);
+    copyArtifact(config, planner);
+    planner.setPhase(StagingPhase.CLASS_PATH);
+    copyArtifactJarClasspath(config, planner);
+    return planner.toPlan();
+  }
+
+  private static StagingPlan planStandardBinary(AppYamlProjectStageConfiguration config)
+      throws IOException, AppEngineException {
+    PlanningCopyService planner = new PlanningCopyService(config.getStagingDirectory());
+    planner.setPhase(StagingPhase.EXTRA_FILES);
+    copyExtraFiles(config, planner);
+    planner.setPhase(StagingPhase.APP_ENGINE_CONTEXT);
+    copyAppEngineContext(config, planner);
+    planner.setPhase(StagingPhase.ARTIFACT);
+    copyArtifact(config, planner);
+    return planner.toPlan();
+  }
+
+  @VisibleForTesting
+  static CopyService newCopyService(AppYamlProjectStageConfiguration config) throws IOException {
+    LinkStrategy linkStrategy =
+        config.getLinkStrategy() == null ? LinkStrategy.COPY : config.getLinkStrategy();
+    Integer copyThreads = config.getCopyThreads();
+    boolean normalizeJars = Boolean.TRUE.equals(config.getNormalizeJars());
+    ContentStore contentStore =
+        config.getContentStoreDirectory() == null
+            ? null
+            : ContentStore.forDirectory(config.getContentStoreDirectory());
+    CopyService copyService;
+    if (Boolean.TRUE.equals(config.getSync())) {
+      copyService =
+          new SyncCopyService(
+              config.getStagingDirectory(),
+              copyThreads == null ? 1 : copyThreads,
+              linkStrategy,
+              contentStore);
+    } else if (Boolean.TRUE.equals(config.getIncremental())) {
+      copyService =
+          new IncrementalCopyService(config.getStagingDirectory(), linkStrategy, contentStore);
+    } else {
+      copyService =
+          new CopyService(copyThreads == null ? 1 : copyThreads, linkStrategy, contentStore);
+    }
+    copyService.setNormalizeJars(normalizeJars);
+    return copyService;
   }
 
   @VisibleForTesting
@@ -146,9 +713,7 @@ public class AppYamlProjectStaging {
       throw new AppEngineException("Invalid Staging Configuration: missing App Engine directory");
     }
     Path appYaml = appEngineDirectory.resolve(APP_YAML);
-    try (InputStream input = Files.newInputStream(appYaml)) {
-      return AppYaml.parse(input).getEnvironmentType();
-    }
+    return DescriptorCache.getInstance().getAppYaml(appYaml).getEnvironmentType();
   }
 
   @VisibleForTesting
@@ -161,9 +726,7 @@ public class AppYamlProjectStaging {
       throw new AppEngineException("Invalid Staging Configuration: missing App Engine directory");
     }
     Path appYaml = appEngineDirectory.resolve(APP_YAML);
-    try (InputStream input = Files.newInputStream(appYaml)) {
-      return AppYaml.parse(input).getRuntime();
-    }
+    return DescriptorCache.getInstance().getAppYaml(appYaml).getRuntime();
   }
 
   @VisibleForTesting
@@ -211,6 +774,9 @@ public class AppYamlProjectStaging {
     if (extraFilesDirectories == null) {
       return;
     }
+    List<String> extraFilesExcludes = config.getExtraFilesExcludes();
+    ExcludeSet excludes =
+        extraFilesExcludes == null ? ExcludeSet.none() : ExcludeSet.ofPatterns(extraFilesExcludes);
     for (Path extraFilesDirectory : extraFilesDirectories) {
       if (!Files.exists(extraFilesDirectory)) {
         throw new AppEngineException(
@@ -221,7 +787,11 @@ public class AppYamlProjectStaging {
             "Extra files location is not a directory. Location: " + extraFilesDirectory);
       }
       Path stagingDirectory = config.getStagingDirectory();
-      copyService.copyDirectory(extraFilesDirectory, stagingDirectory);
+      if (excludes.isEmpty()) {
+        copyService.copyDirectory(extraFilesDirectory, stagingDirectory);
+      } else {
+        copyService.copyDirectory(extraFilesDirectory, stagingDirectory, excludes);
+      }
     }
   }
 
@@ -230,7 +800,7 @@ public class AppYamlProjectStaging {
     Path artifact = config.getArtifact();
     if (Files.exists(artifact)) {
       Path stagingDirectory = config.getStagingDirectory();
-      Path destination = stagingDirectory.resolve(artifact.getFileName());
+      Path destination = FileUtil.resolve(stagingDirectory, artifact.getFileName());
       copyService.copyFileAndReplace(artifact, destination);
     } else {
       throw new AppEngineException("Artifact doesn't exist at '" + artifact + "'.");
@@ -238,41 +808,87 @@ public class AppYamlProjectStaging {
   }
 
   @VisibleForTesting
-  // Copies files referenced in "Class-Path" of Jar's MANIFEST.MF to the target directory. Assumes
-  // files are present at relative paths and that relative path should be preserved in the staged
-  // directory.
-  static void copyArtifactJarClasspath(
+  // Copies files referenced in "Class-Path" of Jar's MANIFEST.MF to the target directory, following
+  // the manifests of the referenced jars too. Assumes files are present at relative paths and that
+  // relative path should be preserved in the staged directory.
+  static JarClassPathResolver.Closure copyArtifactJarClasspath(
       AppYamlProjectStageConfiguration config, CopyService copyService) throws IOException {
     Path artifact = config.getArtifact();
     Path targetDirectory = config.getStagingDirectory();
-    try (JarFile jarFile = new JarFile(artifact.toFile())) {
-      String jarClassPath =
-          jarFile.getManifest().getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
-      if (jarClassPath == null) {
-        return;
+    JarClassPathResolver.Closure closure = new JarClassPathResolver().resolve(artifact);
+    for (Path missing : closure.getMissing()) {
+      log.warning("Could not copy 'Class-Path' jar: " + missing + " referenced in MANIFEST.MF");
+    }
+    for (Path outside : closure.getOutside()) {
+      log.warning(
+          "Not copying 'Class-Path' jar: "
+              + outside
+              + " referenced in MANIFEST.MF, it is outside the artifact's directory and would be"
+              + " staged outside the staging directory");
+    }
+
+    List<JarClassPathResolver.Entry> duplicates = new ArrayList<>();
+    List<Callable<Void>> copies = new ArrayList<>();
+    for (JarClassPathResolver.Entry entry : closure.getEntries()) {
+      if (entry.getDuplicateOf() != null) {
+        duplicates.add(entry);
+        continue;
       }
-      Iterable<String> classpathEntries = Splitter.onPattern("\\s+").split(jarClassPath.trim());
-      for (String classpathEntry : classpathEntries) {
-        // classpath entries are relative to artifact's position and relativeness should be
-        // preserved in the target directory
-        Path jarSrc =
-            artifact.getParent() == null ? null : artifact.getParent().resolve(classpathEntry);
-        if (jarSrc == null || !Files.isRegularFile(jarSrc)) {
-          log.warning("Could not copy 'Class-Path' jar: " + jarSrc + " referenced in MANIFEST.MF");
-          continue;
-        }
-        Path jarTarget = targetDirectory.resolve(classpathEntry);
-
-        if (Files.exists(jarTarget)) {
-          log.fine(
-              "Overwriting 'Class-Path' jar: "
-                  + jarTarget
-                  + " with "
-                  + jarSrc
-                  + " referenced in MANIFEST.MF");
-        }
-        copyService.copyFileAndReplace(jarSrc, jarTarget);
+      Path jarSrc = entry.getSource();
+      Path jarTarget = FileUtil.resolve(targetDirectory, entry.getStagedPath());
+      if (Files.exists(jarTarget)) {
+        log.fine(
+            "Overwriting 'Class-Path' jar: "
+                + jarTarget
+                + " with "
+                + jarSrc
+                + " referenced in MANIFEST.MF");
+      }
+      copies.add(
+          () -> {
+            copyService.copyFileAndReplace(jarSrc, jarTarget);
+            return null;
+          });
+    }
+    runAll(copies, copyService);
+
+    for (JarClassPathResolver.Entry duplicate : duplicates) {
+      Path original =
+          FileUtil.resolve(targetDirectory, Preconditions.checkNotNull(duplicate.getDuplicateOf()));
+      copyService.copyDuplicate(
+          original,
+          duplicate.getSource(),
+          FileUtil.resolve(targetDirectory, duplicate.getStagedPath()));
+    }
+    return closure;
+  }
+
+  /**
+   * Runs copy tasks on as many threads as {@code copyService} allows, rethrowing the first failure.
+   */
+  private static void runAll(List<Callable<Void>> tasks, CopyService copyService)
+      throws IOException {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    int threads = tasks.size() > 1 ? Math.min(copyService.getCopyThreads(), tasks.size()) : 1;
+    ExecutorService executor =
+        threads > 1
+            ? Executors.newFixedThreadPool(threads)
+            : MoreExecutors.newDirectExecutorService();
+    try {
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
       }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while staging files", ex);
+    } catch (ExecutionException ex) {
+      Throwables.throwIfInstanceOf(ex.getCause(), IOException.class);
+      Throwables.throwIfUnchecked(ex.getCause());
+      throw new IOException(ex.getCause());
+    } finally {
+      executor.shutdownNow();
     }
   }
 
@@ -285,26 +901,495 @@ public class AppYamlProjectStaging {
       throw new AppEngineException("Invalid Staging Configuration: missing App Engine directory");
     }
     Path appYamlFile = config.getAppEngineDirectory().resolve(APP_YAML);
-    try (InputStream input = Files.newInputStream(appYamlFile)) {
-      return AppYaml.parse(input).getEntrypoint() != null;
-    }
+    return DescriptorCache.getInstance().getAppYaml(appYamlFile).getEntrypoint() != null;
+  }
+
+  /** Work done in the staging directory once the files of a plan are staged. */
+  private interface PostProcessing {
+    /** Runs the post processing, returning the files it added relative to the staging directory. */
+    List<Path> run() throws IOException, AppEngineException;
   }
 
   @VisibleForTesting
   static class CopyService {
-    void copyDirectory(Path src, Path dest, List<Path> excludes) throws IOException {
-      FileUtil.copyDirectory(src, dest, excludes);
+    private final int copyThreads;
+    @Nullable private final FileLinker fileLinker;
+    @Nullable private final ContentStore contentStore;
+    private boolean normalizeJars;
+
+    CopyService() {
+      this(1, LinkStrategy.COPY, null);
+    }
+
+    CopyService(int copyThreads, LinkStrategy linkStrategy) {
+      this(copyThreads, linkStrategy, null);
+    }
+
+    /**
+     * Creates a copy service that copies directories on {@code copyThreads} threads and places
+     * single files according to {@code linkStrategy}, or through {@code contentStore} if one is
+     * given.
+     */
+    CopyService(int copyThreads, LinkStrategy linkStrategy, @Nullable ContentStore contentStore) {
+      this.copyThreads = copyThreads;
+      this.contentStore = contentStore;
+      switch (linkStrategy) {
+        case HARDLINK:
+          fileLinker = new FileLinker(true, true);
+          break;
+        case REFLINK:
+          fileLinker = new FileLinker(false, true);
+          break;
+        default:
+          fileLinker = null;
+      }
+    }
+
+    /** Sets whether jars placed by {@link #replaceFile} are normalized. */
+    void setNormalizeJars(boolean normalizeJars) {
+      this.normalizeJars = normalizeJars;
+    }
+
+    /**
+     * Whether {@link #replaceFile} stages {@code src} as a normalized jar, whose content differs
+     * from the source unless the source is normalized already.
+     */
+    boolean normalizes(Path src) {
+      return normalizeJars && src.toString().endsWith(".jar");
+    }
+
+    /** Number of threads that may copy files concurrently through this service. */
+    int getCopyThreads() {
+      return copyThreads;
+    }
+
+    void copyDirectory(Path src, Path dest, ExcludeSet excludes) throws IOException {
+      FileUtil.copyDirectory(src, dest, excludes, copyThreads);
     }
 
     void copyDirectory(Path src, Path dest) throws IOException {
-      FileUtil.copyDirectory(src, dest);
+      copyDirectory(src, dest, ExcludeSet.none());
+    }
+
+    void copyFileAndReplace(Path src, Path dest) throws IOException {
+      if (!Files.exists(dest.getParent())) {
+        Files.createDirectories(dest.getParent());
+      }
+      replaceFile(src, dest);
+    }
+
+    /**
+     * Places {@code src} at {@code dest}, linking instead of copying if so configured. With a
+     * content store, {@code dest} is linked to the stored copy of {@code src}, so that services
+     * staging the same jar share it on disk.
+     */
+    void replaceFile(Path src, Path dest) throws IOException {
+      if (replaceNormalized(src, dest)) {
+        return;
+      }
+      if (contentStore != null) {
+        contentStore.link(src, dest);
+      } else if (fileLinker != null) {
+        fileLinker.link(src, dest);
+      } else {
+        Files.copy(src, dest, REPLACE_EXISTING);
+      }
+    }
+
+    /**
+     * Places a normalized copy of {@code src} at {@code dest} if {@code src} is a jar that should
+     * be normalized. The copy is always a new file, because {@code dest} may be linked to other
+     * files.
+     *
+     * @return false if {@code src} was left for the caller to place
+     */
+    boolean replaceNormalized(Path src, Path dest) throws IOException {
+      if (!normalizes(src) || JarNormalizer.isNormalized(src)) {
+        return false;
+      }
+      Path temporary = dest.resolveSibling("." + dest.getFileName() + ".tmp");
+      try {
+        JarNormalizer.normalize(src, temporary);
+        if (contentStore != null) {
+          contentStore.link(temporary, dest);
+        } else {
+          Files.move(temporary, dest, REPLACE_EXISTING);
+        }
+      } catch (ZipException ex) {
+        log.warning("Not normalizing " + src + ", it is not a valid jar: " + ex.getMessage());
+        return false;
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+      return true;
+    }
+
+    /**
+     * Places {@code src} at {@code dest}, where {@code original} is an already staged file with the
+     * same content. The staged file is hard linked where possible.
+     */
+    void copyDuplicate(Path original, Path src, Path dest) throws IOException {
+      if (!Files.exists(dest.getParent())) {
+        Files.createDirectories(dest.getParent());
+      }
+      new FileLinker(true, false).link(original, dest);
+    }
+
+    /** Whether single files are linked rather than copied. */
+    boolean isLinking() {
+      return fileLinker != null || contentStore != null;
+    }
+
+    /** Called once all files have been staged. */
+    void finish() throws IOException {}
+  }
+
+  /**
+   * Copy service that writes nothing, recording instead the files each call would stage and the
+   * steps that would stage them.
+   */
+  @VisibleForTesting
+  static class PlanningCopyService extends CopyService {
+    private final Path stagingDirectory;
+    private final Map<Path, StagingPlan.Entry> entries = new LinkedHashMap<>();
+    private final ImmutableList.Builder<StagingPlan.Step> steps = ImmutableList.builder();
+    private StagingPhase phase = StagingPhase.ARTIFACT;
+
+    PlanningCopyService(Path stagingDirectory) {
+      this.stagingDirectory = stagingDirectory;
+    }
+
+    /** Sets the phase recorded for the files staged by subsequent calls. */
+    void setPhase(StagingPhase phase) {
+      this.phase = phase;
+    }
+
+    @Override
+    void copyDirectory(Path src, Path dest, ExcludeSet excludes) throws IOException {
+      Preconditions.checkArgument(Files.isDirectory(src), "Source is not a directory");
+      Preconditions.checkArgument(
+          !dest.toAbsolutePath().startsWith(src.toAbsolutePath()),
+          "destination is child of source");
+      ExcludeSet.Compiled compiledExcludes = excludes.compile(src);
+      steps.add(new StagingPlan.CopyDirectoryStep(phase, src, dest, excludes));
+
+      Files.walkFileTree(
+          src,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+              return compiledExcludes.isExcluded(dir)
+                  ? FileVisitResult.SKIP_SUBTREE
+                  : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+              if (!compiledExcludes.isExcluded(file)) {
+                record(file, FileUtil.resolve(dest, src.relativize(file)), attrs.size());
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
     }
 
+    @Override
     void copyFileAndReplace(Path src, Path dest) throws IOException {
+      steps.add(new StagingPlan.CopyFileStep(phase, src, dest));
+      record(src, dest, Files.size(src));
+    }
+
+    @Override
+    void copyDuplicate(Path original, Path src, Path dest) throws IOException {
+      steps.add(new StagingPlan.CopyDuplicateStep(phase, original, src, dest));
+      record(src, dest, Files.size(src));
+    }
+
+    private void record(Path src, Path dest, long size) {
+      Path destination = stagingDirectory.relativize(dest);
+      // a file staged again replaces the earlier one, so only the last write is kept
+      entries.remove(destination);
+      entries.put(destination, new StagingPlan.Entry(src, destination, size, phase));
+    }
+
+    StagingPlan toPlan() {
+      return new StagingPlan(
+          stagingDirectory, ImmutableList.copyOf(entries.values()), steps.build());
+    }
+  }
+
+  /**
+   * Copy service that makes the staging directory match the staged application exactly. Files
+   * identical to their staged copy are left untouched, and at the end everything in the staging
+   * directory that was not staged, including files that were never staged by this tool, is deleted.
+   * Copied files keep their source attributes so that unchanged files are recognized by size and
+   * modification time without reading them. Normalized jars, which differ from their source, are
+   * recognized by the source and output hashes recorded beside the staging directory.
+   */
+  @VisibleForTesting
+  static class SyncCopyService extends CopyService {
+    /**
+     * Suffix of the {@link StagingManifest} kept beside the staging directory for the normalized
+     * jars, which cannot be compared with their source.
+     */
+    static final String NORMALIZED_JARS_SUFFIX = ".appengine-sync-normalized.json";
+
+    private final Path stagingDirectory;
+    private final StagingManifest previousNormalized;
+    private final StagingManifest normalized = new StagingManifest();
+    private final Set<Path> staged = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+
+    SyncCopyService(
+        Path stagingDirectory,
+        int copyThreads,
+        LinkStrategy linkStrategy,
+        @Nullable ContentStore contentStore)
+        throws IOException {
+      super(copyThreads, linkStrategy, contentStore);
+      this.stagingDirectory = stagingDirectory;
+      this.previousNormalized = StagingManifest.readFrom(stagingDirectory, NORMALIZED_JARS_SUFFIX);
+    }
+
+    @Override
+    void copyDirectory(Path src, Path dest, ExcludeSet excludes) throws IOException {
+      Preconditions.checkArgument(Files.isDirectory(src), "Source is not a directory");
+      Preconditions.checkArgument(Files.isDirectory(dest), "Destination is not a directory");
+      Preconditions.checkArgument(
+          !dest.toAbsolutePath().startsWith(src.toAbsolutePath()),
+          "destination is child of source");
+      ExcludeSet.Compiled compiledExcludes = excludes.compile(src);
+
+      Files.walkFileTree(
+          src,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                throws IOException {
+              if (compiledExcludes.isExcluded(dir)) {
+                return FileVisitResult.SKIP_SUBTREE;
+              }
+              Path stagedDirectory = FileUtil.resolve(dest, src.relativize(dir));
+              if (Files.isRegularFile(stagedDirectory)) {
+                Files.delete(stagedDirectory);
+              }
+              Files.createDirectories(stagedDirectory);
+              staged.add(stagedDirectory);
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+              if (!compiledExcludes.isExcluded(file)) {
+                Path stagedFile = FileUtil.resolve(dest, src.relativize(file));
+                if (staged.add(stagedFile) && DirectorySync.isSameContent(file, stagedFile)) {
+                  unchanged.incrementAndGet();
+                } else {
+                  Files.copy(file, stagedFile, REPLACE_EXISTING, COPY_ATTRIBUTES);
+                  written.incrementAndGet();
+                }
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    }
+
+    @Override
+    void copyFileAndReplace(Path src, Path dest) throws IOException {
+      if (staged.add(dest) && isUnchanged(src, dest)) {
+        unchanged.incrementAndGet();
+        return;
+      }
+      super.copyFileAndReplace(src, dest);
+      recordNormalized(src, dest);
+      written.incrementAndGet();
+    }
+
+    @Override
+    void replaceFile(Path src, Path dest) throws IOException {
+      if (replaceNormalized(src, dest)) {
+        return;
+      }
+      if (isLinking()) {
+        super.replaceFile(src, dest);
+      } else {
+        Files.copy(src, dest, REPLACE_EXISTING, COPY_ATTRIBUTES);
+      }
+    }
+
+    @Override
+    void copyDuplicate(Path original, Path src, Path dest) throws IOException {
+      if (staged.add(dest) && isUnchanged(src, dest)) {
+        unchanged.incrementAndGet();
+        return;
+      }
+      super.copyDuplicate(original, src, dest);
+      recordNormalized(src, dest);
+      written.incrementAndGet();
+    }
+
+    /**
+     * Whether {@code dest} already holds what staging {@code src} would write. Normalized jars are
+     * checked against the state recorded when they were written, other files against their source.
+     */
+    private boolean isUnchanged(Path src, Path dest) throws IOException {
+      if (!normalizes(src)) {
+        return DirectorySync.isSameContent(src, dest);
+      }
+      String stagedPath = stagingDirectory.relativize(dest).toString();
+      StagingManifest.Entry entry = previousNormalized.getUnchanged(stagedPath, src, dest, true);
+      if (entry == null) {
+        return false;
+      }
+      normalized.put(stagedPath, entry);
+      return true;
+    }
+
+    private void recordNormalized(Path src, Path dest) throws IOException {
+      if (normalizes(src)) {
+        normalized.put(
+            stagingDirectory.relativize(dest).toString(),
+            StagingManifest.Entry.of(src, dest, true));
+      }
+    }
+
+    @Override
+    void finish() throws IOException {
+      normalized.writeTo(stagingDirectory, NORMALIZED_JARS_SUFFIX);
+      int deleted = DirectorySync.prune(stagingDirectory, staged);
+      log.info(
+          "Synced staging directory: "
+              + written.get()
+              + " written, "
+              + unchanged.get()
+              + " unchanged, "
+              + deleted
+              + " deleted");
+    }
+  }
+
+  /**
+   * Copy service that skips files which are unchanged since the previous staging run, and deletes
+   * previously staged files that were not staged again. Staged files are tracked in a {@link
+   * StagingManifest} next to the staging directory: a file is considered unchanged when its source
+   * path, size and modification time match the manifest, or, failing that, when its content hash
+   * does. A normalized jar must also still hash to the output recorded for it.
+   */
+  @VisibleForTesting
+  static class IncrementalCopyService extends CopyService {
+    private final Path stagingDirectory;
+    private final StagingManifest previous;
+    private final StagingManifest current = new StagingManifest();
+    private final Set<Path> stagedDirectories = new HashSet<>();
+
+    IncrementalCopyService(Path stagingDirectory) throws IOException {
+      this(stagingDirectory, LinkStrategy.COPY, null);
+    }
+
+    IncrementalCopyService(
+        Path stagingDirectory, LinkStrategy linkStrategy, @Nullable ContentStore contentStore)
+        throws IOException {
+      super(1, linkStrategy, contentStore);
+      this.stagingDirectory = stagingDirectory;
+      this.previous = StagingManifest.readFrom(stagingDirectory);
+    }
+
+    @Override
+    void copyDirectory(Path src, Path dest, ExcludeSet excludes) throws IOException {
+      Preconditions.checkArgument(Files.isDirectory(src), "Source is not a directory");
+      Preconditions.checkArgument(Files.isDirectory(dest), "Destination is not a directory");
+      Preconditions.checkArgument(
+          !dest.toAbsolutePath().startsWith(src.toAbsolutePath()),
+          "destination is child of source");
+      ExcludeSet.Compiled compiledExcludes = excludes.compile(src);
+
+      Files.walkFileTree(
+          src,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                throws IOException {
+              if (compiledExcludes.isExcluded(dir)) {
+                return FileVisitResult.SKIP_SUBTREE;
+              }
+              Path stagedDirectory = FileUtil.resolve(dest, src.relativize(dir));
+              Files.createDirectories(stagedDirectory);
+              stagedDirectories.add(stagedDirectory);
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+              if (!compiledExcludes.isExcluded(file)) {
+                copyIfChanged(file, FileUtil.resolve(dest, src.relativize(file)), true);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    }
+
+    @Override
+    void copyFileAndReplace(Path src, Path dest) throws IOException {
+      copyIfChanged(src, dest, false);
+    }
+
+    @Override
+    void copyDuplicate(Path original, Path src, Path dest) throws IOException {
+      copyIfChanged(src, dest, false);
+    }
+
+    private void copyIfChanged(Path src, Path dest, boolean copyAttributes) throws IOException {
+      String stagedPath = stagingDirectory.relativize(dest).toString();
+      // a normalized jar is checked against the hash recorded for it, as its size differs
+      boolean transformed = !copyAttributes && normalizes(src);
+
+      StagingManifest.Entry entry = previous.getUnchanged(stagedPath, src, dest, transformed);
+      if (entry != null) {
+        current.put(stagedPath, entry);
+        return;
+      }
+
       if (!Files.exists(dest.getParent())) {
         Files.createDirectories(dest.getParent());
       }
-      Files.copy(src, dest, REPLACE_EXISTING);
+      if (copyAttributes) {
+        Files.copy(src, dest, REPLACE_EXISTING, COPY_ATTRIBUTES);
+      } else {
+        replaceFile(src, dest);
+      }
+      current.put(stagedPath, StagingManifest.Entry.of(src, dest, transformed));
+    }
+
+    @Override
+    void finish() throws IOException {
+      for (String stagedPath : previous.getEntries().keySet()) {
+        if (!current.contains(stagedPath)) {
+          Path stale = stagingDirectory.resolve(stagedPath);
+          log.fine("Removing file no longer staged: " + stale);
+          Files.deleteIfExists(stale);
+          deleteEmptyParents(stale);
+        }
+      }
+      current.writeTo(stagingDirectory);
+    }
+
+    private void deleteEmptyParents(Path file) throws IOException {
+      Path dir = file.getParent();
+      while (dir != null
+          && dir.startsWith(stagingDirectory)
+          && !dir.equals(stagingDirectory)
+          && !stagedDirectories.contains(dir)) {
+        try (Stream<Path> children = Files.list(dir)) {
+          if (children.findAny().isPresent()) {
+            return;
+          }
+        }
+        Files.delete(dir);
+        dir = dir.getParent();
+      }
     }
   }
 }
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.configuration.ColdStartProbeConfiguration;
+import com.google.cloud.tools.project.AppYaml;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * Measures how long a staged App Engine app.yaml based application takes to start locally, to
+ * compare staging choices such as AppCDS archives, split jars or JVM flags before deploying them.
+ * The application is started from the staging directory with its app.yaml entrypoint, or with
+ * {@code java -jar} if there is none, and the time to its first HTTP response is measured. JVM
+ * timings are read from the JVM's unified logging, enabled through {@code JAVA_TOOL_OPTIONS}.
+ */
+public class ColdStartProbe {
+
+  private static final Logger log = Logger.getLogger(ColdStartProbe.class.getName());
+
+  private static final int DEFAULT_RUNS = 5;
+  private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+  private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(1);
+
+  /** How long the application may take to shut down after each run. */
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+  /** A unified logging line decorated with uptime and tags, such as {@code [0.071s][tag] text}. */
+  private static final Pattern LOG_LINE = Pattern.compile("\\[([\\d.]+)s\\]\\[([^]]+)\\]\\s*(.*)");
+
+  private static final Pattern CREATE_VM = Pattern.compile("Create VM, ([\\d.]+) secs");
+
+  /** Shell syntax that makes an entrypoint more than a single command. */
+  private static final Pattern SHELL_CONTROL = Pattern.compile("[;&|()`\\n]|\\$\\(");
+
+  /**
+   * Starts the staged application as many times as configured, and measures each start.
+   *
+   * @param config Specifies the staging directory and how to probe the application
+   * @return the timings of each run
+   * @throws AppEngineException When the application cannot be started or does not respond
+   */
+  public ColdStartReport probe(ColdStartProbeConfiguration config) throws AppEngineException {
+    Preconditions.checkNotNull(config);
+    Path stagingDirectory = config.getStagingDirectory();
+    Path appYamlFile = stagingDirectory.resolve("app.yaml");
+    if (!Files.isRegularFile(appYamlFile)) {
+      throw new AppEngineException(
+          "app.yaml not found in " + stagingDirectory + ", stage the application first.");
+    }
+
+    try {
+      AppYaml appYaml;
+      try (InputStream in = Files.newInputStream(appYamlFile)) {
+        appYaml = AppYaml.parse(in);
+      }
+      Path javaHome =
+          config.getJavaHome() == null
+              ? Paths.get(System.getProperty("java.home"))
+              : config.getJavaHome();
+      List<String> command = command(appYaml.getEntrypoint(), stagingDirectory, javaHome);
+
+      Map<String, String> environment = new HashMap<>();
+      Map<String, ?> variables = appYaml.getEnvironmentVariables();
+      if (variables != null) {
+        for (Map.Entry<String, ?> variable : variables.entrySet()) {
+          environment.put(variable.getKey(), String.valueOf(variable.getValue()));
+        }
+      }
+      int port = config.getPort() == null ? Processes.freePort() : config.getPort();
+      environment.put("PORT", String.valueOf(port));
+      // entrypoints that are scripts find the same java
+      environment.put(
+          "PATH",
+          javaHome.resolve("bin") + File.pathSeparator + System.getenv().getOrDefault("PATH", ""));
+      URL url =
+          new URL("http", "localhost", port, config.getPath() == null ? "/" : config.getPath());
+
+      int runCount = config.getRuns() == null ? DEFAULT_RUNS : config.getRuns();
+      Duration timeout =
+          config.getTimeout() == null ? DEFAULT_TIMEOUT : Duration.ofSeconds(config.getTimeout());
+      List<ColdStartReport.Run> runs = new ArrayList<>();
+      for (int i = 1; i <= runCount; i++) {
+        ColdStartReport.Run run = run(command, stagingDirectory, environment, url, timeout);
+        log.info(
+            "Run " + i + ": first response after " + run.getFirstResponse().toMillis() + " ms");
+        runs.add(run);
+      }
+      return new ColdStartReport(stagingDirectory, command, runs);
+    } catch (IOException ex) {
+      throw new AppEngineException(ex);
+    }
+  }
+
+  /**
+   * The command that starts the application. Entrypoints that run {@code java} are started directly
+   * with the configured JDK, and others with the shell. A single command replaces the shell through
+   * {@code exec}, so that stopping the process stops the application; the application of a compound
+   * entrypoint may outlive its run, which the check for a free port before the next run reports.
+   */
+  @VisibleForTesting
+  static List<String> command(@Nullable String entrypoint, Path stagingDirectory, Path javaHome)
+      throws IOException, AppEngineException {
+    String java = Processes.java(javaHome).toString();
+    if (entrypoint == null) {
+      List<Path> jars;
+      try (Stream<Path> files = Files.list(stagingDirectory)) {
+        jars =
+            files
+                .filter(file -> file.toString().endsWith(".jar") && Files.isRegularFile(file))
+                .collect(Collectors.toList());
+      }
+      if (jars.size() != 1) {
+        throw new AppEngineException(
+            "Cannot tell which jar of "
+                + stagingDirectory
+                + " to run, found "
+                + jars.size()
+                + ". Define an entrypoint in app.yaml.");
+      }
+      return ImmutableList.of(java, "-jar", String.valueOf(jars.get(0).getFileName()));
+    }
+    List<String> arguments = Splitter.onPattern("\\s+").omitEmptyStrings().splitToList(entrypoint);
+    if (!arguments.isEmpty() && arguments.get(0).equals("java")) {
+      return ImmutableList.<String>builder()
+          .add(java)
+          .addAll(arguments.subList(1, arguments.size()))
+          .build();
+    }
+    if (Processes.isWindows()) {
+      return ImmutableList.of("cmd", "/c", entrypoint);
+    }
+    String script = entrypoint.trim();
+    if (!arguments.isEmpty()
+        && !arguments.get(0).equals("exec")
+        && !SHELL_CONTROL.matcher(script).find()) {
+      script = "exec " + script;
+    }
+    return ImmutableList.of("/bin/sh", "-c", script);
+  }
+
+  private static ColdStartReport.Run run(
+      List<String> command,
+      Path stagingDirectory,
+      Map<String, String> environment,
+      URL url,
+      Duration timeout)
+      throws IOException, AppEngineException {
+    if (responds(url, CONNECT_TIMEOUT)) {
+      throw new AppEngineException(
+          "Something already responds at "
+              + url
+              + " before the application is started: another process uses port "
+              + url.getPort()
+              + ", or the application of an earlier run is still running.");
+    }
+    Path workDirectory = Files.createTempDirectory("appengine-cold-start");
+    try {
+      Path jvmLog = workDirectory.resolve("jvm.log");
+      Path output = workDirectory.resolve("output.log");
+      ProcessBuilder processBuilder =
+          new ProcessBuilder(command)
+              .directory(stagingDirectory.toFile())
+              .redirectErrorStream(true)
+              .redirectOutput(output.toFile());
+      processBuilder.environment().putAll(environment);
+      String toolOptions = System.getenv("JAVA_TOOL_OPTIONS");
+      processBuilder
+          .environment()
+          .put(
+              "JAVA_TOOL_OPTIONS",
+              (toolOptions == null ? "" : toolOptions + " ")
+                  + "-Xlog:startuptime,class+load:file="
+                  + jvmLog
+                  + ":uptime,tags");
+
+      long start = System.nanoTime();
+      Process process = processBuilder.start();
+      try {
+        Duration firstResponse = awaitResponse(process, url, start, timeout, output);
+        List<String> lines =
+            Files.exists(jvmLog)
+                ? Files.readAllLines(jvmLog, StandardCharsets.UTF_8)
+                : ImmutableList.of();
+        return parseJvmLog(lines, firstResponse);
+      } finally {
+        stop(process);
+      }
+    } finally {
+      MoreFiles.deleteRecursively(workDirectory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  private static Duration awaitResponse(
+      Process process, URL url, long start, Duration timeout, Path output)
+      throws IOException, AppEngineException {
+    long deadline = start + timeout.toNanos();
+    while (!responds(url, timeout)) {
+      if (!process.isAlive()) {
+        throw new AppEngineException(
+            "The application exited with code "
+                + process.exitValue()
+                + " before responding at "
+                + url
+                + Processes.tail(output));
+      }
+      if (System.nanoTime() > deadline) {
+        throw new AppEngineException(
+            "The application did not respond at "
+                + url
+                + " within "
+                + timeout.getSeconds()
+                + " seconds"
+                + Processes.tail(output));
+      }
+      try {
+        Thread.sleep(POLL_INTERVAL.toMillis());
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for the application to respond", ex);
+      }
+    }
+    return Duration.ofNanos(System.nanoTime() - start);
+  }
+
+  /** Whether anything answers {@code url} with an HTTP response, of any status. */
+  private static boolean responds(URL url, Duration timeout) {
+    try {
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection(Proxy.NO_PROXY);
+      connection.setConnectTimeout((int) CONNECT_TIMEOUT.toMillis());
+      connection.setReadTimeout((int) timeout.toMillis());
+      try {
+        connection.getResponseCode();
+        return true;
+      } finally {
+        connection.disconnect();
+      }
+    } catch (IOException ex) {
+      return false;
+    }
+  }
+
+  private static void stop(Process process) throws IOException {
+    process.destroy();
+    try {
+      if (!process.waitFor(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+        process.destroyForcibly().waitFor();
+      }
+    } catch (InterruptedException ex) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while stopping the application", ex);
+    }
+  }
+
+  /** Reads the JVM timings of a run from its {@code startuptime} and {@code class+load} log. */
+  @VisibleForTesting
+  static ColdStartReport.Run parseJvmLog(List<String> lines, Duration firstResponse) {
+    Duration jvmStart = null;
+    Duration lastClassLoad = null;
+    int loadedClasses = 0;
+    int sharedClasses = 0;
+    for (String line : lines) {
+      Matcher matcher = LOG_LINE.matcher(line);
+      if (!matcher.matches()) {
+        continue;
+      }
+      String tags = matcher.group(2).trim();
+      String message = matcher.group(3);
+      if (tags.equals("class,load")) {
+        loadedClasses++;
+        if (message.contains("source: shared objects file")) {
+          sharedClasses++;
+        }
+        lastClassLoad = seconds(matcher.group(1));
+      } else if (tags.equals("startuptime")) {
+        Matcher createVm = CREATE_VM.matcher(message);
+        if (createVm.matches()) {
+          jvmStart = seconds(createVm.group(1));
+        }
+      }
+    }
+    return new ColdStartReport.Run(
+        firstResponse, jvmStart, lastClassLoad, loadedClasses, sharedClasses);
+  }
+
+  private static Duration seconds(String seconds) {
+    return Duration.ofNanos((long) (Double.parseDouble(seconds) * TimeUnit.SECONDS.toNanos(1)));
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Cold start timings of a staged application, measured by {@link ColdStartProbe} over several runs.
+ * JVM timings are read from the JVM's unified logging, and are missing if the application does not
+ * run on a HotSpot JVM.
+ */
+public class ColdStartReport {
+
+  /** Timings of a single start of the application. */
+  public static class Run {
+    private final Duration firstResponse;
+    @Nullable private final Duration jvmStart;
+    @Nullable private final Duration lastClassLoad;
+    private final int loadedClasses;
+    private final int sharedClasses;
+
+    Run(
+        Duration firstResponse,
+        @Nullable Duration jvmStart,
+        @Nullable Duration lastClassLoad,
+        int loadedClasses,
+        int sharedClasses) {
+      this.firstResponse = firstResponse;
+      this.jvmStart = jvmStart;
+      this.lastClassLoad = lastClassLoad;
+      this.loadedClasses = loadedClasses;
+      this.sharedClasses = sharedClasses;
+    }
+
+    /** Wall time from starting the process to the first HTTP response, of any status. */
+    public Duration getFirstResponse() {
+      return firstResponse;
+    }
+
+    /** Time the JVM took to create itself, before running the application's main class. */
+    @Nullable
+    public Duration getJvmStart() {
+      return jvmStart;
+    }
+
+    /** JVM uptime at which the last class loaded before the first response was loaded. */
+    @Nullable
+    public Duration getLastClassLoad() {
+      return lastClassLoad;
+    }
+
+    /** Number of classes loaded before the first response. */
+    public int getLoadedClasses() {
+      return loadedClasses;
+    }
+
+    /** Number of the loaded classes that were mapped from a CDS archive. */
+    public int getSharedClasses() {
+      return sharedClasses;
+    }
+  }
+
+  /** File name under which the build plugins write the JSON report into the build directory. */
+  public static final String FILE_NAME = "appengine-cold-start-report.json";
+
+  private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+  private final Path stagingDirectory;
+  private final List<String> command;
+  private final List<Run> runs;
+
+  ColdStartReport(Path stagingDirectory, List<String> command, List<Run> runs) {
+    this.stagingDirectory = stagingDirectory;
+    this.command = ImmutableList.copyOf(command);
+    this.runs = ImmutableList.copyOf(runs);
+  }
+
+  /** The directory the application was started from. */
+  public Path getStagingDirectory() {
+    return stagingDirectory;
+  }
+
+  /** The command the application was started with. */
+  public List<String> getCommand() {
+    return command;
+  }
+
+  /** The timings of each run, in order. */
+  public List<Run> getRuns() {
+    return runs;
+  }
+
+  /** The median time to the first response over all runs. */
+  public Duration getMedianFirstResponse() {
+    List<Duration> times = new ArrayList<>();
+    for (Run run : runs) {
+      times.add(run.firstResponse);
+    }
+    Collections.sort(times);
+    return times.get(times.size() / 2);
+  }
+
+  /**
+   * A one line summary, such as {@code "First response after 1234 ms (median of 5 runs, 1200 to
+   * 1300 ms)"}.
+   */
+  public String getSummary() {
+    long min = Long.MAX_VALUE;
+    long max = 0;
+    for (Run run : runs) {
+      min = Math.min(min, run.firstResponse.toMillis());
+      max = Math.max(max, run.firstResponse.toMillis());
+    }
+    return "First response after "
+        + getMedianFirstResponse().toMillis()
+        + " ms (median of "
+        + runs.size()
+        + " runs, "
+        + min
+        + " to "
+        + max
+        + " ms)";
+  }
+
+  /** Serializes the report as JSON, with times in milliseconds. */
+  public String toJson() {
+    JsonObject json = new JsonObject();
+    json.addProperty("stagingDirectory", stagingDirectory.toString());
+    JsonArray commandJson = new JsonArray();
+    for (String argument : command) {
+      commandJson.add(argument);
+    }
+    json.add("command", commandJson);
+    json.addProperty("medianFirstResponseMillis", getMedianFirstResponse().toMillis());
+    JsonArray runsJson = new JsonArray();
+    for (Run run : runs) {
+      JsonObject runJson = new JsonObject();
+      runJson.addProperty("firstResponseMillis", run.firstResponse.toMillis());
+      if (run.jvmStart != null) {
+        runJson.addProperty("jvmStartMillis", run.jvmStart.toMillis());
+      }
+      if (run.lastClassLoad != null) {
+        runJson.addProperty("lastClassLoadMillis", run.lastClassLoad.toMillis());
+      }
+      runJson.addProperty("loadedClasses", run.loadedClasses);
+      runJson.addProperty("sharedClasses", run.sharedClasses);
+      runsJson.add(runJson);
+    }
+    json.add("runs", runsJson);
+    return gson.toJson(json);
+  }
+
+  /** Writes {@link #toJson()} to {@code file}, creating its parent directories if needed. */
+  public void writeJson(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(toJson());
+    }
+  }
+}
@@ -20,6 +20,7 @@ import static com.google.common.base.StandardSystemProperty.JAVA_SPECIFICATION_V
 
 import com.google.cloud.tools.appengine.AppEngineDescriptor;
 import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.DescriptorCache;
 import com.google.cloud.tools.appengine.configuration.RunConfiguration;
 import com.google.cloud.tools.appengine.configuration.StopConfiguration;
 import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkNotFoundException;
@@ -31,10 +32,8 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -249,8 +248,10 @@ public class DevServer {
     boolean enforceSandbox = false;
     for (Path serviceDirectory : services) {
       Path appengineWebXml = serviceDirectory.resolve("WEB-INF/appengine-web.xml");
-      try (InputStream is = Files.newInputStream(appengineWebXml)) {
-        if (AppEngineDescriptor.parse(is).isSandboxEnforced()) {
+      try {
+        if (DescriptorCache.getInstance()
+            .getAppEngineDescriptor(appengineWebXml)
+            .isSandboxEnforced()) {
           enforceSandbox = true;
         } else {
           relaxSandbox = true;
@@ -270,8 +271,9 @@ public class DevServer {
     Map<String, String> allAppEngineEnvironment = Maps.newHashMap();
     for (Path serviceDirectory : services) {
       Path appengineWebXml = serviceDirectory.resolve("WEB-INF/appengine-web.xml");
-      try (InputStream is = Files.newInputStream(appengineWebXml)) {
-        AppEngineDescriptor appEngineDescriptor = AppEngineDescriptor.parse(is);
+      try {
+        AppEngineDescriptor appEngineDescriptor =
+            DescriptorCache.getInstance().getAppEngineDescriptor(appengineWebXml);
         Map<String, String> appEngineEnvironment = appEngineDescriptor.getEnvironment();
         if (appEngineEnvironment != null) {
           checkAndWarnDuplicateEnvironmentVariables(
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
+
+/**
+ * Splits a fat jar into a thin application jar and separate dependency jars listed in the thin
+ * jar's manifest {@code Class-Path}, so that unchanged dependencies are staged as byte-identical
+ * files from one build to the next. Two layouts are recognized:
+ *
+ * <ul>
+ *   <li>Jars that nest their dependencies in {@code BOOT-INF/lib}, like Spring Boot's. The nested
+ *       jars are extracted as they are, and the application classes in {@code BOOT-INF/classes}
+ *       move to the root of the thin jar.
+ *   <li>Shaded jars, recognized by the {@code pom.properties} that the Maven Shade plugin keeps for
+ *       every artifact it bundles. Their classes are regrouped into one jar per package prefix.
+ *       Classes in the package of the {@code Main-Class}, and resources outside the packages of the
+ *       bundled classes, stay in the thin jar.
+ * </ul>
+ *
+ * <p>Any other jar, even one with several packages, is treated as a thin jar and left alone.
+ *
+ * <p>Written jars are normalized as by {@link JarNormalizer}, with every parent directory added.
+ */
+class FatJarSplitter {
+
+  /** Directory of the dependency jars, relative to the thin jar. */
+  static final String LIB = "lib";
+
+  /** Number of leading package segments that make up a dependency jar of a shaded jar. */
+  @VisibleForTesting static final int PACKAGE_DEPTH = 3;
+
+  private static final String BOOT_CLASSES = "BOOT-INF/classes/";
+  private static final String BOOT_LIB = "BOOT-INF/lib/";
+  private static final String BOOT_INF = "BOOT-INF/";
+  private static final String BOOT_LOADER = "org/springframework/boot/loader/";
+  private static final Attributes.Name START_CLASS = new Attributes.Name("Start-Class");
+  private static final Pattern POM_PROPERTIES =
+      Pattern.compile("META-INF/maven/[^/]+/[^/]+/pom\\.properties");
+  private static final Pattern SIGNATURE_FILE =
+      Pattern.compile("META-INF/[^/]+\\.(SF|RSA|DSA|EC)", Pattern.CASE_INSENSITIVE);
+
+  /** The jars a fat jar splits into, computed by {@link #plan} without writing them. */
+  static class Split {
+    private final long thinJarSize;
+    private final ImmutableMap<String, Long> libJars;
+
+    private Split(long thinJarSize, ImmutableMap<String, Long> libJars) {
+      this.thinJarSize = thinJarSize;
+      this.libJars = libJars;
+    }
+
+    /** Size of the thin jar, which has the file name of the fat jar. */
+    long getThinJarSize() {
+      return thinJarSize;
+    }
+
+    /** Sizes of the dependency jars by path relative to the thin jar, in class path order. */
+    ImmutableMap<String, Long> getLibJars() {
+      return libJars;
+    }
+  }
+
+  /** How the entries of a fat jar are distributed over the jars it splits into. */
+  private static class Layout {
+    private final Manifest manifest;
+    private final SortedMap<String, JarEntry> thin;
+    private final SortedMap<String, JarEntry> nestedJars;
+    private final SortedMap<String, SortedMap<String, JarEntry>> groups;
+
+    private Layout(
+        Manifest manifest,
+        SortedMap<String, JarEntry> thin,
+        SortedMap<String, JarEntry> nestedJars,
+        SortedMap<String, SortedMap<String, JarEntry>> groups) {
+      this.manifest = manifest;
+      this.thin = thin;
+      this.nestedJars = nestedJars;
+      this.groups = groups;
+    }
+  }
+
+  /**
+   * Splits {@code jar} into {@code directory}, writing a thin jar with the same file name and the
+   * dependency jars in a {@code lib} subdirectory.
+   *
+   * @return the thin jar, or null if {@code jar} does not bundle any dependencies
+   */
+  @Nullable
+  static Path split(Path jar, Path directory) throws IOException {
+    try (JarFile jarFile = new JarFile(jar.toFile())) {
+      Layout layout = layout(jarFile);
+      if (layout == null) {
+        return null;
+      }
+      Path lib = directory.resolve(LIB);
+      Files.createDirectories(lib);
+      for (Map.Entry<String, JarEntry> nestedJar : layout.nestedJars.entrySet()) {
+        try (InputStream in = jarFile.getInputStream(nestedJar.getValue())) {
+          Files.copy(in, lib.resolve(nestedJar.getKey()));
+        }
+      }
+      for (Map.Entry<String, SortedMap<String, JarEntry>> group : layout.groups.entrySet()) {
+        Path groupJar = lib.resolve(group.getKey() + ".jar");
+        writeJar(jarFile, null, group.getValue(), Files.newOutputStream(groupJar));
+      }
+      Path thinJar = directory.resolve(String.valueOf(jar.getFileName()));
+      writeJar(jarFile, layout.manifest, layout.thin, Files.newOutputStream(thinJar));
+      return thinJar;
+    }
+  }
+
+  /**
+   * Computes the jars {@link #split} would write for {@code jar}, without writing anything.
+   *
+   * @return the split, or null if {@code jar} does not bundle any dependencies
+   */
+  @Nullable
+  static Split plan(Path jar) throws IOException {
+    try (JarFile jarFile = new JarFile(jar.toFile())) {
+      Layout layout = layout(jarFile);
+      if (layout == null) {
+        return null;
+      }
+      ImmutableMap.Builder<String, Long> libJars = ImmutableMap.builder();
+      for (Map.Entry<String, JarEntry> nestedJar : layout.nestedJars.entrySet()) {
+        long size = nestedJar.getValue().getSize();
+        if (size < 0) {
+          try (InputStream in = jarFile.getInputStream(nestedJar.getValue())) {
+            size = ByteStreams.exhaust(in);
+          }
+        }
+        libJars.put(LIB + "/" + nestedJar.getKey(), size);
+      }
+      for (Map.Entry<String, SortedMap<String, JarEntry>> group : layout.groups.entrySet()) {
+        libJars.put(
+            LIB + "/" + group.getKey() + ".jar", writtenSize(jarFile, null, group.getValue()));
+      }
+      return new Split(writtenSize(jarFile, layout.manifest, layout.thin), libJars.build());
+    }
+  }
+
+  @Nullable
+  private static Layout layout(JarFile jarFile) throws IOException {
+    Manifest sourceManifest = jarFile.getManifest();
+    Attributes mainAttributes =
+        sourceManifest == null ? new Attributes() : sourceManifest.getMainAttributes();
+    boolean nested = false;
+    int artifacts = 0;
+    List<JarEntry> entries = new ArrayList<>();
+    Enumeration<JarEntry> enumeration = jarFile.entries();
+    while (enumeration.hasMoreElements()) {
+      JarEntry entry = enumeration.nextElement();
+      entries.add(entry);
+      nested |= !entry.isDirectory() && entry.getName().startsWith(BOOT_LIB);
+      if (POM_PROPERTIES.matcher(entry.getName()).matches()) {
+        artifacts++;
+      }
+    }
+    // a jar that bundles other artifacts keeps one pom.properties for each, besides its own
+    if (!nested && artifacts < 2) {
+      return null;
+    }
+
+    SortedMap<String, JarEntry> thin = new TreeMap<>();
+    SortedMap<String, SortedMap<String, JarEntry>> groups = new TreeMap<>();
+    SortedMap<String, JarEntry> nestedJars = new TreeMap<>();
+    String startClass = mainAttributes.getValue(START_CLASS);
+    String mainClass =
+        nested && startClass != null
+            ? startClass
+            : mainAttributes.getValue(Attributes.Name.MAIN_CLASS);
+    String applicationGroup =
+        mainClass == null ? null : getGroup(mainClass.replace('.', '/') + ".class");
+
+    Set<String> classGroups = new HashSet<>();
+    for (JarEntry entry : entries) {
+      String group = getGroup(entry.getName());
+      if (group != null && entry.getName().endsWith(".class")) {
+        classGroups.add(group);
+      }
+    }
+
+    for (JarEntry entry : entries) {
+      String name = entry.getName();
+      if (entry.isDirectory()
+          || name.equals(JarFile.MANIFEST_NAME)
+          || SIGNATURE_FILE.matcher(name).matches()) {
+        continue;
+      }
+      if (nested) {
+        if (name.startsWith(BOOT_LIB) && name.indexOf('/', BOOT_LIB.length()) < 0) {
+          nestedJars.put(name.substring(BOOT_LIB.length()), entry);
+        } else if (name.startsWith(BOOT_CLASSES)) {
+          thin.put(name.substring(BOOT_CLASSES.length()), entry);
+        } else if (!name.startsWith(BOOT_INF) && !name.startsWith(BOOT_LOADER)) {
+          thin.put(name, entry);
+        }
+        continue;
+      }
+      String group = getGroup(name);
+      if (group == null || group.equals(applicationGroup) || !classGroups.contains(group)) {
+        thin.put(name, entry);
+      } else {
+        groups.computeIfAbsent(group, ignored -> new TreeMap<>()).put(name, entry);
+      }
+    }
+    if (nestedJars.isEmpty() && groups.isEmpty()) {
+      return null;
+    }
+
+    List<String> classPath = new ArrayList<>();
+    for (String nestedJar : nestedJars.keySet()) {
+      classPath.add(LIB + "/" + nestedJar);
+    }
+    for (String group : groups.keySet()) {
+      classPath.add(LIB + "/" + group + ".jar");
+    }
+    Manifest manifest = new Manifest();
+    Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    for (Map.Entry<Object, Object> attribute : mainAttributes.entrySet()) {
+      String name = attribute.getKey().toString();
+      if (!name.equalsIgnoreCase(Attributes.Name.CLASS_PATH.toString())
+          && !(nested && name.startsWith("Spring-Boot-"))
+          && !name.equals(START_CLASS.toString())) {
+        attributes.put(attribute.getKey(), attribute.getValue());
+      }
+    }
+    if (mainClass != null) {
+      attributes.put(Attributes.Name.MAIN_CLASS, mainClass);
+    }
+    String sourceClassPath = mainAttributes.getValue(Attributes.Name.CLASS_PATH);
+    if (sourceClassPath != null) {
+      classPath.addAll(Splitter.on(' ').omitEmptyStrings().splitToList(sourceClassPath));
+    }
+    attributes.put(Attributes.Name.CLASS_PATH, String.join(" ", classPath));
+    return new Layout(manifest, thin, nestedJars, groups);
+  }
+
+  /**
+   * The dependency jar an entry of a shaded jar belongs to, named after up to {@link
+   * #PACKAGE_DEPTH} leading package segments, or null for entries in the root or in {@code
+   * META-INF}.
+   */
+  @VisibleForTesting
+  @Nullable
+  static String getGroup(String name) {
+    if (name.startsWith("META-INF/")) {
+      return null;
+    }
+    List<String> segments = Splitter.on('/').splitToList(name);
+    int depth = Math.min(PACKAGE_DEPTH, segments.size() - 1);
+    if (depth == 0) {
+      return null;
+    }
+    return String.join(".", segments.subList(0, depth));
+  }
+
+  private static long writtenSize(
+      JarFile source, @Nullable Manifest manifest, SortedMap<String, JarEntry> entries)
+      throws IOException {
+    CountingOutputStream counter = new CountingOutputStream(ByteStreams.nullOutputStream());
+    writeJar(source, manifest, entries, counter);
+    return counter.getCount();
+  }
+
+  /**
+   * Writes a normalized jar with sorted entries, including every parent directory, and closes
+   * {@code target}.
+   */
+  private static void writeJar(
+      JarFile source,
+      @Nullable Manifest manifest,
+      SortedMap<String, JarEntry> entries,
+      OutputStream target)
+      throws IOException {
+    TreeSet<String> directories = new TreeSet<>();
+    for (String name : entries.keySet()) {
+      for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1)) {
+        directories.add(name.substring(0, slash + 1));
+      }
+    }
+    try (ZipOutputStream out = JarNormalizer.newOutputStream(target)) {
+      if (manifest != null) {
+        // the manifest goes first, where JarInputStream expects it
+        directories.remove("META-INF/");
+        JarNormalizer.putEntry(out, "META-INF/");
+        JarNormalizer.putEntry(out, JarFile.MANIFEST_NAME);
+        manifest.write(out);
+        out.closeEntry();
+      }
+      TreeSet<String> names = new TreeSet<>(directories);
+      names.addAll(entries.keySet());
+      for (String name : names) {
+        JarNormalizer.putEntry(out, name);
+        JarEntry entry = entries.get(name);
+        if (entry != null) {
+          try (InputStream in = source.getInputStream(entry)) {
+            ByteStreams.copy(in, out);
+          }
+        }
+        out.closeEntry();
+      }
+    }
+  }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandler;
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandlerException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.Permission;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Runs AppCfg inside the current JVM. Each App Engine tools jar is loaded once into an isolated
+ * class loader, which is kept for as long as this class is loaded: for the life of the Gradle
+ * daemon or the Maven session. Repeated staging runs therefore skip JVM startup and reuse code that
+ * has already been loaded and compiled.
+ *
+ * <p>AppCfg is constructed directly rather than through {@code main}, which reconfigures logging
+ * for the whole JVM. AppCfg may still call {@code System.exit} when it fails, so runs are guarded
+ * by a security manager that turns the exit into an error. Java 18 and later refuse to install a
+ * security manager unless the JVM was started with {@code -Djava.security.manager=allow}, and
+ * AppCfg is then not run in process.
+ *
+ * <p>The security manager, the {@code appengine.sdk.root} system property and the standard streams
+ * are global to the JVM, so runs are serialized and only one module stages at a time.
+ */
+class InProcessAppCfg {
+
+  private static final Logger logger = Logger.getLogger(InProcessAppCfg.class.getName());
+
+  static final String APPCFG_CLASS = "com.google.appengine.tools.admin.AppCfg";
+
+  private static final String SDK_ROOT_PROPERTY = "appengine.sdk.root";
+
+  /** Class loaders by tools jar. A jar that changed on disk gets a new class loader. */
+  private static final Map<Path, CachedClassLoader> classLoaders = new HashMap<>();
+
+  /**
+   * AppCfg reads system properties and writes to the standard streams, so runs must not overlap.
+   */
+  private static final Object runLock = new Object();
+
+  private static class CachedClassLoader {
+    private final FileTime lastModified;
+    private final URLClassLoader classLoader;
+
+    private CachedClassLoader(FileTime lastModified, URLClassLoader classLoader) {
+      this.lastModified = lastModified;
+      this.classLoader = classLoader;
+    }
+  }
+
+  /**
+   * The output stream AppCfg writes to: what the thread running AppCfg writes is kept for the
+   * {@link ProcessHandler}, what other threads write goes to the stream that was replaced.
+   */
+  private static class ThreadOutputStream extends OutputStream {
+    private final Thread thread;
+    private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    private final PrintStream other;
+
+    private ThreadOutputStream(Thread thread, PrintStream other) {
+      this.thread = thread;
+      this.other = other;
+    }
+
+    private OutputStream current() {
+      return Thread.currentThread() == thread ? captured : other;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      current().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      current().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      current().flush();
+    }
+  }
+
+  /** A completed AppCfg run, handed to a {@link ProcessHandler} as if AppCfg had been forked. */
+  private static class CompletedRun extends Process {
+    private final InputStream stdOut;
+    private final InputStream stdErr;
+    private final int exitValue;
+
+    private CompletedRun(byte[] stdOut, byte[] stdErr, int exitValue) {
+      this.stdOut = new ByteArrayInputStream(stdOut);
+      this.stdErr = new ByteArrayInputStream(stdErr);
+      this.exitValue = exitValue;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      return ByteStreams.nullOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return stdOut;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+      return stdErr;
+    }
+
+    @Override
+    public int waitFor() {
+      return exitValue;
+    }
+
+    @Override
+    public int exitValue() {
+      return exitValue;
+    }
+
+    @Override
+    public void destroy() {}
+  }
+
+  /** Turns {@code System.exit} calls from the thread running AppCfg into exceptions. */
+  @SuppressWarnings("removal")
+  private static class ExitGuard extends SecurityManager {
+    private final Thread thread;
+    @Nullable private volatile Integer exitStatus;
+
+    private ExitGuard(Thread thread) {
+      this.thread = thread;
+    }
+
+    @Override
+    public void checkPermission(Permission permission) {}
+
+    @Override
+    public void checkPermission(Permission permission, Object context) {}
+
+    @Override
+    public void checkExit(int status) {
+      if (Thread.currentThread() == thread) {
+        exitStatus = status;
+        throw new SecurityException("AppCfg called System.exit(" + status + ")");
+      }
+    }
+  }
+
+  private final String appCfgClass;
+
+  InProcessAppCfg() {
+    this(APPCFG_CLASS);
+  }
+
+  @VisibleForTesting
+  InProcessAppCfg(String appCfgClass) {
+    this.appCfgClass = appCfgClass;
+  }
+
+  /**
+   * Loads the constructor of AppCfg that takes the command line arguments and runs the command,
+   * from a tools jar or from a directory of classes.
+   *
+   * @throws IOException if the tools jar does not exist or cannot be read
+   * @throws ReflectiveOperationException if the tools jar has no usable AppCfg class
+   */
+  Constructor<?> load(Path toolsJar) throws IOException, ReflectiveOperationException {
+    Class<?> appCfg = Class.forName(appCfgClass, true, getClassLoader(toolsJar));
+    Constructor<?> constructor = appCfg.getDeclaredConstructor(String[].class);
+    constructor.setAccessible(true);
+    return constructor;
+  }
+
+  /**
+   * Runs AppCfg with the given arguments. The {@code appengine.sdk.root} system property, the
+   * thread's context class loader, the root logger and the standard streams are restored once the
+   * run completes.
+   *
+   * @return the completed run, whose streams hold what AppCfg wrote to the standard streams and
+   *     whose exit value is 1 if AppCfg threw an exception, the status it tried to exit with, or 0;
+   *     or null, without running AppCfg, if {@code System.exit} cannot be guarded against in this
+   *     JVM
+   * @throws ProcessHandlerException if AppCfg cannot be constructed
+   */
+  @Nullable
+  @SuppressWarnings("removal")
+  Process run(Constructor<?> appCfg, Path sdkRoot, List<String> args)
+      throws ProcessHandlerException {
+    synchronized (runLock) {
+      Thread thread = Thread.currentThread();
+      ExitGuard exitGuard = new ExitGuard(thread);
+      if (!install(exitGuard)) {
+        return null;
+      }
+      ClassLoader contextClassLoader = thread.getContextClassLoader();
+      String previousSdkRoot = System.getProperty(SDK_ROOT_PROPERTY);
+      Logger rootLogger = Logger.getLogger("");
+      Level rootLevel = rootLogger.getLevel();
+      Handler[] rootHandlers = rootLogger.getHandlers();
+      PrintStream previousOut = System.out;
+      PrintStream previousErr = System.err;
+      final ThreadOutputStream stdOut = new ThreadOutputStream(thread, previousOut);
+      final ThreadOutputStream stdErr = new ThreadOutputStream(thread, previousErr);
+      int exitValue = 0;
+      thread.setContextClassLoader(appCfg.getDeclaringClass().getClassLoader());
+      System.setProperty(SDK_ROOT_PROPERTY, sdkRoot.toString());
+      System.setOut(new PrintStream(stdOut, true));
+      System.setErr(new PrintStream(stdErr, true));
+      try {
+        appCfg.newInstance((Object) args.toArray(new String[0]));
+      } catch (InstantiationException | IllegalAccessException ex) {
+        throw new ProcessHandlerException(ex);
+      } catch (InvocationTargetException ex) {
+        Throwable cause = ex.getCause();
+        if (exitGuard.exitStatus == null) {
+          Throwables.throwIfInstanceOf(cause, Error.class);
+          // as the JVM reports an exception thrown from main
+          (cause == null ? ex : cause).printStackTrace();
+          exitValue = 1;
+        }
+      } finally {
+        System.out.flush();
+        System.err.flush();
+        System.setOut(previousOut);
+        System.setErr(previousErr);
+        System.setSecurityManager(null);
+        for (Handler handler : rootLogger.getHandlers()) {
+          rootLogger.removeHandler(handler);
+        }
+        for (Handler handler : rootHandlers) {
+          rootLogger.addHandler(handler);
+        }
+        rootLogger.setLevel(rootLevel);
+        if (previousSdkRoot == null) {
+          System.clearProperty(SDK_ROOT_PROPERTY);
+        } else {
+          System.setProperty(SDK_ROOT_PROPERTY, previousSdkRoot);
+        }
+        thread.setContextClassLoader(contextClassLoader);
+      }
+      Integer exitStatus = exitGuard.exitStatus;
+      if (exitStatus != null) {
+        exitValue = exitStatus;
+      }
+      return new CompletedRun(
+          stdOut.captured.toByteArray(), stdErr.captured.toByteArray(), exitValue);
+    }
+  }
+
+  @SuppressWarnings("removal")
+  private static boolean install(ExitGuard exitGuard) {
+    if (System.getSecurityManager() != null) {
+      logger.fine("A security manager is installed, cannot guard AppCfg's System.exit");
+      return false;
+    }
+    try {
+      System.setSecurityManager(exitGuard);
+      return true;
+    } catch (UnsupportedOperationException | SecurityException ex) {
+      logger.fine("Cannot install a security manager to guard AppCfg's System.exit: " + ex);
+      return false;
+    }
+  }
+
+  @VisibleForTesting
+  static ClassLoader getClassLoader(Path toolsJar) throws IOException {
+    if (!Files.exists(toolsJar)) {
+      throw new NoSuchFileException(toolsJar.toString());
+    }
+    Path key = toolsJar.toAbsolutePath().normalize();
+    FileTime lastModified = Files.getLastModifiedTime(key);
+    synchronized (classLoaders) {
+      CachedClassLoader cached = classLoaders.get(key);
+      if (cached != null && cached.lastModified.equals(lastModified)) {
+        return cached.classLoader;
+      }
+      if (cached != null) {
+        logger.fine("Tools jar changed, reloading: " + key);
+        cached.classLoader.close();
+      }
+      // the parent only sees the JDK, so the build's own dependencies cannot clash with AppCfg's
+      URLClassLoader classLoader =
+          new URLClassLoader(
+              new URL[] {key.toUri().toURL()}, ClassLoader.getSystemClassLoader().getParent());
+      classLoaders.put(key, new CachedClassLoader(lastModified, classLoader));
+      return classLoader;
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.logging.Logger;
+import java.util.zip.ZipException;
+import javax.annotation.Nullable;
+
+/**
+ * Resolves the jars reachable from a jar through manifest {@code Class-Path} attributes, following
+ * the manifests of the referenced jars as well. Entries are relative to the directory of the jar
+ * that references them, and each jar is placed at the same path relative to the artifact when
+ * staged.
+ *
+ * <p>A jar is staged once per path. Each jar's manifest is read once, however many paths lead to
+ * it, which also stops cycles. Distinct jars with the same content are reported as duplicates of
+ * the first one, so the stager can link instead of copying them again. Jars that would be placed
+ * outside the staging directory, such as {@code ../other/b.jar} relative to the artifact, are not
+ * staged.
+ */
+class JarClassPathResolver {
+
+  private static final Logger log = Logger.getLogger(JarClassPathResolver.class.getName());
+
+  /** A jar in the class path closure. */
+  static class Entry {
+    private final Path source;
+    private final Path stagedPath;
+    @Nullable private Path duplicateOf;
+
+    private Entry(Path source, Path stagedPath) {
+      this.source = source;
+      this.stagedPath = stagedPath;
+    }
+
+    /** The jar to stage. */
+    Path getSource() {
+      return source;
+    }
+
+    /** Where to stage the jar, relative to the staging directory. */
+    Path getStagedPath() {
+      return stagedPath;
+    }
+
+    /** The staged path of an earlier entry with the same content, or null if there is none. */
+    @Nullable
+    Path getDuplicateOf() {
+      return duplicateOf;
+    }
+  }
+
+  /** The jars reachable from an artifact. */
+  static class Closure {
+    private final ImmutableList<Entry> entries;
+    private final ImmutableList<Path> missing;
+    private final ImmutableList<Path> outside;
+
+    private Closure(List<Entry> entries, List<Path> missing, List<Path> outside) {
+      this.entries = ImmutableList.copyOf(entries);
+      this.missing = ImmutableList.copyOf(missing);
+      this.outside = ImmutableList.copyOf(outside);
+    }
+
+    /** Jars to stage, in breadth first order from the artifact. */
+    ImmutableList<Entry> getEntries() {
+      return entries;
+    }
+
+    /** Referenced paths that are not files and so cannot be staged. */
+    ImmutableList<Path> getMissing() {
+      return missing;
+    }
+
+    /** Referenced jars that are not below the artifact's directory and so cannot be staged. */
+    ImmutableList<Path> getOutside() {
+      return outside;
+    }
+  }
+
+  /** Resolves the class path closure of {@code artifact}, not including the artifact itself. */
+  Closure resolve(Path artifact) throws IOException {
+    Path artifactDirectory = artifact.resolveSibling("").normalize();
+
+    Map<Path, Entry> entries = new LinkedHashMap<>();
+    List<Path> missing = new ArrayList<>();
+    List<Path> outside = new ArrayList<>();
+    Set<Path> expanded = new HashSet<>();
+    Deque<Path> queue = new ArrayDeque<>();
+    queue.add(artifact);
+    expanded.add(artifact.toRealPath());
+
+    while (!queue.isEmpty()) {
+      Path jar = queue.remove();
+      boolean isArtifact = jar.equals(artifact);
+      Path jarDirectory = isArtifact ? artifactDirectory : jar.resolveSibling("");
+      for (String classPathEntry : readClassPath(jar, isArtifact)) {
+        Path source = jarDirectory.resolve(classPathEntry).normalize();
+        if (!Files.isRegularFile(source)) {
+          missing.add(source);
+          continue;
+        }
+        Path stagedPath = getStagedPath(artifactDirectory, source);
+        if (stagedPath == null) {
+          outside.add(source);
+          continue;
+        }
+        if (entries.containsKey(stagedPath)) {
+          continue;
+        }
+        entries.put(stagedPath, new Entry(source, stagedPath));
+        if (expanded.add(source.toRealPath())) {
+          queue.add(source);
+        }
+      }
+    }
+
+    markDuplicates(entries.values());
+    log.fine("Resolved " + entries.size() + " 'Class-Path' jars of " + artifact);
+    return new Closure(new ArrayList<>(entries.values()), missing, outside);
+  }
+
+  /**
+   * Returns where {@code source} is staged relative to the staging directory, or null if it is not
+   * below {@code artifactDirectory} and would be staged outside the staging directory.
+   */
+  @Nullable
+  private static Path getStagedPath(Path artifactDirectory, Path source) {
+    Path stagedPath;
+    try {
+      stagedPath = artifactDirectory.relativize(source).normalize();
+    } catch (IllegalArgumentException ex) {
+      // on another root, like another drive on Windows
+      return null;
+    }
+    if (stagedPath.isAbsolute() || stagedPath.toString().isEmpty() || stagedPath.startsWith("..")) {
+      return null;
+    }
+    return stagedPath;
+  }
+
+  private static List<String> readClassPath(Path jar, boolean isArtifact) throws IOException {
+    Manifest manifest;
+    try (JarFile jarFile = new JarFile(jar.toFile())) {
+      manifest = jarFile.getManifest();
+    } catch (ZipException ex) {
+      if (isArtifact) {
+        throw ex;
+      }
+      log.fine("Not following 'Class-Path' of " + jar + ", it is not a jar: " + ex.getMessage());
+      return ImmutableList.of();
+    }
+    if (manifest == null) {
+      return ImmutableList.of();
+    }
+    String classPath = manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+    if (classPath == null || classPath.trim().isEmpty()) {
+      return ImmutableList.of();
+    }
+    return Splitter.onPattern("\\s+").splitToList(classPath.trim());
+  }
+
+  /** Marks entries whose content equals that of an earlier entry, hashing only same-size files. */
+  private static void markDuplicates(Iterable<Entry> entries) throws IOException {
+    Map<Long, List<Entry>> bySize = new LinkedHashMap<>();
+    for (Entry entry : entries) {
+      bySize.computeIfAbsent(Files.size(entry.source), size -> new ArrayList<>()).add(entry);
+    }
+    for (List<Entry> sameSize : bySize.values()) {
+      if (sameSize.size() < 2) {
+        continue;
+      }
+      Map<String, Entry> byHash = new HashMap<>();
+      for (Entry entry : sameSize) {
+        Entry first = byHash.putIfAbsent(StagingManifest.hash(entry.source), entry);
+        if (first != null) {
+          entry.duplicateOf = first.stagedPath;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.common.io.ByteStreams;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Rewrites jars so that the same content always produces the same bytes: entries are sorted by
+ * name, after the manifest, every entry gets a fixed timestamp and default compression, and extra
+ * fields and comments are dropped. Normalized jars carry {@link #MARKER} as their archive comment,
+ * so that normalizing them again can be skipped.
+ */
+class JarNormalizer {
+
+  /** Archive comment of normalized jars. */
+  static final String MARKER = "normalized by appengine-plugins-core, version 1";
+
+  /** Time of every written entry, in local time as the zip format stores entry times. */
+  static final long ENTRY_TIME =
+      new GregorianCalendar(1980, Calendar.FEBRUARY, 1).getTimeInMillis();
+
+  private static final String MANIFEST_DIRECTORY = "META-INF/";
+
+  /** Whether {@code jar} is a jar that was already normalized. */
+  static boolean isNormalized(Path jar) {
+    try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+      return MARKER.equals(zipFile.getComment());
+    } catch (IOException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Writes a normalized copy of {@code jar} to {@code target}, which must be a different file.
+   *
+   * @throws ZipException if {@code jar} is not a valid jar
+   */
+  static void normalize(Path jar, Path target) throws IOException {
+    try (ZipFile zipFile = new ZipFile(jar.toFile());
+        ZipOutputStream out = newOutputStream(target)) {
+      // the first of duplicate entries wins, as it does when the jar is read
+      SortedMap<String, ZipEntry> entries = new TreeMap<>();
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        entries.putIfAbsent(entry.getName(), entry);
+      }
+      for (String name : new String[] {MANIFEST_DIRECTORY, JarFile.MANIFEST_NAME}) {
+        ZipEntry entry = entries.remove(name);
+        if (entry != null) {
+          copyEntry(zipFile, entry, out);
+        }
+      }
+      for (ZipEntry entry : entries.values()) {
+        copyEntry(zipFile, entry, out);
+      }
+    }
+  }
+
+  /** Opens a stream for a normalized jar, which callers must write in normalized order. */
+  static ZipOutputStream newOutputStream(Path target) throws IOException {
+    return newOutputStream(Files.newOutputStream(target));
+  }
+
+  /** Opens a stream that writes a normalized jar to {@code target}. */
+  static ZipOutputStream newOutputStream(OutputStream target) {
+    ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(target));
+    out.setComment(MARKER);
+    return out;
+  }
+
+  /** Starts a normalized entry. */
+  static void putEntry(ZipOutputStream out, String name) throws IOException {
+    ZipEntry entry = new ZipEntry(name);
+    entry.setTime(ENTRY_TIME);
+    out.putNextEntry(entry);
+  }
+
+  private static void copyEntry(ZipFile zipFile, ZipEntry entry, ZipOutputStream out)
+      throws IOException {
+    putEntry(out, entry.getName());
+    if (!entry.isDirectory()) {
+      try (InputStream in = zipFile.getInputStream(entry)) {
+        ByteStreams.copy(in, out);
+      }
+    }
+    out.closeEntry();
+  }
+}
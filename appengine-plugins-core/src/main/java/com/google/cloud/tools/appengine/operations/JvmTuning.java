@@ -0,0 +1,197 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * JVM flags tuned to the memory and CPU of an App Engine instance class. The JVM's default
+ * ergonomics assume a machine of its own, while with these flags:
+ *
+ * <ul>
+ *   <li>the heap is sized to what the instance memory leaves after metaspace, code cache and thread
+ *       stacks;
+ *   <li>instances with a fraction of a CPU use the serial collector, a single active processor for
+ *       sizing thread pools, and smaller thread stacks; the smallest ones compile with C1 only,
+ *       which warms up faster;
+ *   <li>all instances exit on {@link OutOfMemoryError}, so that App Engine replaces them.
+ * </ul>
+ */
+class JvmTuning {
+
+  /** Instance memory in MB by instance class. */
+  private static final ImmutableMap<String, Integer> INSTANCE_MEMORY =
+      ImmutableMap.<String, Integer>builder()
+          .put("F1", 384)
+          .put("F2", 768)
+          .put("F4", 1536)
+          .put("F4_1G", 3072)
+          .put("B1", 384)
+          .put("B2", 768)
+          .put("B4", 1536)
+          .put("B4_1G", 3072)
+          .put("B8", 3072)
+          .build();
+
+  /** Instances up to this memory have a fraction of a CPU. */
+  private static final int SMALL_INSTANCE_MEMORY = 768;
+
+  /** Memory in MB left outside the heap, at least. */
+  private static final int MIN_NON_HEAP_MEMORY = 128;
+
+  private static final Pattern GC_OPTION = Pattern.compile("Use\\w*GC");
+  private static final Pattern HEAP_SIZE = Pattern.compile("(\\d+)([kKmMgG]?)");
+  private static final ImmutableList<String> HEAP_OPTIONS =
+      ImmutableList.of("MaxRAM", "MaxRAMPercentage", "MaxRAMFraction");
+  private static final ImmutableList<String> SIZE_FLAGS =
+      ImmutableList.of("-Xmx", "-Xms", "-Xmn", "-Xss");
+
+  private JvmTuning() {}
+
+  /**
+   * Resolves the instance class of an app, which App Engine defaults to {@code F1} for automatic
+   * scaling and to {@code B2} for basic and manual scaling.
+   *
+   * @throws AppEngineException if {@code instanceClass} is not a known instance class
+   */
+  static String instanceClass(@Nullable String instanceClass, @Nullable String scalingType)
+      throws AppEngineException {
+    if (instanceClass == null) {
+      return "basic".equals(scalingType) || "manual".equals(scalingType) ? "B2" : "F1";
+    }
+    String resolved = instanceClass.toUpperCase(Locale.US);
+    if (!INSTANCE_MEMORY.containsKey(resolved)) {
+      throw new AppEngineException(
+          "Cannot tune the JVM for unknown instance_class: "
+              + instanceClass
+              + ", expected one of "
+              + Joiner.on(", ").join(INSTANCE_MEMORY.keySet()));
+    }
+    return resolved;
+  }
+
+  /** The flags tuned for an instance class, as returned by {@link #instanceClass}. */
+  static List<String> tunedFlags(String instanceClass) {
+    int memory = Preconditions.checkNotNull(INSTANCE_MEMORY.get(instanceClass));
+    int heap = memory - Math.max(MIN_NON_HEAP_MEMORY, memory / 4);
+    ImmutableList.Builder<String> flags = ImmutableList.builder();
+    flags.add("-Xmx" + heap + "m");
+    if (memory <= SMALL_INSTANCE_MEMORY) {
+      flags.add("-Xss512k", "-XX:+UseSerialGC", "-XX:ActiveProcessorCount=1");
+      if (memory < SMALL_INSTANCE_MEMORY) {
+        flags.add("-XX:TieredStopAtLevel=1");
+      }
+    } else {
+      flags.add("-XX:+UseG1GC");
+    }
+    flags.add("-XX:+ExitOnOutOfMemoryError");
+    return flags.build();
+  }
+
+  /**
+   * Applies user flags to tuned flags. A user flag replaces the tuned flag setting the same option,
+   * any garbage collector flag replaces the tuned collector, and any heap limit replaces the tuned
+   * {@code -Xmx}; other user flags are added.
+   */
+  static List<String> merge(List<String> tunedFlags, List<String> userFlags) {
+    Map<String, String> flags = new LinkedHashMap<>();
+    for (String flag : tunedFlags) {
+      flags.put(optionOf(flag), flag);
+    }
+    for (String flag : userFlags) {
+      flags.put(optionOf(flag), flag);
+    }
+    return ImmutableList.copyOf(flags.values());
+  }
+
+  /**
+   * Checks that flags can be put in an entrypoint, and that the heap fits the instance memory.
+   *
+   * @throws AppEngineException if a flag is malformed or the heap is too large
+   */
+  static void validate(List<String> flags, String instanceClass) throws AppEngineException {
+    int memory = Preconditions.checkNotNull(INSTANCE_MEMORY.get(instanceClass));
+    for (String flag : flags) {
+      if (!flag.startsWith("-") || flag.matches(".*\\s.*")) {
+        throw new AppEngineException(
+            "JVM flags must start with '-' and contain no whitespace, found: '" + flag + "'");
+      }
+      if (flag.startsWith("-Xmx") || flag.startsWith("-Xms")) {
+        Matcher matcher = HEAP_SIZE.matcher(flag.substring(4));
+        if (!matcher.matches()) {
+          throw new AppEngineException("Malformed heap size: " + flag);
+        }
+        long megabytes = toMegabytes(Long.parseLong(matcher.group(1)), matcher.group(2));
+        if (megabytes >= memory) {
+          throw new AppEngineException(
+              flag
+                  + " does not fit the "
+                  + memory
+                  + " MB of memory of instance class "
+                  + instanceClass);
+        }
+      }
+    }
+  }
+
+  /** The entrypoint that runs {@code jarName} with {@code flags}. */
+  static String entrypoint(List<String> flags, String jarName) {
+    return Joiner.on(' ')
+        .join(ImmutableList.builder().add("java").addAll(flags).add("-jar", jarName).build());
+  }
+
+  /** The option a flag sets, by which user flags replace tuned flags. */
+  private static String optionOf(String flag) {
+    if (flag.startsWith("-XX:")) {
+      String option = flag.substring(4).replaceFirst("^[+-]", "").replaceFirst("=.*", "");
+      if (GC_OPTION.matcher(option).matches()) {
+        return "GC";
+      }
+      return HEAP_OPTIONS.contains(option) ? "-Xmx" : option;
+    }
+    for (String sizeFlag : SIZE_FLAGS) {
+      if (flag.startsWith(sizeFlag)) {
+        return sizeFlag;
+      }
+    }
+    return flag.replaceFirst("=.*", "");
+  }
+
+  private static long toMegabytes(long size, String unit) {
+    switch (unit.toLowerCase(Locale.US)) {
+      case "g":
+        return size * 1024;
+      case "m":
+        return size;
+      case "k":
+        return size / 1024;
+      default:
+        return size / (1024 * 1024);
+    }
+  }
+}
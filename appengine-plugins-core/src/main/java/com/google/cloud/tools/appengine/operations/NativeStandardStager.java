@@ -0,0 +1,498 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.cloud.tools.io.ContentStore;
+import com.google.cloud.tools.io.FileUtil;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Stages appengine-web.xml based applications without appcfg. It copies the exploded war, generates
+ * app.yaml from appengine-web.xml, and rewrites jars as streams for jar splitting and {@code
+ * enable_jar_classes}. The generated app.yaml routes every request to the application, so static
+ * files are served by the application rather than by the static file servers.
+ *
+ * <p>Applications that need anything else from appcfg, such as JSP compilation, quickstart or the
+ * conversion of cron.xml and the other configuration files, are reported by {@link
+ * #getUnsupportedReason} and must be staged with appcfg.
+ */
+class NativeStandardStager {
+
+  /** Jars larger than this are split, like appcfg's jar splitting. */
+  @VisibleForTesting static final long MAX_JAR_SIZE = 10L * 1024 * 1024;
+
+  /** Name of the jar that holds the content of WEB-INF/classes with {@code enable_jar_classes}. */
+  @VisibleForTesting static final String CLASSES_JAR = "_ah_webinf_classes.jar";
+
+  private static final Pattern SUPPORTED_RUNTIME = Pattern.compile("java(8|\\d{2,})");
+
+  /** appengine-web.xml elements that are translated into app.yaml or read by the runtime. */
+  private static final ImmutableSet<String> SUPPORTED_ELEMENTS =
+      ImmutableSet.of(
+          "application",
+          "version",
+          "runtime",
+          "service",
+          "module",
+          "threadsafe",
+          "instance-class",
+          "automatic-scaling",
+          "basic-scaling",
+          "manual-scaling",
+          "inbound-services",
+          "warmup-requests-enabled",
+          "env-variables",
+          "app-engine-apis",
+          "sessions-enabled",
+          "async-session-persistence",
+          "precompilation-enabled",
+          "url-stream-handler");
+
+  private static final ImmutableList<String> SCALING_ELEMENTS =
+      ImmutableList.of("automatic-scaling", "basic-scaling", "manual-scaling");
+
+  /** Configuration files that appcfg converts to yaml for deployment. */
+  private static final ImmutableList<String> CONVERTED_FILES =
+      ImmutableList.of("cron.xml", "queue.xml", "dos.xml", "dispatch.xml", "datastore-indexes.xml");
+
+  private static final ImmutableList<String> JSP_SUFFIXES =
+      ImmutableList.of(".jsp", ".jspx", ".tag", ".tagx");
+
+  private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?");
+
+  private static final String DISALLOW_DOCTYPE_DECLARATIONS =
+      "http://apache.org/xml/features/disallow-doctype-decl";
+
+  private NativeStandardStager() {}
+
+  /**
+   * Checks whether an application can be staged without appcfg.
+   *
+   * @return why the application needs appcfg, or {@code null} if it can be staged natively
+   */
+  @Nullable
+  static String getUnsupportedReason(AppEngineWebXmlProjectStageConfiguration config)
+      throws IOException, AppEngineException {
+    if (Boolean.TRUE.equals(config.getEnableQuickstart())) {
+      return "quickstart is enabled";
+    }
+    if (config.getRuntime() != null) {
+      return "the runtime is overridden";
+    }
+    if (config.getDockerfile() != null) {
+      return "a Dockerfile is configured";
+    }
+    Path webInf = config.getSourceDirectory().resolve("WEB-INF");
+    Path appEngineWebXml = webInf.resolve("appengine-web.xml");
+    if (!Files.isRegularFile(appEngineWebXml)) {
+      return "WEB-INF/appengine-web.xml was not found";
+    }
+    Element root = parse(appEngineWebXml);
+    String runtime = getChildText(root, "runtime");
+    if (runtime == null || !SUPPORTED_RUNTIME.matcher(runtime).matches()) {
+      return "runtime " + (runtime == null ? "java7" : runtime) + " is not supported";
+    }
+    for (Element element : getChildElements(root)) {
+      String name = getName(element);
+      if (!SUPPORTED_ELEMENTS.contains(name)) {
+        return "appengine-web.xml element <" + name + "> is not supported";
+      }
+      if (SCALING_ELEMENTS.contains(name)) {
+        for (Element setting : getChildElements(element)) {
+          if (!getChildElements(setting).isEmpty()) {
+            return "scaling setting <" + getName(setting) + "> is not supported";
+          }
+        }
+      }
+    }
+    for (String convertedFile : CONVERTED_FILES) {
+      if (Files.exists(webInf.resolve(convertedFile))) {
+        return "WEB-INF/" + convertedFile + " must be converted by appcfg";
+      }
+    }
+    return findJsps(config.getSourceDirectory(), !Boolean.TRUE.equals(config.getDisableJarJsps()));
+  }
+
+  /**
+   * Stages an application into {@code outputDirectory}, which must exist. The application must be
+   * supported, as checked by {@link #getUnsupportedReason}.
+   */
+  static void stage(AppEngineWebXmlProjectStageConfiguration config, Path outputDirectory)
+      throws IOException, AppEngineException {
+    Path sourceDirectory = config.getSourceDirectory();
+    Path classes = sourceDirectory.resolve("WEB-INF/classes");
+    Path lib = sourceDirectory.resolve("WEB-INF/lib");
+    Path stagedLib = FileUtil.resolve(outputDirectory, sourceDirectory.relativize(lib));
+    boolean jarClasses = Boolean.TRUE.equals(config.getEnableJarClasses());
+    boolean splitJars = Boolean.TRUE.equals(config.getEnableJarSplitting());
+    ContentStore contentStore =
+        config.getContentStoreDirectory() == null
+            ? null
+            : ContentStore.forDirectory(config.getContentStoreDirectory());
+    List<String> excludedSuffixes =
+        config.getJarSplittingExcludes() == null
+            ? ImmutableList.of()
+            : Splitter.on(',')
+                .trimResults()
+                .omitEmptyStrings()
+                .splitToList(config.getJarSplittingExcludes());
+
+    Files.walkFileTree(
+        sourceDirectory,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            if (jarClasses && dir.equals(classes)) {
+              Files.createDirectories(stagedLib);
+              jarDirectory(classes, stagedLib.resolve(CLASSES_JAR));
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            Files.createDirectories(
+                FileUtil.resolve(outputDirectory, sourceDirectory.relativize(dir)));
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            if (splitJars
+                && lib.equals(file.getParent())
+                && file.toString().endsWith(".jar")
+                && attrs.size() > MAX_JAR_SIZE) {
+              splitJar(file, stagedLib, MAX_JAR_SIZE, excludedSuffixes);
+              return FileVisitResult.CONTINUE;
+            }
+            Path target = FileUtil.resolve(outputDirectory, sourceDirectory.relativize(file));
+            if (contentStore != null
+                && lib.equals(file.getParent())
+                && file.toString().endsWith(".jar")) {
+              // dependency jars are usually shared with other services
+              contentStore.link(file, target);
+              return FileVisitResult.CONTINUE;
+            }
+            Files.copy(
+                file,
+                target,
+                StandardCopyOption.COPY_ATTRIBUTES,
+                StandardCopyOption.REPLACE_EXISTING);
+            return FileVisitResult.CONTINUE;
+          }
+        });
+
+    Element root = parse(sourceDirectory.resolve("WEB-INF/appengine-web.xml"));
+    byte[] appYaml = toAppYaml(root).getBytes(StandardCharsets.UTF_8);
+    Files.write(outputDirectory.resolve("app.yaml"), appYaml);
+    Path generated = outputDirectory.resolve("WEB-INF/appengine-generated");
+    Files.createDirectories(generated);
+    Files.write(generated.resolve("app.yaml"), appYaml);
+  }
+
+  /** Generates app.yaml from the root element of appengine-web.xml. */
+  @VisibleForTesting
+  static String toAppYaml(Element root) throws AppEngineException {
+    String runtime = getChildText(root, "runtime");
+    if (runtime == null) {
+      throw new AppEngineException("appengine-web.xml has no runtime");
+    }
+    StringBuilder yaml = new StringBuilder();
+    yaml.append("runtime: ").append(runtime).append('\n');
+    String service = getChildText(root, "service");
+    if (service == null) {
+      service = getChildText(root, "module");
+    }
+    if (service != null) {
+      yaml.append("service: ").append(quote(service)).append('\n');
+    }
+    String instanceClass = getChildText(root, "instance-class");
+    if (instanceClass != null) {
+      yaml.append("instance_class: ").append(instanceClass).append('\n');
+    }
+    for (String scaling : SCALING_ELEMENTS) {
+      Element scalingElement = getChild(root, scaling);
+      if (scalingElement != null) {
+        yaml.append(toYamlKey(scaling)).append(":\n");
+        for (Element setting : getChildElements(scalingElement)) {
+          yaml.append("  ")
+              .append(toYamlKey(getName(setting)))
+              .append(": ")
+              .append(toScalar(setting.getTextContent().trim()))
+              .append('\n');
+        }
+      }
+    }
+    if ("true".equals(getChildText(root, "app-engine-apis"))) {
+      yaml.append("app_engine_apis: true\n");
+    }
+    String threadsafe = getChildText(root, "threadsafe");
+    if (threadsafe != null) {
+      yaml.append("threadsafe: ").append(Boolean.parseBoolean(threadsafe)).append('\n');
+    }
+
+    List<String> inboundServices = new ArrayList<>();
+    if (!"false".equals(getChildText(root, "warmup-requests-enabled"))) {
+      inboundServices.add("warmup");
+    }
+    Element inboundServicesElement = getChild(root, "inbound-services");
+    if (inboundServicesElement != null) {
+      for (Element inboundService : getChildElements(inboundServicesElement)) {
+        String name = inboundService.getTextContent().trim();
+        if (!inboundServices.contains(name)) {
+          inboundServices.add(name);
+        }
+      }
+    }
+    yaml.append("inbound_services:\n");
+    for (String inboundService : inboundServices) {
+      yaml.append("- ").append(inboundService).append('\n');
+    }
+
+    Element environment = getChild(root, "env-variables");
+    if (environment != null && !getChildElements(environment).isEmpty()) {
+      yaml.append("env_variables:\n");
+      for (Element variable : getChildElements(environment)) {
+        yaml.append("  ")
+            .append(quote(variable.getAttribute("name")))
+            .append(": ")
+            .append(quote(variable.getAttribute("value")))
+            .append('\n');
+      }
+    }
+
+    if ("java8".equals(runtime)) {
+      yaml.append("api_version: 'user_defined'\n");
+      yaml.append("handlers:\n- url: /.*\n  script: unused\n");
+    } else {
+      yaml.append("handlers:\n- url: /.*\n  script: auto\n");
+    }
+    return yaml.toString();
+  }
+
+  /**
+   * Splits a jar into jars of about {@code maxSize} bytes each, named like {@code name-0000.jar},
+   * leaving out entries that end with one of {@code excludedSuffixes}. A part is closed once it
+   * reaches {@code maxSize}, so it can exceed it by at most one entry.
+   *
+   * @return the jars written, in order
+   */
+  @VisibleForTesting
+  static List<Path> splitJar(Path jar, Path directory, long maxSize, List<String> excludedSuffixes)
+      throws IOException {
+    String fileName = String.valueOf(jar.getFileName());
+    String baseName = fileName.substring(0, fileName.length() - ".jar".length());
+    List<Path> parts = new ArrayList<>();
+    try (ZipInputStream in = new ZipInputStream(Files.newInputStream(jar))) {
+      CountingOutputStream counter = null;
+      ZipOutputStream out = null;
+      try {
+        for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+          if (isExcluded(entry.getName(), excludedSuffixes)) {
+            continue;
+          }
+          if (counter == null || out == null || counter.getCount() >= maxSize) {
+            if (out != null) {
+              out.close();
+            }
+            Path part = directory.resolve(String.format("%s-%04d.jar", baseName, parts.size()));
+            parts.add(part);
+            counter = new CountingOutputStream(newOutputStream(part));
+            out = new ZipOutputStream(counter);
+          }
+          ZipEntry copy = new ZipEntry(entry.getName());
+          copy.setTime(entry.getTime());
+          out.putNextEntry(copy);
+          ByteStreams.copy(in, out);
+          out.closeEntry();
+        }
+      } finally {
+        if (out != null) {
+          out.close();
+        }
+      }
+    }
+    return parts;
+  }
+
+  /** Writes the files of a directory tree into a new jar, in a stable order. */
+  private static void jarDirectory(Path directory, Path jar) throws IOException {
+    List<Path> files;
+    try (Stream<Path> walk = Files.walk(directory)) {
+      files = walk.filter(path -> !path.equals(directory)).sorted().collect(Collectors.toList());
+    }
+    try (ZipOutputStream out = new ZipOutputStream(newOutputStream(jar))) {
+      for (Path file : files) {
+        String name = directory.relativize(file).toString().replace('\\', '/');
+        boolean isDirectory = Files.isDirectory(file);
+        ZipEntry entry = new ZipEntry(isDirectory ? name + "/" : name);
+        entry.setTime(Files.getLastModifiedTime(file).toMillis());
+        out.putNextEntry(entry);
+        if (!isDirectory) {
+          Files.copy(file, out);
+        }
+        out.closeEntry();
+      }
+    }
+  }
+
+  private static OutputStream newOutputStream(Path file) throws IOException {
+    return new BufferedOutputStream(Files.newOutputStream(file));
+  }
+
+  private static boolean isExcluded(String entryName, List<String> excludedSuffixes) {
+    for (String suffix : excludedSuffixes) {
+      if (entryName.endsWith(suffix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Finds JSPs that appcfg would compile, in the war and, optionally, in its jars. */
+  @Nullable
+  private static String findJsps(Path sourceDirectory, boolean searchJars) throws IOException {
+    Path lib = sourceDirectory.resolve("WEB-INF/lib");
+    List<Path> jars = new ArrayList<>();
+    try (Stream<Path> walk = Files.walk(sourceDirectory)) {
+      for (Path file : (Iterable<Path>) walk::iterator) {
+        String name = String.valueOf(file.getFileName());
+        if (file.startsWith(lib)) {
+          if (name.endsWith(".jar")) {
+            jars.add(file);
+          }
+        } else if (isJsp(name)) {
+          return "JSP " + sourceDirectory.relativize(file) + " must be compiled by appcfg";
+        }
+      }
+    }
+    if (!searchJars) {
+      return null;
+    }
+    for (Path jar : jars) {
+      try (ZipInputStream in = new ZipInputStream(Files.newInputStream(jar))) {
+        for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+          if (isJsp(entry.getName())) {
+            return "JSPs in " + jar.getFileName() + " must be compiled by appcfg";
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  private static boolean isJsp(String name) {
+    for (String suffix : JSP_SUFFIXES) {
+      if (name.endsWith(suffix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Element parse(Path appEngineWebXml) throws IOException, AppEngineException {
+    try (InputStream in = Files.newInputStream(appEngineWebXml)) {
+      DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+      documentBuilderFactory.setNamespaceAware(true);
+      documentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      documentBuilderFactory.setFeature(DISALLOW_DOCTYPE_DECLARATIONS, true);
+      Element root = documentBuilderFactory.newDocumentBuilder().parse(in).getDocumentElement();
+      if (root == null || !"appengine-web-app".equals(getName(root))) {
+        throw new AppEngineException("Not an appengine-web.xml file: " + appEngineWebXml);
+      }
+      return root;
+    } catch (ParserConfigurationException | SAXException ex) {
+      throw new AppEngineException("Unable to parse " + appEngineWebXml, ex);
+    }
+  }
+
+  private static String getName(Node node) {
+    String localName = node.getLocalName();
+    return localName != null ? localName : node.getNodeName();
+  }
+
+  private static List<Element> getChildElements(Element parent) {
+    List<Element> elements = new ArrayList<>();
+    NodeList children = parent.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      if (children.item(i) instanceof Element) {
+        elements.add((Element) children.item(i));
+      }
+    }
+    return elements;
+  }
+
+  @Nullable
+  private static Element getChild(Element parent, String name) {
+    for (Element child : getChildElements(parent)) {
+      if (name.equals(getName(child))) {
+        return child;
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private static String getChildText(Element parent, String name) {
+    Element child = getChild(parent, name);
+    return child == null ? null : child.getTextContent().trim();
+  }
+
+  private static String toYamlKey(String elementName) {
+    return elementName.replace('-', '_');
+  }
+
+  private static String toScalar(String value) {
+    return NUMBER.matcher(value).matches() ? value : quote(value);
+  }
+
+  private static String quote(String value) {
+    return "'" + value.replace("'", "''") + "'";
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/** Helpers for the processes, such as the staged application, that operations run. */
+class Processes {
+
+  /** Lines of output included in errors. */
+  private static final int TAIL_LINES = 20;
+
+  private Processes() {}
+
+  /**
+   * The last lines of a process's output, redirected to {@code output}, to explain a failure, or an
+   * empty string if there is no output.
+   */
+  static String tail(Path output) throws IOException {
+    if (!Files.isRegularFile(output)) {
+      return "";
+    }
+    List<String> lines =
+        Splitter.onPattern("\\r?\\n")
+            .omitEmptyStrings()
+            .splitToList(new String(Files.readAllBytes(output), Charset.defaultCharset()));
+    if (lines.isEmpty()) {
+      return "";
+    }
+    return ", output:\n"
+        + Joiner.on('\n').join(lines.subList(Math.max(0, lines.size() - TAIL_LINES), lines.size()));
+  }
+
+  /** A port that nothing listens on at the moment. */
+  static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  /** The {@code java} launcher of a JDK. */
+  static Path java(Path javaHome) {
+    return javaHome.resolve("bin").resolve(isWindows() ? "java.exe" : "java");
+  }
+
+  static boolean isWindows() {
+    return System.getProperty("os.name", "").toLowerCase(Locale.US).startsWith("windows");
+  }
+}
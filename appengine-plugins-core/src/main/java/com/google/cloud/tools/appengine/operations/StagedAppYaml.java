@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Edits a staged {@code app.yaml}, keeping its other lines and comments as they are. */
+class StagedAppYaml {
+
+  private static final String ENTRYPOINT = "entrypoint:";
+
+  private StagedAppYaml() {}
+
+  /**
+   * Replaces the top level {@code entrypoint} of {@code appYaml}, or adds one. The file is replaced
+   * rather than written to, as a staged file may be linked to its source.
+   */
+  static void setEntrypoint(Path appYaml, String entrypoint) throws IOException {
+    List<String> lines = new ArrayList<>();
+    boolean inEntrypoint = false;
+    for (String line : Files.readAllLines(appYaml, StandardCharsets.UTF_8)) {
+      // a value may continue on indented lines
+      if (inEntrypoint && (line.isEmpty() || Character.isWhitespace(line.charAt(0)))) {
+        continue;
+      }
+      inEntrypoint = line.startsWith(ENTRYPOINT);
+      if (!inEntrypoint) {
+        lines.add(line);
+      }
+    }
+    lines.add(ENTRYPOINT + " " + quote(entrypoint));
+
+    Path temporary = appYaml.resolveSibling("." + appYaml.getFileName() + ".tmp");
+    try {
+      Files.write(temporary, lines, StandardCharsets.UTF_8);
+      Files.move(temporary, appYaml, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /** Quotes {@code value} as a YAML double quoted scalar. */
+  private static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+}
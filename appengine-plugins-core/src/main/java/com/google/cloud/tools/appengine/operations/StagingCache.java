@@ -0,0 +1,327 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.cloud.tools.io.ContentStore;
+import com.google.cloud.tools.io.FileLinker;
+import com.google.cloud.tools.io.FileUtil;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * Cache of staging outputs, keyed by a hash of everything the output depends on. File contents are
+ * kept in a {@link ContentStore}, so that outputs that share files store them once, and each cached
+ * output is a JSON listing of its files and their content hashes. The modification time of a
+ * listing records when it was last stored or restored, which {@link #trim} uses to evict the least
+ * recently used outputs.
+ */
+class StagingCache {
+
+  private static final Logger log = Logger.getLogger(StagingCache.class.getName());
+
+  private static final int VERSION = 1;
+
+  private static final Gson gson = new Gson();
+
+  /** Size limit of the stored files used when none is configured. */
+  static final long DEFAULT_MAX_SIZE = 2L * 1024 * 1024 * 1024;
+
+  /**
+   * Unreferenced stored files younger than this are kept by {@link #trim}, as they may belong to an
+   * output that a concurrent build is still storing.
+   */
+  private static final Duration TRIM_GRACE_PERIOD = Duration.ofMinutes(10);
+
+  /** The files and directories of a cached staging output. */
+  private static class Output {
+    private int version = VERSION;
+    private List<String> directories = new ArrayList<>();
+    private Map<String, String> files = new TreeMap<>();
+  }
+
+  /** Computes cache keys from the inputs of a staging run, in the order they are added. */
+  static class KeyBuilder {
+    private final Hasher hasher = Hashing.sha256().newHasher();
+
+    KeyBuilder() {
+      hasher.putInt(VERSION);
+    }
+
+    KeyBuilder putString(String value) {
+      hasher.putString(value, StandardCharsets.UTF_8).putByte((byte) 0);
+      return this;
+    }
+
+    /** Adds the content of a file, or a marker when it does not exist. */
+    KeyBuilder putFile(Path file) throws IOException {
+      return putString(Files.isRegularFile(file) ? ContentStore.hash(file) : "-");
+    }
+
+    /** Adds the relative path and content of every file in a directory tree. */
+    KeyBuilder putDirectory(Path directory) throws IOException {
+      List<Path> files;
+      try (Stream<Path> walk = Files.walk(directory)) {
+        files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+      }
+      for (Path file : files) {
+        putString(toKey(directory.relativize(file)));
+        putFile(file);
+      }
+      return this;
+    }
+
+    String build() {
+      return hasher.hash().toString();
+    }
+  }
+
+  private final Path outputs;
+  private final ContentStore contentStore;
+  private final FileLinker linker = new FileLinker(true, true);
+
+  StagingCache(Path directory) {
+    this.outputs = directory.resolve("outputs");
+    this.contentStore = new ContentStore(directory.resolve("objects"));
+  }
+
+  /**
+   * Copies the output cached under {@code key} into {@code stagingDirectory}.
+   *
+   * @return false if nothing usable is cached under {@code key}
+   */
+  boolean restore(String key, Path stagingDirectory) throws IOException {
+    return restore(key, stagingDirectory, false);
+  }
+
+  /**
+   * Places the output cached under {@code key} into {@code stagingDirectory}. Linked files share
+   * their content with the cache and must not be modified.
+   *
+   * @param link whether to hard link, or else reflink, files instead of copying them
+   * @return false if nothing usable is cached under {@code key}
+   */
+  boolean restore(String key, Path stagingDirectory, boolean link) throws IOException {
+    Path outputFile = outputs.resolve(key + ".json");
+    Output output = read(outputFile);
+    if (output == null) {
+      return false;
+    }
+    for (String hash : output.files.values()) {
+      if (!contentStore.contains(hash)) {
+        log.fine("Cached staging output is incomplete: " + key);
+        return false;
+      }
+    }
+    for (String directory : output.directories) {
+      Files.createDirectories(resolve(stagingDirectory, directory));
+    }
+    for (Map.Entry<String, String> file : output.files.entrySet()) {
+      Path target = resolve(stagingDirectory, file.getKey());
+      if (link) {
+        linker.link(contentStore.getPath(file.getValue()), target);
+      } else {
+        Files.copy(
+            contentStore.getPath(file.getValue()), target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    touch(outputFile);
+    return true;
+  }
+
+  /** Caches the content of {@code stagingDirectory} under {@code key}. */
+  void store(String key, Path stagingDirectory) throws IOException {
+    Output output = new Output();
+    Files.walkFileTree(
+        stagingDirectory,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (!dir.equals(stagingDirectory)) {
+              output.directories.add(toKey(stagingDirectory.relativize(dir)));
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            output.files.put(toKey(stagingDirectory.relativize(file)), contentStore.put(file));
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    write(key, output);
+  }
+
+  /**
+   * Caches the given files of {@code stagingDirectory} under {@code key}, leaving out anything else
+   * the directory holds.
+   *
+   * @param files paths of the files relative to {@code stagingDirectory}
+   */
+  void store(String key, Path stagingDirectory, Collection<Path> files) throws IOException {
+    Output output = new Output();
+    Set<String> directories = new TreeSet<>();
+    for (Path file : files) {
+      for (Path parent = file.getParent(); parent != null; parent = parent.getParent()) {
+        directories.add(toKey(parent));
+      }
+      output.files.put(toKey(file), contentStore.put(FileUtil.resolve(stagingDirectory, file)));
+    }
+    // parents sort before their children
+    output.directories.addAll(directories);
+    write(key, output);
+  }
+
+  private void write(String key, Output output) throws IOException {
+    Files.createDirectories(outputs);
+    Path temporary = Files.createTempFile(outputs, key.substring(0, 8), ".tmp");
+    try {
+      try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+        gson.toJson(output, writer);
+      }
+      Files.move(
+          temporary,
+          outputs.resolve(key + ".json"),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Evicts the least recently used outputs once the files referenced by the more recently used ones
+   * add up to more than {@code maxSize} bytes, and deletes the stored files no remaining output
+   * refers to. The most recently used output is always kept.
+   */
+  void trim(long maxSize) throws IOException {
+    if (!Files.isDirectory(outputs)) {
+      return;
+    }
+    List<Path> outputFiles;
+    try (Stream<Path> files = Files.list(outputs)) {
+      outputFiles =
+          files.filter(file -> file.toString().endsWith(".json")).collect(Collectors.toList());
+    }
+    Map<Path, Long> lastUsed = new HashMap<>();
+    for (Path outputFile : outputFiles) {
+      lastUsed.put(outputFile, Files.getLastModifiedTime(outputFile).toMillis());
+    }
+    outputFiles.sort(Comparator.comparing(lastUsed::get, Comparator.reverseOrder()));
+
+    Set<String> kept = new HashSet<>();
+    long keptSize = 0;
+    boolean full = false;
+    int evicted = 0;
+    for (Path outputFile : outputFiles) {
+      Output output = full ? null : read(outputFile);
+      if (output != null) {
+        long size = 0;
+        for (String hash : output.files.values()) {
+          Path stored = contentStore.getPath(hash);
+          if (!kept.contains(hash) && Files.isRegularFile(stored)) {
+            size += Files.size(stored);
+          }
+        }
+        if (kept.isEmpty() || keptSize + size <= maxSize) {
+          kept.addAll(output.files.values());
+          keptSize += size;
+          continue;
+        }
+        full = true;
+      }
+      Files.deleteIfExists(outputFile);
+      evicted++;
+    }
+
+    long graceStart = System.currentTimeMillis() - TRIM_GRACE_PERIOD.toMillis();
+    for (String hash : contentStore.list()) {
+      if (!kept.contains(hash)
+          && Files.getLastModifiedTime(contentStore.getPath(hash)).toMillis() < graceStart) {
+        contentStore.remove(hash);
+      }
+    }
+    if (evicted > 0) {
+      log.fine("Evicted " + evicted + " outputs from the staging cache");
+    }
+  }
+
+  private static void touch(Path file) {
+    try {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException ex) {
+      // a read-only cache still works, it just cannot track usage
+      log.fine("Unable to record use of cached staging output: " + file);
+    }
+  }
+
+  @Nullable
+  private Output read(Path file) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      Output output = gson.fromJson(reader, Output.class);
+      if (output == null
+          || output.version != VERSION
+          || output.files == null
+          || output.directories == null) {
+        return null;
+      }
+      return output;
+    } catch (JsonParseException ex) {
+      log.warning("Ignoring unreadable cached staging output: " + file);
+      return null;
+    }
+  }
+
+  private static String toKey(Path relative) {
+    return relative.toString().replace('\\', '/');
+  }
+
+  private static Path resolve(Path stagingDirectory, String key) {
+    return FileUtil.resolve(stagingDirectory, stagingDirectory.getFileSystem().getPath(key));
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.Hashing;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/** Locations kept beside a staging directory, so that they are not deployed with it. */
+final class StagingDirectories {
+
+  private StagingDirectories() {}
+
+  /**
+   * Returns a hidden sibling of {@code stagingDirectory} named after it and ending in {@code
+   * suffix}. The root of a file system has no siblings, so a path in the temporary directory named
+   * after the root's hash is returned instead.
+   */
+  static Path sibling(Path stagingDirectory, String suffix) {
+    Path absolute = stagingDirectory.toAbsolutePath().normalize();
+    Path name = absolute.getFileName();
+    if (name == null) {
+      String key = Hashing.sha256().hashString(absolute.toUri().toString(), UTF_8).toString();
+      return Paths.get(System.getProperty("java.io.tmpdir"))
+          .resolve("appengine-staging")
+          .resolve(key + suffix);
+    }
+    return absolute.resolveSibling("." + name + suffix);
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Record of the files copied into a staging directory, keyed by their path relative to the staging
+ * directory. Used by incremental staging to decide which files need to be copied again, and by sync
+ * staging for the files it does not stage as exact copies, like normalized jars. Serialized as JSON
+ * next to the staging directory, never into it, so that it is not deployed with the application.
+ */
+class StagingManifest {
+
+  private static final Logger log = Logger.getLogger(StagingManifest.class.getName());
+
+  static final String FILE_SUFFIX = ".appengine-staging-manifest.json";
+
+  /** Where manifests used to be kept, inside the staging directory. */
+  static final String LEGACY_FILE_NAME = ".appengine-staging-manifest.json";
+
+  private static final int VERSION = 1;
+
+  private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+  /**
+   * A staged file and the state of its source when it was copied. A staged file that is not an
+   * exact copy of its source, like a normalized jar, also records the hash of the staged file.
+   */
+  static class Entry {
+    private final String source;
+    private final long size;
+    private final long lastModified;
+    private final String sha256;
+    @Nullable private final String stagedSha256;
+
+    Entry(String source, long size, long lastModified, String sha256) {
+      this(source, size, lastModified, sha256, null);
+    }
+
+    Entry(
+        String source, long size, long lastModified, String sha256, @Nullable String stagedSha256) {
+      this.source = source;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.sha256 = sha256;
+      this.stagedSha256 = stagedSha256;
+    }
+
+    /**
+     * Records the current state of {@code src}, staged as {@code dest}. The hash of {@code dest} is
+     * recorded if it is {@code transformed}, rather than an exact copy.
+     */
+    static Entry of(Path src, Path dest, boolean transformed) throws IOException {
+      return new Entry(
+          src.toAbsolutePath().toString(),
+          Files.size(src),
+          Files.getLastModifiedTime(src).toMillis(),
+          hash(src),
+          transformed ? hash(dest) : null);
+    }
+
+    String getSource() {
+      return source;
+    }
+
+    long getSize() {
+      return size;
+    }
+
+    long getLastModified() {
+      return lastModified;
+    }
+
+    String getSha256() {
+      return sha256;
+    }
+
+    @Nullable
+    String getStagedSha256() {
+      return stagedSha256;
+    }
+  }
+
+  private int version = VERSION;
+  private Map<String, Entry> entries = new TreeMap<>();
+
+  @Nullable
+  synchronized Entry get(String stagedPath) {
+    return entries.get(stagedPath);
+  }
+
+  synchronized void put(String stagedPath, Entry entry) {
+    entries.put(stagedPath, entry);
+  }
+
+  synchronized boolean contains(String stagedPath) {
+    return entries.containsKey(stagedPath);
+  }
+
+  /**
+   * Returns the entry to record for {@code src} staged as {@code dest} if neither changed since
+   * they were recorded at {@code stagedPath}, or null if {@code src} must be staged again. The
+   * source is unchanged if its path and size match and its modification time or, failing that, its
+   * content hash does. The staged file is unchanged if it hashes to the recorded output when it is
+   * {@code transformed}, or else has the size of the source.
+   */
+  @Nullable
+  Entry getUnchanged(String stagedPath, Path src, Path dest, boolean transformed)
+      throws IOException {
+    Entry entry = get(stagedPath);
+    String source = src.toAbsolutePath().toString();
+    long size = Files.size(src);
+    if (entry == null
+        || !entry.source.equals(source)
+        || entry.size != size
+        || !Files.isRegularFile(dest)) {
+      return null;
+    }
+    String stagedSha256 = entry.stagedSha256;
+    if (transformed
+        ? stagedSha256 == null || !stagedSha256.equals(hash(dest))
+        : stagedSha256 != null || Files.size(dest) != size) {
+      return null;
+    }
+    long lastModified = Files.getLastModifiedTime(src).toMillis();
+    if (entry.lastModified == lastModified) {
+      return entry;
+    }
+    String sha256 = hash(src);
+    if (!entry.sha256.equals(sha256)) {
+      return null;
+    }
+    return new Entry(source, size, lastModified, sha256, stagedSha256);
+  }
+
+  Map<String, Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Reads the manifest from a staging directory. A missing, unreadable or outdated manifest yields
+   * an empty manifest, which makes the next staging run copy everything.
+   */
+  static StagingManifest readFrom(Path stagingDirectory) throws IOException {
+    return readFrom(stagingDirectory, FILE_SUFFIX);
+  }
+
+  /** Reads the manifest kept beside a staging directory with the given suffix. */
+  static StagingManifest readFrom(Path stagingDirectory, String suffix) throws IOException {
+    Path manifestFile = StagingDirectories.sibling(stagingDirectory, suffix);
+    if (!Files.isRegularFile(manifestFile)) {
+      return new StagingManifest();
+    }
+    try (Reader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+      StagingManifest manifest = gson.fromJson(reader, StagingManifest.class);
+      if (manifest == null || manifest.version != VERSION || manifest.entries == null) {
+        return new StagingManifest();
+      }
+      return manifest;
+    } catch (JsonParseException ex) {
+      log.warning("Ignoring unreadable staging manifest: " + manifestFile);
+      return new StagingManifest();
+    }
+  }
+
+  /**
+   * Writes the manifest of a staging directory, replacing any previous manifest. A manifest left
+   * inside the staging directory by earlier versions is deleted, so that it is not deployed.
+   */
+  void writeTo(Path stagingDirectory) throws IOException {
+    writeTo(stagingDirectory, FILE_SUFFIX);
+    Files.deleteIfExists(stagingDirectory.resolve(LEGACY_FILE_NAME));
+  }
+
+  /** Writes the manifest kept beside a staging directory with the given suffix. */
+  synchronized void writeTo(Path stagingDirectory, String suffix) throws IOException {
+    Path manifestFile = StagingDirectories.sibling(stagingDirectory, suffix);
+    Files.createDirectories(Preconditions.checkNotNull(manifestFile.getParent()));
+    try (Writer writer = Files.newBufferedWriter(manifestFile, StandardCharsets.UTF_8)) {
+      gson.toJson(this, writer);
+    }
+  }
+
+  /** Returns the manifest file of a staging directory, which is kept beside it. */
+  @VisibleForTesting
+  static Path getManifestFile(Path stagingDirectory) {
+    return StagingDirectories.sibling(stagingDirectory, FILE_SUFFIX);
+  }
+
+  /** Computes the content hash recorded for a staged file. */
+  static String hash(Path file) throws IOException {
+    return MoreFiles.asByteSource(file).hash(Hashing.sha256()).toString();
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+/** The steps of staging an app.yaml based application, and so the reasons a file is staged. */
+public enum StagingPhase {
+  /** The file is part of the Docker context of a flexible environment application. */
+  DOCKER_CONTEXT,
+
+  /** The file is in one of the configured extra files directories. */
+  EXTRA_FILES,
+
+  /** The file is {@code app.yaml}. */
+  APP_ENGINE_CONTEXT,
+
+  /** The file is the application artifact. */
+  ARTIFACT,
+
+  /** The file is a jar on the artifact's manifest {@code Class-Path}. */
+  CLASS_PATH
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.cloud.tools.appengine.operations.AppYamlProjectStaging.CopyService;
+import com.google.cloud.tools.io.ExcludeSet;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * What staging an app.yaml based application will do, computed without writing anything: every file
+ * to be staged with its size and the phase that stages it, along with the copy steps that {@link
+ * AppYamlProjectStaging#executePlan} applies to produce them.
+ */
+public class StagingPlan {
+
+  /** A file to be staged. */
+  public static class Entry {
+    private final Path source;
+    private final Path destination;
+    private final long size;
+    private final StagingPhase phase;
+
+    Entry(Path source, Path destination, long size, StagingPhase phase) {
+      this.source = source;
+      this.destination = destination;
+      this.size = size;
+      this.phase = phase;
+    }
+
+    /** The file to copy. */
+    public Path getSource() {
+      return source;
+    }
+
+    /** Where the file is staged, relative to the staging directory. */
+    public Path getDestination() {
+      return destination;
+    }
+
+    /** Size of the file in bytes. */
+    public long getSize() {
+      return size;
+    }
+
+    /** The phase that stages the file, which is why the file is included. */
+    public StagingPhase getPhase() {
+      return phase;
+    }
+  }
+
+  /** A copy operation, replayed against the copy service of the real staging run. */
+  abstract static class Step {
+    private final StagingPhase phase;
+
+    Step(StagingPhase phase) {
+      this.phase = phase;
+    }
+
+    /** The phase the step belongs to. */
+    StagingPhase getPhase() {
+      return phase;
+    }
+
+    abstract void apply(CopyService copyService) throws IOException;
+
+    /** Whether this step may run concurrently with adjacent steps that also allow it. */
+    boolean isIndependent() {
+      return false;
+    }
+  }
+
+  static class CopyDirectoryStep extends Step {
+    private final Path source;
+    private final Path destination;
+    private final ExcludeSet excludes;
+
+    CopyDirectoryStep(StagingPhase phase, Path source, Path destination, ExcludeSet excludes) {
+      super(phase);
+      this.source = source;
+      this.destination = destination;
+      this.excludes = excludes;
+    }
+
+    @Override
+    void apply(CopyService copyService) throws IOException {
+      copyService.copyDirectory(source, destination, excludes);
+    }
+  }
+
+  static class CopyFileStep extends Step {
+    private final Path source;
+    private final Path destination;
+
+    CopyFileStep(StagingPhase phase, Path source, Path destination) {
+      super(phase);
+      this.source = source;
+      this.destination = destination;
+    }
+
+    @Override
+    void apply(CopyService copyService) throws IOException {
+      copyService.copyFileAndReplace(source, destination);
+    }
+
+    @Override
+    boolean isIndependent() {
+      return true;
+    }
+  }
+
+  static class CopyDuplicateStep extends Step {
+    private final Path original;
+    private final Path source;
+    private final Path destination;
+
+    CopyDuplicateStep(StagingPhase phase, Path original, Path source, Path destination) {
+      super(phase);
+      this.original = original;
+      this.source = source;
+      this.destination = destination;
+    }
+
+    @Override
+    void apply(CopyService copyService) throws IOException {
+      copyService.copyDuplicate(original, source, destination);
+    }
+  }
+
+  private final Path stagingDirectory;
+  private final ImmutableList<Entry> entries;
+  private final ImmutableList<Step> steps;
+  private final boolean splitPending;
+
+  StagingPlan(Path stagingDirectory, ImmutableList<Entry> entries, ImmutableList<Step> steps) {
+    this(stagingDirectory, entries, steps, false);
+  }
+
+  StagingPlan(
+      Path stagingDirectory,
+      ImmutableList<Entry> entries,
+      ImmutableList<Step> steps,
+      boolean splitPending) {
+    this.stagingDirectory = stagingDirectory;
+    this.entries = entries;
+    this.steps = steps;
+    this.splitPending = splitPending;
+  }
+
+  /** The directory the plan stages into. */
+  public Path getStagingDirectory() {
+    return stagingDirectory;
+  }
+
+  /** Files to be staged, in the order they are staged. */
+  public ImmutableList<Entry> getEntries() {
+    return entries;
+  }
+
+  /** Number of files to be staged. */
+  public int getFileCount() {
+    return entries.size();
+  }
+
+  /** Number of files to be staged by {@code phase}. */
+  public int getFileCount(StagingPhase phase) {
+    return (int) entries.stream().filter(entry -> entry.phase == phase).count();
+  }
+
+  /** Total size in bytes of the files to be staged. */
+  public long getTotalBytes() {
+    return entries.stream().mapToLong(Entry::getSize).sum();
+  }
+
+  /** Total size in bytes of the files to be staged by {@code phase}. */
+  public long getTotalBytes(StagingPhase phase) {
+    return entries.stream().filter(entry -> entry.phase == phase).mapToLong(Entry::getSize).sum();
+  }
+
+  ImmutableList<Step> getSteps() {
+    return steps;
+  }
+
+  /**
+   * Whether the entries include the parts of a fat jar that has not been split yet, so that the
+   * steps cannot produce them and the plan must be computed again once the jar is split.
+   */
+  boolean isSplitPending() {
+    return splitPending;
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Statistics of a staging run: how many files and bytes were staged and how long it took, in total
+ * and for each {@link StagingPhase}. Staging of appengine-web.xml based applications has no phases
+ * and only reports totals.
+ */
+public class StagingResult {
+
+  /** Statistics of a single staging phase. */
+  public static class PhaseResult {
+    private final int fileCount;
+    private final long totalBytes;
+    private final Duration time;
+
+    PhaseResult(int fileCount, long totalBytes, Duration time) {
+      this.fileCount = fileCount;
+      this.totalBytes = totalBytes;
+      this.time = time;
+    }
+
+    /** Number of files staged by the phase. */
+    public int getFileCount() {
+      return fileCount;
+    }
+
+    /** Total size in bytes of the files staged by the phase. */
+    public long getTotalBytes() {
+      return totalBytes;
+    }
+
+    /** Wall time spent staging the files of the phase. */
+    public Duration getTime() {
+      return time;
+    }
+  }
+
+  /** File name under which the build plugins write the JSON statistics into the build directory. */
+  public static final String FILE_NAME = "appengine-staging-result.json";
+
+  private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+  private final Path stagingDirectory;
+  private final int fileCount;
+  private final long totalBytes;
+  private final Duration time;
+  private final Map<StagingPhase, PhaseResult> phases;
+
+  StagingResult(
+      Path stagingDirectory,
+      int fileCount,
+      long totalBytes,
+      Duration time,
+      Map<StagingPhase, PhaseResult> phases) {
+    this.stagingDirectory = stagingDirectory;
+    this.fileCount = fileCount;
+    this.totalBytes = totalBytes;
+    this.time = time;
+    Map<StagingPhase, PhaseResult> phaseCopy = new EnumMap<>(StagingPhase.class);
+    phaseCopy.putAll(phases);
+    this.phases = Collections.unmodifiableMap(phaseCopy);
+  }
+
+  /** The directory the application was staged into. */
+  public Path getStagingDirectory() {
+    return stagingDirectory;
+  }
+
+  /** Number of files staged. */
+  public int getFileCount() {
+    return fileCount;
+  }
+
+  /** Total size in bytes of the staged files. */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /** Wall time of the whole staging run. */
+  public Duration getTime() {
+    return time;
+  }
+
+  /** Statistics of the phases that staged at least one file, in staging order. */
+  public Map<StagingPhase, PhaseResult> getPhases() {
+    return phases;
+  }
+
+  /** Statistics of {@code phase}, or {@code null} if it staged nothing. */
+  @Nullable
+  public PhaseResult getPhase(StagingPhase phase) {
+    return phases.get(phase);
+  }
+
+  /**
+   * A one line summary, such as {@code "Staged 12 files (3456 bytes) in 78 ms to
+   * build/staged-app"}.
+   */
+  public String getSummary() {
+    return "Staged "
+        + fileCount
+        + " files ("
+        + totalBytes
+        + " bytes) in "
+        + time.toMillis()
+        + " ms to "
+        + stagingDirectory;
+  }
+
+  /**
+   * Describes the statistics of one phase, such as {@code "ARTIFACT: 1 files (1024 bytes) in 3
+   * ms"}.
+   */
+  public String getPhaseSummary(StagingPhase phase) {
+    PhaseResult result = Preconditions.checkNotNull(phases.get(phase), "phase did not run");
+    return phase
+        + ": "
+        + result.fileCount
+        + " files ("
+        + result.totalBytes
+        + " bytes) in "
+        + result.time.toMillis()
+        + " ms";
+  }
+
+  /** Serializes the statistics as JSON, with times in milliseconds. */
+  public String toJson() {
+    JsonObject json = new JsonObject();
+    json.addProperty("stagingDirectory", stagingDirectory.toString());
+    json.addProperty("fileCount", fileCount);
+    json.addProperty("totalBytes", totalBytes);
+    json.addProperty("timeMillis", time.toMillis());
+    JsonObject phasesJson = new JsonObject();
+    for (Map.Entry<StagingPhase, PhaseResult> phase : phases.entrySet()) {
+      JsonObject phaseJson = new JsonObject();
+      phaseJson.addProperty("fileCount", phase.getValue().fileCount);
+      phaseJson.addProperty("totalBytes", phase.getValue().totalBytes);
+      phaseJson.addProperty("timeMillis", phase.getValue().time.toMillis());
+      phasesJson.add(phase.getKey().name(), phaseJson);
+    }
+    json.add("phases", phasesJson);
+    return gson.toJson(json);
+  }
+
+  /** Writes {@link #toJson()} to {@code file}, creating its parent directories if needed. */
+  public void writeJson(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(toJson());
+    }
+  }
+}
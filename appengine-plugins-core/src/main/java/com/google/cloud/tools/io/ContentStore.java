@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores files by the SHA-256 hash of their content, so that identical files are stored once. Files
+ * are added through a temporary file and an atomic move, which makes a store safe to share between
+ * concurrent builds on the same machine. Stored files must not be modified, which also goes for
+ * files linked to them with {@link #link}.
+ */
+@Beta
+public class ContentStore {
+
+  private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+  private static final ConcurrentMap<Path, ContentStore> shared = new ConcurrentHashMap<>();
+
+  private final Path root;
+  private final FileLinker linker = new FileLinker(true, true);
+
+  /** Hashes of files added to this store, keyed by path, size and modification time. */
+  private final ConcurrentMap<String, String> hashes = new ConcurrentHashMap<>();
+
+  /** Creates a store in {@code root}, which is created when the first file is added. */
+  public ContentStore(Path root) {
+    this.root = root;
+  }
+
+  /**
+   * Returns the store in {@code root} shared by all callers in this JVM, so that the staging runs
+   * of a multi-module build do not hash the same dependency jars again.
+   */
+  public static ContentStore forDirectory(Path root) {
+    return shared.computeIfAbsent(root.toAbsolutePath().normalize(), ContentStore::new);
+  }
+
+  /** Computes the SHA-256 hash a file is stored under. */
+  public static String hash(Path file) throws IOException {
+    return MoreFiles.asByteSource(file).hash(Hashing.sha256()).toString();
+  }
+
+  /**
+   * Adds a file to the store, unless a file with the same content is already stored.
+   *
+   * @return the hash of the file's content
+   */
+  public String put(Path file) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    String fileKey =
+        file.toAbsolutePath()
+            + ":"
+            + attributes.size()
+            + ":"
+            + attributes.lastModifiedTime().toMillis();
+    String hash = hashes.get(fileKey);
+    if (hash == null) {
+      hash = hash(file);
+      hashes.put(fileKey, hash);
+    }
+    Path stored = getPath(hash);
+    if (Files.exists(stored)) {
+      return hash;
+    }
+    Path directory = root.resolve(hash.substring(0, 2));
+    Files.createDirectories(directory);
+    Path temporary = Files.createTempFile(directory, hash.substring(0, 8), ".tmp");
+    try {
+      Files.copy(file, temporary, StandardCopyOption.REPLACE_EXISTING);
+      Files.move(temporary, stored, StandardCopyOption.ATOMIC_MOVE);
+    } catch (FileAlreadyExistsException ex) {
+      // another build stored the same content first, on a file system that does not replace
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    return hash;
+  }
+
+  /**
+   * Adds a file to the store and places the stored copy at {@code target}, replacing any existing
+   * file. The stored copy is hard linked, or else reflinked, where the file system allows, so that
+   * every target shares the stored content on disk.
+   *
+   * @return the method used to place the file
+   */
+  public FileLinker.Method link(Path file, Path target) throws IOException {
+    return linker.link(getPath(put(file)), target);
+  }
+
+  /** The hashes of all stored files. */
+  public List<String> list() throws IOException {
+    if (!Files.isDirectory(root)) {
+      return Collections.emptyList();
+    }
+    String separator = root.getFileSystem().getSeparator();
+    try (Stream<Path> files = Files.walk(root, 2)) {
+      return files
+          .filter(Files::isRegularFile)
+          .map(file -> root.relativize(file).toString().replace(separator, ""))
+          .filter(hash -> HASH.matcher(hash).matches())
+          .collect(Collectors.toList());
+    }
+  }
+
+  /** Deletes the stored file with the given hash, if there is one. */
+  public void remove(String hash) throws IOException {
+    Files.deleteIfExists(getPath(hash));
+  }
+
+  /** Whether a file with the given hash is stored. */
+  public boolean contains(String hash) {
+    return Files.isRegularFile(getPath(hash));
+  }
+
+  /** The location of the stored file with the given hash, which may not exist. */
+  public Path getPath(String hash) {
+    Preconditions.checkArgument(HASH.matcher(hash).matches(), "Not a SHA-256 hash: %s", hash);
+    return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+  }
+}
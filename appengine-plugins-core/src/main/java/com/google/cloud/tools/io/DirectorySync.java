@@ -0,0 +1,239 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Makes a directory tree match another one while touching only what differs, like {@code rsync
+ * --delete}. New and changed files are written, identical files are left untouched, and anything in
+ * the target that is not in the source is deleted.
+ */
+@Beta
+public final class DirectorySync {
+
+  /** What a sync changed in the target directory. */
+  public static final class Summary {
+    private final int written;
+    private final int unchanged;
+    private final int deleted;
+
+    private Summary(int written, int unchanged, int deleted) {
+      this.written = written;
+      this.unchanged = unchanged;
+      this.deleted = deleted;
+    }
+
+    /** Number of files that were new or changed and so were written. */
+    public int getWritten() {
+      return written;
+    }
+
+    /** Number of identical files that were left untouched. */
+    public int getUnchanged() {
+      return unchanged;
+    }
+
+    /** Number of files and directories deleted from the target. */
+    public int getDeleted() {
+      return deleted;
+    }
+
+    @Override
+    public String toString() {
+      return written + " written, " + unchanged + " unchanged, " + deleted + " deleted";
+    }
+  }
+
+  private DirectorySync() {}
+
+  /**
+   * Makes {@code target} match {@code source}, copying new and changed files with their attributes.
+   * The target directory is created if it does not exist.
+   *
+   * @param source an existing directory to sync from
+   * @param target the directory to sync to
+   * @return what changed in {@code target}
+   */
+  public static Summary sync(Path source, Path target) throws IOException {
+    return syncTree(source, target, false);
+  }
+
+  /**
+   * Makes {@code target} match {@code source} like {@link #sync}, but moves new and changed files
+   * out of {@code source} instead of copying them. Cheaper when {@code source} is a scratch
+   * directory on the same file system, which the caller deletes afterwards.
+   *
+   * @param source an existing directory to sync from, left incomplete afterwards
+   * @param target the directory to sync to
+   * @return what changed in {@code target}
+   */
+  public static Summary syncMoving(Path source, Path target) throws IOException {
+    return syncTree(source, target, true);
+  }
+
+  private static Summary syncTree(Path source, Path target, boolean move) throws IOException {
+    Preconditions.checkArgument(Files.isDirectory(source), "Source is not a directory");
+    Preconditions.checkArgument(
+        !target.toAbsolutePath().startsWith(source.toAbsolutePath()), "target is child of source");
+
+    Set<Path> kept = new HashSet<>();
+    int[] written = {0};
+    int[] unchanged = {0};
+    Files.walkFileTree(
+        source,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            Path targetDir = FileUtil.resolve(target, source.relativize(dir));
+            if (Files.exists(targetDir, LinkOption.NOFOLLOW_LINKS)
+                && !Files.isDirectory(targetDir, LinkOption.NOFOLLOW_LINKS)) {
+              Files.delete(targetDir);
+            }
+            Files.createDirectories(targetDir);
+            kept.add(targetDir);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            Path targetFile = FileUtil.resolve(target, source.relativize(file));
+            kept.add(targetFile);
+            if (isSameContent(file, targetFile)) {
+              unchanged[0]++;
+              return FileVisitResult.CONTINUE;
+            }
+            if (Files.isDirectory(targetFile, LinkOption.NOFOLLOW_LINKS)) {
+              MoreFiles.deleteRecursively(targetFile, RecursiveDeleteOption.ALLOW_INSECURE);
+            }
+            if (move) {
+              Files.move(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+              Files.copy(
+                  file,
+                  targetFile,
+                  StandardCopyOption.REPLACE_EXISTING,
+                  StandardCopyOption.COPY_ATTRIBUTES);
+            }
+            written[0]++;
+            return FileVisitResult.CONTINUE;
+          }
+        });
+
+    return new Summary(written[0], unchanged[0], prune(target, kept));
+  }
+
+  /**
+   * Whether {@code target} is a regular file with the same content as {@code file}. Files of equal
+   * size and modification time are assumed identical without reading them.
+   *
+   * @param file an existing regular file
+   * @param target the file to compare with, which may not exist
+   */
+  public static boolean isSameContent(Path file, Path target) throws IOException {
+    if (!Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+      return false;
+    }
+    if (Files.size(file) != Files.size(target)) {
+      return false;
+    }
+    if (Files.getLastModifiedTime(file).equals(Files.getLastModifiedTime(target))) {
+      return true;
+    }
+    return MoreFiles.asByteSource(file).contentEquals(MoreFiles.asByteSource(target));
+  }
+
+  /**
+   * Deletes every file and directory under {@code root} that is not in {@code keep}. The
+   * directories containing a kept path are kept too. A directory that is not kept is deleted with
+   * all its contents; {@code root} itself is never deleted.
+   *
+   * @param root the directory to prune
+   * @param keep the files and directories to keep, resolved against {@code root}
+   * @return the number of files and directories deleted
+   */
+  public static int prune(Path root, Set<Path> keep) throws IOException {
+    Set<Path> keptDirectories = new HashSet<>();
+    for (Path path : keep) {
+      Path parent = path.getParent();
+      while (parent != null && parent.startsWith(root) && keptDirectories.add(parent)) {
+        parent = parent.getParent();
+      }
+    }
+    int[] deleted = {0};
+    Files.walkFileTree(
+        root,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            if (dir.equals(root) || keep.contains(dir) || keptDirectories.contains(dir)) {
+              return FileVisitResult.CONTINUE;
+            }
+            deleted[0] += countEntries(dir);
+            MoreFiles.deleteRecursively(dir, RecursiveDeleteOption.ALLOW_INSECURE);
+            return FileVisitResult.SKIP_SUBTREE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            if (!keep.contains(file)) {
+              Files.delete(file);
+              deleted[0]++;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return deleted[0];
+  }
+
+  private static int countEntries(Path dir) throws IOException {
+    int[] count = {0};
+    Files.walkFileTree(
+        dir,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) {
+            count[0]++;
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            count[0]++;
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return count[0];
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Files and directories to leave out of a directory copy. An exclude set combines exact paths,
+ * globs relative to the directory being copied (for example {@code secrets/**} or {@code **}{@code
+ * /*.log}) and arbitrary {@link PathMatcher}s. An excluded directory is skipped along with
+ * everything below it.
+ *
+ * <p>An exclude set is {@link #compile compiled} once per copied directory. Exact paths are looked
+ * up by hash, and globs are indexed in a trie by their leading literal segments so that a glob is
+ * only evaluated for paths inside its literal prefix.
+ */
+@Beta
+public final class ExcludeSet {
+
+  private static final ExcludeSet NONE =
+      new ExcludeSet(ImmutableSet.of(), ImmutableList.of(), ImmutableList.of(), ImmutableList.of());
+
+  private static final CharMatcher GLOB_META = CharMatcher.anyOf("*?[]{}\\");
+
+  private final ImmutableSet<Path> paths;
+  private final ImmutableList<String> globs;
+  private final ImmutableList<String> patterns;
+  private final ImmutableList<PathMatcher> matchers;
+
+  private ExcludeSet(
+      ImmutableSet<Path> paths,
+      ImmutableList<String> globs,
+      ImmutableList<String> patterns,
+      ImmutableList<PathMatcher> matchers) {
+    this.paths = paths;
+    this.globs = globs;
+    this.patterns = patterns;
+    this.matchers = matchers;
+  }
+
+  /** Returns an exclude set that excludes nothing. */
+  public static ExcludeSet none() {
+    return NONE;
+  }
+
+  /** Returns an exclude set of exact paths. */
+  public static ExcludeSet ofPaths(Collection<Path> paths) {
+    return builder().addPaths(paths).build();
+  }
+
+  /**
+   * Returns an exclude set of patterns, each parsed as in {@link Builder#addPattern(String)}.
+   *
+   * @param patterns globs relative to the copied directory, or {@code syntax:pattern} strings
+   */
+  public static ExcludeSet ofPatterns(Collection<String> patterns) {
+    Builder builder = builder();
+    patterns.forEach(builder::addPattern);
+    return builder.build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Returns true if this set excludes nothing. */
+  public boolean isEmpty() {
+    return paths.isEmpty() && globs.isEmpty() && patterns.isEmpty() && matchers.isEmpty();
+  }
+
+  /**
+   * Compiles this exclude set for a copy of {@code root}. Globs and patterns are matched against
+   * paths relative to {@code root}.
+   */
+  public Compiled compile(Path root) {
+    return new Compiled(root);
+  }
+
+  /** An exclude set compiled for one directory. */
+  public final class Compiled {
+    private final Path root;
+    private final Set<Path> absolutePaths = new HashSet<>();
+    private final TrieNode trie = new TrieNode();
+    private final List<PathMatcher> floatingMatchers = new ArrayList<>();
+
+    private Compiled(Path root) {
+      this.root = root.toAbsolutePath().normalize();
+      for (Path path : paths) {
+        absolutePaths.add(path.toAbsolutePath().normalize());
+      }
+      FileSystem fileSystem = root.getFileSystem();
+      for (String glob : globs) {
+        addGlob(fileSystem, glob);
+      }
+      for (String pattern : patterns) {
+        floatingMatchers.add(fileSystem.getPathMatcher(pattern));
+      }
+      floatingMatchers.addAll(matchers);
+    }
+
+    private void addGlob(FileSystem fileSystem, String glob) {
+      // alternatives may contain separators, so they are never split into trie segments
+      if (glob.indexOf('{') >= 0) {
+        floatingMatchers.add(fileSystem.getPathMatcher("glob:" + glob));
+        return;
+      }
+      List<String> segments = Splitter.on('/').omitEmptyStrings().splitToList(glob);
+      TrieNode node = trie;
+      int i = 0;
+      while (i < segments.size() && GLOB_META.matchesNoneOf(segments.get(i))) {
+        node = node.child(segments.get(i));
+        i++;
+      }
+      if (i == segments.size()) {
+        node.excludeSelf = true;
+      } else if (i == segments.size() - 1 && segments.get(i).equals("**")) {
+        node.excludeDescendants = true;
+      } else if (i == 0) {
+        floatingMatchers.add(fileSystem.getPathMatcher("glob:" + glob));
+      } else {
+        node.matchers.add(fileSystem.getPathMatcher("glob:" + glob));
+      }
+    }
+
+    /** Returns true if {@code path}, a file or directory inside the root, is excluded. */
+    public boolean isExcluded(Path path) {
+      Path absolutePath = path.toAbsolutePath().normalize();
+      if (absolutePaths.contains(absolutePath)) {
+        return true;
+      }
+      if (!absolutePath.startsWith(root) || absolutePath.equals(root)) {
+        return false;
+      }
+      if (trie.excludeDescendants) {
+        return true;
+      }
+      Path relativePath = root.relativize(absolutePath);
+      if (matchesAny(floatingMatchers, relativePath)) {
+        return true;
+      }
+      TrieNode node = trie;
+      int count = relativePath.getNameCount();
+      for (int i = 0; i < count; i++) {
+        node = node.children.get(relativePath.getName(i).toString());
+        if (node == null) {
+          return false;
+        }
+        boolean last = i == count - 1;
+        if ((last && node.excludeSelf) || (!last && node.excludeDescendants)) {
+          return true;
+        }
+        if (matchesAny(node.matchers, relativePath)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static boolean matchesAny(List<PathMatcher> matchers, Path relativePath) {
+    for (PathMatcher matcher : matchers) {
+      if (matcher.matches(relativePath)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class TrieNode {
+    private final Map<String, TrieNode> children = new HashMap<>();
+    private final List<PathMatcher> matchers = new ArrayList<>();
+    private boolean excludeSelf;
+    private boolean excludeDescendants;
+
+    private TrieNode child(String segment) {
+      return children.computeIfAbsent(segment, key -> new TrieNode());
+    }
+  }
+
+  public static final class Builder {
+    private final ImmutableSet.Builder<Path> paths = ImmutableSet.builder();
+    private final ImmutableList.Builder<String> globs = ImmutableList.builder();
+    private final ImmutableList.Builder<String> patterns = ImmutableList.builder();
+    private final ImmutableList.Builder<PathMatcher> matchers = ImmutableList.builder();
+
+    private Builder() {}
+
+    /** Excludes an exact file or directory. */
+    public Builder addPath(Path path) {
+      paths.add(Preconditions.checkNotNull(path));
+      return this;
+    }
+
+    /** Excludes exact files or directories. */
+    public Builder addPaths(Collection<Path> paths) {
+      paths.forEach(this::addPath);
+      return this;
+    }
+
+    /**
+     * Excludes the paths matching a glob relative to the copied directory, using {@code /} as the
+     * separator. A glob without wildcards names a single relative path.
+     */
+    public Builder addGlob(String glob) {
+      Preconditions.checkArgument(!glob.trim().isEmpty(), "glob must not be empty");
+      globs.add(glob);
+      return this;
+    }
+
+    /**
+     * Excludes the paths matching a pattern relative to the copied directory. A pattern in the
+     * {@code syntax:pattern} form of {@link FileSystem#getPathMatcher}, such as {@code
+     * regex:.*\.tmp}, is used as such; any other pattern is treated as a glob.
+     */
+    public Builder addPattern(String pattern) {
+      if (pattern.startsWith("glob:")) {
+        return addGlob(pattern.substring("glob:".length()));
+      }
+      if (pattern.startsWith("regex:")) {
+        patterns.add(pattern);
+        return this;
+      }
+      return addGlob(pattern);
+    }
+
+    /** Excludes the paths, relative to the copied directory, accepted by {@code matcher}. */
+    public Builder addMatcher(PathMatcher matcher) {
+      matchers.add(Preconditions.checkNotNull(matcher));
+      return this;
+    }
+
+    public ExcludeSet build() {
+      return new ExcludeSet(paths.build(), globs.build(), patterns.build(), matchers.build());
+    }
+  }
+}
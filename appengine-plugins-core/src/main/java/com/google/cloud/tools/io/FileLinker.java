@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Places a file at a target location by linking it instead of copying its content, where the
+ * filesystem allows. Hard links are tried first (when enabled), then reflinks (copy-on-write clones
+ * made with {@code cp}), and finally a regular copy. A linking method that fails once is not tried
+ * again by the same instance.
+ */
+@Beta
+public class FileLinker {
+
+  private static final Logger log = Logger.getLogger(FileLinker.class.getName());
+
+  /** How a file ended up at its target. */
+  public enum Method {
+    HARD_LINK,
+    REFLINK,
+    COPY
+  }
+
+  private volatile boolean hardLinks;
+  private volatile boolean reflinks;
+  @Nullable private final List<String> reflinkCommand;
+
+  /**
+   * Creates a file linker.
+   *
+   * @param hardLinks whether hard links should be attempted
+   * @param reflinks whether reflinks should be attempted
+   */
+  public FileLinker(boolean hardLinks, boolean reflinks) {
+    this(hardLinks, reflinks, defaultReflinkCommand(System.getProperty("os.name")));
+  }
+
+  @VisibleForTesting
+  FileLinker(boolean hardLinks, boolean reflinks, @Nullable List<String> reflinkCommand) {
+    this.hardLinks = hardLinks;
+    this.reflinks = reflinks && reflinkCommand != null;
+    this.reflinkCommand = reflinkCommand;
+  }
+
+  @VisibleForTesting
+  @Nullable
+  static List<String> defaultReflinkCommand(String osName) {
+    String os = osName.toLowerCase(Locale.US);
+    if (os.contains("linux")) {
+      return ImmutableList.of("cp", "--reflink=always", "--");
+    }
+    if (os.contains("mac")) {
+      return ImmutableList.of("cp", "-c", "--");
+    }
+    return null;
+  }
+
+  /**
+   * Places {@code source} at {@code target}, replacing any existing file. Files on a file system
+   * other than the default one are always copied.
+   *
+   * @return the method used to place the file
+   */
+  public Method link(Path source, Path target) throws IOException {
+    Files.deleteIfExists(target);
+    if (!isOnDefaultFileSystem(source) || !isOnDefaultFileSystem(target)) {
+      // links cannot cross file systems, and cp only understands local paths
+      Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+      return Method.COPY;
+    }
+    if (hardLinks) {
+      try {
+        Files.createLink(target, source);
+        return Method.HARD_LINK;
+      } catch (IOException | UnsupportedOperationException | SecurityException ex) {
+        log.fine("Hard links unavailable, falling back: " + ex.getMessage());
+        hardLinks = false;
+      }
+    }
+    if (reflinks && reflinkCommand != null) {
+      if (reflink(reflinkCommand, source, target)) {
+        return Method.REFLINK;
+      }
+      log.fine("Reflinks unavailable, falling back to copies");
+      reflinks = false;
+      Files.deleteIfExists(target);
+    }
+    Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+    return Method.COPY;
+  }
+
+  private static boolean isOnDefaultFileSystem(Path path) {
+    return path.getFileSystem().equals(FileSystems.getDefault());
+  }
+
+  private static boolean reflink(List<String> command, Path source, Path target)
+      throws IOException {
+    ImmutableList<String> fullCommand =
+        ImmutableList.<String>builder()
+            .addAll(command)
+            .add(source.toString())
+            .add(target.toString())
+            .build();
+    Process process;
+    try {
+      process = new ProcessBuilder(fullCommand).redirectErrorStream(true).start();
+    } catch (IOException ex) {
+      // no usable cp on this machine
+      return false;
+    }
+    try (InputStream output = process.getInputStream()) {
+      ByteStreams.exhaust(output);
+    }
+    try {
+      return process.waitFor() == 0;
+    } catch (InterruptedException ex) {
+      process.destroy();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while linking " + source, ex);
+    }
+  }
+}
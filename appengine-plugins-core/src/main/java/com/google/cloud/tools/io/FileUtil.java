@@ -56,6 +56,45 @@ public class FileUtil {
    */
   public static void copyDirectory(final Path source, final Path destination, List<Path> excludes)
       throws IOException {
+    copyDirectory(source, destination, excludes, 1);
+  }
+
+  /**
+   * Implementation of recursive directory copy, does NOT overwrite. With a {@code parallelism}
+   * greater than one, all destination directories are created first and the files are then copied
+   * concurrently on a work-stealing pool of that many threads. Copied attributes and excludes are
+   * handled the same in both modes.
+   *
+   * @param source an existing source directory to copy from
+   * @param destination an existing destination directory to copy to
+   * @param excludes a list of paths in "source" to exclude
+   * @param parallelism the number of threads copying files
+   * @throws IllegalArgumentException if source directory is same destination directory, either
+   *     source or destination is not a directory, destination is inside source or parallelism is
+   *     not positive
+   */
+  public static void copyDirectory(
+      final Path source, final Path destination, List<Path> excludes, int parallelism)
+      throws IOException {
+    copyDirectory(source, destination, ExcludeSet.ofPaths(excludes), parallelism);
+  }
+
+  /**
+   * Implementation of recursive directory copy, does NOT overwrite. Each visited file and directory
+   * is checked against {@code excludes} once; an excluded directory is skipped entirely.
+   *
+   * @param source an existing source directory to copy from
+   * @param destination an existing destination directory to copy to, which may be on a different
+   *     file system than {@code source}
+   * @param excludes paths, globs and matchers in "source" to exclude
+   * @param parallelism the number of threads copying files
+   * @throws IllegalArgumentException if source directory is same destination directory, either
+   *     source or destination is not a directory, destination is inside source or parallelism is
+   *     not positive
+   */
+  public static void copyDirectory(
+      final Path source, final Path destination, ExcludeSet excludes, int parallelism)
+      throws IOException {
     Preconditions.checkNotNull(source);
     Preconditions.checkNotNull(destination);
     Preconditions.checkArgument(Files.isDirectory(source), "Source is not a directory");
@@ -65,6 +104,13 @@ public class FileUtil {
     Preconditions.checkArgument(
         !destination.toAbsolutePath().startsWith(source.toAbsolutePath()),
         "destination is child of source");
+    Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+
+    ExcludeSet.Compiled compiledExcludes = excludes.compile(source);
+    if (parallelism > 1) {
+      new ParallelDirectoryCopier(parallelism).copy(source, destination, compiledExcludes);
+      return;
+    }
 
     Files.walkFileTree(
         source,
@@ -79,11 +125,11 @@ public class FileUtil {
               return FileVisitResult.CONTINUE;
             }
 
-            if (excludes.contains(dir)) {
+            if (compiledExcludes.isExcluded(dir)) {
               return FileVisitResult.SKIP_SUBTREE;
             }
 
-            Files.copy(dir, destination.resolve(source.relativize(dir)), copyOptions);
+            Files.copy(dir, resolve(destination, source.relativize(dir)), copyOptions);
             return FileVisitResult.CONTINUE;
           }
 
@@ -91,13 +137,34 @@ public class FileUtil {
           public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
               throws IOException {
 
-            if (excludes.contains(file)) {
+            if (compiledExcludes.isExcluded(file)) {
               return FileVisitResult.CONTINUE;
             }
 
-            Files.copy(file, destination.resolve(source.relativize(file)), copyOptions);
+            Files.copy(file, resolve(destination, source.relativize(file)), copyOptions);
             return FileVisitResult.CONTINUE;
           }
         });
   }
+
+  /**
+   * Resolves {@code relative} against {@code base}, which may belong to a different file system,
+   * such as a zip or in-memory file system. {@link Path#resolve(Path)} rejects paths of another
+   * provider, so the name elements are resolved one by one as strings instead.
+   *
+   * @param base the path to resolve against
+   * @param relative a relative path from any file system
+   * @return the resolved path, on the file system of {@code base}
+   */
+  public static Path resolve(Path base, Path relative) {
+    Preconditions.checkArgument(!relative.isAbsolute(), "path must be relative");
+    if (base.getFileSystem().equals(relative.getFileSystem())) {
+      return base.resolve(relative);
+    }
+    Path resolved = base;
+    for (Path name : relative) {
+      resolved = resolved.resolve(name.toString());
+    }
+    return resolved;
+  }
 }
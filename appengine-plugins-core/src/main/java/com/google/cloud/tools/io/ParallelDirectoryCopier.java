@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.CopyOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Copies a directory tree using a work-stealing pool. The tree is walked once up front to create
+ * every destination directory, after which the files are copied concurrently. Large files are
+ * copied with {@link FileChannel#transferTo}.
+ */
+class ParallelDirectoryCopier {
+
+  /** Files at least this large are copied with {@link FileChannel#transferTo}. */
+  @VisibleForTesting static final long TRANSFER_THRESHOLD = 1024 * 1024;
+
+  /** Number of files below which a copy task stops splitting its work. */
+  private static final int BATCH_SIZE = 16;
+
+  private static final CopyOption[] COPY_OPTIONS =
+      new CopyOption[] {StandardCopyOption.COPY_ATTRIBUTES};
+
+  private final int parallelism;
+
+  ParallelDirectoryCopier(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  void copy(Path source, Path destination, ExcludeSet.Compiled excludes) throws IOException {
+    List<Path> files = new ArrayList<>();
+    Files.walkFileTree(
+        source,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            if (dir.equals(source)) {
+              return FileVisitResult.CONTINUE;
+            }
+            if (excludes.isExcluded(dir)) {
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            Files.copy(dir, FileUtil.resolve(destination, source.relativize(dir)), COPY_OPTIONS);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (!excludes.isExcluded(file)) {
+              files.add(file);
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new CopyTask(source, destination, files, 0, files.size()));
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @VisibleForTesting
+  static void copyFile(Path file, Path target) throws IOException {
+    if (Files.size(file) < TRANSFER_THRESHOLD) {
+      Files.copy(file, target, COPY_OPTIONS);
+      return;
+    }
+    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+        FileChannel out =
+            FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      long size = in.size();
+      long position = 0;
+      while (position < size) {
+        position += in.transferTo(position, size - position, out);
+      }
+    }
+    copyAttributes(file, target);
+  }
+
+  /** Mirrors what {@link StandardCopyOption#COPY_ATTRIBUTES} preserves for a file copy. */
+  private static void copyAttributes(Path file, Path target) throws IOException {
+    PosixFileAttributeView targetView =
+        Files.getFileAttributeView(target, PosixFileAttributeView.class);
+    if (targetView != null) {
+      PosixFileAttributes attributes = Files.readAttributes(file, PosixFileAttributes.class);
+      targetView.setPermissions(attributes.permissions());
+      targetView.setTimes(
+          attributes.lastModifiedTime(), attributes.lastAccessTime(), attributes.creationTime());
+    } else {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      Files.setLastModifiedTime(target, attributes.lastModifiedTime());
+    }
+  }
+
+  private static class CopyTask extends RecursiveAction {
+    private final Path source;
+    private final Path destination;
+    private final List<Path> files;
+    private final int from;
+    private final int to;
+
+    private CopyTask(Path source, Path destination, List<Path> files, int from, int to) {
+      this.source = source;
+      this.destination = destination;
+      this.files = files;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= BATCH_SIZE) {
+        for (int i = from; i < to; i++) {
+          Path file = files.get(i);
+          try {
+            copyFile(file, FileUtil.resolve(destination, source.relativize(file)));
+          } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+          }
+        }
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(
+          new CopyTask(source, destination, files, from, middle),
+          new CopyTask(source, destination, files, middle, to));
+    }
+  }
+}
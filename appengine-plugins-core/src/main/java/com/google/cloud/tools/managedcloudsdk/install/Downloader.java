@@ -17,39 +17,119 @@
 package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Uninterruptibles;
 import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 
-/** Downloader for downloading a single Cloud SDK archive. */
+/**
+ * Downloader for downloading a single Cloud SDK archive.
+ *
+ * <p>The archive is written to a {@code .part} file next to the destination, and only moved to the
+ * destination once complete. When the server identifies the archive with an {@code ETag} or {@code
+ * Last-Modified} header, that validator is recorded next to the {@code .part} file, and a download
+ * that fails or is interrupted is resumed from where it stopped with a {@code Range} request. The
+ * archive is downloaded again from the start when the server does not support ranges or the archive
+ * changed in the meantime.
+ *
+ * <p>A downloader created with more than one connection fetches a large archive in segments over
+ * that many concurrent {@code Range} requests, each written at its own position of a preallocated
+ * {@code .part} file. It falls back to a single stream when the server does not report the length
+ * of the archive or does not accept ranges. A segmented download that fails is not resumed, so
+ * segments are only used when the caller asks for more than one connection, see {@link
+ * SdkInstaller#setDownloadConnections}.
+ *
+ * <p>{@link #download(ArchiveConsumer, boolean)} hands the archive to a consumer, like an
+ * extractor, as it arrives.
+ */
 final class Downloader {
 
   private static final Logger logger = Logger.getLogger(Downloader.class.getName());
 
   static final int BUFFER_SIZE = 8 * 1024;
+  static final String PART_SUFFIX = ".part";
+  static final String VALIDATOR_SUFFIX = ".part.properties";
+  static final long MIN_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+  private static final int SEGMENT_BUFFER_SIZE = 64 * 1024;
+  private static final long PROGRESS_INTERVAL_MILLIS = 250;
+
+  private static final String VALIDATOR_PROPERTY = "validator";
+  private static final String SOURCE_PROPERTY = "source";
+  private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-\\d+/(\\d+|\\*)");
+
   private final URL address;
   private final Path destinationFile;
+  private final Path partFile;
+  private final Path validatorFile;
   private final String userAgentString;
   private final ProgressListener progressListener;
+  private final int connections;
+  private final long minSegmentSize;
 
-  /** Use {@link DownloaderFactory} to instantiate. */
   Downloader(
       URL source, Path destinationFile, String userAgentString, ProgressListener progressListener) {
+    this(source, destinationFile, userAgentString, progressListener, 1, MIN_SEGMENT_SIZE);
+  }
+
+  /** Use {@link DownloaderFactory} to instantiate. */
+  Downloader(
+      URL source,
+      Path destinationFile,
+      String userAgentString,
+      ProgressListener progressListener,
+      int connections,
+      long minSegmentSize) {
     this.address = source;
     this.destinationFile = destinationFile;
+    this.partFile = destinationFile.resolveSibling(destinationFile.getFileName() + PART_SUFFIX);
+    this.validatorFile =
+        destinationFile.resolveSibling(destinationFile.getFileName() + VALIDATOR_SUFFIX);
     this.userAgentString = userAgentString;
     this.progressListener = progressListener;
+    this.connections = connections;
+    this.minSegmentSize = minSegmentSize;
   }
 
-  /** Download an archive, this will NOT overwrite a previously existing file. */
+  /**
+   * Download an archive, this will NOT overwrite a previously existing file. A partial download of
+   * the same archive left by an earlier failed or interrupted call is resumed when possible.
+   */
   public void download() throws IOException, InterruptedException {
     if (!Files.exists(destinationFile.getParent())) {
       Files.createDirectories(destinationFile.getParent());
@@ -58,21 +138,61 @@ final class Downloader {
     if (Files.exists(destinationFile)) {
       throw new FileAlreadyExistsException(destinationFile.toString());
     }
-    URLConnection connection = address.openConnection();
-    connection.setRequestProperty("User-Agent", userAgentString);
+
+    String validator = readValidator();
+    long resumeFrom = validator != null && Files.isRegularFile(partFile) ? Files.size(partFile) : 0;
+    if (resumeFrom == 0 && connections > 1 && downloadSegmented()) {
+      return;
+    }
+
+    URLConnection connection = openConnection(validator, resumeFrom);
+    if (resumeFrom > 0 && !isResumed(connection, resumeFrom)) {
+      logger.info("Cannot resume the download of " + address + ", downloading it again");
+      if (!isComplete(connection)) {
+        // the server could not satisfy the range, ask for the whole archive
+        disconnect(connection);
+        connection = openConnection(null, 0);
+      }
+      resumeFrom = 0;
+    }
+    if (resumeFrom == 0) {
+      Files.deleteIfExists(validatorFile);
+      validator = getValidator(connection);
+      if (validator != null) {
+        writeValidator(validator);
+      }
+    }
 
     try (InputStream in = connection.getInputStream()) {
       // note : contentLength can potentially be -1 if it is unknown.
       long contentLength = connection.getContentLengthLong();
+      if (contentLength != -1) {
+        contentLength += resumeFrom;
+      }
 
-      logger.info("Downloading " + address + " to " + destinationFile);
+      if (resumeFrom > 0) {
+        logger.info(
+            "Resuming download of " + address + " to " + destinationFile + " at " + resumeFrom);
+      } else {
+        logger.info("Downloading " + address + " to " + destinationFile);
+      }
 
-      try (BufferedOutputStream out =
+      long bytesWritten = resumeFrom;
+      try (OutputStream out =
           new BufferedOutputStream(
-              Files.newOutputStream(destinationFile, StandardOpenOption.CREATE_NEW))) {
+              resumeFrom > 0
+                  ? Files.newOutputStream(partFile, StandardOpenOption.APPEND)
+                  : Files.newOutputStream(
+                      partFile,
+                      StandardOpenOption.CREATE,
+                      StandardOpenOption.TRUNCATE_EXISTING,
+                      StandardOpenOption.WRITE))) {
 
         progressListener.start(
             getDownloadStatus(contentLength, Locale.getDefault()), contentLength);
+        if (resumeFrom > 0) {
+          progressListener.update(resumeFrom);
+        }
 
         int bytesRead;
         byte[] buffer = new byte[BUFFER_SIZE];
@@ -80,23 +200,485 @@ final class Downloader {
         while ((bytesRead = in.read(buffer)) != -1) {
           if (Thread.currentThread().isInterrupted()) {
             logger.warning("Download was interrupted\n");
-            cleanUp();
+            out.close();
+            cleanUp(validator);
             throw new InterruptedException("Download was interrupted");
           }
 
           out.write(buffer, 0, bytesRead);
+          bytesWritten += bytesRead;
           progressListener.update(bytesRead);
         }
       }
+      if (contentLength != -1 && bytesWritten != contentLength) {
+        throw new IOException(
+            "Download of "
+                + address
+                + " ended after "
+                + bytesWritten
+                + " of "
+                + contentLength
+                + " bytes");
+      }
+    } catch (IOException ex) {
+      cleanUp(validator);
+      throw ex;
+    } finally {
+      disconnect(connection);
     }
+
+    Files.move(partFile, destinationFile);
+    Files.deleteIfExists(validatorFile);
     progressListener.done();
   }
 
-  private void cleanUp() throws IOException {
-    Files.deleteIfExists(destinationFile);
+  /**
+   * Download an archive as a single stream and pass it to {@code consumer} while it downloads. The
+   * archive is also written to the destination if {@code keepArchive} is set, this will NOT
+   * overwrite a previously existing file. A streamed download is not resumed.
+   */
+  public void download(ArchiveConsumer consumer, boolean keepArchive)
+      throws IOException, InterruptedException {
+    if (!Files.exists(destinationFile.getParent())) {
+      Files.createDirectories(destinationFile.getParent());
+    }
+
+    if (keepArchive && Files.exists(destinationFile)) {
+      throw new FileAlreadyExistsException(destinationFile.toString());
+    }
+    URLConnection connection = openConnection(null, 0);
+
+    try (InputStream in = connection.getInputStream();
+        OutputStream out =
+            keepArchive
+                ? new BufferedOutputStream(
+                    Files.newOutputStream(
+                        partFile,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE))
+                : ByteStreams.nullOutputStream()) {
+      // note : contentLength can potentially be -1 if it is unknown.
+      long contentLength = connection.getContentLengthLong();
+
+      logger.info("Downloading and extracting " + address);
+
+      progressListener.start(getDownloadStatus(contentLength, Locale.getDefault()), contentLength);
+      DownloadStream stream = new DownloadStream(in, out, progressListener);
+      consumer.accept(stream);
+      // read what the consumer did not need, so the whole archive is verified and kept
+      ByteStreams.exhaust(stream);
+
+      if (contentLength != -1 && stream.bytesRead != contentLength) {
+        throw new IOException(
+            "Download of "
+                + address
+                + " ended after "
+                + stream.bytesRead
+                + " of "
+                + contentLength
+                + " bytes");
+      }
+    } catch (IOException ex) {
+      Files.deleteIfExists(partFile);
+      if (Thread.currentThread().isInterrupted()) {
+        logger.warning("Download was interrupted\n");
+        throw new InterruptedException("Download was interrupted");
+      }
+      throw ex;
+    } catch (InterruptedException ex) {
+      Files.deleteIfExists(partFile);
+      throw ex;
+    } finally {
+      disconnect(connection);
+    }
+
+    if (keepArchive) {
+      Files.move(partFile, destinationFile);
+    }
+    progressListener.done();
+  }
+
+  /**
+   * Downloads the archive over concurrent range requests if the server allows it.
+   *
+   * @return false if the archive is too small for segments or the server does not support them, in
+   *     which case nothing was downloaded
+   */
+  private boolean downloadSegmented() throws IOException, InterruptedException {
+    URLConnection probe = address.openConnection();
+    if (!(probe instanceof HttpURLConnection)) {
+      return false;
+    }
+    HttpURLConnection head = (HttpURLConnection) probe;
+    head.setRequestMethod("HEAD");
+    head.setRequestProperty("User-Agent", userAgentString);
+    long contentLength;
+    String validator;
+    boolean acceptsRanges;
+    try {
+      // note : contentLength can potentially be -1 if it is unknown.
+      contentLength = head.getContentLengthLong();
+      validator = getValidator(head);
+      acceptsRanges = "bytes".equalsIgnoreCase(head.getHeaderField("Accept-Ranges"));
+    } finally {
+      head.disconnect();
+    }
+    int segments = getSegmentCount(contentLength, connections, minSegmentSize);
+    if (segments < 2 || validator == null || !acceptsRanges) {
+      logger.fine("Not downloading " + address + " in segments");
+      return false;
+    }
+
+    logger.info(
+        "Downloading " + address + " to " + destinationFile + " over " + segments + " connections");
+    Files.deleteIfExists(validatorFile);
+    progressListener.start(getDownloadStatus(contentLength, Locale.getDefault()), contentLength);
+    AtomicLong bytesWritten = new AtomicLong();
+    try (RandomAccessFile file = new RandomAccessFile(partFile.toFile(), "rw")) {
+      file.setLength(0);
+      file.setLength(contentLength);
+      FileChannel channel = file.getChannel();
+
+      ExecutorService executor = Executors.newFixedThreadPool(segments);
+      Set<HttpURLConnection> openConnections = ConcurrentHashMap.newKeySet();
+      try {
+        List<Future<Void>> futures = new ArrayList<>();
+        long segmentSize = contentLength / segments;
+        for (int i = 0; i < segments; i++) {
+          long start = i * segmentSize;
+          long end = i == segments - 1 ? contentLength - 1 : start + segmentSize - 1;
+          futures.add(
+              executor.submit(
+                  () -> {
+                    downloadSegment(channel, start, end, validator, bytesWritten, openConnections);
+                    return null;
+                  }));
+        }
+        waitForSegments(futures, bytesWritten, segments);
+      } finally {
+        // segments still running after a failure write through the channel, so they must stop
+        // before it is closed: disconnecting unblocks their reads
+        executor.shutdownNow();
+        openConnections.forEach(HttpURLConnection::disconnect);
+        if (!Uninterruptibles.awaitTerminationUninterruptibly(executor, 1, TimeUnit.MINUTES)) {
+          logger.warning("Timed out waiting for download segments to stop");
+        }
+      }
+
+      // verify that the segments filled the preallocated file
+      if (bytesWritten.get() != contentLength || channel.size() != contentLength) {
+        throw new IOException(
+            "Segmented download of "
+                + address
+                + " wrote "
+                + bytesWritten.get()
+                + " of "
+                + contentLength
+                + " bytes");
+      }
+    } catch (IOException ex) {
+      Files.deleteIfExists(partFile);
+      throw ex;
+    } catch (InterruptedException ex) {
+      logger.warning("Download was interrupted\n");
+      Files.deleteIfExists(partFile);
+      throw new InterruptedException("Download was interrupted");
+    }
+
+    Files.move(partFile, destinationFile);
+    progressListener.done();
+    return true;
+  }
+
+  /** Downloads bytes {@code start} to {@code end} inclusive into the same range of a file. */
+  private void downloadSegment(
+      FileChannel channel,
+      long start,
+      long end,
+      String validator,
+      AtomicLong bytesWritten,
+      Set<HttpURLConnection> openConnections)
+      throws IOException, InterruptedException {
+    HttpURLConnection connection = (HttpURLConnection) address.openConnection();
+    openConnections.add(connection);
+    if (Thread.currentThread().isInterrupted()) {
+      // the download was stopped before this connection could be disconnected
+      connection.disconnect();
+      throw new InterruptedException("Download was interrupted");
+    }
+    connection.setRequestProperty("User-Agent", userAgentString);
+    connection.setRequestProperty("Range", "bytes=" + start + "-" + end);
+    // the archive must not change between segments
+    connection.setRequestProperty("If-Range", validator);
+    try {
+      Long rangeStart = getContentRangeStart(connection.getHeaderField("Content-Range"));
+      if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL
+          || rangeStart == null
+          || rangeStart != start) {
+        throw new IOException(
+            "Server did not return bytes "
+                + start
+                + "-"
+                + end
+                + " of "
+                + address
+                + ", the archive may have changed");
+      }
+      try (InputStream in = connection.getInputStream()) {
+        byte[] buffer = new byte[SEGMENT_BUFFER_SIZE];
+        long position = start;
+        int bytesRead;
+        while (position <= end
+            && (bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, end + 1 - position)))
+                != -1) {
+          if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("Download was interrupted");
+          }
+          ByteBuffer data = ByteBuffer.wrap(buffer, 0, bytesRead);
+          while (data.hasRemaining()) {
+            position += channel.write(data, position);
+          }
+          bytesWritten.addAndGet(bytesRead);
+        }
+        if (position != end + 1) {
+          throw new IOException(
+              "Segment " + start + "-" + end + " of " + address + " ended at " + position);
+        }
+      }
+    } finally {
+      openConnections.remove(connection);
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Waits for all segments to be written, reporting the progress and throughput of all connections
+   * together, and rethrows the first failure.
+   */
+  private void waitForSegments(List<Future<Void>> futures, AtomicLong bytesWritten, int segments)
+      throws IOException, InterruptedException {
+    long startTime = System.nanoTime();
+    long reported = 0;
+    try {
+      for (Future<Void> future : futures) {
+        while (true) {
+          try {
+            future.get(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            break;
+          } catch (TimeoutException ex) {
+            reported = reportProgress(bytesWritten.get(), reported, startTime, segments);
+          }
+        }
+      }
+      reportProgress(bytesWritten.get(), reported, startTime, segments);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      if (ex.getCause() instanceof InterruptedException) {
+        throw (InterruptedException) ex.getCause();
+      }
+      throw new IOException(ex.getCause());
+    }
+  }
+
+  private long reportProgress(long written, long reported, long startTime, int segments) {
+    if (written > reported) {
+      progressListener.update(written - reported);
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+      progressListener.update(
+          getSegmentedDownloadStatus(written, elapsedMillis, segments, Locale.getDefault()));
+    }
+    return written;
+  }
+
+  /** Returns the number of segments to download an archive of {@code contentLength} bytes in. */
+  @VisibleForTesting
+  static int getSegmentCount(long contentLength, int connections, long minSegmentSize) {
+    if (contentLength <= 0) {
+      return 1;
+    }
+    return (int) Math.max(1, Math.min(connections, contentLength / minSegmentSize));
+  }
+
+  /** Consumes an archive while it downloads. */
+  interface ArchiveConsumer {
+
+    /**
+     * Reads the archive from {@code archive}, which does not need to be read to its end or closed.
+     */
+    void accept(InputStream archive) throws IOException, InterruptedException;
+  }
+
+  /**
+   * Reports the bytes read from a download as progress and copies them to an output stream. Closing
+   * it does not close the download.
+   */
+  private static class DownloadStream extends FilterInputStream {
+
+    private final OutputStream out;
+    private final ProgressListener progressListener;
+    private long bytesRead;
+
+    private DownloadStream(InputStream in, OutputStream out, ProgressListener progressListener) {
+      super(in);
+      this.out = out;
+      this.progressListener = progressListener;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new InterruptedIOException("Download was interrupted");
+      }
+      int read = in.read(buffer, offset, length);
+      if (read > 0) {
+        out.write(buffer, offset, read);
+        bytesRead += read;
+        progressListener.update(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+      if (count <= 0) {
+        return 0;
+      }
+      // skipped bytes still need to be copied
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read = read(buffer, 0, (int) Math.min(buffer.length, count));
+      return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() {
+      // the download is closed by the downloader
+    }
+  }
+
+  private URLConnection openConnection(@Nullable String validator, long resumeFrom)
+      throws IOException {
+    URLConnection connection = address.openConnection();
+    connection.setRequestProperty("User-Agent", userAgentString);
+    if (validator != null && resumeFrom > 0) {
+      connection.setRequestProperty("Range", "bytes=" + resumeFrom + "-");
+      connection.setRequestProperty("If-Range", validator);
+    }
+    return connection;
+  }
+
+  /** Returns whether the server answered a range request with the rest of the archive. */
+  private static boolean isResumed(URLConnection connection, long resumeFrom) throws IOException {
+    if (!(connection instanceof HttpURLConnection)
+        || ((HttpURLConnection) connection).getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+      return false;
+    }
+    Long start = getContentRangeStart(connection.getHeaderField("Content-Range"));
+    return start != null && start == resumeFrom;
+  }
+
+  /**
+   * Returns whether the server answered with the whole archive, as it does when it ignores ranges
+   * or the archive changed since the partial download.
+   */
+  private static boolean isComplete(URLConnection connection) throws IOException {
+    return !(connection instanceof HttpURLConnection)
+        || ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_OK;
+  }
+
+  @VisibleForTesting
+  @Nullable
+  static Long getContentRangeStart(@Nullable String contentRange) {
+    if (contentRange == null) {
+      return null;
+    }
+    Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+    return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+  }
+
+  /**
+   * Returns the value an {@code If-Range} header can use to resume a download of this response, or
+   * null if it cannot be resumed.
+   */
+  @VisibleForTesting
+  @Nullable
+  static String getValidator(URLConnection connection) throws IOException {
+    if (!(connection instanceof HttpURLConnection)
+        || ((HttpURLConnection) connection).getResponseCode() != HttpURLConnection.HTTP_OK) {
+      return null;
+    }
+    // weak entity tags cannot be used in If-Range
+    String etag = connection.getHeaderField("ETag");
+    if (etag != null && !etag.startsWith("W/")) {
+      return etag;
+    }
+    return connection.getHeaderField("Last-Modified");
+  }
+
+  @Nullable
+  private String readValidator() throws IOException {
+    if (!Files.isRegularFile(validatorFile)) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(validatorFile, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    // a partial download of another archive cannot be resumed
+    if (!address.toString().equals(properties.getProperty(SOURCE_PROPERTY))) {
+      return null;
+    }
+    return properties.getProperty(VALIDATOR_PROPERTY);
+  }
+
+  private void writeValidator(String validator) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty(SOURCE_PROPERTY, address.toString());
+    properties.setProperty(VALIDATOR_PROPERTY, validator);
+    try (Writer writer = Files.newBufferedWriter(validatorFile, StandardCharsets.UTF_8)) {
+      properties.store(writer, null);
+    }
+  }
+
+  /** Removes a partial download, unless it can be resumed by the next call. */
+  private void cleanUp(@Nullable String validator) throws IOException {
+    if (validator == null) {
+      Files.deleteIfExists(partFile);
+      Files.deleteIfExists(validatorFile);
+    }
+  }
+
+  private static void disconnect(URLConnection connection) {
+    if (connection instanceof HttpURLConnection) {
+      ((HttpURLConnection) connection).disconnect();
+    }
   }
 
   static String getDownloadStatus(long bytes, Locale locale) {
     return String.format(locale, "Downloading %,.2f MB", bytes / 1024.0f / 1024.0f);
   }
+
+  static String getSegmentedDownloadStatus(
+      long bytes, long elapsedMillis, int connections, Locale locale) {
+    float megabytes = bytes / 1024.0f / 1024.0f;
+    return String.format(
+        locale,
+        "Downloaded %,.2f MB at %,.2f MB/s over %d connections",
+        megabytes,
+        elapsedMillis > 0 ? megabytes * 1000 / elapsedMillis : 0.0f,
+        connections);
+  }
 }
@@ -17,12 +17,19 @@
 package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.common.base.Preconditions;
 import java.net.URL;
 import java.nio.file.Path;
 
 /** Downloader factory. */
 final class DownloaderFactory {
 
+  /**
+   * Connections used to download an archive unless the installer asks for more. A single connection
+   * downloads the archive as one stream, which can be resumed after a failure.
+   */
+  static final int DEFAULT_CONNECTIONS = 1;
+
   private final String userAgentString;
 
   /**
@@ -41,9 +48,19 @@ final class DownloaderFactory {
    * @param source URL of file to download (remote)
    * @param destination Path on local file system to save the file
    * @param progressListener Progress feedback handler
+   * @param connections the number of concurrent connections to download the archive over, 1 to
+   *     always download it as a single stream
    * @return a {@link Downloader} instance
    */
-  public Downloader newDownloader(URL source, Path destination, ProgressListener progressListener) {
-    return new Downloader(source, destination, userAgentString, progressListener);
+  public Downloader newDownloader(
+      URL source, Path destination, ProgressListener progressListener, int connections) {
+    Preconditions.checkArgument(connections > 0, "connections must be positive");
+    return new Downloader(
+        source,
+        destination,
+        userAgentString,
+        progressListener,
+        connections,
+        Downloader.MIN_SEGMENT_SIZE);
   }
 }
@@ -21,6 +21,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.io.MoreFiles;
 import com.google.common.io.RecursiveDeleteOption;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.logging.Logger;
 
@@ -51,9 +52,32 @@ final class Extractor {
 
   /** Extract an archive. */
   public void extract() throws IOException, InterruptedException {
+    extract(() -> extractorProvider.extract(archive, destination, progressListener));
+  }
+
+  /**
+   * Extract the archive from a stream as it is read, instead of from the archive file.
+   *
+   * @throws UnsupportedOperationException if {@link #canExtractStream} is false
+   */
+  public void extract(InputStream archiveStream) throws IOException, InterruptedException {
+    if (!canExtractStream()) {
+      throw new UnsupportedOperationException(
+          "Cannot extract " + archive.getFileName() + " from a stream");
+    }
+    StreamingExtractorProvider streamingProvider = (StreamingExtractorProvider) extractorProvider;
+    extract(
+        () ->
+            streamingProvider.extract(
+                archiveStream,
+                String.valueOf(archive.getFileName()),
+                destination,
+                progressListener));
+  }
 
+  private void extract(Extraction extraction) throws IOException, InterruptedException {
     try {
-      extractorProvider.extract(archive, destination, progressListener);
+      extraction.run();
     } catch (IOException ex) {
       try {
         logger.warning("Extraction failed, cleaning up " + destination);
@@ -73,6 +97,11 @@ final class Extractor {
     }
   }
 
+  /** Returns whether {@link #extract(InputStream)} can extract this type of archive. */
+  public boolean canExtractStream() {
+    return extractorProvider instanceof StreamingExtractorProvider;
+  }
+
   @VisibleForTesting
   ExtractorProvider getExtractorProvider() {
     return extractorProvider;
@@ -81,4 +110,8 @@ final class Extractor {
   private void cleanUp(final Path target) throws IOException {
     MoreFiles.deleteRecursively(target, RecursiveDeleteOption.ALLOW_INSECURE);
   }
+
+  private interface Extraction {
+    void run() throws IOException;
+  }
 }
@@ -38,10 +38,20 @@ final class ExtractorFactory {
       throws UnknownArchiveTypeException {
 
     if (archive.toString().toLowerCase().endsWith(".tar.gz")) {
-      return new Extractor(archive, destination, new TarGzExtractorProvider(), progressListener);
+      return new Extractor(
+          archive,
+          destination,
+          new TarGzExtractorProvider(
+              TarGzExtractorProvider.DEFAULT_WRITER_THREADS,
+              TarGzExtractorProvider.DEFAULT_MEMORY_BUDGET),
+          progressListener);
     }
     if (archive.toString().toLowerCase().endsWith(".zip")) {
-      return new Extractor(archive, destination, new ZipExtractorProvider(), progressListener);
+      return new Extractor(
+          archive,
+          destination,
+          new ZipExtractorProvider(ZipExtractorProvider.DEFAULT_THREADS),
+          progressListener);
     }
     throw new UnknownArchiveTypeException(archive);
   }
@@ -23,6 +23,7 @@ import com.google.cloud.tools.managedcloudsdk.Version;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.io.MoreFiles;
 import com.google.common.io.RecursiveDeleteOption;
 import java.io.IOException;
@@ -44,6 +45,9 @@ public class SdkInstaller {
   private final DownloaderFactory downloaderFactory;
   @Nullable private final InstallerFactory installerFactory;
   private final Map<String, String> environmentVariables;
+  private boolean streamingExtraction;
+  private boolean keepArchive = true;
+  private int downloadConnections = DownloaderFactory.DEFAULT_CONNECTIONS;
 
   /** Use {@link #newInstaller} to instantiate. */
   SdkInstaller(
@@ -74,6 +78,33 @@ public class SdkInstaller {
     this.environmentVariables = environmentVariables;
   }
 
+  /**
+   * Sets whether a .tar.gz archive is extracted while it downloads, instead of after the whole
+   * archive has been written to disk. Zip archives are always extracted after they download.
+   */
+  public void setStreamingExtraction(boolean streamingExtraction) {
+    this.streamingExtraction = streamingExtraction;
+  }
+
+  /**
+   * Sets whether an archive extracted while it downloads is also written to the downloads
+   * directory, as it always is otherwise. Defaults to true.
+   */
+  public void setKeepArchive(boolean keepArchive) {
+    this.keepArchive = keepArchive;
+  }
+
+  /**
+   * Sets the number of concurrent connections the archive is downloaded over, when the server
+   * supports range requests and the archive is large enough to split. Defaults to 1, a single
+   * stream. A download over several connections is faster on links where one connection is
+   * throttled, but unlike a single stream it is started over rather than resumed if it fails.
+   */
+  public void setDownloadConnections(int downloadConnections) {
+    Preconditions.checkArgument(downloadConnections > 0, "downloadConnections must be positive");
+    this.downloadConnections = downloadConnections;
+  }
+
   /** Download and install a new Cloud SDK. */
   public Path install(
       final ProgressListener progressListener, final ConsoleListener consoleListener)
@@ -83,7 +114,8 @@ public class SdkInstaller {
     FileResourceProvider fileResourceProvider =
         fileResourceProviderFactory.newFileResourceProvider();
 
-    // Cleanup, remove old downloaded archive if exists
+    // Cleanup, remove old downloaded archive if exists, a partial download is kept so the
+    // downloader can resume it
     if (Files.isRegularFile(fileResourceProvider.getArchiveDestination())) {
       logger.info("Removing stale archive: " + fileResourceProvider.getArchiveDestination());
       Files.delete(fileResourceProvider.getArchiveDestination());
@@ -106,22 +138,29 @@ public class SdkInstaller {
         downloaderFactory.newDownloader(
             fileResourceProvider.getArchiveSource(),
             fileResourceProvider.getArchiveDestination(),
-            progressListener.newChild(100));
-    downloader.download();
-    if (!Files.isRegularFile(fileResourceProvider.getArchiveDestination())) {
-      throw new SdkInstallerException(
-          "Download succeeded but valid archive not found at "
-              + fileResourceProvider.getArchiveDestination());
-    }
+            progressListener.newChild(100),
+            downloadConnections);
 
     try {
-      // extract and verify
-      extractorFactory
-          .newExtractor(
+      Extractor extractor =
+          extractorFactory.newExtractor(
               fileResourceProvider.getArchiveDestination(),
               fileResourceProvider.getArchiveExtractionDestination(),
-              progressListener.newChild(100))
-          .extract();
+              progressListener.newChild(100));
+      if (streamingExtraction && extractor.canExtractStream()) {
+        // extract while downloading
+        downloader.download(extractor::extract, keepArchive);
+      } else {
+        downloader.download();
+        if (!Files.isRegularFile(fileResourceProvider.getArchiveDestination())) {
+          throw new SdkInstallerException(
+              "Download succeeded but valid archive not found at "
+                  + fileResourceProvider.getArchiveDestination());
+        }
+
+        // extract and verify
+        extractor.extract();
+      }
       if (!Files.isDirectory(fileResourceProvider.getExtractedSdkHome())) {
         throw new SdkInstallerException(
             "Extraction succeeded but valid sdk home not found at "
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.managedcloudsdk.install;
+
+import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/** Provide an archive extractor implementation that can also extract an archive as it is read. */
+interface StreamingExtractorProvider extends ExtractorProvider {
+
+  /**
+   * Extracts a single file archive read from a stream into target destination folder.
+   *
+   * @param archive the stream to read the archive from
+   * @param archiveName the file name of the archive, for progress messages
+   * @param destination the destination folder for extracted files
+   * @param progressListener the progress listener passthrough from the extractor
+   * @throws IOException if extractor fails
+   */
+  void extract(
+      InputStream archive, String archiveName, Path destination, ProgressListener progressListener)
+      throws IOException;
+}
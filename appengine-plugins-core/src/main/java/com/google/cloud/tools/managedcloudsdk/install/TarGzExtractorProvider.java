@@ -17,13 +17,29 @@
 package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
@@ -31,29 +47,65 @@ import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.utils.IOUtils;
 
 /**
- * {@link ExtractorProvider} implementation for *.tar.gz files.
+ * {@link ExtractorProvider} implementation for *.tar.gz files, which can also extract them while
+ * they are being downloaded.
+ *
+ * <p>With more than one writer thread, the archive is still decompressed on the calling thread,
+ * which also creates all directories, but the contents of files up to {@link #MAX_BUFFERED_FILE}
+ * bytes are buffered and written to disk by a pool of writers. The memory used by buffered files is
+ * bounded by a budget, larger files are written by the calling thread.
  *
  * <p>NOTE: this does not handle links or symlinks or any other kind of special types in the tar. It
  * will only create files and directories.
  */
-final class TarGzExtractorProvider implements ExtractorProvider {
+final class TarGzExtractorProvider implements StreamingExtractorProvider {
 
   private static final Logger logger = Logger.getLogger(TarGzExtractorProvider.class.getName());
 
+  static final int DEFAULT_WRITER_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+  static final int DEFAULT_MEMORY_BUDGET = 32 * 1024 * 1024;
+  static final int MAX_BUFFERED_FILE = 1024 * 1024;
+
+  private final int writerThreads;
+  private final int memoryBudget;
+
   /** Only instantiated in {@link ExtractorFactory}. */
-  TarGzExtractorProvider() {}
+  TarGzExtractorProvider() {
+    this(1, 0);
+  }
+
+  /**
+   * Only instantiated in {@link ExtractorFactory}.
+   *
+   * @param writerThreads threads writing extracted files, 1 to write them on the calling thread
+   * @param memoryBudget bytes of file contents that can be waiting for a writer
+   */
+  TarGzExtractorProvider(int writerThreads, int memoryBudget) {
+    Preconditions.checkArgument(writerThreads > 0, "writerThreads must be positive");
+    this.writerThreads = writerThreads;
+    this.memoryBudget = memoryBudget;
+  }
 
   @Override
   public void extract(Path archive, Path destination, ProgressListener progressListener)
       throws IOException {
+    try (InputStream in = Files.newInputStream(archive)) {
+      extract(in, String.valueOf(archive.getFileName()), destination, progressListener);
+    }
+  }
+
+  @Override
+  public void extract(
+      InputStream archive, String archiveName, Path destination, ProgressListener progressListener)
+      throws IOException {
 
-    progressListener.start(
-        "Extracting archive: " + archive.getFileName(), ProgressListener.UNKNOWN);
+    progressListener.start("Extracting archive: " + archiveName, ProgressListener.UNKNOWN);
 
     String canonicalDestination = destination.toFile().getCanonicalPath();
 
-    GzipCompressorInputStream gzipIn = new GzipCompressorInputStream(Files.newInputStream(archive));
-    try (TarArchiveInputStream in = new TarArchiveInputStream(gzipIn)) {
+    GzipCompressorInputStream gzipIn = new GzipCompressorInputStream(archive);
+    try (TarArchiveInputStream in = new TarArchiveInputStream(gzipIn);
+        FileWriters writers = new FileWriters(writerThreads, memoryBudget)) {
       TarArchiveEntry entry;
       while ((entry = in.getNextTarEntry()) != null) {
         Path entryTarget = destination.resolve(entry.getName());
@@ -67,27 +119,139 @@ final class TarGzExtractorProvider implements ExtractorProvider {
         logger.fine(entryTarget.toString());
 
         if (entry.isDirectory()) {
-          if (!Files.exists(entryTarget)) {
-            Files.createDirectories(entryTarget);
-          }
+          writers.createDirectories(entryTarget);
         } else if (entry.isFile()) {
-          if (!Files.exists(entryTarget.getParent())) {
-            Files.createDirectories(entryTarget.getParent());
-          }
-          try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(entryTarget))) {
-            IOUtils.copy(in, out);
-            PosixFileAttributeView attributeView =
-                Files.getFileAttributeView(entryTarget, PosixFileAttributeView.class);
-            if (attributeView != null) {
-              attributeView.setPermissions(PosixUtil.getPosixFilePermissions(entry.getMode()));
-            }
-          }
+          writers.createDirectories(Preconditions.checkNotNull(entryTarget.getParent()));
+          writers.write(in, entryTarget, entry.getSize(), entry.getMode());
         } else {
           // we don't know what kind of entry this is (we only process directories and files).
           logger.warning("Skipping entry (unknown type): " + entry.getName());
         }
       }
+      writers.awaitWrites();
       progressListener.done();
     }
   }
+
+  private static void writeFile(InputStream in, Path target, int mode) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+      IOUtils.copy(in, out);
+      setPermissions(target, mode);
+    }
+  }
+
+  private static void writeFile(byte[] contents, Path target, int mode) throws IOException {
+    Files.write(target, contents);
+    setPermissions(target, mode);
+  }
+
+  private static void setPermissions(Path target, int mode) throws IOException {
+    PosixFileAttributeView attributeView =
+        Files.getFileAttributeView(target, PosixFileAttributeView.class);
+    if (attributeView != null) {
+      attributeView.setPermissions(PosixUtil.getPosixFilePermissions(mode));
+    }
+  }
+
+  /**
+   * Writes extracted files, either on the calling thread or, for small enough files, on a pool of
+   * writers. Closing it without {@link #awaitWrites} cancels pending writes.
+   */
+  @VisibleForTesting
+  static class FileWriters implements AutoCloseable {
+
+    private final int memoryBudget;
+    private final Semaphore availableMemory;
+    private final Set<Path> createdDirectories = new HashSet<>();
+    private final Map<Path, Future<Void>> writes = new HashMap<>();
+    private final ExecutorService executor;
+
+    FileWriters(int writerThreads, int memoryBudget) {
+      this.memoryBudget = writerThreads > 1 ? memoryBudget : 0;
+      this.availableMemory = new Semaphore(this.memoryBudget);
+      this.executor =
+          writerThreads > 1
+              ? Executors.newFixedThreadPool(writerThreads)
+              : MoreExecutors.newDirectExecutorService();
+    }
+
+    void createDirectories(Path directory) throws IOException {
+      if (createdDirectories.add(directory) && !Files.exists(directory)) {
+        Files.createDirectories(directory);
+      }
+    }
+
+    /** Writes the next {@code size} bytes of {@code in} to {@code target}. */
+    void write(InputStream in, Path target, long size, int mode) throws IOException {
+      // a later entry for the same file replaces the earlier one
+      Future<Void> previous = writes.remove(target);
+      if (previous != null) {
+        await(previous);
+      }
+      if (size > Math.min(memoryBudget, MAX_BUFFERED_FILE)) {
+        writeFile(in, target, mode);
+        return;
+      }
+      int bufferSize = (int) size;
+      availableMemory.acquireUninterruptibly(bufferSize);
+      byte[] contents = new byte[bufferSize];
+      try {
+        ByteStreams.readFully(in, contents);
+      } catch (IOException ex) {
+        availableMemory.release(bufferSize);
+        throw ex;
+      }
+      writes.put(
+          target,
+          executor.submit(
+              () -> {
+                try {
+                  writeFile(contents, target, mode);
+                } finally {
+                  availableMemory.release(bufferSize);
+                }
+                return null;
+              }));
+      // fail early instead of decompressing the rest of the archive
+      if (writes.size() % 256 == 0) {
+        checkWrites();
+      }
+    }
+
+    /** Waits for all pending writes, and rethrows the first failure. */
+    void awaitWrites() throws IOException {
+      for (Future<Void> write : writes.values()) {
+        await(write);
+      }
+      writes.clear();
+    }
+
+    private void checkWrites() throws IOException {
+      for (Future<Void> write : writes.values()) {
+        if (write.isDone()) {
+          await(write);
+        }
+      }
+    }
+
+    private static void await(Future<Void> write) throws IOException {
+      try {
+        Uninterruptibles.getUninterruptibly(write);
+      } catch (ExecutionException ex) {
+        if (ex.getCause() instanceof IOException) {
+          throw (IOException) ex.getCause();
+        }
+        throw new IOException(ex.getCause());
+      }
+    }
+
+    @Override
+    public void close() {
+      executor.shutdownNow();
+      // writers must be done before a failed extraction is cleaned up
+      if (!Uninterruptibles.awaitTerminationUninterruptibly(executor, 1, TimeUnit.MINUTES)) {
+        logger.warning("Timed out waiting for extracted files to be written");
+      }
+    }
+  }
 }
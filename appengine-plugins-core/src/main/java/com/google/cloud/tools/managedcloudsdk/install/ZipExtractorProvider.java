@@ -18,6 +18,8 @@ package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
@@ -26,7 +28,19 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipFile;
@@ -35,6 +49,11 @@ import org.apache.commons.compress.utils.IOUtils;
 /**
  * {@link ExtractorProvider} implementation for *.zip files.
  *
+ * <p>With more than one thread, all entries are checked and all directories created first, then the
+ * files are split into contiguous runs of the archive of about the same compressed size, and each
+ * thread inflates and writes one run. Of several entries for the same file, only the one that
+ * serial extraction would leave is written.
+ *
  * <p>NOTE: this does not handle links or symlinks or any other kind of special types in the tar. It
  * will only create files and directories.
  */
@@ -42,9 +61,25 @@ final class ZipExtractorProvider implements ExtractorProvider {
 
   private static final Logger logger = Logger.getLogger(ZipExtractorProvider.class.getName());
 
+  static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+  private final int threads;
+
   /** Only instantiated in {@link ExtractorFactory}. */
   @VisibleForTesting
-  ZipExtractorProvider() {}
+  ZipExtractorProvider() {
+    this(1);
+  }
+
+  /**
+   * Only instantiated in {@link ExtractorFactory}.
+   *
+   * @param threads threads inflating entries, 1 to extract them one by one on the calling thread
+   */
+  ZipExtractorProvider(int threads) {
+    Preconditions.checkArgument(threads > 0, "threads must be positive");
+    this.threads = threads;
+  }
 
   @Override
   public void extract(Path archive, Path destination, ProgressListener progressListener)
@@ -59,42 +94,163 @@ final class ZipExtractorProvider implements ExtractorProvider {
     // on unix-like systems via getUnixMode(). ZipArchiveInputStream doesn't have access to
     // all the zip file data and will return "0" for any call to getUnixMode().
     try (ZipFile zipFile = new ZipFile(archive.toFile())) {
-      // TextProgressBar progressBar = textBarFactory.newProgressBar(messageListener, count);
-      Enumeration<ZipArchiveEntry> zipEntries = zipFile.getEntries();
-      while (zipEntries.hasMoreElements()) {
-        ZipArchiveEntry entry = zipEntries.nextElement();
-        Path entryTarget = destination.resolve(entry.getName());
-
-        String canonicalTarget = entryTarget.toFile().getCanonicalPath();
-        if (!canonicalTarget.startsWith(canonicalDestination + File.separator)) {
-          throw new IOException("Blocked unzipping files outside destination: " + entry.getName());
+      if (threads > 1) {
+        extractInParallel(zipFile, destination, canonicalDestination, progressListener);
+      } else {
+        // TextProgressBar progressBar = textBarFactory.newProgressBar(messageListener, count);
+        Enumeration<ZipArchiveEntry> zipEntries = zipFile.getEntries();
+        while (zipEntries.hasMoreElements()) {
+          ZipArchiveEntry entry = zipEntries.nextElement();
+          Path entryTarget = getEntryTarget(entry, destination, canonicalDestination);
+
+          progressListener.update(1);
+          logger.fine(entryTarget.toString());
+
+          if (entry.isDirectory()) {
+            if (!Files.exists(entryTarget)) {
+              Files.createDirectories(entryTarget);
+            }
+          } else {
+            if (!Files.exists(entryTarget.getParent())) {
+              Files.createDirectories(entryTarget.getParent());
+            }
+            writeEntry(zipFile, entry, entryTarget);
+          }
         }
+      }
+    }
+    progressListener.done();
+  }
+
+  private void extractInParallel(
+      ZipFile zipFile,
+      Path destination,
+      String canonicalDestination,
+      ProgressListener progressListener)
+      throws IOException {
+    // an archive can hold several entries for the same file, of which serial extraction leaves
+    // the last one, so only that one is written and no two threads write the same file
+    Map<Path, ZipArchiveEntry> lastEntries = new HashMap<>();
+    for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+      if (!entry.isDirectory()) {
+        lastEntries.put(destination.resolve(entry.getName()).normalize(), entry);
+      }
+    }
 
+    // check every entry and create every directory before writing any file
+    Set<Path> directories = new LinkedHashSet<>();
+    List<ZipArchiveEntry> files = new ArrayList<>();
+    for (ZipArchiveEntry entry : Collections.list(zipFile.getEntriesInPhysicalOrder())) {
+      Path entryTarget = getEntryTarget(entry, destination, canonicalDestination);
+      if (entry.isDirectory()) {
         progressListener.update(1);
         logger.fine(entryTarget.toString());
+        directories.add(entryTarget);
+      } else if (lastEntries.get(entryTarget.normalize()) != entry) {
+        progressListener.update(1);
+        logger.fine("Skipping overwritten entry " + entry.getName());
+      } else {
+        directories.add(Preconditions.checkNotNull(entryTarget.getParent()));
+        files.add(entry);
+      }
+    }
+    for (Path directory : directories) {
+      if (!Files.exists(directory)) {
+        Files.createDirectories(directory);
+      }
+    }
 
-        if (entry.isDirectory()) {
-          if (!Files.exists(entryTarget)) {
-            Files.createDirectories(entryTarget);
-          }
-        } else {
-          if (!Files.exists(entryTarget.getParent())) {
-            Files.createDirectories(entryTarget.getParent());
-          }
-          try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(entryTarget))) {
-            try (InputStream in = zipFile.getInputStream(entry)) {
-              IOUtils.copy(in, out);
-              PosixFileAttributeView attributeView =
-                  Files.getFileAttributeView(entryTarget, PosixFileAttributeView.class);
-              if (attributeView != null) {
-                attributeView.setPermissions(
-                    PosixUtil.getPosixFilePermissions(entry.getUnixMode()));
+    // ZipFile reads entries with positional reads, so the threads can share it
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (List<ZipArchiveEntry> partition : partition(files, threads)) {
+      tasks.add(
+          () -> {
+            for (ZipArchiveEntry entry : partition) {
+              Path entryTarget = destination.resolve(entry.getName());
+              writeEntry(zipFile, entry, entryTarget);
+              synchronized (progressListener) {
+                progressListener.update(1);
               }
+              logger.fine(entryTarget.toString());
             }
-          }
+            return null;
+          });
+    }
+    if (tasks.isEmpty()) {
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+    try {
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while extracting " + zipFile, ex);
+    } catch (ExecutionException ex) {
+      Throwables.throwIfInstanceOf(ex.getCause(), IOException.class);
+      Throwables.throwIfUnchecked(ex.getCause());
+      throw new IOException(ex.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Splits entries into at most {@code partitions} contiguous runs of about the same compressed
+   * size.
+   */
+  @VisibleForTesting
+  static List<List<ZipArchiveEntry>> partition(List<ZipArchiveEntry> entries, int partitions) {
+    long totalSize = 0;
+    for (ZipArchiveEntry entry : entries) {
+      totalSize += getPartitionWeight(entry);
+    }
+    List<List<ZipArchiveEntry>> result = new ArrayList<>();
+    List<ZipArchiveEntry> current = new ArrayList<>();
+    long size = 0;
+    for (ZipArchiveEntry entry : entries) {
+      current.add(entry);
+      size += getPartitionWeight(entry);
+      // cut when the runs so far hold their share of the total
+      if (size * partitions >= totalSize * (result.size() + 1) && result.size() < partitions - 1) {
+        result.add(current);
+        current = new ArrayList<>();
+      }
+    }
+    if (!current.isEmpty()) {
+      result.add(current);
+    }
+    return result;
+  }
+
+  /** Weighs an entry by its compressed size, plus a little for creating the file. */
+  private static long getPartitionWeight(ZipArchiveEntry entry) {
+    return Math.max(entry.getCompressedSize(), 0) + 1024;
+  }
+
+  private static Path getEntryTarget(
+      ZipArchiveEntry entry, Path destination, String canonicalDestination) throws IOException {
+    Path entryTarget = destination.resolve(entry.getName());
+
+    String canonicalTarget = entryTarget.toFile().getCanonicalPath();
+    if (!canonicalTarget.startsWith(canonicalDestination + File.separator)) {
+      throw new IOException("Blocked unzipping files outside destination: " + entry.getName());
+    }
+    return entryTarget;
+  }
+
+  private static void writeEntry(ZipFile zipFile, ZipArchiveEntry entry, Path entryTarget)
+      throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(entryTarget))) {
+      try (InputStream in = zipFile.getInputStream(entry)) {
+        IOUtils.copy(in, out);
+        PosixFileAttributeView attributeView =
+            Files.getFileAttributeView(entryTarget, PosixFileAttributeView.class);
+        if (attributeView != null) {
+          attributeView.setPermissions(PosixUtil.getPosixFilePermissions(entry.getUnixMode()));
         }
       }
     }
-    progressListener.done();
   }
 }
@@ -17,6 +17,7 @@
 package com.google.cloud.tools.project;
 
 import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.common.collect.ImmutableList;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
@@ -26,7 +27,7 @@ import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.SafeConstructor;
 import org.yaml.snakeyaml.error.YAMLException;
 
-/** Tools for reading {@code app.yaml}. */
+/** Tools for reading {@code app.yaml}. Instances are immutable. */
 public class AppYaml {
 
   private static final String ENVIRONMENT_TYPE_KEY = "env";
@@ -38,6 +39,9 @@ public class AppYaml {
   private static final String SERVICE_KEY = "service";
   private static final String MODULE_KEY = "module";
   private static final String ENVIRONMENT_VARIABLES_KEY = "env_variables";
+  private static final String INSTANCE_CLASS_KEY = "instance_class";
+  private static final ImmutableList<String> SCALING_TYPES =
+      ImmutableList.of("automatic", "basic", "manual");
 
   private final Map<String, ?> yamlMap;
 
@@ -61,7 +65,7 @@ public class AppYaml {
   }
 
   private AppYaml(@Nullable Map<String, ?> yamlMap) {
-    this.yamlMap = yamlMap == null ? Collections.emptyMap() : yamlMap;
+    this.yamlMap = yamlMap == null ? Collections.emptyMap() : Collections.unmodifiableMap(yamlMap);
   }
 
   /**
@@ -125,6 +129,30 @@ public class AppYaml {
     return getStringMap(ENVIRONMENT_VARIABLES_KEY);
   }
 
+  /**
+   * Return the content of the {@code instance_class} field, which defines the memory and CPU of
+   * this app's instances.
+   */
+  @Nullable
+  public String getInstanceClass() {
+    return getString(INSTANCE_CLASS_KEY);
+  }
+
+  /**
+   * Return the scaling of this app, {@code automatic}, {@code basic} or {@code manual}, as declared
+   * by an {@code automatic_scaling}, {@code basic_scaling} or {@code manual_scaling} field, or null
+   * if none is declared.
+   */
+  @Nullable
+  public String getScalingType() {
+    for (String scalingType : SCALING_TYPES) {
+      if (yamlMap.containsKey(scalingType + "_scaling")) {
+        return scalingType;
+      }
+    }
+    return null;
+  }
+
   @Nullable
   private String getString(String key) {
     Object value = yamlMap.get(key);
@@ -135,6 +163,6 @@ public class AppYaml {
   @SuppressWarnings("unchecked")
   private Map<String, ?> getStringMap(String key) {
     Object value = yamlMap.get(key);
-    return value instanceof Map<?, ?> ? (Map<String, ?>) value : null;
+    return value instanceof Map<?, ?> ? Collections.unmodifiableMap((Map<String, ?>) value) : null;
   }
 }
@@ -236,6 +236,15 @@ public class AppEngineDescriptorTest {
     assertEquals(expectedEnvironment, environment);
   }
 
+  @Test
+  public void testGetEnvironment_notShared() throws AppEngineException, IOException, SAXException {
+    AppEngineDescriptor descriptor = parse(ROOT_START_TAG + ENVIRONMENT + ROOT_END_TAG);
+
+    descriptor.getEnvironment().clear();
+
+    assertEquals(3, descriptor.getEnvironment().size());
+  }
+
   @Test
   public void testParse_documentWithEntities()
       throws IOException, SAXException, AppEngineException {
@@ -254,6 +263,15 @@ public class AppEngineDescriptorTest {
     assertTrue(thrownWhenParsingDoctype.getMessage().contains("DOCTYPE is disallowed"));
   }
 
+  @Test
+  public void testIsVm() throws AppEngineException, IOException, SAXException {
+    assertTrue(parse(ROOT_START_TAG + "<vm>true</vm>" + ROOT_END_TAG).isVm());
+    assertTrue(parse("<appengine-web-app><vm>true</vm></appengine-web-app>").isVm());
+    assertFalse(parse(ROOT_START_TAG + "<vm>TRUE</vm>" + ROOT_END_TAG).isVm());
+    assertFalse(parse(ROOT_START_TAG + "<vm>false</vm>" + ROOT_END_TAG).isVm());
+    assertFalse(parse(XML_WITHOUT_PROJECT_ID).isVm());
+  }
+
   private static AppEngineDescriptor parse(String xmlString) throws IOException, SAXException {
     return AppEngineDescriptor.parse(
         new ByteArrayInputStream(xmlString.getBytes(StandardCharsets.UTF_8)));
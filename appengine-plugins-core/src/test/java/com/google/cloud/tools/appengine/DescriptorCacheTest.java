@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.cloud.tools.project.AppYaml;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+
+/** Test for {@link DescriptorCache}. */
+public class DescriptorCacheTest {
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  private DescriptorCache cache;
+  private Path appYaml;
+  private Path appEngineWebXml;
+
+  @Before
+  public void setUp() throws IOException {
+    cache = new DescriptorCache();
+    appYaml = testDir.getRoot().toPath().resolve("app.yaml");
+    Files.write(appYaml, "runtime: java11\n".getBytes(UTF_8));
+    appEngineWebXml = testDir.getRoot().toPath().resolve("appengine-web.xml");
+    Files.write(
+        appEngineWebXml,
+        ("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+                + "<runtime>java8</runtime></appengine-web-app>")
+            .getBytes(UTF_8));
+  }
+
+  @Test
+  public void testGetAppYaml_cached() throws IOException, AppEngineException {
+    AppYaml first = cache.getAppYaml(appYaml);
+
+    Assert.assertEquals("java11", first.getRuntime());
+    Assert.assertSame(first, cache.getAppYaml(appYaml));
+    Assert.assertSame(first, cache.getAppYaml(testDir.getRoot().toPath().resolve("./app.yaml")));
+  }
+
+  @Test
+  public void testGetAppYaml_reparsedWhenModified() throws IOException, AppEngineException {
+    AppYaml first = cache.getAppYaml(appYaml);
+    Files.write(appYaml, "runtime: java17\n".getBytes(UTF_8));
+    Files.setLastModifiedTime(appYaml, FileTime.fromMillis(0));
+
+    AppYaml second = cache.getAppYaml(appYaml);
+
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals("java17", second.getRuntime());
+  }
+
+  @Test
+  public void testGetAppYaml_missingFile() throws AppEngineException {
+    try {
+      cache.getAppYaml(testDir.getRoot().toPath().resolve("missing.yaml"));
+      Assert.fail();
+    } catch (IOException ex) {
+      Assert.assertTrue(ex instanceof NoSuchFileException);
+    }
+  }
+
+  @Test
+  public void testGetAppEngineDescriptor_cached()
+      throws IOException, SAXException, AppEngineException {
+    AppEngineDescriptor first = cache.getAppEngineDescriptor(appEngineWebXml);
+
+    Assert.assertEquals("java8", first.getRuntime());
+    Assert.assertSame(first, cache.getAppEngineDescriptor(appEngineWebXml));
+  }
+
+  @Test
+  public void testGetAppEngineDescriptor_reparsedWhenResized()
+      throws IOException, SAXException, AppEngineException {
+    AppEngineDescriptor first = cache.getAppEngineDescriptor(appEngineWebXml);
+    FileTime lastModified = Files.getLastModifiedTime(appEngineWebXml);
+    Files.write(
+        appEngineWebXml,
+        ("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+                + "<runtime>java7</runtime><vm>true</vm></appengine-web-app>")
+            .getBytes(UTF_8));
+    Files.setLastModifiedTime(appEngineWebXml, lastModified);
+
+    AppEngineDescriptor second = cache.getAppEngineDescriptor(appEngineWebXml);
+
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals("java7", second.getRuntime());
+    Assert.assertTrue(second.isVm());
+  }
+
+  @Test
+  public void testClear() throws IOException, AppEngineException {
+    AppYaml first = cache.getAppYaml(appYaml);
+    cache.clear();
+
+    Assert.assertNotSame(first, cache.getAppYaml(appYaml));
+  }
+}
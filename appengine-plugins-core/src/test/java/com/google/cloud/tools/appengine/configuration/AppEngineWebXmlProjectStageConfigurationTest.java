@@ -61,5 +61,11 @@ public class AppEngineWebXmlProjectStageConfigurationTest {
     assertNull(configuration.getEnableQuickstart());
     assertNull(configuration.getJarSplittingExcludes());
     assertNull(configuration.getRuntime());
+    assertNull(configuration.getCacheMaxSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCacheMaxSize_notPositive() {
+    AppEngineWebXmlProjectStageConfiguration.builder().cacheMaxSize(0L);
   }
 }
@@ -94,4 +94,27 @@ public class AppYamlProjectStageConfigurationTest {
   public void testGetStagingDirectory() {
     assertEquals(file, configuration.getStagingDirectory());
   }
+
+  @Test
+  public void testGetIncremental() {
+    Assert.assertNull(configuration.getIncremental());
+    Assert.assertTrue(
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(file)
+            .artifact(file)
+            .stagingDirectory(file)
+            .incremental(true)
+            .build()
+            .getIncremental());
+  }
+
+  @Test
+  public void testCopyThreads_mustBePositive() {
+    try {
+      AppYamlProjectStageConfiguration.builder().copyThreads(0);
+      Assert.fail("allowed non positive copyThreads");
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals("copyThreads must be positive", ex.getMessage());
+    }
+  }
 }
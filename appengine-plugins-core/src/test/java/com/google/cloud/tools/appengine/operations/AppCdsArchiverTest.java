@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link AppCdsArchiver}. */
+public class AppCdsArchiverTest {
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  @Test
+  public void testArchiveName() {
+    Assert.assertEquals("app.jsa", AppCdsArchiver.archiveName("app.jar"));
+    Assert.assertEquals("app.zip.jsa", AppCdsArchiver.archiveName("app.zip"));
+  }
+
+  @Test
+  public void testWithSharedArchive() throws AppEngineException {
+    Assert.assertEquals(
+        "java -XX:SharedArchiveFile=app.jsa -jar app.jar",
+        AppCdsArchiver.withSharedArchive(null, "app.jar", "app.jsa"));
+    Assert.assertEquals(
+        "java -XX:SharedArchiveFile=app.jsa -Xmx256m -jar app.jar --flag",
+        AppCdsArchiver.withSharedArchive(
+            " java -Xmx256m -jar app.jar --flag", "app.jar", "app.jsa"));
+  }
+
+  @Test
+  public void testWithSharedArchive_notJava() {
+    try {
+      AppCdsArchiver.withSharedArchive("./run.sh", "app.jar", "app.jsa");
+      Assert.fail();
+    } catch (AppEngineException ex) {
+      Assert.assertEquals(
+          "An AppCDS archive can only be used with an entrypoint that starts with 'java', found:"
+              + " ./run.sh",
+          ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testJavaVersion() throws IOException {
+    Path javaHome = testDir.newFolder("jdk").toPath();
+    Assert.assertNull(AppCdsArchiver.javaVersion(javaHome));
+
+    Files.write(javaHome.resolve("release"), "JAVA_VERSION=\"17.0.9\"\n".getBytes(UTF_8));
+    Assert.assertEquals(Integer.valueOf(17), AppCdsArchiver.javaVersion(javaHome));
+
+    Files.write(javaHome.resolve("release"), "JAVA_VERSION=\"1.8.0_392\"\n".getBytes(UTF_8));
+    Assert.assertEquals(Integer.valueOf(8), AppCdsArchiver.javaVersion(javaHome));
+  }
+
+  @Test
+  public void testCreateArchive_trainingFails() throws IOException {
+    Path stagingDirectory = testDir.newFolder("staging").toPath();
+    // no Main-Class
+    JarClassPathResolverTest.writeJar(stagingDirectory, "app.jar", null, "content");
+    AppCdsArchiver archiver =
+        new AppCdsArchiver(
+            Paths.get(System.getProperty("java.home")),
+            Collections.emptyList(),
+            Duration.ofSeconds(30));
+
+    try {
+      archiver.createArchive(stagingDirectory, "app.jar");
+      Assert.fail();
+    } catch (AppEngineException ex) {
+      String message = String.valueOf(ex.getMessage());
+      Assert.assertTrue(
+          message, message.startsWith("The AppCDS training run failed with exit code"));
+      Assert.assertTrue(message, message.contains("no main manifest attribute"));
+    }
+    Assert.assertFalse(Files.exists(stagingDirectory.resolve("app.jsa")));
+  }
+
+  /**
+   * Compiles and writes a jar whose main class prints its arguments, skipping the test when no
+   * compiler is available.
+   */
+  static Path writeApplicationJar(Path directory, String name) throws IOException {
+    return writeApplicationJar(
+        directory,
+        name,
+        ImmutableList.of(
+            "public class Hello {",
+            "  public static void main(String[] args) {",
+            "    System.out.println(String.join(\",\", args));",
+            "  }",
+            "}"));
+  }
+
+  /**
+   * Compiles and writes a jar with the main class {@code Hello} of {@code source}, skipping the
+   * test when no compiler is available.
+   */
+  static Path writeApplicationJar(Path directory, String name, List<String> source)
+      throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    Assume.assumeNotNull(compiler);
+    Path sources = Files.createTempDirectory(directory, "sources");
+    Path sourceFile = sources.resolve("Hello.java");
+    Files.write(sourceFile, source, UTF_8);
+    Assert.assertEquals(0, compiler.run(null, null, null, sourceFile.toString()));
+
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "Hello");
+    Path jar = directory.resolve(name);
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+      jarOut.putNextEntry(new ZipEntry("Hello.class"));
+      jarOut.write(Files.readAllBytes(sources.resolve("Hello.class")));
+      jarOut.closeEntry();
+    }
+    return jar;
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.appengine.operations;
 
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.tools.appengine.operations.cloudsdk.AppEngineJavaComponentsNotInstalledException;
@@ -25,13 +26,16 @@ import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandl
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandlerException;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -55,12 +59,13 @@ public class AppCfgRunnerTest {
     javaExecutablePath = testFolder.getRoot().toPath().resolve("java.fake");
     appengineToolsJar = testFolder.getRoot().toPath().resolve("appengine.tools");
     appengineJavaSdkPath = testFolder.getRoot().toPath().resolve("appengine-sdk-root");
-    when(sdk.getJavaExecutablePath()).thenReturn(javaExecutablePath);
+    // not every test forks a process
+    lenient().when(sdk.getJavaExecutablePath()).thenReturn(javaExecutablePath);
     when(sdk.getAppEngineToolsJar()).thenReturn(appengineToolsJar);
     when(sdk.getAppEngineSdkForJavaPath()).thenReturn(appengineJavaSdkPath);
 
-    when(processBuilderFactory.newProcessBuilder()).thenReturn(processBuilder);
-    when(processBuilder.start()).thenReturn(process);
+    lenient().when(processBuilderFactory.newProcessBuilder()).thenReturn(processBuilder);
+    lenient().when(processBuilder.start()).thenReturn(process);
   }
 
   @Test
@@ -87,4 +92,45 @@ public class AppCfgRunnerTest {
     Mockito.verify(processHandler).handleProcess(process);
     Assert.assertEquals(appengineJavaSdkPath.toString(), System.getProperty("appengine.sdk.root"));
   }
+
+  @Test
+  public void testRunInProcess_fallsBackToNewJvm()
+      throws InvalidJavaSdkException, ProcessHandlerException,
+          AppEngineJavaComponentsNotInstalledException, IOException {
+    AppCfgRunner appCfgRunner =
+        new AppCfgRunner.Factory(processBuilderFactory).newRunner(sdk, processHandler);
+
+    // the tools jar does not exist, so it cannot be loaded in process
+    appCfgRunner.runInProcess(ImmutableList.of("some", "command"));
+
+    Mockito.verify(processBuilder).start();
+    Mockito.verify(processHandler).handleProcess(process);
+  }
+
+  @Test
+  public void testRunInProcess() throws Exception {
+    Path testClasses =
+        Paths.get(
+            InProcessAppCfgTest.FakeAppCfg.class
+                .getProtectionDomain()
+                .getCodeSource()
+                .getLocation()
+                .toURI());
+    when(sdk.getAppEngineToolsJar()).thenReturn(testClasses);
+    Path output = testFolder.getRoot().toPath().resolve("output");
+    AppCfgRunner appCfgRunner =
+        new AppCfgRunner(
+            sdk,
+            processBuilderFactory,
+            processHandler,
+            new InProcessAppCfg(InProcessAppCfgTest.FakeAppCfg.class.getName()));
+
+    appCfgRunner.runInProcess(ImmutableList.of(output.toString(), "stage"));
+
+    Assert.assertTrue(Files.exists(output));
+    ArgumentCaptor<Process> process = ArgumentCaptor.forClass(Process.class);
+    Mockito.verify(processHandler).handleProcess(process.capture());
+    Assert.assertEquals(0, process.getValue().exitValue());
+    Mockito.verifyNoInteractions(processBuilderFactory);
+  }
 }
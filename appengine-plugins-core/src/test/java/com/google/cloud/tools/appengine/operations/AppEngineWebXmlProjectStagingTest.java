@@ -16,7 +16,9 @@
 
 package com.google.cloud.tools.appengine.operations;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -25,11 +27,16 @@ import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStag
 import com.google.cloud.tools.appengine.operations.cloudsdk.AppEngineJavaComponentsNotInstalledException;
 import com.google.cloud.tools.appengine.operations.cloudsdk.InvalidJavaSdkException;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandlerException;
+import com.google.cloud.tools.appengine.operations.cloudsdk.serialization.CloudSdkVersion;
+import com.google.cloud.tools.io.ContentStore;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
+import java.util.stream.Stream;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -47,6 +54,7 @@ public class AppEngineWebXmlProjectStagingTest {
   @Rule public TemporaryFolder tmpDir = new TemporaryFolder();
 
   @Mock private AppCfgRunner appCfgRunner;
+  @Mock private CloudSdk sdk;
 
   private Path source;
   private Path destination;
@@ -62,7 +70,7 @@ public class AppEngineWebXmlProjectStagingTest {
     destination = tmpDir.newFolder("destination").toPath();
     dockerfile = tmpDir.newFile("dockerfile").toPath();
 
-    staging = new AppEngineWebXmlProjectStaging(appCfgRunner);
+    staging = new AppEngineWebXmlProjectStaging(appCfgRunner, sdk);
 
     builder =
         AppEngineWebXmlProjectStageConfiguration.builder()
@@ -99,6 +107,37 @@ public class AppEngineWebXmlProjectStagingTest {
     }
   }
 
+  @Test
+  public void testStageStandard_sync() throws Exception {
+    Path unchanged = Files.write(destination.resolve("unchanged.txt"), "same".getBytes(UTF_8));
+    Files.setLastModifiedTime(unchanged, FileTime.fromMillis(1000));
+    Path stale = Files.createFile(destination.resolve("stale.txt"));
+    Mockito.doAnswer(
+            invocation -> {
+              List<String> arguments = invocation.getArgument(0);
+              Path output = Paths.get(arguments.get(arguments.size() - 1));
+              Assert.assertNotEquals(destination, output);
+              Files.createFile(output.resolve("app.yaml"));
+              Files.write(output.resolve("unchanged.txt"), "same".getBytes(UTF_8));
+              return null;
+            })
+        .when(appCfgRunner)
+        .run(Mockito.anyList());
+
+    StagingResult result = staging.stageStandard(builder.sync(true).build());
+
+    Assert.assertEquals(2, result.getFileCount());
+    Assert.assertEquals(4, result.getTotalBytes());
+    Assert.assertTrue(result.getPhases().isEmpty());
+    Assert.assertTrue(Files.exists(destination.resolve("app.yaml")));
+    Assert.assertFalse(Files.exists(stale));
+    Assert.assertEquals(FileTime.fromMillis(1000), Files.getLastModifiedTime(unchanged));
+    try (Stream<Path> siblings = Files.list(tmpDir.getRoot().toPath())) {
+      Assert.assertFalse(
+          siblings.anyMatch(path -> path.getFileName().toString().contains("-sync")));
+    }
+  }
+
   @Test
   public void testCheckFlags_allFlags() throws Exception {
     builder
@@ -165,4 +204,149 @@ public class AppEngineWebXmlProjectStagingTest {
 
     verify(appCfgRunner, times(1)).run(eq(expected));
   }
+
+  @Test
+  public void testStageStandard_inProcess() throws Exception {
+    List<String> expected = ImmutableList.of("stage", source.toString(), destination.toString());
+
+    staging.stageStandard(builder.inProcess(true).build());
+
+    verify(appCfgRunner).runInProcess(eq(expected));
+    verify(appCfgRunner, never()).run(Mockito.anyList());
+  }
+
+  @Test
+  public void testStageStandard_native() throws Exception {
+    Files.createDirectories(source.resolve("WEB-INF"));
+    Files.write(
+        source.resolve("WEB-INF/appengine-web.xml"),
+        ("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+                + "<runtime>java17</runtime>"
+                + "</appengine-web-app>")
+            .getBytes(UTF_8));
+
+    StagingResult result = staging.stageStandard(builder.nativeStaging(true).build());
+
+    Assert.assertTrue(Files.exists(destination.resolve("app.yaml")));
+    Assert.assertTrue(Files.exists(destination.resolve("WEB-INF/appengine-web.xml")));
+    Assert.assertEquals(3, result.getFileCount());
+    Mockito.verifyNoInteractions(appCfgRunner);
+  }
+
+  @Test
+  public void testStageStandard_nativeContentStore() throws Exception {
+    Files.createDirectories(source.resolve("WEB-INF/lib"));
+    Files.write(
+        source.resolve("WEB-INF/appengine-web.xml"),
+        ("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+                + "<runtime>java17</runtime>"
+                + "</appengine-web-app>")
+            .getBytes(UTF_8));
+    Files.write(source.resolve("WEB-INF/lib/shared.jar"), new byte[] {1, 2, 3});
+    Path contentStore = tmpDir.newFolder("store").toPath();
+    Path otherDestination = tmpDir.newFolder("other").toPath();
+
+    staging.stageStandard(builder.nativeStaging(true).contentStoreDirectory(contentStore).build());
+    staging.stageStandard(builder.stagingDirectory(otherDestination).build());
+
+    Assert.assertTrue(
+        Files.isSameFile(
+            destination.resolve("WEB-INF/lib/shared.jar"),
+            otherDestination.resolve("WEB-INF/lib/shared.jar")));
+  }
+
+  @Test
+  public void testStageStandard_contentStore() throws Exception {
+    Path contentStore = tmpDir.newFolder("store").toPath();
+    Mockito.doAnswer(
+            ignored -> {
+              Files.createDirectories(destination.resolve("WEB-INF/lib"));
+              Files.write(destination.resolve("WEB-INF/lib/shared.jar"), new byte[] {1, 2, 3});
+              return null;
+            })
+        .when(appCfgRunner)
+        .run(Mockito.anyList());
+
+    staging.stageStandard(builder.contentStoreDirectory(contentStore).build());
+
+    Path stagedJar = destination.resolve("WEB-INF/lib/shared.jar");
+    Assert.assertTrue(
+        Files.isSameFile(
+            new ContentStore(contentStore).getPath(ContentStore.hash(stagedJar)), stagedJar));
+  }
+
+  @Test
+  public void testStageStandard_nativeFallsBackToAppCfg() throws Exception {
+    // without an appengine-web.xml the native stager cannot generate app.yaml
+    staging.stageStandard(builder.nativeStaging(true).build());
+
+    verify(appCfgRunner).run(Mockito.anyList());
+  }
+
+  @Test
+  public void testIsStagedNatively() throws Exception {
+    Assert.assertFalse(AppEngineWebXmlProjectStaging.isStagedNatively(builder.build()));
+    // without an appengine-web.xml the native stager cannot generate app.yaml
+    Assert.assertFalse(
+        AppEngineWebXmlProjectStaging.isStagedNatively(builder.nativeStaging(true).build()));
+
+    Files.createDirectories(source.resolve("WEB-INF"));
+    Files.write(
+        source.resolve("WEB-INF/appengine-web.xml"),
+        ("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+                + "<runtime>java17</runtime>"
+                + "</appengine-web-app>")
+            .getBytes(UTF_8));
+
+    Assert.assertTrue(
+        AppEngineWebXmlProjectStaging.isStagedNatively(builder.nativeStaging(true).build()));
+    Mockito.verifyNoInteractions(appCfgRunner);
+  }
+
+  @Test
+  public void testStageStandard_cache() throws Exception {
+    Path cacheDirectory = tmpDir.newFolder("cache").toPath();
+    Mockito.when(sdk.getPath()).thenReturn(tmpDir.newFolder("sdk").toPath());
+    Mockito.when(sdk.getVersion()).thenReturn(new CloudSdkVersion("300.0.0"));
+    Mockito.when(sdk.getJavaHomePath()).thenReturn(Paths.get(System.getProperty("java.home")));
+    Files.write(source.resolve("index.jsp"), "<html/>".getBytes(UTF_8));
+    AppEngineWebXmlProjectStageConfiguration config =
+        builder.enableQuickstart(true).cacheDirectory(cacheDirectory).build();
+
+    staging.stageStandard(config);
+    Files.delete(destination.resolve("app.yaml"));
+    // restoring the cached output doesn't build the runner, which sets up the Cloud SDK
+    new AppEngineWebXmlProjectStaging(
+            () -> {
+              throw new AssertionError("runner built on a cache hit");
+            },
+            () -> sdk)
+        .stageStandard(config);
+
+    Assert.assertTrue(Files.exists(destination.resolve("app.yaml")));
+    verify(appCfgRunner, times(1)).run(Mockito.anyList());
+
+    // a changed JSP makes appcfg run again
+    Files.write(source.resolve("index.jsp"), "<html></html>".getBytes(UTF_8));
+    Files.delete(destination.resolve("app.yaml"));
+    staging.stageStandard(config);
+
+    verify(appCfgRunner, times(2)).run(Mockito.anyList());
+
+    // so does another Cloud SDK version
+    Mockito.when(sdk.getVersion()).thenReturn(new CloudSdkVersion("301.0.0"));
+    Files.delete(destination.resolve("app.yaml"));
+    staging.stageStandard(config);
+
+    verify(appCfgRunner, times(3)).run(Mockito.anyList());
+
+    // and another JDK to compile the JSPs with
+    Path otherJavaHome = tmpDir.newFolder("jdk").toPath();
+    Files.write(otherJavaHome.resolve("release"), "JAVA_VERSION=\"11.0.2\"\n".getBytes(UTF_8));
+    Mockito.when(sdk.getJavaHomePath()).thenReturn(otherJavaHome);
+    Files.delete(destination.resolve("app.yaml"));
+    staging.stageStandard(config);
+
+    verify(appCfgRunner, times(4)).run(Mockito.anyList());
+  }
 }
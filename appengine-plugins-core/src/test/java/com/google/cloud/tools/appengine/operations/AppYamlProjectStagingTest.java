@@ -19,6 +19,9 @@ package com.google.cloud.tools.appengine.operations;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doCallRealMethod;
@@ -29,18 +32,32 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfiguration;
+import com.google.cloud.tools.appengine.configuration.LinkStrategy;
+import com.google.cloud.tools.io.ContentStore;
 import com.google.cloud.tools.test.utils.LogStoringHandler;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -431,6 +448,29 @@ public class AppYamlProjectStagingTest {
     verifyNoMoreInteractions(copyService);
   }
 
+  @Test
+  public void testCopyExtraFiles_excludes() throws IOException, AppEngineException {
+    Path extraFilesDirectory = extraFilesDirectories.get(0);
+    Files.createDirectories(extraFilesDirectory.resolve("logs"));
+    Files.createFile(extraFilesDirectory.resolve("logs/debug.log"));
+    Files.createFile(extraFilesDirectory.resolve("keep.txt"));
+    Files.createFile(extraFilesDirectory.resolve("drop.tmp"));
+
+    AppYamlProjectStageConfiguration excludesConfig =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(artifact)
+            .stagingDirectory(stagingDirectory)
+            .extraFilesDirectories(ImmutableList.of(extraFilesDirectory))
+            .extraFilesExcludes(ImmutableList.of("logs", "*.tmp"))
+            .build();
+    AppYamlProjectStaging.copyExtraFiles(excludesConfig, new AppYamlProjectStaging.CopyService());
+
+    assertTrue(Files.isRegularFile(stagingDirectory.resolve("keep.txt")));
+    assertFalse(Files.exists(stagingDirectory.resolve("drop.tmp")));
+    assertFalse(Files.exists(stagingDirectory.resolve("logs")));
+  }
+
   @Test
   public void testCopyAppEngineContext_nonExistentAppEngineDirectory() throws IOException {
     appEngineDirectory = temporaryFolder.getRoot().toPath().resolve("non-existent-directory");
@@ -611,6 +651,38 @@ public class AppYamlProjectStagingTest {
         logs.get(0).getMessage());
   }
 
+  @Test
+  public void testCopyArtifactJarClasspath_transitiveInParallel() throws IOException {
+    Path root = temporaryFolder.newFolder("classpath").toPath();
+    Path launcher =
+        JarClassPathResolverTest.writeJar(
+            root, "launcher.jar", "lib/a.jar lib/b.jar copies/b.jar", "launcher");
+    JarClassPathResolverTest.writeJar(root, "lib/a.jar", "nested/c.jar", "a");
+    JarClassPathResolverTest.writeJar(root, "lib/b.jar", null, "b");
+    JarClassPathResolverTest.writeJar(root, "lib/nested/c.jar", null, "c");
+    Files.createDirectories(root.resolve("copies"));
+    Files.copy(root.resolve("lib/b.jar"), root.resolve("copies/b.jar"));
+
+    JarClassPathResolver.Closure closure =
+        AppYamlProjectStaging.copyArtifactJarClasspath(
+            AppYamlProjectStageConfiguration.builder()
+                .appEngineDirectory(appEngineDirectory)
+                .artifact(launcher)
+                .stagingDirectory(stagingDirectory)
+                .build(),
+            new AppYamlProjectStaging.CopyService(4, LinkStrategy.COPY));
+
+    assertEquals(4, closure.getEntries().size());
+    for (String jar : ImmutableList.of("lib/a.jar", "lib/b.jar", "lib/nested/c.jar")) {
+      assertArrayEquals(
+          Files.readAllBytes(root.resolve(jar)), Files.readAllBytes(stagingDirectory.resolve(jar)));
+    }
+    assertArrayEquals(
+        Files.readAllBytes(root.resolve("lib/b.jar")),
+        Files.readAllBytes(stagingDirectory.resolve("copies/b.jar")));
+    assertEquals(0, handler.getLogs().size());
+  }
+
   @Test
   public void testCopyService_copiesToExistingFile() throws IOException {
     AppYamlProjectStaging.CopyService copier = new AppYamlProjectStaging.CopyService();
@@ -656,4 +728,697 @@ public class AppYamlProjectStagingTest {
 
     assertArrayEquals(Files.readAllBytes(srcFile), Files.readAllBytes(destFile));
   }
+
+  @Test
+  public void testCopyService_hardLinkStrategy() throws IOException {
+    AppYamlProjectStaging.CopyService copier =
+        new AppYamlProjectStaging.CopyService(1, LinkStrategy.HARDLINK);
+    Path srcFile = temporaryFolder.newFile("linked.jar").toPath();
+    Path destFile = stagingDirectory.resolve("libs/linked.jar");
+
+    copier.copyFileAndReplace(srcFile, destFile);
+
+    assertTrue(Files.isSameFile(srcFile, destFile));
+  }
+
+  @Test
+  public void testCopyService_contentStore() throws IOException {
+    ContentStore contentStore =
+        new ContentStore(temporaryFolder.getRoot().toPath().resolve("store"));
+    AppYamlProjectStaging.CopyService copier =
+        new AppYamlProjectStaging.CopyService(1, LinkStrategy.COPY, contentStore);
+    Path srcFile = Files.write(temporaryFolder.newFile("shared.jar").toPath(), new byte[] {1, 2});
+    Path otherSrcFile =
+        Files.write(temporaryFolder.newFile("shared-copy.jar").toPath(), new byte[] {1, 2});
+    Path destFile = stagingDirectory.resolve("service-a/shared.jar");
+    Path otherDestFile = stagingDirectory.resolve("service-b/shared.jar");
+
+    copier.copyFileAndReplace(srcFile, destFile);
+    copier.copyFileAndReplace(otherSrcFile, otherDestFile);
+
+    assertTrue(copier.isLinking());
+    assertTrue(Files.isSameFile(destFile, otherDestFile));
+    assertTrue(Files.isSameFile(contentStore.getPath(ContentStore.hash(srcFile)), destFile));
+  }
+
+  @Test
+  public void testCopyService_normalizeJars() throws IOException, AppEngineException {
+    AppYamlProjectStaging.CopyService copier =
+        new AppYamlProjectStaging.CopyService(1, LinkStrategy.HARDLINK);
+    copier.setNormalizeJars(true);
+    Path srcJar =
+        JarClassPathResolverTest.writeJar(
+            temporaryFolder.getRoot().toPath(), "unnormalized.jar", null, "content");
+    byte[] original = Files.readAllBytes(srcJar);
+    Path destJar = stagingDirectory.resolve("libs/unnormalized.jar");
+
+    copier.copyFileAndReplace(srcJar, destJar);
+
+    assertTrue(JarNormalizer.isNormalized(destJar));
+    assertFalse(Files.isSameFile(srcJar, destJar));
+    assertArrayEquals(original, Files.readAllBytes(srcJar));
+
+    // normalized jars are linked as they are
+    Path otherDestJar = stagingDirectory.resolve("libs/normalized.jar");
+    copier.copyFileAndReplace(destJar, otherDestJar);
+    assertTrue(Files.isSameFile(destJar, otherDestJar));
+  }
+
+  @Test
+  public void testNewCopyService_incremental() throws IOException {
+    AppYamlProjectStageConfiguration incrementalConfig =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(artifact)
+            .stagingDirectory(stagingDirectory)
+            .incremental(true)
+            .build();
+
+    assertTrue(
+        AppYamlProjectStaging.newCopyService(incrementalConfig)
+            instanceof AppYamlProjectStaging.IncrementalCopyService);
+    assertFalse(
+        AppYamlProjectStaging.newCopyService(config)
+            instanceof AppYamlProjectStaging.IncrementalCopyService);
+  }
+
+  @Test
+  public void testIncrementalCopyService_skipsUnchangedFiles() throws IOException {
+    Path srcDir = temporaryFolder.newFolder("incremental-src").toPath();
+    Path srcFile = Files.write(srcDir.resolve("file.txt"), "data".getBytes(StandardCharsets.UTF_8));
+    Path stagedFile = stagingDirectory.resolve("file.txt");
+
+    stageIncrementally(srcDir);
+    assertArrayEquals(Files.readAllBytes(srcFile), Files.readAllBytes(stagedFile));
+    assertTrue(Files.exists(StagingManifest.getManifestFile(stagingDirectory)));
+    assertFalse(StagingManifest.getManifestFile(stagingDirectory).startsWith(stagingDirectory));
+    try (Stream<Path> staged = Files.list(stagingDirectory)) {
+      assertEquals(Collections.singletonList(stagedFile), staged.collect(Collectors.toList()));
+    }
+
+    // tamper with the staged copy, an unchanged source must not be copied again
+    Files.write(stagedFile, "XXXX".getBytes(StandardCharsets.UTF_8));
+    stageIncrementally(srcDir);
+    assertEquals("XXXX", new String(Files.readAllBytes(stagedFile), StandardCharsets.UTF_8));
+
+    // a touched source with the same content is detected by its hash
+    Files.setLastModifiedTime(
+        srcFile, FileTime.fromMillis(Files.getLastModifiedTime(srcFile).toMillis() + 10_000));
+    stageIncrementally(srcDir);
+    assertEquals("XXXX", new String(Files.readAllBytes(stagedFile), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testIncrementalCopyService_keepsNormalizedJars() throws IOException {
+    Path srcJar =
+        JarClassPathResolverTest.writeJar(
+            temporaryFolder.getRoot().toPath(), "unnormalized.jar", null, "content");
+    Path stagedJar = stagingDirectory.resolve("libs/unnormalized.jar");
+    stageNormalizedJar(new AppYamlProjectStaging.IncrementalCopyService(stagingDirectory), srcJar);
+    assertTrue(JarNormalizer.isNormalized(stagedJar));
+
+    // the normalized jar is not written again for an unchanged source
+    FileTime marker = FileTime.fromMillis(1_000_000_000L);
+    Files.setLastModifiedTime(stagedJar, marker);
+    stageNormalizedJar(new AppYamlProjectStaging.IncrementalCopyService(stagingDirectory), srcJar);
+    assertEquals(marker, Files.getLastModifiedTime(stagedJar));
+
+    // a staged jar that no longer matches its recorded hash is normalized again
+    Files.write(stagedJar, "XXXX".getBytes(StandardCharsets.UTF_8));
+    stageNormalizedJar(new AppYamlProjectStaging.IncrementalCopyService(stagingDirectory), srcJar);
+    assertTrue(JarNormalizer.isNormalized(stagedJar));
+  }
+
+  @Test
+  public void testSyncCopyService_keepsNormalizedJars() throws IOException {
+    Path srcJar =
+        JarClassPathResolverTest.writeJar(
+            temporaryFolder.getRoot().toPath(), "unnormalized.jar", null, "content");
+    Path stagedJar = stagingDirectory.resolve("libs/unnormalized.jar");
+    stageNormalizedJar(newSyncCopyService(), srcJar);
+    assertTrue(JarNormalizer.isNormalized(stagedJar));
+    assertTrue(
+        Files.exists(
+            StagingDirectories.sibling(
+                stagingDirectory, AppYamlProjectStaging.SyncCopyService.NORMALIZED_JARS_SUFFIX)));
+
+    FileTime marker = FileTime.fromMillis(1_000_000_000L);
+    Files.setLastModifiedTime(stagedJar, marker);
+    stageNormalizedJar(newSyncCopyService(), srcJar);
+    assertEquals(marker, Files.getLastModifiedTime(stagedJar));
+
+    Files.write(stagedJar, "XXXX".getBytes(StandardCharsets.UTF_8));
+    stageNormalizedJar(newSyncCopyService(), srcJar);
+    assertTrue(JarNormalizer.isNormalized(stagedJar));
+  }
+
+  private AppYamlProjectStaging.SyncCopyService newSyncCopyService() throws IOException {
+    return new AppYamlProjectStaging.SyncCopyService(stagingDirectory, 1, LinkStrategy.COPY, null);
+  }
+
+  private void stageNormalizedJar(AppYamlProjectStaging.CopyService copyService, Path srcJar)
+      throws IOException {
+    copyService.setNormalizeJars(true);
+    copyService.copyFileAndReplace(srcJar, stagingDirectory.resolve("libs/unnormalized.jar"));
+    copyService.finish();
+  }
+
+  @Test
+  public void testIncrementalCopyService_deletesLegacyManifest() throws IOException {
+    Path srcDir = temporaryFolder.newFolder("incremental-src").toPath();
+    Files.write(srcDir.resolve("file.txt"), "data".getBytes(StandardCharsets.UTF_8));
+    Path legacyManifest = stagingDirectory.resolve(StagingManifest.LEGACY_FILE_NAME);
+    Files.write(legacyManifest, "{}".getBytes(StandardCharsets.UTF_8));
+
+    stageIncrementally(srcDir);
+
+    assertFalse(Files.exists(legacyManifest));
+  }
+
+  @Test
+  public void testIncrementalCopyService_copiesChangedFiles() throws IOException {
+    Path srcDir = temporaryFolder.newFolder("incremental-src").toPath();
+    Path srcFile = Files.write(srcDir.resolve("file.txt"), "data".getBytes(StandardCharsets.UTF_8));
+    Path stagedFile = stagingDirectory.resolve("file.txt");
+
+    stageIncrementally(srcDir);
+    Files.write(srcFile, "new data".getBytes(StandardCharsets.UTF_8));
+    stageIncrementally(srcDir);
+
+    assertEquals("new data", new String(Files.readAllBytes(stagedFile), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testIncrementalCopyService_removesFilesNoLongerStaged() throws IOException {
+    Path srcDir = temporaryFolder.newFolder("incremental-src").toPath();
+    Path subDir = Files.createDirectory(srcDir.resolve("sub"));
+    Path srcFile = Files.write(subDir.resolve("file.txt"), "data".getBytes(StandardCharsets.UTF_8));
+    Path unmanagedFile = Files.createFile(stagingDirectory.resolve("unmanaged.txt"));
+
+    stageIncrementally(srcDir);
+    assertTrue(Files.exists(stagingDirectory.resolve("sub/file.txt")));
+
+    Files.delete(srcFile);
+    stageIncrementally(srcDir);
+
+    assertFalse(Files.exists(stagingDirectory.resolve("sub/file.txt")));
+    assertTrue(Files.isDirectory(stagingDirectory.resolve("sub")));
+    assertTrue(Files.exists(unmanagedFile));
+  }
+
+  @Test
+  public void testPlanStaging_writesNothing() throws IOException, AppEngineException {
+    Path root = temporaryFolder.newFolder("planned").toPath();
+    Path launcher = JarClassPathResolverTest.writeJar(root, "launcher.jar", "lib/a.jar", "main");
+    JarClassPathResolverTest.writeJar(root, "lib/a.jar", null, "a");
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(
+        extraFilesDirectories.get(0).resolve("extra.txt"),
+        "extra".getBytes(StandardCharsets.UTF_8));
+    Path missingStagingDirectory = temporaryFolder.getRoot().toPath().resolve("not-yet-staged");
+    config =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(launcher)
+            .stagingDirectory(missingStagingDirectory)
+            .extraFilesDirectories(extraFilesDirectories)
+            .build();
+
+    StagingPlan plan = new AppYamlProjectStaging().planStaging(config);
+
+    assertFalse(Files.exists(missingStagingDirectory));
+    assertEquals(4, plan.getFileCount());
+    StagingPlan.Entry extra = plan.getEntries().get(0);
+    assertEquals(Paths.get("extra.txt"), extra.getDestination());
+    assertEquals(StagingPhase.EXTRA_FILES, extra.getPhase());
+    assertEquals(5, extra.getSize());
+    assertEquals(StagingPhase.APP_ENGINE_CONTEXT, plan.getEntries().get(1).getPhase());
+    assertEquals(Paths.get("launcher.jar"), plan.getEntries().get(2).getDestination());
+    assertEquals(StagingPhase.ARTIFACT, plan.getEntries().get(2).getPhase());
+    assertEquals(Paths.get("lib/a.jar"), plan.getEntries().get(3).getDestination());
+    assertEquals(1, plan.getFileCount(StagingPhase.CLASS_PATH));
+    assertEquals(
+        Files.size(root.resolve("lib/a.jar")), plan.getTotalBytes(StagingPhase.CLASS_PATH));
+    assertEquals(
+        plan.getEntries().stream().mapToLong(StagingPlan.Entry::getSize).sum(),
+        plan.getTotalBytes());
+  }
+
+  @Test
+  public void testExecutePlan() throws IOException, AppEngineException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "env: flex\nruntime: custom\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(artifact, "artifact".getBytes(StandardCharsets.UTF_8));
+    Files.createDirectories(extraFilesDirectories.get(1).resolve("sub"));
+    Files.write(
+        extraFilesDirectories.get(1).resolve("sub/extra.txt"),
+        "extra".getBytes(StandardCharsets.UTF_8));
+    AppYamlProjectStaging staging = new AppYamlProjectStaging();
+
+    StagingPlan plan = staging.planStaging(config);
+    assertFalse(Files.exists(stagingDirectory.resolve("app.yaml")));
+    StagingResult result = staging.executePlan(plan, config);
+
+    assertEquals(plan.getFileCount(), result.getFileCount());
+    assertEquals(plan.getTotalBytes(), result.getTotalBytes());
+    StagingResult.PhaseResult extraFiles = result.getPhase(StagingPhase.EXTRA_FILES);
+    assertNotNull(extraFiles);
+    assertEquals(plan.getFileCount(StagingPhase.EXTRA_FILES), extraFiles.getFileCount());
+    assertNull(result.getPhase(StagingPhase.CLASS_PATH));
+    assertTrue(result.toJson().contains("\"EXTRA_FILES\""));
+    for (StagingPlan.Entry entry : plan.getEntries()) {
+      assertArrayEquals(
+          Files.readAllBytes(entry.getSource()),
+          Files.readAllBytes(stagingDirectory.resolve(entry.getDestination())));
+    }
+    assertEquals(StagingPhase.DOCKER_CONTEXT, plan.getEntries().get(0).getPhase());
+    assertTrue(Files.exists(stagingDirectory.resolve("sub/extra.txt")));
+    assertTrue(Files.exists(stagingDirectory.resolve("app.yaml")));
+    assertTrue(Files.exists(stagingDirectory.resolve("artifact.jar")));
+  }
+
+  @Test
+  public void testStageArchive_cache() throws IOException, AppEngineException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\n".getBytes(StandardCharsets.UTF_8));
+    Path root = temporaryFolder.newFolder("app").toPath();
+    Path artifact = JarClassPathResolverTest.writeJar(root, "artifact.jar", null, "main");
+    Path cacheDirectory = temporaryFolder.newFolder("cache").toPath();
+    Path otherStagingDirectory = temporaryFolder.newFolder("other").toPath();
+    AppYamlProjectStageConfiguration.Builder builder =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(artifact)
+            .cacheDirectory(cacheDirectory);
+    AppYamlProjectStaging staging = new AppYamlProjectStaging();
+
+    staging.stageArchive(builder.stagingDirectory(stagingDirectory).build());
+    assertEquals(0, handler.getLogs().size());
+    StagingResult result =
+        staging.stageArchive(builder.stagingDirectory(otherStagingDirectory).build());
+
+    assertEquals(
+        "Restored staging result from the staging cache", handler.getLogs().get(0).getMessage());
+    assertEquals(2, result.getFileCount());
+    assertArrayEquals(
+        Files.readAllBytes(artifact),
+        Files.readAllBytes(otherStagingDirectory.resolve("artifact.jar")));
+    assertTrue(Files.exists(otherStagingDirectory.resolve("app.yaml")));
+
+    // a changed artifact is staged again
+    JarClassPathResolverTest.writeJar(root, "artifact.jar", null, "changed");
+    staging.stageArchive(builder.stagingDirectory(otherStagingDirectory).build());
+
+    assertEquals(1, handler.getLogs().size());
+    assertArrayEquals(
+        Files.readAllBytes(artifact),
+        Files.readAllBytes(otherStagingDirectory.resolve("artifact.jar")));
+  }
+
+  @Test
+  public void testStageArchive_cachePostProcessed() throws IOException, AppEngineException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\ninstance_class: F2\n".getBytes(StandardCharsets.UTF_8));
+    Path artifact =
+        JarClassPathResolverTest.writeJar(
+            temporaryFolder.newFolder("app").toPath(), "artifact.jar", null, "main");
+    Path otherStagingDirectory = temporaryFolder.newFolder("other").toPath();
+    Files.write(stagingDirectory.resolve("stale.txt"), "stale".getBytes(StandardCharsets.UTF_8));
+    AppYamlProjectStageConfiguration.Builder builder =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(artifact)
+            .tuneJvm(true)
+            .cacheDirectory(temporaryFolder.newFolder("cache").toPath());
+    AppYamlProjectStaging staging = new AppYamlProjectStaging();
+
+    staging.stageArchive(builder.stagingDirectory(stagingDirectory).build());
+    staging.stageArchive(builder.stagingDirectory(otherStagingDirectory).build());
+
+    assertEquals(
+        "Restored staging result from the staging cache",
+        handler.getLogs().get(handler.getLogs().size() - 1).getMessage());
+    // the restored app.yaml is the post processed one, and files not staged are not cached
+    assertEquals(
+        Files.readAllLines(stagingDirectory.resolve("app.yaml"), StandardCharsets.UTF_8),
+        Files.readAllLines(otherStagingDirectory.resolve("app.yaml"), StandardCharsets.UTF_8));
+    assertTrue(
+        Files.readAllLines(otherStagingDirectory.resolve("app.yaml"), StandardCharsets.UTF_8)
+            .get(2)
+            .startsWith("entrypoint: "));
+    assertFalse(Files.exists(otherStagingDirectory.resolve("stale.txt")));
+  }
+
+  @Test
+  public void testStageArchive_splitFatJar() throws IOException, AppEngineException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\n".getBytes(StandardCharsets.UTF_8));
+    Path fatJar = writeFatJar(temporaryFolder.newFolder("fat").toPath(), "Root.class");
+    AppYamlProjectStageConfiguration splitConfig =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(fatJar)
+            .stagingDirectory(stagingDirectory)
+            .splitFatJar(true)
+            .build();
+
+    StagingResult result = new AppYamlProjectStaging().stageArchive(splitConfig);
+
+    assertTrue(Files.exists(stagingDirectory.resolve("app.jar")));
+    assertTrue(Files.exists(stagingDirectory.resolve("lib/com.google.common.jar")));
+    assertEquals(3, result.getFileCount());
+    assertTrue(Files.exists(fatJar));
+  }
+
+  @Test
+  public void testPlanStaging_splitFatJar() throws IOException, AppEngineException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\n".getBytes(StandardCharsets.UTF_8));
+    Path fatJar = writeFatJar(temporaryFolder.newFolder("fat").toPath(), "Root.class");
+    AppYamlProjectStageConfiguration splitConfig =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(fatJar)
+            .stagingDirectory(stagingDirectory)
+            .splitFatJar(true)
+            .build();
+    AppYamlProjectStaging staging = new AppYamlProjectStaging();
+
+    StagingPlan plan = staging.planStaging(splitConfig);
+    try (Stream<Path> planned = Files.list(stagingDirectory)) {
+      assertEquals(0, planned.count());
+    }
+    // planning does not split the jar either
+    assertFalse(Files.exists(StagingDirectories.sibling(stagingDirectory, ".appengine-split")));
+    StagingResult result = staging.stageArchive(splitConfig);
+
+    Set<Path> staged;
+    try (Stream<Path> files = Files.walk(stagingDirectory)) {
+      staged =
+          files
+              .filter(Files::isRegularFile)
+              .map(stagingDirectory::relativize)
+              .collect(Collectors.toSet());
+    }
+    assertEquals(
+        staged,
+        plan.getEntries().stream()
+            .map(StagingPlan.Entry::getDestination)
+            .collect(Collectors.toSet()));
+    assertTrue(staged.contains(Paths.get("lib/com.google.common.jar")));
+    assertEquals(plan.getFileCount(), result.getFileCount());
+    assertEquals(plan.getTotalBytes(), result.getTotalBytes());
+    assertEquals(
+        Files.size(stagingDirectory.resolve("app.jar")),
+        plan.getEntries().stream()
+            .filter(entry -> entry.getDestination().equals(Paths.get("app.jar")))
+            .findFirst()
+            .get()
+            .getSize());
+  }
+
+  @Test
+  public void testExecutePlan_splitFatJar() throws IOException, AppEngineException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\n".getBytes(StandardCharsets.UTF_8));
+    Path fatJar = writeFatJar(temporaryFolder.newFolder("fat").toPath(), "Root.class");
+    AppYamlProjectStageConfiguration splitConfig =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(fatJar)
+            .stagingDirectory(stagingDirectory)
+            .splitFatJar(true)
+            .build();
+    AppYamlProjectStaging staging = new AppYamlProjectStaging();
+
+    StagingPlan plan = staging.planStaging(splitConfig);
+    StagingResult result = staging.executePlan(plan, splitConfig);
+
+    assertTrue(Files.isRegularFile(stagingDirectory.resolve("lib/com.google.common.jar")));
+    assertEquals(plan.getTotalBytes(), result.getTotalBytes());
+    // once split, the jar is planned from its parts
+    StagingPlan splitPlan = staging.planStaging(splitConfig);
+    assertEquals(plan.getTotalBytes(), splitPlan.getTotalBytes());
+    assertEquals(
+        plan.getEntries().stream().map(StagingPlan.Entry::getSource).collect(Collectors.toList()),
+        splitPlan.getEntries().stream()
+            .map(StagingPlan.Entry::getSource)
+            .collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testStageArchive_splitFatJarIncremental() throws IOException, AppEngineException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\n".getBytes(StandardCharsets.UTF_8));
+    Path root = temporaryFolder.newFolder("fat").toPath();
+    Path fatJar = writeFatJar(root, "Root.class");
+    AppYamlProjectStageConfiguration splitConfig =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(fatJar)
+            .stagingDirectory(stagingDirectory)
+            .splitFatJar(true)
+            .incremental(true)
+            .build();
+    AppYamlProjectStaging staging = new AppYamlProjectStaging();
+
+    staging.stageArchive(splitConfig);
+    Path stagedLib = stagingDirectory.resolve("lib/com.google.common.jar");
+    Files.setLastModifiedTime(stagedLib, FileTime.fromMillis(1000));
+    staging.stageArchive(splitConfig);
+
+    // the same fat jar splits into the same files, which are not staged again
+    assertEquals(FileTime.fromMillis(1000), Files.getLastModifiedTime(stagedLib));
+
+    writeFatJar(root, "Other.class");
+    staging.stageArchive(splitConfig);
+
+    assertNotEquals(FileTime.fromMillis(1000), Files.getLastModifiedTime(stagedLib));
+    Path splitRoot = StagingDirectories.sibling(stagingDirectory, ".appengine-split");
+    try (Stream<Path> splits = Files.list(splitRoot)) {
+      assertEquals(1, splits.count());
+    }
+  }
+
+  @Test
+  public void testStageArchive_appCds() throws IOException, AppEngineException {
+    String javaVersion = System.getProperty("java.specification.version");
+    Assume.assumeTrue(ImmutableList.of("17", "21", "25").contains(javaVersion));
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        ("runtime: java" + javaVersion + "\n").getBytes(StandardCharsets.UTF_8));
+    Path jar =
+        AppCdsArchiverTest.writeApplicationJar(temporaryFolder.newFolder().toPath(), "app.jar");
+    AppYamlProjectStageConfiguration appCdsConfig =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(jar)
+            .stagingDirectory(stagingDirectory)
+            .appCds(true)
+            .appCdsTrainingArgs(ImmutableList.of("training"))
+            .build();
+
+    new AppYamlProjectStaging().stageArchive(appCdsConfig);
+
+    assertTrue(Files.size(stagingDirectory.resolve("app.jsa")) > 0);
+    assertEquals(
+        ImmutableList.of(
+            "runtime: java" + javaVersion,
+            "entrypoint: \"java -XX:SharedArchiveFile=app.jsa -jar app.jar\""),
+        Files.readAllLines(stagingDirectory.resolve("app.yaml"), StandardCharsets.UTF_8));
+    assertEquals(
+        ImmutableList.of("runtime: java" + javaVersion),
+        Files.readAllLines(appEngineDirectory.resolve("app.yaml"), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testStageArchive_tuneJvm() throws IOException, AppEngineException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\ninstance_class: F4\n".getBytes(StandardCharsets.UTF_8));
+    Path jar =
+        JarClassPathResolverTest.writeJar(temporaryFolder.getRoot().toPath(), "app.jar", null, "");
+    AppYamlProjectStageConfiguration tuneConfig =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(jar)
+            .stagingDirectory(stagingDirectory)
+            .tuneJvm(true)
+            .jvmFlags(ImmutableList.of("-XX:+UseParallelGC", "-Dfile.encoding=UTF-8"))
+            .build();
+
+    new AppYamlProjectStaging().stageArchive(tuneConfig);
+
+    assertEquals(
+        ImmutableList.of(
+            "runtime: java17",
+            "instance_class: F4",
+            "entrypoint: \"java -Xmx1152m -XX:+UseParallelGC -XX:+ExitOnOutOfMemoryError"
+                + " -Dfile.encoding=UTF-8 -jar app.jar\""),
+        Files.readAllLines(stagingDirectory.resolve("app.yaml"), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testStageArchive_tuneJvmWithEntrypoint() throws IOException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\nentrypoint: java -jar artifact.jar\n".getBytes(StandardCharsets.UTF_8));
+    AppYamlProjectStageConfiguration tuneConfig = config.toBuilder().tuneJvm(true).build();
+
+    try {
+      new AppYamlProjectStaging().stageArchive(tuneConfig);
+      fail();
+    } catch (AppEngineException ex) {
+      assertEquals(
+          "Cannot tune the JVM of an app.yaml with an entrypoint. Remove the entrypoint and pass any"
+              + " JVM flags of your own as jvmFlags instead.",
+          ex.getMessage());
+    }
+    assertFalse(Files.exists(stagingDirectory.resolve("app.yaml")));
+  }
+
+  @Test
+  public void testStageArchive_appCdsJavaVersionMismatch() throws IOException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\n".getBytes(StandardCharsets.UTF_8));
+    Path javaHome = temporaryFolder.newFolder("jdk").toPath();
+    Files.write(
+        javaHome.resolve("release"), "JAVA_VERSION=\"21.0.1\"\n".getBytes(StandardCharsets.UTF_8));
+    AppYamlProjectStageConfiguration appCdsConfig =
+        config.toBuilder().appCds(true).appCdsJavaHome(javaHome).build();
+
+    try {
+      new AppYamlProjectStaging().stageArchive(appCdsConfig);
+      fail();
+    } catch (AppEngineException ex) {
+      assertEquals(
+          "An AppCDS archive for runtime java17 must be created with a Java 17 JDK, found Java 21"
+              + " at "
+              + javaHome,
+          ex.getMessage());
+    }
+    assertFalse(Files.exists(stagingDirectory.resolve("app.yaml")));
+  }
+
+  @Test
+  public void testStageArchive_zipFileSystem() throws IOException, AppEngineException {
+    Path root = temporaryFolder.newFolder("zipped").toPath();
+    Path launcher = JarClassPathResolverTest.writeJar(root, "launcher.jar", "lib/a.jar", "main");
+    JarClassPathResolverTest.writeJar(root, "lib/a.jar", null, "a");
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(
+        extraFilesDirectories.get(0).resolve("extra.txt"),
+        "extra".getBytes(StandardCharsets.UTF_8));
+    URI zip = URI.create("jar:" + temporaryFolder.getRoot().toPath().resolve("app.zip").toUri());
+
+    try (FileSystem zipFileSystem =
+        FileSystems.newFileSystem(zip, ImmutableMap.of("create", "true"))) {
+      new AppYamlProjectStaging()
+          .stageArchive(
+              AppYamlProjectStageConfiguration.builder()
+                  .appEngineDirectory(appEngineDirectory)
+                  .artifact(launcher)
+                  .stagingDirectory(zipFileSystem.getPath("/"))
+                  .extraFilesDirectories(extraFilesDirectories)
+                  .linkStrategy(LinkStrategy.HARDLINK)
+                  .build());
+    }
+
+    try (FileSystem zipFileSystem = FileSystems.newFileSystem(zip, ImmutableMap.of())) {
+      assertArrayEquals(
+          Files.readAllBytes(launcher), Files.readAllBytes(zipFileSystem.getPath("/launcher.jar")));
+      assertArrayEquals(
+          Files.readAllBytes(root.resolve("lib/a.jar")),
+          Files.readAllBytes(zipFileSystem.getPath("/lib/a.jar")));
+      assertTrue(Files.exists(zipFileSystem.getPath("/app.yaml")));
+      assertTrue(Files.exists(zipFileSystem.getPath("/extra.txt")));
+    }
+  }
+
+  @Test
+  public void testStageArchive_sync() throws IOException, AppEngineException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java17\n".getBytes(StandardCharsets.UTF_8));
+    Path jar =
+        JarClassPathResolverTest.writeJar(
+            temporaryFolder.newFolder("synced").toPath(), "app.jar", null, "app");
+    Path extraFile =
+        Files.write(
+            extraFilesDirectories.get(0).resolve("extra.txt"),
+            "extra".getBytes(StandardCharsets.UTF_8));
+    Path unmanagedFile = Files.createFile(stagingDirectory.resolve("unmanaged.txt"));
+    config =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(jar)
+            .stagingDirectory(stagingDirectory)
+            .extraFilesDirectories(extraFilesDirectories)
+            .sync(true)
+            .build();
+    AppYamlProjectStaging staging = new AppYamlProjectStaging();
+
+    staging.stageArchive(config);
+    Path stagedArtifact = stagingDirectory.resolve("app.jar");
+    Files.setLastModifiedTime(stagedArtifact, FileTime.fromMillis(1000));
+    Files.delete(extraFile);
+    staging.stageArchive(config);
+
+    assertFalse(Files.exists(unmanagedFile));
+    assertFalse(Files.exists(stagingDirectory.resolve("extra.txt")));
+    assertTrue(Files.exists(stagingDirectory.resolve("app.yaml")));
+    // unchanged content is not rewritten
+    assertEquals(FileTime.fromMillis(1000), Files.getLastModifiedTime(stagedArtifact));
+  }
+
+  private static Path writeFatJar(Path directory, String applicationClass) throws IOException {
+    Path fatJar = directory.resolve("app.jar");
+    try (JarOutputStream jarOut = new JarOutputStream(Files.newOutputStream(fatJar))) {
+      for (String name :
+          ImmutableList.of(
+              applicationClass,
+              "com/google/common/base/Strings.class",
+              "META-INF/maven/com.example/app/pom.properties",
+              "META-INF/maven/com.google.guava/guava/pom.properties")) {
+        jarOut.putNextEntry(new ZipEntry(name));
+        jarOut.closeEntry();
+      }
+    }
+    return fatJar;
+  }
+
+  @Test
+  public void testNewCopyService_sync() throws IOException {
+    config =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(artifact)
+            .stagingDirectory(stagingDirectory)
+            .incremental(true)
+            .sync(true)
+            .build();
+
+    assertTrue(
+        AppYamlProjectStaging.newCopyService(config)
+            instanceof AppYamlProjectStaging.SyncCopyService);
+  }
+
+  private void stageIncrementally(Path srcDir) throws IOException {
+    AppYamlProjectStaging.CopyService copier =
+        new AppYamlProjectStaging.IncrementalCopyService(stagingDirectory);
+    copier.copyDirectory(srcDir, stagingDirectory);
+    copier.finish();
+  }
 }
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.configuration.ColdStartProbeConfiguration;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link ColdStartProbe}. */
+public class ColdStartProbeTest {
+
+  /** An application that answers on {@code /ready} until it is stopped. */
+  private static final ImmutableList<String> SERVER =
+      ImmutableList.of(
+          "import com.sun.net.httpserver.HttpServer;",
+          "import java.net.InetSocketAddress;",
+          "public class Hello {",
+          "  public static void main(String[] args) throws Exception {",
+          "    int port = Integer.parseInt(System.getenv(\"PORT\"));",
+          "    HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);",
+          "    server.createContext(\"/ready\", exchange -> {",
+          "      exchange.sendResponseHeaders(System.getenv(\"GREETING\").length(), -1);",
+          "      exchange.close();",
+          "    });",
+          "    server.start();",
+          "  }",
+          "}");
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  private Path stagingDirectory;
+  private Path javaHome;
+
+  @Before
+  public void setUp() throws IOException {
+    stagingDirectory = testDir.newFolder("staging").toPath();
+    javaHome = Paths.get(System.getProperty("java.home"));
+  }
+
+  @Test
+  public void testCommand_defaultEntrypoint() throws IOException, AppEngineException {
+    Files.createFile(stagingDirectory.resolve("app.jar"));
+    Files.createDirectories(stagingDirectory.resolve("lib"));
+    Files.createFile(stagingDirectory.resolve("lib/dependency.jar"));
+
+    Assert.assertEquals(
+        ImmutableList.of(Processes.java(javaHome).toString(), "-jar", "app.jar"),
+        ColdStartProbe.command(null, stagingDirectory, javaHome));
+  }
+
+  @Test
+  public void testCommand_noJar() throws IOException {
+    try {
+      ColdStartProbe.command(null, stagingDirectory, javaHome);
+      Assert.fail();
+    } catch (AppEngineException ex) {
+      Assert.assertEquals(
+          "Cannot tell which jar of "
+              + stagingDirectory
+              + " to run, found 0. Define an entrypoint in app.yaml.",
+          ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testCommand_javaEntrypoint() throws IOException, AppEngineException {
+    Assert.assertEquals(
+        ImmutableList.of(Processes.java(javaHome).toString(), "-Xmx256m", "-jar", "app.jar"),
+        ColdStartProbe.command("java  -Xmx256m -jar app.jar", stagingDirectory, javaHome));
+  }
+
+  @Test
+  public void testCommand_scriptEntrypoint() throws IOException, AppEngineException {
+    Assert.assertEquals(
+        Processes.isWindows()
+            ? ImmutableList.of("cmd", "/c", "./start.sh && echo done")
+            : ImmutableList.of("/bin/sh", "-c", "./start.sh && echo done"),
+        ColdStartProbe.command("./start.sh && echo done", stagingDirectory, javaHome));
+  }
+
+  @Test
+  public void testCommand_singleScriptEntrypoint() throws IOException, AppEngineException {
+    Assert.assertEquals(
+        Processes.isWindows()
+            ? ImmutableList.of("cmd", "/c", "./start.sh --verbose")
+            : ImmutableList.of("/bin/sh", "-c", "exec ./start.sh --verbose"),
+        ColdStartProbe.command("./start.sh --verbose", stagingDirectory, javaHome));
+  }
+
+  @Test
+  public void testParseJvmLog() {
+    ColdStartReport.Run run =
+        ColdStartProbe.parseJvmLog(
+            ImmutableList.of(
+                "[0.013s][startuptime] Genesis, 0.0097788 secs",
+                "[0.014s][class,load ] java.lang.Object source: shared objects file",
+                "[0.071s][startuptime] Create VM, 0.0701302 secs",
+                "[0.250s][class,load ] Hello source: file:/workspace/app.jar",
+                "not a log line"),
+            Duration.ofMillis(300));
+
+    Assert.assertEquals(Duration.ofMillis(300), run.getFirstResponse());
+    Assert.assertEquals(Duration.ofNanos(70130200), run.getJvmStart());
+    Assert.assertEquals(Duration.ofMillis(250), run.getLastClassLoad());
+    Assert.assertEquals(2, run.getLoadedClasses());
+    Assert.assertEquals(1, run.getSharedClasses());
+  }
+
+  @Test
+  public void testParseJvmLog_notAJvm() {
+    ColdStartReport.Run run = ColdStartProbe.parseJvmLog(ImmutableList.of(), Duration.ofMillis(5));
+
+    Assert.assertNull(run.getJvmStart());
+    Assert.assertNull(run.getLastClassLoad());
+    Assert.assertEquals(0, run.getLoadedClasses());
+  }
+
+  @Test
+  public void testProbe() throws IOException, AppEngineException {
+    AppCdsArchiverTest.writeApplicationJar(stagingDirectory, "app.jar", SERVER);
+    Files.write(
+        stagingDirectory.resolve("app.yaml"),
+        ImmutableList.of("runtime: java17", "env_variables:", "  GREETING: hello world"),
+        UTF_8);
+
+    ColdStartReport report =
+        new ColdStartProbe()
+            .probe(
+                ColdStartProbeConfiguration.builder()
+                    .stagingDirectory(stagingDirectory)
+                    .runs(2)
+                    .path("/ready")
+                    .build());
+
+    Assert.assertEquals(2, report.getRuns().size());
+    for (ColdStartReport.Run run : report.getRuns()) {
+      Assert.assertNotNull(run.getJvmStart());
+      Assert.assertTrue(run.getLoadedClasses() > 0);
+      Assert.assertTrue(run.getFirstResponse().compareTo(Duration.ZERO) > 0);
+    }
+    Path reportFile =
+        testDir.getRoot().toPath().resolve("build").resolve(ColdStartReport.FILE_NAME);
+    report.writeJson(reportFile);
+    JsonObject json =
+        new JsonParser().parse(new String(Files.readAllBytes(reportFile), UTF_8)).getAsJsonObject();
+    Assert.assertEquals(2, json.getAsJsonArray("runs").size());
+    Assert.assertEquals(
+        report.getMedianFirstResponse().toMillis(),
+        json.get("medianFirstResponseMillis").getAsLong());
+  }
+
+  @Test
+  public void testProbe_shellEntrypoint() throws IOException, AppEngineException {
+    Assume.assumeFalse(Processes.isWindows());
+    AppCdsArchiverTest.writeApplicationJar(stagingDirectory, "app.jar", SERVER);
+    Files.write(
+        stagingDirectory.resolve("app.yaml"),
+        ImmutableList.of("runtime: java17", "entrypoint: env GREETING=hello java -jar app.jar"),
+        UTF_8);
+
+    // each run stops the application started through the shell before the next one starts
+    ColdStartReport report =
+        new ColdStartProbe()
+            .probe(
+                ColdStartProbeConfiguration.builder()
+                    .stagingDirectory(stagingDirectory)
+                    .runs(2)
+                    .path("/ready")
+                    .build());
+
+    Assert.assertEquals(2, report.getRuns().size());
+  }
+
+  @Test
+  public void testProbe_exitsBeforeResponding() throws IOException {
+    AppCdsArchiverTest.writeApplicationJar(stagingDirectory, "app.jar");
+    Files.write(stagingDirectory.resolve("app.yaml"), ImmutableList.of("runtime: java17"), UTF_8);
+
+    try {
+      new ColdStartProbe()
+          .probe(ColdStartProbeConfiguration.builder().stagingDirectory(stagingDirectory).build());
+      Assert.fail();
+    } catch (AppEngineException ex) {
+      Assert.assertTrue(
+          ex.getMessage(),
+          String.valueOf(ex.getMessage()).startsWith("The application exited with code 0"));
+    }
+  }
+
+  @Test
+  public void testProbe_portInUse() throws IOException {
+    Files.write(
+        stagingDirectory.resolve("app.yaml"),
+        ImmutableList.of("runtime: java17", "entrypoint: java -jar app.jar"),
+        UTF_8);
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.start();
+    try {
+      new ColdStartProbe()
+          .probe(
+              ColdStartProbeConfiguration.builder()
+                  .stagingDirectory(stagingDirectory)
+                  .port(server.getAddress().getPort())
+                  .build());
+      Assert.fail();
+    } catch (AppEngineException ex) {
+      Assert.assertTrue(
+          ex.getMessage(),
+          String.valueOf(ex.getMessage()).startsWith("Something already responds"));
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testProbe_notStaged() {
+    try {
+      new ColdStartProbe()
+          .probe(ColdStartProbeConfiguration.builder().stagingDirectory(stagingDirectory).build());
+      Assert.fail();
+    } catch (AppEngineException ex) {
+      Assert.assertEquals(
+          "app.yaml not found in " + stagingDirectory + ", stage the application first.",
+          ex.getMessage());
+    }
+  }
+}
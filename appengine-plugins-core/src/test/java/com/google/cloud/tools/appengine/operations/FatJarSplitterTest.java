@@ -0,0 +1,302 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import javax.annotation.Nullable;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link FatJarSplitter}. */
+public class FatJarSplitterTest {
+
+  private static final String APP_POM = "META-INF/maven/com.example/app/pom.properties";
+  private static final String GUAVA_POM = "META-INF/maven/com.google.guava/guava/pom.properties";
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  private Path output;
+
+  @Before
+  public void setUp() throws IOException {
+    output = testDir.newFolder("output").toPath();
+  }
+
+  @Test
+  public void testSplit_shaded() throws IOException {
+    Path fatJar =
+        writeJar(
+            "app.jar",
+            ImmutableMap.of("Main-Class", "com.example.app.Main"),
+            ImmutableMap.<String, Object>builder()
+                .put("com/example/app/Main.class", "main")
+                .put("com/google/common/base/Strings.class", "strings")
+                .put("com/google/common/collect/Lists.class", "lists")
+                .put("io/grpc/Context.class", "context")
+                .put("static/site.css", "css")
+                .put("META-INF/services/io.grpc.Provider", "provider")
+                .put(APP_POM, "app")
+                .put(GUAVA_POM, "guava")
+                .build());
+
+    Path thinJar = output.resolve("app.jar");
+    Assert.assertEquals(thinJar, FatJarSplitter.split(fatJar, output));
+
+    try (JarFile jar = new JarFile(thinJar.toFile())) {
+      Attributes attributes = jar.getManifest().getMainAttributes();
+      Assert.assertEquals("com.example.app.Main", attributes.getValue("Main-Class"));
+      Assert.assertEquals(
+          "lib/com.google.common.jar lib/io.grpc.jar", attributes.getValue("Class-Path"));
+      Assert.assertEquals(
+          ImmutableList.of(
+              "META-INF/",
+              "META-INF/MANIFEST.MF",
+              "META-INF/maven/",
+              "META-INF/maven/com.example/",
+              "META-INF/maven/com.example/app/",
+              APP_POM,
+              "META-INF/maven/com.google.guava/",
+              "META-INF/maven/com.google.guava/guava/",
+              GUAVA_POM,
+              "META-INF/services/",
+              "META-INF/services/io.grpc.Provider",
+              "com/",
+              "com/example/",
+              "com/example/app/",
+              "com/example/app/Main.class",
+              "static/",
+              "static/site.css"),
+          names(jar));
+    }
+    try (JarFile jar = new JarFile(output.resolve("lib/com.google.common.jar").toFile())) {
+      Assert.assertEquals(
+          ImmutableList.of(
+              "com/",
+              "com/google/",
+              "com/google/common/",
+              "com/google/common/base/",
+              "com/google/common/base/Strings.class",
+              "com/google/common/collect/",
+              "com/google/common/collect/Lists.class"),
+          names(jar));
+    }
+  }
+
+  @Test
+  public void testSplit_nested() throws IOException {
+    byte[] nestedJar =
+        Files.readAllBytes(writeJar("dep.jar", null, ImmutableMap.<String, Object>of("a", "b")));
+    Path fatJar =
+        writeJar(
+            "boot.jar",
+            ImmutableMap.of(
+                "Main-Class",
+                "org.springframework.boot.loader.JarLauncher",
+                "Start-Class",
+                "com.example.Application",
+                "Spring-Boot-Classes",
+                "BOOT-INF/classes/"),
+            ImmutableMap.<String, Object>of(
+                "BOOT-INF/classes/com/example/Application.class", "application",
+                "BOOT-INF/classes/application.properties", "properties",
+                "BOOT-INF/classpath.idx", "index",
+                "org/springframework/boot/loader/JarLauncher.class", "launcher",
+                "BOOT-INF/lib/dep-1.0.jar", nestedJar));
+
+    Path thinJar = output.resolve("boot.jar");
+    Assert.assertEquals(thinJar, FatJarSplitter.split(fatJar, output));
+
+    Assert.assertArrayEquals(nestedJar, Files.readAllBytes(output.resolve("lib/dep-1.0.jar")));
+    Assert.assertTrue(JarNormalizer.isNormalized(thinJar));
+    try (JarFile jar = new JarFile(thinJar.toFile())) {
+      Attributes attributes = jar.getManifest().getMainAttributes();
+      Assert.assertEquals("com.example.Application", attributes.getValue("Main-Class"));
+      Assert.assertEquals("lib/dep-1.0.jar", attributes.getValue("Class-Path"));
+      Assert.assertNull(attributes.getValue("Start-Class"));
+      Assert.assertNull(attributes.getValue("Spring-Boot-Classes"));
+      Assert.assertEquals(
+          ImmutableList.of(
+              "META-INF/",
+              "META-INF/MANIFEST.MF",
+              "application.properties",
+              "com/",
+              "com/example/",
+              "com/example/Application.class"),
+          names(jar));
+    }
+  }
+
+  @Test
+  public void testSplit_notFat() throws IOException {
+    Path jar =
+        writeJar(
+            "app.jar",
+            ImmutableMap.of("Main-Class", "com.example.app.Main"),
+            ImmutableMap.<String, Object>of("com/example/app/Main.class", "main"));
+
+    Assert.assertNull(FatJarSplitter.split(jar, output));
+  }
+
+  @Test
+  public void testSplit_multiPackageThinJar() throws IOException {
+    Path jar =
+        writeJar(
+            "app.jar",
+            ImmutableMap.of("Main-Class", "com.example.app.Main"),
+            ImmutableMap.<String, Object>of(
+                "com/example/app/Main.class",
+                "main",
+                "com/example/util/Strings.class",
+                "strings",
+                "org/example/web/Handler.class",
+                "handler",
+                "static/site.css",
+                "css",
+                APP_POM,
+                "app"));
+
+    Assert.assertNull(FatJarSplitter.split(jar, output));
+    Assert.assertFalse(Files.exists(output.resolve(FatJarSplitter.LIB)));
+  }
+
+  @Test
+  public void testPlan() throws IOException {
+    Path fatJar =
+        writeJar(
+            "app.jar",
+            ImmutableMap.of("Main-Class", "com.example.app.Main", "Class-Path", "other.jar"),
+            ImmutableMap.<String, Object>of(
+                "com/example/app/Main.class",
+                "main",
+                "com/google/common/base/Strings.class",
+                "strings",
+                "io/grpc/Context.class",
+                "context",
+                APP_POM,
+                "app",
+                GUAVA_POM,
+                "guava"));
+
+    FatJarSplitter.Split split = FatJarSplitter.plan(fatJar);
+    try (Stream<Path> files = Files.list(output)) {
+      Assert.assertEquals(0, files.count());
+    }
+    FatJarSplitter.split(fatJar, output);
+
+    Assert.assertNotNull(split);
+    Assert.assertEquals(Files.size(output.resolve("app.jar")), split.getThinJarSize());
+    Assert.assertEquals(
+        ImmutableMap.of(
+            "lib/com.google.common.jar",
+            Files.size(output.resolve("lib/com.google.common.jar")),
+            "lib/io.grpc.jar",
+            Files.size(output.resolve("lib/io.grpc.jar"))),
+        split.getLibJars());
+  }
+
+  @Test
+  public void testSplit_reproducible() throws IOException, InterruptedException {
+    Path fatJar =
+        writeJar(
+            "app.jar",
+            Collections.emptyMap(),
+            ImmutableMap.<String, Object>of(
+                "com/google/common/base/Strings.class",
+                "strings",
+                "Root.class",
+                "r",
+                APP_POM,
+                "app",
+                GUAVA_POM,
+                "guava"));
+    Path otherOutput = testDir.newFolder("other").toPath();
+
+    FatJarSplitter.split(fatJar, output);
+    // entry times must not depend on when the jar was split
+    Thread.sleep(2000);
+    FatJarSplitter.split(fatJar, otherOutput);
+
+    Assert.assertArrayEquals(
+        Files.readAllBytes(output.resolve("app.jar")),
+        Files.readAllBytes(otherOutput.resolve("app.jar")));
+    Assert.assertArrayEquals(
+        Files.readAllBytes(output.resolve("lib/com.google.common.jar")),
+        Files.readAllBytes(otherOutput.resolve("lib/com.google.common.jar")));
+  }
+
+  @Test
+  public void testGetGroup() {
+    Assert.assertEquals(
+        "com.google.common", FatJarSplitter.getGroup("com/google/common/a/B.class"));
+    Assert.assertEquals("io.grpc", FatJarSplitter.getGroup("io/grpc/Context.class"));
+    Assert.assertNull(FatJarSplitter.getGroup("Root.class"));
+    Assert.assertNull(FatJarSplitter.getGroup("META-INF/versions/11/a/b/C.class"));
+  }
+
+  private Path writeJar(
+      String name, @Nullable Map<String, String> attributes, Map<String, Object> entries)
+      throws IOException {
+    Path jar = testDir.getRoot().toPath().resolve(name);
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (attributes != null) {
+      for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+        manifest.getMainAttributes().putValue(attribute.getKey(), attribute.getValue());
+      }
+    }
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+      for (Map.Entry<String, Object> entry : entries.entrySet()) {
+        jarOut.putNextEntry(new ZipEntry(entry.getKey()));
+        Object content = entry.getValue();
+        jarOut.write(
+            content instanceof byte[] ? (byte[]) content : content.toString().getBytes(UTF_8));
+        jarOut.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  private static List<String> names(JarFile jar) {
+    List<String> names = new ArrayList<>();
+    for (JarEntry entry : Collections.list(jar.entries())) {
+      names.add(entry.getName());
+    }
+    return names;
+  }
+}
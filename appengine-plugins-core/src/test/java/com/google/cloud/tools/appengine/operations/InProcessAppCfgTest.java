@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InProcessAppCfgTest {
+
+  /** Stands in for AppCfg: records the SDK root and its arguments, fails, or exits the JVM. */
+  public static class FakeAppCfg {
+    FakeAppCfg(String[] args) throws IOException {
+      if (args[0].equals("fail")) {
+        throw new IOException("staging failed");
+      }
+      if (args[0].equals("exit")) {
+        // as AppCfg does when a command fails
+        Logger.getLogger("").setLevel(Level.OFF);
+        System.exit(1);
+      }
+      String output = System.getProperty("appengine.sdk.root") + " " + String.join(" ", args);
+      Files.write(Paths.get(args[0]), output.getBytes(UTF_8));
+      System.out.println("Success!");
+    }
+  }
+
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private final InProcessAppCfg inProcessAppCfg = new InProcessAppCfg(FakeAppCfg.class.getName());
+  private Path testClasses;
+  private Path sdkRoot;
+
+  @Before
+  public void setUp() throws URISyntaxException {
+    testClasses =
+        Paths.get(FakeAppCfg.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    sdkRoot = testFolder.getRoot().toPath().resolve("sdk");
+    System.setProperty("appengine.sdk.root", "previous");
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty("appengine.sdk.root");
+  }
+
+  @Test
+  public void testLoad_isolatedAndCached() throws IOException, ReflectiveOperationException {
+    Constructor<?> appCfg = inProcessAppCfg.load(testClasses);
+
+    Assert.assertNotSame(FakeAppCfg.class, appCfg.getDeclaringClass());
+    Assert.assertSame(
+        appCfg.getDeclaringClass(), inProcessAppCfg.load(testClasses).getDeclaringClass());
+  }
+
+  @Test
+  public void testLoad_missingToolsJar() throws ReflectiveOperationException {
+    try {
+      inProcessAppCfg.load(testFolder.getRoot().toPath().resolve("missing.jar"));
+      Assert.fail();
+    } catch (IOException ex) {
+      Assert.assertTrue(ex instanceof NoSuchFileException);
+    }
+  }
+
+  @Test
+  public void testLoad_noAppCfgClass() throws IOException {
+    try {
+      new InProcessAppCfg("com.example.Missing").load(testClasses);
+      Assert.fail();
+    } catch (ReflectiveOperationException ex) {
+      Assert.assertTrue(ex instanceof ClassNotFoundException);
+    }
+  }
+
+  @Test
+  public void testRun() throws Exception {
+    Path output = testFolder.getRoot().toPath().resolve("output");
+    Constructor<?> appCfg = inProcessAppCfg.load(testClasses);
+
+    PrintStream out = System.out;
+    Process process =
+        inProcessAppCfg.run(appCfg, sdkRoot, ImmutableList.of(output.toString(), "stage"));
+
+    Assert.assertNotNull(process);
+    Assert.assertEquals(0, process.waitFor());
+    Assert.assertEquals("Success!" + System.lineSeparator(), read(process.getInputStream()));
+    Assert.assertEquals("", read(process.getErrorStream()));
+    Assert.assertEquals(
+        sdkRoot + " " + output + " stage", new String(Files.readAllBytes(output), UTF_8));
+    Assert.assertEquals("previous", System.getProperty("appengine.sdk.root"));
+    Assert.assertSame(out, System.out);
+  }
+
+  @Test
+  public void testRun_failure() throws Exception {
+    Constructor<?> appCfg = inProcessAppCfg.load(testClasses);
+    ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+    Process process = inProcessAppCfg.run(appCfg, sdkRoot, ImmutableList.of("fail"));
+
+    Assert.assertNotNull(process);
+    Assert.assertEquals(1, process.exitValue());
+    Assert.assertTrue(
+        read(process.getErrorStream()).startsWith("java.io.IOException: staging failed"));
+    Assert.assertEquals("previous", System.getProperty("appengine.sdk.root"));
+    Assert.assertSame(contextClassLoader, Thread.currentThread().getContextClassLoader());
+  }
+
+  @Test
+  public void testRun_exit() throws Exception {
+    Constructor<?> appCfg = inProcessAppCfg.load(testClasses);
+    Level rootLevel = Logger.getLogger("").getLevel();
+
+    Process process = inProcessAppCfg.run(appCfg, sdkRoot, ImmutableList.of("exit"));
+
+    Assume.assumeTrue("System.exit cannot be guarded in this JVM", process != null);
+    Assert.assertEquals(1, Preconditions.checkNotNull(process).exitValue());
+    // the JVM is still running and its global state is restored
+    Assert.assertNull(System.getSecurityManager());
+    Assert.assertEquals(rootLevel, Logger.getLogger("").getLevel());
+    Assert.assertEquals("previous", System.getProperty("appengine.sdk.root"));
+  }
+
+  private static String read(InputStream in) throws IOException {
+    return new String(ByteStreams.toByteArray(in), Charset.defaultCharset());
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import javax.annotation.Nullable;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link JarClassPathResolver}. */
+public class JarClassPathResolverTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path root;
+
+  @Before
+  public void setUp() {
+    root = temporaryFolder.getRoot().toPath();
+  }
+
+  @Test
+  public void testResolve_noClassPath() throws IOException {
+    Path artifact = writeJar("app.jar", null, "app");
+
+    JarClassPathResolver.Closure closure = new JarClassPathResolver().resolve(artifact);
+
+    Assert.assertTrue(closure.getEntries().isEmpty());
+    Assert.assertTrue(closure.getMissing().isEmpty());
+  }
+
+  @Test
+  public void testResolve_transitive() throws IOException {
+    Path artifact = writeJar("app.jar", "lib/launcher.jar", "app");
+    writeJar("lib/launcher.jar", "deps/a.jar ../shared/b.jar", "launcher");
+    writeJar("lib/deps/a.jar", null, "a");
+    writeJar("shared/b.jar", "c.jar", "b");
+    writeJar("shared/c.jar", null, "c");
+
+    JarClassPathResolver.Closure closure = new JarClassPathResolver().resolve(artifact);
+
+    Assert.assertEquals(
+        ImmutableList.of(
+            Paths.get("lib/launcher.jar"),
+            Paths.get("lib/deps/a.jar"),
+            Paths.get("shared/b.jar"),
+            Paths.get("shared/c.jar")),
+        stagedPaths(closure));
+    Assert.assertEquals(root.resolve("shared/c.jar"), closure.getEntries().get(3).getSource());
+  }
+
+  @Test
+  public void testResolve_cycle() throws IOException {
+    Path artifact = writeJar("app.jar", "a.jar", "app");
+    writeJar("a.jar", "b.jar", "a");
+    writeJar("b.jar", "a.jar app.jar", "b");
+
+    JarClassPathResolver.Closure closure = new JarClassPathResolver().resolve(artifact);
+
+    Assert.assertEquals(
+        ImmutableList.of(Paths.get("a.jar"), Paths.get("b.jar"), Paths.get("app.jar")),
+        stagedPaths(closure));
+  }
+
+  @Test
+  public void testResolve_samePathReferencedTwice() throws IOException {
+    Path artifact = writeJar("app.jar", "a.jar b.jar", "app");
+    writeJar("a.jar", "./common.jar", "a");
+    writeJar("b.jar", "common.jar", "b");
+    writeJar("common.jar", null, "common");
+
+    JarClassPathResolver.Closure closure = new JarClassPathResolver().resolve(artifact);
+
+    Assert.assertEquals(
+        ImmutableList.of(Paths.get("a.jar"), Paths.get("b.jar"), Paths.get("common.jar")),
+        stagedPaths(closure));
+  }
+
+  @Test
+  public void testResolve_missing() throws IOException {
+    Path artifact = writeJar("app.jar", "a.jar missing.jar", "app");
+    writeJar("a.jar", "classes/", "a");
+    Files.createDirectory(root.resolve("classes"));
+
+    JarClassPathResolver.Closure closure = new JarClassPathResolver().resolve(artifact);
+
+    Assert.assertEquals(ImmutableList.of(Paths.get("a.jar")), stagedPaths(closure));
+    Assert.assertEquals(
+        ImmutableList.of(root.resolve("missing.jar"), root.resolve("classes")),
+        closure.getMissing());
+  }
+
+  @Test
+  public void testResolve_outsideArtifactDirectory() throws IOException {
+    Path artifact = writeJar("app/app.jar", "lib/a.jar ../top.jar", "app");
+    writeJar("app/lib/a.jar", "../../other/b.jar", "a");
+    writeJar("other/b.jar", null, "b");
+    writeJar("top.jar", null, "top");
+
+    JarClassPathResolver.Closure closure = new JarClassPathResolver().resolve(artifact);
+
+    Assert.assertEquals(ImmutableList.of(Paths.get("lib/a.jar")), stagedPaths(closure));
+    Assert.assertEquals(
+        ImmutableList.of(root.resolve("top.jar"), root.resolve("other/b.jar")),
+        closure.getOutside());
+    Assert.assertTrue(closure.getMissing().isEmpty());
+  }
+
+  @Test
+  public void testResolve_notAJar() throws IOException {
+    Path artifact = writeJar("app.jar", "notes.txt", "app");
+    Files.write(root.resolve("notes.txt"), "not a jar".getBytes(UTF_8));
+
+    JarClassPathResolver.Closure closure = new JarClassPathResolver().resolve(artifact);
+
+    Assert.assertEquals(ImmutableList.of(Paths.get("notes.txt")), stagedPaths(closure));
+  }
+
+  @Test
+  public void testResolve_duplicateContent() throws IOException {
+    Path artifact = writeJar("app.jar", "one/lib.jar two/lib.jar other.jar", "app");
+    writeJar("one/lib.jar", null, "lib");
+    Files.createDirectories(root.resolve("two"));
+    Files.copy(root.resolve("one/lib.jar"), root.resolve("two/lib.jar"));
+    writeJar("other.jar", null, "other");
+
+    List<JarClassPathResolver.Entry> entries =
+        new JarClassPathResolver().resolve(artifact).getEntries();
+
+    Assert.assertNull(entries.get(0).getDuplicateOf());
+    Assert.assertEquals(Paths.get("one/lib.jar"), entries.get(1).getDuplicateOf());
+    Assert.assertNull(entries.get(2).getDuplicateOf());
+  }
+
+  private static List<Path> stagedPaths(JarClassPathResolver.Closure closure) {
+    return closure.getEntries().stream()
+        .map(JarClassPathResolver.Entry::getStagedPath)
+        .collect(Collectors.toList());
+  }
+
+  private Path writeJar(String path, @Nullable String classPath, String content)
+      throws IOException {
+    return writeJar(root, path, classPath, content);
+  }
+
+  /** Writes a jar with one entry holding {@code content} and an optional manifest class path. */
+  static Path writeJar(Path root, String path, @Nullable String classPath, String content)
+      throws IOException {
+    Path jar = root.resolve(path);
+    Files.createDirectories(jar.resolveSibling(""));
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (classPath != null) {
+      manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+    }
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+      ZipEntry entry = new ZipEntry("content.txt");
+      entry.setTime(0);
+      jarOut.putNextEntry(entry);
+      jarOut.write(content.getBytes(UTF_8));
+      jarOut.closeEntry();
+    }
+    return jar;
+  }
+}
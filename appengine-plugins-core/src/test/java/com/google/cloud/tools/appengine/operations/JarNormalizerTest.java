@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link JarNormalizer}. */
+public class JarNormalizerTest {
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  @Test
+  public void testNormalize() throws IOException {
+    Path jar = writeJar("app.jar", 1000, "b/B.class", "a/", "a/A.class");
+    Path normalized = testDir.getRoot().toPath().resolve("normalized.jar");
+
+    JarNormalizer.normalize(jar, normalized);
+
+    Assert.assertTrue(JarNormalizer.isNormalized(normalized));
+    Assert.assertFalse(JarNormalizer.isNormalized(jar));
+    try (ZipFile zipFile = new ZipFile(normalized.toFile())) {
+      List<String> names = new ArrayList<>();
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        names.add(entry.getName());
+        Assert.assertEquals(JarNormalizer.ENTRY_TIME, entry.getTime());
+      }
+      Assert.assertEquals(
+          ImmutableList.of(JarFile.MANIFEST_NAME, "a/", "a/A.class", "b/B.class"), names);
+      Assert.assertEquals(
+          "b/B.class",
+          new String(
+              ByteStreams.toByteArray(zipFile.getInputStream(zipFile.getEntry("b/B.class"))),
+              UTF_8));
+    }
+  }
+
+  @Test
+  public void testNormalize_sameContentSameBytes() throws IOException {
+    Path jar = writeJar("first.jar", 1000, "b/B.class", "a/A.class");
+    Path otherJar = writeJar("second.jar", 5000000, "a/A.class", "b/B.class");
+    Path normalized = testDir.getRoot().toPath().resolve("first-normalized.jar");
+    Path otherNormalized = testDir.getRoot().toPath().resolve("second-normalized.jar");
+
+    JarNormalizer.normalize(jar, normalized);
+    JarNormalizer.normalize(otherJar, otherNormalized);
+
+    Assert.assertArrayEquals(Files.readAllBytes(normalized), Files.readAllBytes(otherNormalized));
+  }
+
+  @Test
+  public void testNormalize_notAJar() throws IOException {
+    Path notAJar = Files.write(testDir.newFile("broken.jar").toPath(), "broken".getBytes(UTF_8));
+
+    try {
+      JarNormalizer.normalize(notAJar, testDir.getRoot().toPath().resolve("normalized.jar"));
+      Assert.fail();
+    } catch (ZipException ex) {
+      // expected
+    }
+    Assert.assertFalse(JarNormalizer.isNormalized(notAJar));
+  }
+
+  /** Writes a jar with a manifest and entries in the given order, each holding its own name. */
+  private Path writeJar(String name, long time, String... entries) throws IOException {
+    Path jar = testDir.getRoot().toPath().resolve(name);
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out, new Manifest())) {
+      for (String entryName : entries) {
+        ZipEntry entry = new ZipEntry(entryName);
+        entry.setTime(time);
+        jarOut.putNextEntry(entry);
+        jarOut.write(entryName.getBytes(UTF_8));
+        jarOut.closeEntry();
+      }
+    }
+    return jar;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Test for {@link JvmTuning}. */
+public class JvmTuningTest {
+
+  @Test
+  public void testInstanceClass() throws AppEngineException {
+    Assert.assertEquals("F1", JvmTuning.instanceClass(null, null));
+    Assert.assertEquals("F1", JvmTuning.instanceClass(null, "automatic"));
+    Assert.assertEquals("B2", JvmTuning.instanceClass(null, "basic"));
+    Assert.assertEquals("B2", JvmTuning.instanceClass(null, "manual"));
+    Assert.assertEquals("F4_1G", JvmTuning.instanceClass("f4_1g", null));
+  }
+
+  @Test
+  public void testInstanceClass_unknown() {
+    try {
+      JvmTuning.instanceClass("F3", null);
+      Assert.fail();
+    } catch (AppEngineException ex) {
+      Assert.assertEquals(
+          "Cannot tune the JVM for unknown instance_class: F3, expected one of F1, F2, F4, F4_1G,"
+              + " B1, B2, B4, B4_1G, B8",
+          ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testTunedFlags() {
+    Assert.assertEquals(
+        ImmutableList.of(
+            "-Xmx256m",
+            "-Xss512k",
+            "-XX:+UseSerialGC",
+            "-XX:ActiveProcessorCount=1",
+            "-XX:TieredStopAtLevel=1",
+            "-XX:+ExitOnOutOfMemoryError"),
+        JvmTuning.tunedFlags("F1"));
+    Assert.assertEquals(
+        ImmutableList.of(
+            "-Xmx576m",
+            "-Xss512k",
+            "-XX:+UseSerialGC",
+            "-XX:ActiveProcessorCount=1",
+            "-XX:+ExitOnOutOfMemoryError"),
+        JvmTuning.tunedFlags("B2"));
+    Assert.assertEquals(
+        ImmutableList.of("-Xmx2304m", "-XX:+UseG1GC", "-XX:+ExitOnOutOfMemoryError"),
+        JvmTuning.tunedFlags("F4_1G"));
+  }
+
+  @Test
+  public void testMerge() {
+    List<String> merged =
+        JvmTuning.merge(
+            JvmTuning.tunedFlags("F1"),
+            ImmutableList.of(
+                "-XX:MaxRAMPercentage=60",
+                "-XX:+UseParallelGC",
+                "-XX:-ExitOnOutOfMemoryError",
+                "-Dfile.encoding=UTF-8"));
+
+    Assert.assertEquals(
+        ImmutableList.of(
+            "-XX:MaxRAMPercentage=60",
+            "-Xss512k",
+            "-XX:+UseParallelGC",
+            "-XX:ActiveProcessorCount=1",
+            "-XX:TieredStopAtLevel=1",
+            "-XX:-ExitOnOutOfMemoryError",
+            "-Dfile.encoding=UTF-8"),
+        merged);
+  }
+
+  @Test
+  public void testValidate() throws AppEngineException {
+    JvmTuning.validate(JvmTuning.tunedFlags("F2"), "F2");
+    JvmTuning.validate(ImmutableList.of("-Xms64m", "-Xmx1g"), "F4");
+  }
+
+  @Test
+  public void testValidate_heapTooLarge() {
+    try {
+      JvmTuning.validate(ImmutableList.of("-Xmx1g"), "F2");
+      Assert.fail();
+    } catch (AppEngineException ex) {
+      Assert.assertEquals(
+          "-Xmx1g does not fit the 768 MB of memory of instance class F2", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testValidate_malformed() {
+    for (String flag : ImmutableList.of("Xmx64m", "-Dname=two words", "-Xmx64x")) {
+      try {
+        JvmTuning.validate(ImmutableList.of(flag), "F1");
+        Assert.fail(flag);
+      } catch (AppEngineException ex) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testEntrypoint() {
+    Assert.assertEquals(
+        "java -Xmx256m -XX:+UseSerialGC -jar app.jar",
+        JvmTuning.entrypoint(ImmutableList.of("-Xmx256m", "-XX:+UseSerialGC"), "app.jar"));
+  }
+}
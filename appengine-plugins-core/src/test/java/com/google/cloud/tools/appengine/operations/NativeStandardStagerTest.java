@@ -0,0 +1,242 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Unit tests for {@link NativeStandardStager}. */
+public class NativeStandardStagerTest {
+
+  private static final String APPENGINE_WEB_XML =
+      "<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+          + "<runtime>java8</runtime>"
+          + "<service>api</service>"
+          + "<threadsafe>true</threadsafe>"
+          + "<instance-class>F2</instance-class>"
+          + "<automatic-scaling>"
+          + "<max-instances>4</max-instances>"
+          + "<min-pending-latency>30ms</min-pending-latency>"
+          + "</automatic-scaling>"
+          + "<inbound-services><service>mail</service></inbound-services>"
+          + "<env-variables><env-var name='KEY' value=\"it's\"/></env-variables>"
+          + "</appengine-web-app>";
+
+  @Rule public TemporaryFolder tmpDir = new TemporaryFolder();
+
+  private Path source;
+  private Path destination;
+  private AppEngineWebXmlProjectStageConfiguration.Builder builder;
+
+  @Before
+  public void setUp() throws IOException {
+    source = tmpDir.newFolder("source").toPath();
+    destination = tmpDir.newFolder("destination").toPath();
+    Files.createDirectories(source.resolve("WEB-INF/classes/com/example"));
+    Files.createDirectories(source.resolve("WEB-INF/lib"));
+    Files.write(source.resolve("WEB-INF/appengine-web.xml"), APPENGINE_WEB_XML.getBytes(UTF_8));
+    Files.write(source.resolve("WEB-INF/classes/com/example/Main.class"), new byte[] {1, 2});
+    Files.write(source.resolve("index.html"), "<html/>".getBytes(UTF_8));
+    builder =
+        AppEngineWebXmlProjectStageConfiguration.builder()
+            .sourceDirectory(source)
+            .stagingDirectory(destination);
+  }
+
+  @Test
+  public void testGetUnsupportedReason_supported() throws IOException, AppEngineException {
+    Assert.assertNull(NativeStandardStager.getUnsupportedReason(builder.build()));
+  }
+
+  @Test
+  public void testGetUnsupportedReason_quickstart() throws IOException, AppEngineException {
+    Assert.assertEquals(
+        "quickstart is enabled",
+        NativeStandardStager.getUnsupportedReason(builder.enableQuickstart(true).build()));
+  }
+
+  @Test
+  public void testGetUnsupportedReason_jsp() throws IOException, AppEngineException {
+    Files.createFile(source.resolve("index.jsp"));
+
+    Assert.assertEquals(
+        "JSP index.jsp must be compiled by appcfg",
+        NativeStandardStager.getUnsupportedReason(builder.build()));
+  }
+
+  @Test
+  public void testGetUnsupportedReason_jspInJar() throws IOException, AppEngineException {
+    writeJar(source.resolve("WEB-INF/lib/tags.jar"), "META-INF/resources/page.jsp", 1);
+
+    Assert.assertEquals(
+        "JSPs in tags.jar must be compiled by appcfg",
+        NativeStandardStager.getUnsupportedReason(builder.build()));
+    Assert.assertNull(
+        NativeStandardStager.getUnsupportedReason(builder.disableJarJsps(true).build()));
+  }
+
+  @Test
+  public void testGetUnsupportedReason_cronXml() throws IOException, AppEngineException {
+    Files.createFile(source.resolve("WEB-INF/cron.xml"));
+
+    Assert.assertEquals(
+        "WEB-INF/cron.xml must be converted by appcfg",
+        NativeStandardStager.getUnsupportedReason(builder.build()));
+  }
+
+  @Test
+  public void testGetUnsupportedReason_unknownElement() throws IOException, AppEngineException {
+    Files.write(
+        source.resolve("WEB-INF/appengine-web.xml"),
+        APPENGINE_WEB_XML.replace("<threadsafe>", "<static-files/><threadsafe>").getBytes(UTF_8));
+
+    Assert.assertEquals(
+        "appengine-web.xml element <static-files> is not supported",
+        NativeStandardStager.getUnsupportedReason(builder.build()));
+  }
+
+  @Test
+  public void testGetUnsupportedReason_java7() throws IOException, AppEngineException {
+    Files.write(
+        source.resolve("WEB-INF/appengine-web.xml"),
+        "<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'/>".getBytes(UTF_8));
+
+    Assert.assertEquals(
+        "runtime java7 is not supported",
+        NativeStandardStager.getUnsupportedReason(builder.build()));
+  }
+
+  @Test
+  public void testStage() throws IOException, AppEngineException {
+    NativeStandardStager.stage(builder.build(), destination);
+
+    Assert.assertEquals(
+        "<html/>", new String(Files.readAllBytes(destination.resolve("index.html")), UTF_8));
+    Assert.assertTrue(Files.exists(destination.resolve("WEB-INF/classes/com/example/Main.class")));
+    String appYaml = new String(Files.readAllBytes(destination.resolve("app.yaml")), UTF_8);
+    Assert.assertEquals(
+        "runtime: java8\n"
+            + "service: 'api'\n"
+            + "instance_class: F2\n"
+            + "automatic_scaling:\n"
+            + "  max_instances: 4\n"
+            + "  min_pending_latency: '30ms'\n"
+            + "threadsafe: true\n"
+            + "inbound_services:\n"
+            + "- warmup\n"
+            + "- mail\n"
+            + "env_variables:\n"
+            + "  'KEY': 'it''s'\n"
+            + "api_version: 'user_defined'\n"
+            + "handlers:\n"
+            + "- url: /.*\n"
+            + "  script: unused\n",
+        appYaml);
+    Assert.assertArrayEquals(
+        Files.readAllBytes(destination.resolve("app.yaml")),
+        Files.readAllBytes(destination.resolve("WEB-INF/appengine-generated/app.yaml")));
+  }
+
+  @Test
+  public void testStage_jarClasses() throws IOException, AppEngineException {
+    NativeStandardStager.stage(builder.enableJarClasses(true).build(), destination);
+
+    Assert.assertFalse(Files.exists(destination.resolve("WEB-INF/classes")));
+    Path jar = destination.resolve("WEB-INF/lib").resolve(NativeStandardStager.CLASSES_JAR);
+    try (JarFile jarFile = new JarFile(jar.toFile())) {
+      ZipEntry entry = jarFile.getEntry("com/example/Main.class");
+      Assert.assertNotNull(entry);
+      Assert.assertEquals(2, entry.getSize());
+      Assert.assertNotNull(jarFile.getEntry("com/example/"));
+    }
+  }
+
+  @Test
+  public void testStage_smallJarsAreNotSplit() throws IOException, AppEngineException {
+    writeJar(source.resolve("WEB-INF/lib/small.jar"), "a.txt", 1);
+
+    NativeStandardStager.stage(builder.enableJarSplitting(true).build(), destination);
+
+    Assert.assertTrue(Files.exists(destination.resolve("WEB-INF/lib/small.jar")));
+  }
+
+  @Test
+  public void testSplitJar() throws IOException {
+    Path jar = writeJar(tmpDir.getRoot().toPath().resolve("big.jar"), "entry", 6);
+    Path output = tmpDir.newFolder("split").toPath();
+
+    List<Path> parts = NativeStandardStager.splitJar(jar, output, 2000, ImmutableList.of("entry5"));
+
+    Assert.assertEquals(
+        ImmutableList.of(
+            output.resolve("big-0000.jar"),
+            output.resolve("big-0001.jar"),
+            output.resolve("big-0002.jar")),
+        parts);
+    List<String> names = new ArrayList<>();
+    for (Path part : parts) {
+      names.addAll(entryNames(part));
+    }
+    Assert.assertEquals(ImmutableList.of("entry0", "entry1", "entry2", "entry3", "entry4"), names);
+    Assert.assertEquals(ImmutableList.of("entry0", "entry1"), entryNames(parts.get(0)));
+  }
+
+  /** Writes a jar of {@code count} incompressible entries of 1000 bytes each. */
+  private static Path writeJar(Path jar, String name, int count) throws IOException {
+    Random random = new Random(0);
+    try (OutputStream file = Files.newOutputStream(jar);
+        ZipOutputStream out = new ZipOutputStream(file)) {
+      for (int i = 0; i < count; i++) {
+        out.putNextEntry(new ZipEntry(count == 1 ? name : name + i));
+        byte[] content = new byte[1000];
+        random.nextBytes(content);
+        out.write(content);
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  private static List<String> entryNames(Path jar) throws IOException {
+    List<String> names = new ArrayList<>();
+    try (ZipInputStream in = new ZipInputStream(Files.newInputStream(jar))) {
+      for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+        names.add(entry.getName());
+      }
+    }
+    return names;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link StagedAppYaml}. */
+public class StagedAppYamlTest {
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  @Test
+  public void testSetEntrypoint_add() throws IOException {
+    Path appYaml = testDir.getRoot().toPath().resolve("app.yaml");
+    Files.write(appYaml, ImmutableList.of("# comment", "runtime: java17"), UTF_8);
+
+    StagedAppYaml.setEntrypoint(appYaml, "java -jar \"app.jar\"");
+
+    Assert.assertEquals(
+        ImmutableList.of(
+            "# comment", "runtime: java17", "entrypoint: \"java -jar \\\"app.jar\\\"\""),
+        Files.readAllLines(appYaml, UTF_8));
+  }
+
+  @Test
+  public void testSetEntrypoint_replace() throws IOException {
+    Path appYaml = testDir.getRoot().toPath().resolve("app.yaml");
+    Files.write(
+        appYaml,
+        ImmutableList.of(
+            "entrypoint: >",
+            "  java -jar",
+            "  app.jar",
+            "runtime: java17",
+            "  # not an entrypoint"),
+        UTF_8);
+
+    StagedAppYaml.setEntrypoint(appYaml, "java -jar app.jar");
+
+    Assert.assertEquals(
+        ImmutableList.of(
+            "runtime: java17", "  # not an entrypoint", "entrypoint: \"java -jar app.jar\""),
+        Files.readAllLines(appYaml, UTF_8));
+  }
+
+  @Test
+  public void testSetEntrypoint_linkedFile() throws IOException {
+    Path source = testDir.getRoot().toPath().resolve("source.yaml");
+    Files.write(source, ImmutableList.of("runtime: java17"), UTF_8);
+    Path appYaml = testDir.getRoot().toPath().resolve("app.yaml");
+    Files.createLink(appYaml, source);
+
+    StagedAppYaml.setEntrypoint(appYaml, "java -jar app.jar");
+
+    Assert.assertEquals(ImmutableList.of("runtime: java17"), Files.readAllLines(source, UTF_8));
+    Assert.assertEquals(2, Files.readAllLines(appYaml, UTF_8).size());
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link StagingCache}. */
+public class StagingCacheTest {
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  private Path cacheDirectory;
+  private StagingCache cache;
+
+  @Before
+  public void setUp() {
+    cacheDirectory = testDir.getRoot().toPath().resolve("cache");
+    cache = new StagingCache(cacheDirectory);
+  }
+
+  @Test
+  public void testRestore_link() throws IOException {
+    Path staged = stagedOutput("a", "content");
+    cache.store(key("a"), staged);
+    Path restored = testDir.newFolder().toPath();
+    Path otherRestored = testDir.newFolder().toPath();
+
+    Assert.assertTrue(cache.restore(key("a"), restored, true));
+    Assert.assertTrue(cache.restore(key("a"), otherRestored, true));
+
+    Assert.assertEquals("content", new String(Files.readAllBytes(restored.resolve("file")), UTF_8));
+    Assert.assertTrue(Files.isSameFile(restored.resolve("file"), otherRestored.resolve("file")));
+    Assert.assertFalse(cache.restore(key("b"), restored, true));
+  }
+
+  @Test
+  public void testStore_listedFiles() throws IOException {
+    Path staged = stagedOutput("a", "content");
+    Files.createDirectories(staged.resolve("sub/dir"));
+    Files.write(staged.resolve("sub/dir/listed"), "listed".getBytes(UTF_8));
+    Files.write(staged.resolve("stale"), "stale".getBytes(UTF_8));
+    cache.store(key("a"), staged, ImmutableList.of(Paths.get("file"), Paths.get("sub/dir/listed")));
+    Path restored = testDir.newFolder().toPath();
+
+    Assert.assertTrue(cache.restore(key("a"), restored));
+
+    Assert.assertEquals("content", new String(Files.readAllBytes(restored.resolve("file")), UTF_8));
+    Assert.assertEquals(
+        "listed", new String(Files.readAllBytes(restored.resolve("sub/dir/listed")), UTF_8));
+    Assert.assertFalse(Files.exists(restored.resolve("stale")));
+  }
+
+  @Test
+  public void testTrim_evictsLeastRecentlyUsed() throws IOException {
+    cache.store(key("a"), stagedOutput("a", "aaaa"));
+    cache.store(key("b"), stagedOutput("b", "bbbb"));
+    cache.store(key("c"), stagedOutput("c", "cccc"));
+    setLastUsed("a", 3000);
+    setLastUsed("b", 1000);
+    setLastUsed("c", 2000);
+
+    cache.trim(8);
+
+    Path restored = testDir.newFolder().toPath();
+    Assert.assertTrue(cache.restore(key("a"), restored));
+    Assert.assertFalse(cache.restore(key("b"), restored));
+    Assert.assertTrue(cache.restore(key("c"), restored));
+  }
+
+  @Test
+  public void testTrim_keepsMostRecentlyUsed() throws IOException {
+    cache.store(key("a"), stagedOutput("a", "aaaa"));
+
+    cache.trim(1);
+
+    Assert.assertTrue(cache.restore(key("a"), testDir.newFolder().toPath()));
+  }
+
+  @Test
+  public void testTrim_keepsSharedContent() throws IOException {
+    cache.store(key("a"), stagedOutput("a", "shared"));
+    cache.store(key("b"), stagedOutput("b", "shared"));
+
+    cache.trim(6);
+
+    Path restored = testDir.newFolder().toPath();
+    Assert.assertTrue(cache.restore(key("a"), restored));
+    Assert.assertTrue(cache.restore(key("b"), restored));
+  }
+
+  private Path stagedOutput(String name, String content) throws IOException {
+    Path staged = testDir.newFolder(name).toPath();
+    Files.write(staged.resolve("file"), content.getBytes(UTF_8));
+    return staged;
+  }
+
+  private void setLastUsed(String name, long millis) throws IOException {
+    Files.setLastModifiedTime(
+        cacheDirectory.resolve("outputs").resolve(key(name) + ".json"),
+        FileTime.fromMillis(millis));
+  }
+
+  private static String key(String name) {
+    return new StagingCache.KeyBuilder().putString(name).build();
+  }
+}
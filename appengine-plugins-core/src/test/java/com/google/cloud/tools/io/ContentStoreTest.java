@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link ContentStore}. */
+public class ContentStoreTest {
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  private Path root;
+  private ContentStore store;
+
+  @Before
+  public void setUp() {
+    root = testDir.getRoot().toPath().resolve("store");
+    store = new ContentStore(root);
+  }
+
+  @Test
+  public void testPut() throws IOException {
+    Path file = Files.write(testDir.newFile().toPath(), "content".getBytes(UTF_8));
+
+    String hash = store.put(file);
+
+    Assert.assertEquals("ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73", hash);
+    Assert.assertTrue(store.contains(hash));
+    Assert.assertEquals("content", new String(Files.readAllBytes(store.getPath(hash)), UTF_8));
+    Assert.assertEquals(root.resolve("ed").resolve(hash.substring(2)), store.getPath(hash));
+  }
+
+  @Test
+  public void testPut_sameContentStoredOnce() throws IOException {
+    Path first = Files.write(testDir.newFile().toPath(), "content".getBytes(UTF_8));
+    Path second = Files.write(testDir.newFile().toPath(), "content".getBytes(UTF_8));
+
+    Assert.assertEquals(store.put(first), store.put(second));
+    try (Stream<Path> files = Files.walk(root)) {
+      Assert.assertEquals(1, files.filter(Files::isRegularFile).count());
+    }
+  }
+
+  @Test
+  public void testLink() throws IOException {
+    Path file = Files.write(testDir.newFile().toPath(), "content".getBytes(UTF_8));
+    Path first = testDir.getRoot().toPath().resolve("first");
+    Path second = testDir.getRoot().toPath().resolve("second");
+
+    Assert.assertEquals(FileLinker.Method.HARD_LINK, store.link(file, first));
+    Assert.assertEquals(FileLinker.Method.HARD_LINK, store.link(file, second));
+
+    Assert.assertTrue(Files.isSameFile(first, second));
+    Assert.assertTrue(Files.isSameFile(store.getPath(ContentStore.hash(file)), first));
+  }
+
+  @Test
+  public void testLink_inPlace() throws IOException {
+    Path file = Files.write(testDir.newFile().toPath(), "content".getBytes(UTF_8));
+
+    store.link(file, file);
+
+    Assert.assertTrue(Files.isSameFile(store.getPath(ContentStore.hash(file)), file));
+    Assert.assertEquals("content", new String(Files.readAllBytes(file), UTF_8));
+  }
+
+  @Test
+  public void testForDirectory_shared() {
+    Assert.assertSame(
+        ContentStore.forDirectory(root), ContentStore.forDirectory(root.resolve("x/..")));
+  }
+
+  @Test
+  public void testContains_missing() {
+    Assert.assertFalse(
+        store.contains("ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73"));
+  }
+
+  @Test
+  public void testGetPath_notAHash() {
+    try {
+      store.getPath("../escape");
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals("Not a SHA-256 hash: ../escape", ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link DirectorySync}. */
+public class DirectorySyncTest {
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  private Path source;
+  private Path target;
+
+  @Before
+  public void setUp() throws IOException {
+    source = testDir.newFolder("source").toPath();
+    target = testDir.newFolder("target").toPath();
+  }
+
+  @Test
+  public void testSync() throws IOException {
+    write(source.resolve("same.txt"), "same");
+    write(source.resolve("changed.txt"), "new");
+    write(source.resolve("sub/added.txt"), "added");
+    Path same = write(target.resolve("same.txt"), "same");
+    Files.setLastModifiedTime(same, FileTime.fromMillis(1000));
+    write(target.resolve("changed.txt"), "old");
+    write(target.resolve("stale.txt"), "stale");
+    write(target.resolve("stale/nested.txt"), "stale");
+
+    DirectorySync.Summary summary = DirectorySync.sync(source, target);
+
+    Assert.assertEquals(2, summary.getWritten());
+    Assert.assertEquals(1, summary.getUnchanged());
+    Assert.assertEquals(3, summary.getDeleted());
+    // identical content is left untouched, even with a different modification time
+    Assert.assertEquals(FileTime.fromMillis(1000), Files.getLastModifiedTime(same));
+    Assert.assertEquals("new", read(target.resolve("changed.txt")));
+    Assert.assertEquals("added", read(target.resolve("sub/added.txt")));
+    Assert.assertFalse(Files.exists(target.resolve("stale.txt")));
+    Assert.assertFalse(Files.exists(target.resolve("stale")));
+    Assert.assertTrue(Files.exists(source.resolve("changed.txt")));
+  }
+
+  @Test
+  public void testSyncMoving() throws IOException {
+    write(source.resolve("sub/added.txt"), "added");
+
+    DirectorySync.Summary summary = DirectorySync.syncMoving(source, target);
+
+    Assert.assertEquals(1, summary.getWritten());
+    Assert.assertEquals("added", read(target.resolve("sub/added.txt")));
+    Assert.assertFalse(Files.exists(source.resolve("sub/added.txt")));
+  }
+
+  @Test
+  public void testSync_replacesFileWithDirectory() throws IOException {
+    write(source.resolve("entry/file.txt"), "file");
+    write(target.resolve("entry"), "was a file");
+
+    DirectorySync.sync(source, target);
+
+    Assert.assertEquals("file", read(target.resolve("entry/file.txt")));
+  }
+
+  @Test
+  public void testPrune_keepsParentsOfKeptFiles() throws IOException {
+    Path kept = write(target.resolve("a/b/kept.txt"), "kept");
+    write(target.resolve("a/dropped.txt"), "dropped");
+    write(target.resolve("c/dropped.txt"), "dropped");
+
+    int deleted = DirectorySync.prune(target, ImmutableSet.of(kept));
+
+    Assert.assertEquals(3, deleted);
+    Assert.assertTrue(Files.exists(kept));
+    Assert.assertFalse(Files.exists(target.resolve("a/dropped.txt")));
+    Assert.assertFalse(Files.exists(target.resolve("c")));
+  }
+
+  private static Path write(Path file, String content) throws IOException {
+    Files.createDirectories(file.resolveSibling(""));
+    return Files.write(file, content.getBytes(UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), UTF_8);
+  }
+}
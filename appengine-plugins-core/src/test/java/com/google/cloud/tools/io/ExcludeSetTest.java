@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Test for {@link ExcludeSet}. */
+public class ExcludeSetTest {
+
+  private final Path root = Paths.get("root").toAbsolutePath();
+
+  @Test
+  public void testNone() {
+    ExcludeSet.Compiled excludes = ExcludeSet.none().compile(root);
+
+    Assert.assertTrue(ExcludeSet.none().isEmpty());
+    Assert.assertFalse(excludes.isExcluded(root.resolve("a")));
+  }
+
+  @Test
+  public void testPaths() {
+    ExcludeSet.Compiled excludes =
+        ExcludeSet.ofPaths(ImmutableList.of(root.resolve("a/b"), Paths.get("elsewhere/c")))
+            .compile(root);
+
+    Assert.assertTrue(excludes.isExcluded(root.resolve("a/b")));
+    Assert.assertTrue(excludes.isExcluded(root.resolve("x/../a/b")));
+    Assert.assertTrue(excludes.isExcluded(Paths.get("elsewhere/c").toAbsolutePath()));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("a")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("a/b/c")));
+  }
+
+  @Test
+  public void testLiteralGlob() {
+    ExcludeSet.Compiled excludes =
+        ExcludeSet.ofPatterns(ImmutableList.of("a/secret.txt")).compile(root);
+
+    Assert.assertTrue(excludes.isExcluded(root.resolve("a/secret.txt")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("a")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("b/a/secret.txt")));
+  }
+
+  @Test
+  public void testDescendantsGlob() {
+    ExcludeSet.Compiled excludes = ExcludeSet.ofPatterns(ImmutableList.of("a/b/**")).compile(root);
+
+    Assert.assertTrue(excludes.isExcluded(root.resolve("a/b/c")));
+    Assert.assertTrue(excludes.isExcluded(root.resolve("a/b/c/d.txt")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("a/b")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("a/bb/c")));
+  }
+
+  @Test
+  public void testAnchoredGlob() {
+    ExcludeSet.Compiled excludes =
+        ExcludeSet.ofPatterns(ImmutableList.of("static/*.map")).compile(root);
+
+    Assert.assertTrue(excludes.isExcluded(root.resolve("static/app.js.map")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("static/app.js")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("static/js/app.js.map")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("other/app.js.map")));
+  }
+
+  @Test
+  public void testFloatingGlob() {
+    ExcludeSet.Compiled excludes =
+        ExcludeSet.ofPatterns(ImmutableList.of("glob:**/*.log", "*.tmp", "{x,y}/z")).compile(root);
+
+    Assert.assertTrue(excludes.isExcluded(root.resolve("a/b/debug.log")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("debug.log")));
+    Assert.assertTrue(excludes.isExcluded(root.resolve("file.tmp")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("a/file.tmp")));
+    Assert.assertTrue(excludes.isExcluded(root.resolve("y/z")));
+  }
+
+  @Test
+  public void testEverythingGlob() {
+    ExcludeSet.Compiled excludes = ExcludeSet.ofPatterns(ImmutableList.of("**")).compile(root);
+
+    Assert.assertTrue(excludes.isExcluded(root.resolve("a")));
+    Assert.assertTrue(excludes.isExcluded(root.resolve("a/b")));
+    Assert.assertFalse(excludes.isExcluded(root));
+  }
+
+  @Test
+  public void testRegexAndMatcher() {
+    ExcludeSet.Compiled excludes =
+        ExcludeSet.builder()
+            .addPattern("regex:.*\\.bak")
+            .addMatcher(path -> path.getFileName().toString().startsWith("."))
+            .build()
+            .compile(root);
+
+    Assert.assertTrue(excludes.isExcluded(root.resolve("a/file.bak")));
+    Assert.assertTrue(excludes.isExcluded(root.resolve("a/.hidden")));
+    Assert.assertFalse(excludes.isExcluded(root.resolve("a/file")));
+  }
+
+  @Test
+  public void testOutsideRoot() {
+    ExcludeSet.Compiled excludes = ExcludeSet.ofPatterns(ImmutableList.of("**")).compile(root);
+
+    Assert.assertFalse(excludes.isExcluded(Paths.get("other/a").toAbsolutePath()));
+  }
+
+  @Test
+  public void testEmptyGlob() {
+    try {
+      ExcludeSet.builder().addGlob(" ");
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals("glob must not be empty", ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link FileLinker}. */
+public class FileLinkerTest {
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  private Path source;
+  private Path target;
+
+  @Before
+  public void setUp() throws IOException {
+    source = Files.write(testDir.getRoot().toPath().resolve("source"), "content".getBytes(UTF_8));
+    target = testDir.getRoot().toPath().resolve("target");
+  }
+
+  @Test
+  public void testLink_hardLink() throws IOException {
+    Files.write(target, "old".getBytes(UTF_8));
+
+    FileLinker.Method method = new FileLinker(true, false).link(source, target);
+
+    Assert.assertEquals(FileLinker.Method.HARD_LINK, method);
+    Assert.assertTrue(Files.isSameFile(source, target));
+  }
+
+  @Test
+  public void testLink_copy() throws IOException {
+    Files.write(target, "old".getBytes(UTF_8));
+
+    FileLinker.Method method = new FileLinker(false, false).link(source, target);
+
+    Assert.assertEquals(FileLinker.Method.COPY, method);
+    Assert.assertFalse(Files.isSameFile(source, target));
+    Assert.assertEquals("content", new String(Files.readAllBytes(target), UTF_8));
+  }
+
+  @Test
+  public void testLink_reflink() throws IOException {
+    assumeTrue(!System.getProperty("os.name").startsWith("Windows"));
+
+    // plain cp stands in for a reflink capable cp
+    FileLinker linker = new FileLinker(false, true, ImmutableList.of("cp", "--"));
+
+    Assert.assertEquals(FileLinker.Method.REFLINK, linker.link(source, target));
+    Assert.assertEquals("content", new String(Files.readAllBytes(target), UTF_8));
+  }
+
+  @Test
+  public void testLink_reflinkFailureFallsBackToCopy() throws IOException {
+    FileLinker linker = new FileLinker(false, true, ImmutableList.of("made-up-reflink-command"));
+
+    Assert.assertEquals(FileLinker.Method.COPY, linker.link(source, target));
+    Assert.assertEquals("content", new String(Files.readAllBytes(target), UTF_8));
+    Assert.assertEquals(FileLinker.Method.COPY, linker.link(source, target));
+  }
+
+  @Test
+  public void testLink_hardLinkFailureFallsBackToCopy() throws IOException {
+    Path missingDirectory = testDir.getRoot().toPath().resolve("missing");
+    FileLinker linker = new FileLinker(true, false);
+
+    try {
+      linker.link(source, missingDirectory.resolve("target"));
+      Assert.fail();
+    } catch (IOException ex) {
+      // the copy fallback also fails because the directory does not exist
+    }
+    Assert.assertEquals(FileLinker.Method.COPY, linker.link(source, target));
+  }
+
+  @Test
+  public void testLink_otherFileSystemCopies() throws IOException {
+    try (FileSystem zipFileSystem =
+        FileUtilTest.newZipFileSystem(testDir.getRoot().toPath().resolve("linked.zip"))) {
+      Path zipTarget = zipFileSystem.getPath("/target");
+
+      Assert.assertEquals(
+          FileLinker.Method.COPY, new FileLinker(true, true).link(source, zipTarget));
+      Assert.assertEquals("content", new String(Files.readAllBytes(zipTarget), UTF_8));
+    }
+  }
+
+  @Test
+  public void testDefaultReflinkCommand() {
+    Assert.assertEquals(
+        ImmutableList.of("cp", "--reflink=always", "--"),
+        FileLinker.defaultReflinkCommand("Linux"));
+    Assert.assertEquals(
+        ImmutableList.of("cp", "-c", "--"), FileLinker.defaultReflinkCommand("Mac OS X"));
+    Assert.assertNull(FileLinker.defaultReflinkCommand("Windows 10"));
+  }
+}
@@ -16,15 +16,24 @@
 
 package com.google.cloud.tools.io;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assume.assumeTrue;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Random;
 import java.util.Set;
 import org.junit.Assert;
 import org.junit.Rule;
@@ -176,4 +185,173 @@ public class FileUtilTest {
     Assert.assertFalse(Files.exists(destExcludes.resolve(src.relativize(excludedSubDir))));
     Assert.assertFalse(Files.exists(destExcludes.resolve(src.relativize(autoExcludedSubFile))));
   }
+
+  @Test
+  public void testCopyDirectory_parallel() throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+
+    for (int i = 0; i < 10; i++) {
+      Path subDir = Files.createDirectories(src.resolve("sub" + i).resolve("nested"));
+      for (int j = 0; j < 10; j++) {
+        Files.write(subDir.resolve("file" + j), ("content" + i + j).getBytes(UTF_8));
+      }
+    }
+    Path emptyDir = Files.createDirectory(src.resolve("empty"));
+
+    FileUtil.copyDirectory(src, dest, ImmutableList.of(), 4);
+
+    for (int i = 0; i < 10; i++) {
+      Path subDir = dest.resolve("sub" + i).resolve("nested");
+      for (int j = 0; j < 10; j++) {
+        Assert.assertEquals(
+            "content" + i + j, new String(Files.readAllBytes(subDir.resolve("file" + j)), UTF_8));
+      }
+    }
+    Assert.assertTrue(Files.isDirectory(dest.resolve(src.relativize(emptyDir))));
+  }
+
+  @Test
+  public void testCopyDirectory_parallelExcludes() throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+
+    Path rootFile = Files.createFile(src.resolve("root.file"));
+    Path excludedFile = Files.createFile(src.resolve("excluded.file"));
+    Path excludedSubDir = Files.createDirectory(src.resolve("excluded"));
+    Path autoExcludedSubFile = Files.createFile(excludedSubDir.resolve("auto.excluded.file"));
+
+    FileUtil.copyDirectory(src, dest, ImmutableList.of(excludedSubDir, excludedFile), 2);
+    Assert.assertTrue(Files.isRegularFile(dest.resolve(src.relativize(rootFile))));
+    Assert.assertFalse(Files.exists(dest.resolve(src.relativize(excludedFile))));
+    Assert.assertFalse(Files.exists(dest.resolve(src.relativize(excludedSubDir))));
+    Assert.assertFalse(Files.exists(dest.resolve(src.relativize(autoExcludedSubFile))));
+  }
+
+  @Test
+  public void testCopyDirectory_globExcludes() throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+
+    Path rootFile = Files.createFile(src.resolve("root.file"));
+    Path logFile = Files.createFile(src.resolve("root.log"));
+    Path subDir = Files.createDirectory(src.resolve("sub"));
+    Path subFile = Files.createFile(subDir.resolve("sub.file"));
+    Path subLogFile = Files.createFile(subDir.resolve("sub.log"));
+    Path secretsDir = Files.createDirectory(src.resolve("secrets"));
+    Path secretFile = Files.createFile(secretsDir.resolve("key.json"));
+
+    ExcludeSet excludes = ExcludeSet.ofPatterns(ImmutableList.of("*.log", "**/*.log", "secrets"));
+    FileUtil.copyDirectory(src, dest, excludes, 1);
+
+    Assert.assertTrue(Files.isRegularFile(dest.resolve(src.relativize(rootFile))));
+    Assert.assertTrue(Files.isRegularFile(dest.resolve(src.relativize(subFile))));
+    Assert.assertFalse(Files.exists(dest.resolve(src.relativize(logFile))));
+    Assert.assertFalse(Files.exists(dest.resolve(src.relativize(subLogFile))));
+    Assert.assertFalse(Files.exists(dest.resolve(src.relativize(secretsDir))));
+    Assert.assertFalse(Files.exists(dest.resolve(src.relativize(secretFile))));
+  }
+
+  @Test
+  public void testCopyDirectory_parallelLargeFileAttributes() throws IOException {
+    assumeTrue(!System.getProperty("os.name").startsWith("Windows"));
+
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+
+    byte[] content = new byte[(int) ParallelDirectoryCopier.TRANSFER_THRESHOLD + 17];
+    new Random(0).nextBytes(content);
+    Path largeFile = Files.write(src.resolve("large.file"), content);
+    Set<PosixFilePermission> permission = PosixFilePermissions.fromString("r-xr-----");
+    Files.setPosixFilePermissions(largeFile, permission);
+    FileTime lastModified = FileTime.fromMillis(1_000_000_000_000L);
+    Files.setLastModifiedTime(largeFile, lastModified);
+
+    FileUtil.copyDirectory(src, dest, ImmutableList.of(), 2);
+
+    Path copy = dest.resolve("large.file");
+    Assert.assertArrayEquals(content, Files.readAllBytes(copy));
+    Assert.assertEquals(permission, Files.getPosixFilePermissions(copy));
+    Assert.assertEquals(lastModified, Files.getLastModifiedTime(copy));
+  }
+
+  @Test
+  public void testCopyDirectory_parallelDoesNotOverwrite() throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+    Files.createFile(src.resolve("root.file"));
+    Files.createFile(dest.resolve("root.file"));
+
+    try {
+      FileUtil.copyDirectory(src, dest, ImmutableList.of(), 2);
+      Assert.fail();
+    } catch (FileAlreadyExistsException ex) {
+      Assert.assertEquals(dest.resolve("root.file").toString(), ex.getFile());
+    }
+  }
+
+  @Test
+  public void testCopyDirectory_badParallelism() throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+
+    try {
+      FileUtil.copyDirectory(src, dest, ImmutableList.of(), 0);
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals("parallelism must be positive", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testCopyDirectory_zipFileSystem() throws IOException {
+    copyDirectoryIntoZip(1);
+  }
+
+  @Test
+  public void testCopyDirectory_parallelZipFileSystem() throws IOException {
+    copyDirectoryIntoZip(4);
+  }
+
+  private void copyDirectoryIntoZip(int parallelism) throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Files.write(src.resolve("root.file"), "root".getBytes(UTF_8));
+    Files.createDirectories(src.resolve("sub/sub"));
+    Files.write(src.resolve("sub/sub/sub.file"), "sub".getBytes(UTF_8));
+    Path zip = testDir.getRoot().toPath().resolve("staged.zip");
+
+    try (FileSystem zipFileSystem = newZipFileSystem(zip)) {
+      Path dest = zipFileSystem.getPath("/");
+      FileUtil.copyDirectory(src, dest, ExcludeSet.none(), parallelism);
+    }
+
+    try (FileSystem zipFileSystem = newZipFileSystem(zip)) {
+      Assert.assertEquals(
+          "root", new String(Files.readAllBytes(zipFileSystem.getPath("/root.file")), UTF_8));
+      Assert.assertEquals(
+          "sub", new String(Files.readAllBytes(zipFileSystem.getPath("/sub/sub/sub.file")), UTF_8));
+    }
+  }
+
+  @Test
+  public void testResolve_otherFileSystem() throws IOException {
+    try (FileSystem zipFileSystem =
+        newZipFileSystem(testDir.getRoot().toPath().resolve("resolve.zip"))) {
+      Path resolved = FileUtil.resolve(zipFileSystem.getPath("/base"), Paths.get("a", "b.txt"));
+
+      Assert.assertEquals(zipFileSystem, resolved.getFileSystem());
+      Assert.assertEquals("/base/a/b.txt", resolved.toString());
+    }
+  }
+
+  @Test
+  public void testResolve_sameFileSystem() {
+    Assert.assertEquals(
+        Paths.get("base", "a"), FileUtil.resolve(Paths.get("base"), Paths.get("a")));
+  }
+
+  static FileSystem newZipFileSystem(Path zip) throws IOException {
+    return FileSystems.newFileSystem(
+        URI.create("jar:" + zip.toUri()), ImmutableMap.of("create", "true"));
+  }
 }
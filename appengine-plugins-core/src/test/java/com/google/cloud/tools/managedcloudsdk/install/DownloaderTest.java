@@ -17,8 +17,16 @@
 package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
@@ -26,16 +34,25 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -46,6 +63,110 @@ public class DownloaderTest {
   @Rule public TemporaryFolder tmp = new TemporaryFolder();
   @Mock private ProgressListener mockProgressListener;
 
+  @Nullable private HttpServer server;
+  private boolean unknownLength;
+
+  @After
+  public void tearDown() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  /**
+   * Serves {@code content} like a download server would, honoring {@code Range} and {@code
+   * If-Range} requests when {@code supportsRanges} is set. The response to the first request is cut
+   * off after {@code failAfter} bytes when it is not negative. The length of {@code content} is not
+   * sent when {@link #unknownLength} is set.
+   */
+  private URL serve(
+      byte[] content,
+      @Nullable String etag,
+      boolean supportsRanges,
+      int failAfter,
+      List<Headers> requests)
+      throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/archive",
+        exchange -> {
+          requests.add(exchange.getRequestHeaders());
+          respond(exchange, content, etag, supportsRanges, requests.size() == 1 ? failAfter : -1);
+        });
+    server.start();
+    return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/archive");
+  }
+
+  private void respond(
+      HttpExchange exchange,
+      byte[] content,
+      @Nullable String etag,
+      boolean supportsRanges,
+      int failAfter)
+      throws IOException {
+    if (etag != null) {
+      exchange.getResponseHeaders().set("ETag", etag);
+    }
+    if (supportsRanges) {
+      exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+    }
+    if ("HEAD".equals(exchange.getRequestMethod())) {
+      if (!unknownLength) {
+        exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+      }
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+      return;
+    }
+    String range = exchange.getRequestHeaders().getFirst("Range");
+    String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+    int start = 0;
+    int end = content.length - 1;
+    if (supportsRanges && range != null && (ifRange == null || ifRange.equals(etag))) {
+      String[] bounds = range.substring("bytes=".length()).split("-", -1);
+      start = Integer.parseInt(bounds[0]);
+      if (!bounds[1].isEmpty()) {
+        end = Integer.parseInt(bounds[1]);
+      }
+      exchange
+          .getResponseHeaders()
+          .set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+      exchange.sendResponseHeaders(206, end + 1 - start);
+    } else {
+      exchange.sendResponseHeaders(200, unknownLength ? 0 : content.length);
+    }
+    if (failAfter >= 0) {
+      // failing the exchange makes the server drop the connection in the middle of the response
+      OutputStream out = exchange.getResponseBody();
+      out.write(content, start, failAfter - start);
+      out.flush();
+      throw new IOException("Response cut off after " + failAfter + " bytes");
+    }
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(content, start, end + 1 - start);
+    }
+  }
+
+  private static byte[] createContent(int size) {
+    byte[] content = new byte[size];
+    for (int i = 0; i < size; i++) {
+      content[i] = (byte) i;
+    }
+    return content;
+  }
+
+  private void downloadUntilFailure(URL source, Path destination)
+      throws IOException, InterruptedException {
+    try {
+      new Downloader(source, destination, "user agent", Mockito.mock(ProgressListener.class))
+          .download();
+      Assert.fail("IOException expected but not thrown.");
+    } catch (IOException ex) {
+      // expected
+    }
+    Assert.assertFalse(Files.exists(destination));
+  }
+
   private Path createTestRemoteResource(long sizeInBytes) throws IOException {
 
     Path testFile = tmp.newFile().toPath();
@@ -188,4 +309,279 @@ public class DownloaderTest {
     Assert.assertFalse(Files.exists(destination));
     Mockito.verify(mockProgressListener, Mockito.never()).update(100);
   }
+
+  @Test
+  public void testDownload_resumesPartialDownload() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    Path partFile = tmp.getRoot().toPath().resolve("destination-file.part");
+    byte[] content = createContent(100 * 1024);
+    List<Headers> requests = new ArrayList<>();
+    URL source = serve(content, "\"v1\"", true, 30 * 1024, requests);
+
+    downloadUntilFailure(source, destination);
+    Assert.assertEquals(30 * 1024, Files.size(partFile));
+
+    new Downloader(source, destination, "user agent", mockProgressListener).download();
+
+    Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+    Assert.assertEquals(2, requests.size());
+    Assert.assertEquals("bytes=30720-", requests.get(1).getFirst("Range"));
+    Assert.assertEquals("\"v1\"", requests.get(1).getFirst("If-Range"));
+    Assert.assertFalse(Files.exists(partFile));
+    Assert.assertFalse(
+        Files.exists(tmp.getRoot().toPath().resolve("destination-file.part.properties")));
+    ProgressVerifier.verifyProgress(mockProgressListener, "Downloading 0.10 MB");
+  }
+
+  @Test
+  public void testDownload_restartsWithoutRangeSupport() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(100 * 1024);
+    List<Headers> requests = new ArrayList<>();
+    URL source = serve(content, "\"v1\"", false, 30 * 1024, requests);
+
+    downloadUntilFailure(source, destination);
+    new Downloader(source, destination, "user agent", mockProgressListener).download();
+
+    Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+    Assert.assertEquals("bytes=30720-", requests.get(1).getFirst("Range"));
+    ProgressVerifier.verifyProgress(mockProgressListener, "Downloading 0.10 MB");
+  }
+
+  @Test
+  public void testDownload_restartsWhenArchiveChanged() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    Path validatorFile = tmp.getRoot().toPath().resolve("destination-file.part.properties");
+    byte[] content = createContent(100 * 1024);
+    List<Headers> requests = new ArrayList<>();
+    URL source = serve(content, "\"v2\"", true, -1, requests);
+    Files.write(tmp.getRoot().toPath().resolve("destination-file.part"), new byte[] {1, 2, 3});
+    Files.write(
+        validatorFile,
+        Arrays.asList("source=" + source.toString().replace(":", "\\:"), "validator=\"v1\""));
+
+    new Downloader(source, destination, "user agent", mockProgressListener).download();
+
+    Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+    Assert.assertEquals(1, requests.size());
+    Assert.assertEquals("\"v1\"", requests.get(0).getFirst("If-Range"));
+    Assert.assertFalse(Files.exists(validatorFile));
+  }
+
+  @Test
+  public void testDownload_discardsPartialDownloadWithoutValidator()
+      throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(100 * 1024);
+    List<Headers> requests = new ArrayList<>();
+    URL source = serve(content, null, true, 30 * 1024, requests);
+
+    downloadUntilFailure(source, destination);
+
+    Assert.assertFalse(Files.exists(tmp.getRoot().toPath().resolve("destination-file.part")));
+    new Downloader(source, destination, "user agent", mockProgressListener).download();
+    Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+    Assert.assertNull(requests.get(1).getFirst("Range"));
+  }
+
+  @Test
+  public void testGetContentRangeStart() {
+    Assert.assertEquals(Long.valueOf(100), Downloader.getContentRangeStart("bytes 100-199/200"));
+    Assert.assertEquals(Long.valueOf(0), Downloader.getContentRangeStart("bytes 0-199/*"));
+    Assert.assertNull(Downloader.getContentRangeStart("bytes */200"));
+    Assert.assertNull(Downloader.getContentRangeStart(null));
+  }
+
+  @Test
+  public void testDownload_segmented() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(100 * 1024);
+    List<Headers> requests = new ArrayList<>();
+    URL source = serve(content, "\"v1\"", true, -1, requests);
+
+    new Downloader(source, destination, "user agent", mockProgressListener, 4, 16 * 1024)
+        .download();
+
+    Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+    Assert.assertFalse(Files.exists(tmp.getRoot().toPath().resolve("destination-file.part")));
+    List<String> ranges = new ArrayList<>();
+    for (Headers request : requests) {
+      if (request.containsKey("Range")) {
+        ranges.add(request.getFirst("Range"));
+        Assert.assertEquals("\"v1\"", request.getFirst("If-Range"));
+      }
+    }
+    Collections.sort(ranges);
+    Assert.assertEquals(
+        Arrays.asList(
+            "bytes=0-25599", "bytes=25600-51199", "bytes=51200-76799", "bytes=76800-102399"),
+        ranges);
+
+    ArgumentCaptor<Long> updateCaptor = ArgumentCaptor.forClass(Long.class);
+    Mockito.verify(mockProgressListener).start("Downloading 0.10 MB", content.length);
+    Mockito.verify(mockProgressListener, Mockito.atLeastOnce()).update(updateCaptor.capture());
+    long sum = 0;
+    for (long update : updateCaptor.getAllValues()) {
+      sum += update;
+    }
+    Assert.assertEquals(content.length, sum);
+    Mockito.verify(mockProgressListener).done();
+  }
+
+  @Test
+  public void testDownload_segmentedWithoutRangeSupport() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(100 * 1024);
+    List<Headers> requests = new ArrayList<>();
+    URL source = serve(content, "\"v1\"", false, -1, requests);
+
+    new Downloader(source, destination, "user agent", mockProgressListener, 4, 16 * 1024)
+        .download();
+
+    Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+    Assert.assertEquals(2, requests.size());
+    Assert.assertNull(requests.get(1).getFirst("Range"));
+    ProgressVerifier.verifyProgress(mockProgressListener, "Downloading 0.10 MB");
+  }
+
+  @Test
+  public void testDownload_segmentedWithUnknownLength() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(100 * 1024);
+    List<Headers> requests = new ArrayList<>();
+    unknownLength = true;
+    URL source = serve(content, "\"v1\"", true, -1, requests);
+
+    new Downloader(source, destination, "user agent", mockProgressListener, 4, 16 * 1024)
+        .download();
+
+    Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+    Assert.assertEquals(2, requests.size());
+    Assert.assertNull(requests.get(1).getFirst("Range"));
+    ProgressVerifier.verifyUnknownProgress(mockProgressListener, "Downloading -0.00 MB");
+  }
+
+  @Test
+  public void testDownload_segmentFails() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(100 * 1024);
+    CountDownLatch release = new CountDownLatch(1);
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext(
+        "/archive",
+        exchange -> {
+          String range = exchange.getRequestHeaders().getFirst("Range");
+          if (range == null) {
+            respond(exchange, content, "\"v1\"", true, -1);
+          } else if (range.startsWith("bytes=0-")) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+          } else {
+            // the other segments stall until the test is over
+            try {
+              release.await();
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            }
+            exchange.close();
+          }
+        });
+    server.start();
+    URL source = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/archive");
+
+    try {
+      new Downloader(source, destination, "user agent", mockProgressListener, 4, 16 * 1024)
+          .download();
+      Assert.fail();
+    } catch (IOException ex) {
+      Assert.assertTrue(
+          String.valueOf(ex.getMessage()).startsWith("Server did not return bytes 0-25599"));
+    } finally {
+      release.countDown();
+    }
+    // the stalled segments were stopped before the part file was cleaned up
+    Assert.assertFalse(Files.exists(tmp.getRoot().toPath().resolve("destination-file.part")));
+    Assert.assertFalse(Files.exists(destination));
+  }
+
+  @Test
+  public void testGetSegmentCount() {
+    Assert.assertEquals(4, Downloader.getSegmentCount(100, 4, 10));
+    Assert.assertEquals(2, Downloader.getSegmentCount(25, 4, 10));
+    Assert.assertEquals(1, Downloader.getSegmentCount(9, 4, 10));
+    Assert.assertEquals(1, Downloader.getSegmentCount(-1, 4, 10));
+    Assert.assertEquals(1, Downloader.getSegmentCount(100, 1, 10));
+  }
+
+  @Test
+  public void testGetSegmentedDownloadStatus() {
+    Assert.assertEquals(
+        "Downloaded 10.00 MB at 5.00 MB/s over 4 connections",
+        Downloader.getSegmentedDownloadStatus(10 * 1024 * 1024, 2000, 4, Locale.ENGLISH));
+    Assert.assertEquals(
+        "Downloaded 0.00 MB at 0.00 MB/s over 2 connections",
+        Downloader.getSegmentedDownloadStatus(0, 0, 2, Locale.ENGLISH));
+  }
+
+  @Test
+  public void testDownload_streamedIntoExtractor()
+      throws IOException, InterruptedException, URISyntaxException {
+    Path destination = tmp.getRoot().toPath().resolve("test.tar.gz");
+    Path extractionRoot = tmp.newFolder("extracted").toPath();
+    byte[] content =
+        Files.readAllBytes(
+            Paths.get(
+                getClass().getClassLoader().getResource("genericArchives/test.tar.gz").toURI()));
+    URL source = serve(content, "\"v1\"", true, -1, new ArrayList<>());
+    Extractor extractor =
+        new Extractor(
+            destination,
+            extractionRoot,
+            new TarGzExtractorProvider(),
+            Mockito.mock(ProgressListener.class));
+
+    new Downloader(source, destination, "user agent", mockProgressListener)
+        .download(extractor::extract, true);
+
+    GenericArchivesVerifier.assertArchiveExtraction(extractionRoot);
+    Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+    Assert.assertFalse(Files.exists(tmp.getRoot().toPath().resolve("test.tar.gz.part")));
+    ProgressVerifier.verifyProgress(
+        mockProgressListener, Downloader.getDownloadStatus(content.length, Locale.getDefault()));
+  }
+
+  @Test
+  public void testDownload_streamedWithoutArchive() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(100 * 1024);
+    URL source = serve(content, "\"v1\"", true, -1, new ArrayList<>());
+    byte[] consumed = new byte[1024];
+
+    // the consumer reads only part of the archive
+    new Downloader(source, destination, "user agent", mockProgressListener)
+        .download(archive -> ByteStreams.readFully(archive, consumed), false);
+
+    Assert.assertArrayEquals(Arrays.copyOf(content, 1024), consumed);
+    Assert.assertFalse(Files.exists(destination));
+    Assert.assertFalse(Files.exists(tmp.getRoot().toPath().resolve("destination-file.part")));
+    ProgressVerifier.verifyProgress(mockProgressListener, "Downloading 0.10 MB");
+  }
+
+  @Test
+  public void testDownload_streamedFailureRemovesArchive() throws IOException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(100 * 1024);
+    URL source = serve(content, "\"v1\"", true, 30 * 1024, new ArrayList<>());
+
+    try {
+      new Downloader(source, destination, "user agent", mockProgressListener)
+          .download(ByteStreams::exhaust, true);
+      Assert.fail("IOException expected but not thrown.");
+    } catch (IOException | InterruptedException ex) {
+      Assert.assertTrue(ex instanceof IOException);
+    }
+    Assert.assertFalse(Files.exists(destination));
+    Assert.assertFalse(Files.exists(tmp.getRoot().toPath().resolve("destination-file.part")));
+  }
 }
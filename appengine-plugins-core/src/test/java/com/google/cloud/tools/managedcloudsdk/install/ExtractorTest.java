@@ -18,8 +18,10 @@ package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -92,4 +94,44 @@ public class ExtractorTest {
     Mockito.verify(mockExtractorProvider)
         .extract(extractionSource, extractionDestination, mockProgressListener);
   }
+
+  @Test
+  public void testExtract_stream() throws Exception {
+    Path extractionDestination = tmp.newFolder("target").toPath();
+    Path archive =
+        Paths.get(getClass().getClassLoader().getResource("genericArchives/test.tar.gz").toURI());
+
+    Extractor extractor =
+        new Extractor(
+            archive, extractionDestination, new TarGzExtractorProvider(), mockProgressListener);
+
+    Assert.assertTrue(extractor.canExtractStream());
+    try (InputStream in = Files.newInputStream(archive)) {
+      extractor.extract(in);
+    }
+
+    GenericArchivesVerifier.assertArchiveExtraction(extractionDestination);
+    ProgressVerifier.verifyUnknownProgress(mockProgressListener, "Extracting archive: test.tar.gz");
+  }
+
+  @Test
+  public void testExtract_streamNotSupported() throws Exception {
+    Path extractionDestination = tmp.newFolder("target").toPath();
+    Path extractionSource = tmp.newFile("fake.zip").toPath();
+
+    Extractor extractor =
+        new Extractor(
+            extractionSource,
+            extractionDestination,
+            new ZipExtractorProvider(),
+            mockProgressListener);
+
+    Assert.assertFalse(extractor.canExtractStream());
+    try (InputStream in = Files.newInputStream(extractionSource)) {
+      extractor.extract(in);
+      Assert.fail("UnsupportedOperationException expected but not thrown");
+    } catch (UnsupportedOperationException ex) {
+      Assert.assertEquals("Cannot extract fake.zip from a stream", ex.getMessage());
+    }
+  }
 }
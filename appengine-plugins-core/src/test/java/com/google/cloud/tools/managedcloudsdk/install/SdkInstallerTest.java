@@ -20,7 +20,9 @@ import com.google.cloud.tools.managedcloudsdk.ConsoleListener;
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -96,7 +98,7 @@ public class SdkInstallerTest {
     // SUCCESS MOCKS
     Mockito.doReturn(successfulDownloader)
         .when(successfulDownloaderFactory)
-        .newDownloader(fakeArchiveSource, fakeArchiveDestination, progressListener);
+        .newDownloader(fakeArchiveSource, fakeArchiveDestination, progressListener, 1);
     Mockito.doAnswer(createPathAnswer(fakeArchiveDestination, false))
         .when(successfulDownloader)
         .download();
@@ -126,7 +128,7 @@ public class SdkInstallerTest {
     // FAIL (NO-OP) MOCKS
     Mockito.doReturn(Mockito.mock(Downloader.class))
         .when(failureDownloaderFactory)
-        .newDownloader(fakeArchiveSource, fakeArchiveDestination, progressListener);
+        .newDownloader(fakeArchiveSource, fakeArchiveDestination, progressListener, 1);
 
     Mockito.doReturn(Mockito.mock(Extractor.class))
         .when(failureExtractorFactory)
@@ -171,6 +173,84 @@ public class SdkInstallerTest {
     Assert.assertEquals(fakeSdkHome, result);
   }
 
+  @Test
+  public void testDownloadSdk_keepsPartialDownload()
+      throws CommandExecutionException, InterruptedException, IOException, CommandExitException,
+          SdkInstallerException {
+    Path partFile =
+        fakeArchiveDestination.resolveSibling(
+            fakeArchiveDestination.getFileName() + Downloader.PART_SUFFIX);
+    Files.createDirectories(partFile.getParent());
+    Files.createFile(partFile);
+    Files.createFile(fakeArchiveDestination);
+
+    SdkInstaller testInstaller =
+        new SdkInstaller(
+            fileResourceProviderFactory,
+            successfulDownloaderFactory,
+            successfulLatestExtractorFactory,
+            successfulInstallerFactory);
+    testInstaller.install(progressListener, consoleListener);
+
+    // the stale archive is removed before downloading, the partial download is left to resume
+    Mockito.verify(successfulDownloader).download();
+    Assert.assertTrue(Files.exists(partFile));
+  }
+
+  @Test
+  public void testDownloadSdk_downloadConnections()
+      throws CommandExecutionException, InterruptedException, IOException, CommandExitException,
+          SdkInstallerException {
+    Mockito.doReturn(successfulDownloader)
+        .when(successfulDownloaderFactory)
+        .newDownloader(fakeArchiveSource, fakeArchiveDestination, progressListener, 4);
+
+    SdkInstaller testInstaller =
+        new SdkInstaller(
+            fileResourceProviderFactory,
+            successfulDownloaderFactory,
+            successfulLatestExtractorFactory,
+            successfulInstallerFactory);
+    testInstaller.setDownloadConnections(4);
+    Path result = testInstaller.install(progressListener, consoleListener);
+
+    Assert.assertEquals(fakeSdkHome, result);
+    Mockito.verify(successfulDownloaderFactory)
+        .newDownloader(fakeArchiveSource, fakeArchiveDestination, progressListener, 4);
+  }
+
+  @Test
+  public void testDownloadSdk_streamingExtraction()
+      throws CommandExecutionException, InterruptedException, IOException, CommandExitException,
+          SdkInstallerException {
+    Mockito.when(successfulVersionedExtractor.canExtractStream()).thenReturn(true);
+    Mockito.doAnswer(
+            invocation -> {
+              Downloader.ArchiveConsumer consumer = invocation.getArgument(0);
+              consumer.accept(new ByteArrayInputStream(new byte[0]));
+              return null;
+            })
+        .when(successfulDownloader)
+        .download(Mockito.any(Downloader.ArchiveConsumer.class), Mockito.eq(false));
+    Mockito.doAnswer(createPathAnswer(fakeGcloud, false))
+        .when(successfulVersionedExtractor)
+        .extract(Mockito.any(InputStream.class));
+
+    SdkInstaller testInstaller =
+        new SdkInstaller(
+            fileResourceProviderFactory,
+            successfulDownloaderFactory,
+            successfulVersionedExtractorFactory,
+            null);
+    testInstaller.setStreamingExtraction(true);
+    testInstaller.setKeepArchive(false);
+    Path result = testInstaller.install(progressListener, consoleListener);
+
+    Assert.assertEquals(fakeSdkHome, result);
+    Mockito.verify(successfulDownloader, Mockito.never()).download();
+    Mockito.verify(successfulVersionedExtractor, Mockito.never()).extract();
+  }
+
   @Test
   public void testDownloadSdk_successRunWithoutExplicitInstall()
       throws CommandExecutionException, InterruptedException, IOException, CommandExitException,
@@ -19,10 +19,16 @@ package com.google.cloud.tools.managedcloudsdk.install;
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
 import java.util.Locale;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.MatcherAssert;
 import org.junit.Assert;
@@ -59,6 +65,83 @@ public class TarGzExtractorProviderTest {
         mockProgressListener, "Extracting archive: " + testArchive.getFileName());
   }
 
+  @Test
+  public void testCall_parallelWriters() throws URISyntaxException, IOException {
+    Path extractionRoot = tmp.getRoot().toPath();
+    Path testArchive = getResource("genericArchives/test.tar.gz");
+
+    new TarGzExtractorProvider(4, 1024).extract(testArchive, extractionRoot, mockProgressListener);
+
+    GenericArchivesVerifier.assertArchiveExtraction(extractionRoot);
+    if (!System.getProperty("os.name").toLowerCase(Locale.ENGLISH).contains("windows")) {
+      GenericArchivesVerifier.assertFilePermissions(extractionRoot);
+    }
+
+    ProgressVerifier.verifyUnknownProgress(
+        mockProgressListener, "Extracting archive: " + testArchive.getFileName());
+  }
+
+  @Test
+  public void testCall_parallelWritersManyFiles() throws IOException {
+    Path testArchive = tmp.getRoot().toPath().resolve("many.tar.gz");
+    byte[] large = new byte[TarGzExtractorProvider.MAX_BUFFERED_FILE + 1];
+    Arrays.fill(large, (byte) 'x');
+    try (TarArchiveOutputStream out =
+        new TarArchiveOutputStream(
+            new GzipCompressorOutputStream(Files.newOutputStream(testArchive)))) {
+      for (int i = 0; i < 500; i++) {
+        addFile(
+            out,
+            "sdk/dir" + (i % 7) + "/file" + i,
+            ("contents " + i).getBytes(StandardCharsets.UTF_8),
+            0644);
+      }
+      addFile(out, "sdk/bin/tool", "#!/bin/sh".getBytes(StandardCharsets.UTF_8), 0755);
+      addFile(out, "sdk/large", large, 0644);
+      // a later entry replaces an earlier one
+      addFile(out, "sdk/dir0/file0", "replaced".getBytes(StandardCharsets.UTF_8), 0644);
+    }
+    Path extractionRoot = tmp.newFolder("extracted").toPath();
+
+    new TarGzExtractorProvider(4, 16 * 1024)
+        .extract(testArchive, extractionRoot, mockProgressListener);
+
+    for (int i = 1; i < 500; i++) {
+      Assert.assertEquals(
+          "contents " + i,
+          new String(
+              Files.readAllBytes(extractionRoot.resolve("sdk/dir" + (i % 7) + "/file" + i)),
+              StandardCharsets.UTF_8));
+    }
+    Assert.assertEquals(
+        "replaced",
+        new String(
+            Files.readAllBytes(extractionRoot.resolve("sdk/dir0/file0")), StandardCharsets.UTF_8));
+    Assert.assertArrayEquals(large, Files.readAllBytes(extractionRoot.resolve("sdk/large")));
+    if (!System.getProperty("os.name").toLowerCase(Locale.ENGLISH).contains("windows")) {
+      Assert.assertTrue(
+          Files.getPosixFilePermissions(extractionRoot.resolve("sdk/bin/tool"))
+              .contains(PosixFilePermission.OWNER_EXECUTE));
+    }
+  }
+
+  @Test
+  public void testZipSlipVulnerability_parallelWriters() throws URISyntaxException {
+    Assume.assumeTrue(!System.getProperty("os.name").startsWith("Windows"));
+
+    Path extractionRoot = tmp.getRoot().toPath();
+    Path testArchive = getResource("zipSlipSamples/zip-slip.tar.gz");
+    try {
+      new TarGzExtractorProvider(4, 1024)
+          .extract(testArchive, extractionRoot, mockProgressListener);
+      Assert.fail("IOException expected");
+    } catch (IOException expected) {
+      MatcherAssert.assertThat(
+          expected.getMessage(),
+          CoreMatchers.startsWith("Blocked unzipping files outside destination: "));
+    }
+  }
+
   @Test
   public void testZipSlipVulnerability_windows() throws URISyntaxException {
     Assume.assumeTrue(System.getProperty("os.name").startsWith("Windows"));
@@ -91,6 +174,16 @@ public class TarGzExtractorProviderTest {
     }
   }
 
+  private static void addFile(TarArchiveOutputStream out, String name, byte[] contents, int mode)
+      throws IOException {
+    TarArchiveEntry entry = new TarArchiveEntry(name);
+    entry.setSize(contents.length);
+    entry.setMode(mode);
+    out.putArchiveEntry(entry);
+    out.write(contents);
+    out.closeArchiveEntry();
+  }
+
   private Path getResource(String resourcePath) throws URISyntaxException {
     Path resource = Paths.get(getClass().getClassLoader().getResource(resourcePath).toURI());
     Assert.assertTrue(Files.exists(resource));
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.managedcloudsdk.install;
+
+import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+/**
+ * Times sequential and parallel {@link ZipExtractorProvider} extraction of a synthetic archive of
+ * many small files. Not picked up by the default test run; run it with {@code mvn test
+ * -Dtest=ZipExtractorProviderBenchmark}.
+ */
+public class ZipExtractorProviderBenchmark {
+
+  private static final int FILES = 20000;
+  private static final int ROUNDS = 3;
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void benchmark() throws IOException {
+    Path archive = tmp.getRoot().toPath().resolve("many-small-files.zip");
+    createArchive(archive);
+
+    // warm up before timing anything
+    new ZipExtractorProvider(1)
+        .extract(archive, tmp.newFolder().toPath(), Mockito.mock(ProgressListener.class));
+
+    for (int threads : Arrays.asList(1, 2, 4, 8)) {
+      ZipExtractorProvider provider = new ZipExtractorProvider(threads);
+      long best = Long.MAX_VALUE;
+      for (int round = 0; round < ROUNDS; round++) {
+        Path destination = tmp.newFolder().toPath();
+        long start = System.nanoTime();
+        provider.extract(archive, destination, Mockito.mock(ProgressListener.class));
+        best = Math.min(best, System.nanoTime() - start);
+        verifyExtraction(destination);
+      }
+      System.out.println(
+          String.format(
+              "%d files, %d thread(s): best of %d rounds %d ms",
+              FILES, threads, ROUNDS, best / 1000000));
+    }
+  }
+
+  private static void createArchive(Path archive) throws IOException {
+    try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(archive.toFile())) {
+      for (int i = 0; i < FILES; i++) {
+        ZipArchiveEntry entry = new ZipArchiveEntry(getEntryName(i));
+        entry.setUnixMode(0100644);
+        out.putArchiveEntry(entry);
+        out.write(getContents(i));
+        out.closeArchiveEntry();
+      }
+    }
+  }
+
+  private static void verifyExtraction(Path destination) throws IOException {
+    for (int i = 0; i < FILES; i += 997) {
+      Assert.assertArrayEquals(
+          getContents(i), Files.readAllBytes(destination.resolve(getEntryName(i))));
+    }
+  }
+
+  private static String getEntryName(int i) {
+    return "dir" + (i / 500) + "/file" + i + ".txt";
+  }
+
+  private static byte[] getContents(int i) {
+    StringBuilder contents = new StringBuilder();
+    for (int line = 0; line < 20; line++) {
+      contents.append("line ").append(line).append(" of file ").append(i).append('\n');
+    }
+    return contents.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -19,10 +19,15 @@ package com.google.cloud.tools.managedcloudsdk.install;
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.MatcherAssert;
 import org.junit.Assert;
@@ -32,6 +37,7 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -59,6 +65,109 @@ public class ZipExtractorProviderTest {
         mockProgressListener, "Extracting archive: " + testArchive.getFileName());
   }
 
+  @Test
+  public void testCall_parallel() throws URISyntaxException, IOException {
+    Path extractionRoot = tmp.getRoot().toPath();
+    Path testArchive = getResource("genericArchives/test.zip");
+
+    new ZipExtractorProvider(4).extract(testArchive, extractionRoot, mockProgressListener);
+
+    GenericArchivesVerifier.assertArchiveExtraction(extractionRoot);
+    // only check file permissions on non-windows
+    if (!System.getProperty("os.name").toLowerCase(Locale.ENGLISH).contains("windows")) {
+      GenericArchivesVerifier.assertFilePermissions(extractionRoot);
+    }
+
+    ProgressVerifier.verifyUnknownProgress(
+        mockProgressListener, "Extracting archive: " + testArchive.getFileName());
+  }
+
+  @Test
+  public void testCall_parallelManyFiles() throws IOException {
+    Path testArchive = tmp.getRoot().toPath().resolve("many.zip");
+    try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(testArchive.toFile())) {
+      for (int i = 0; i < 200; i++) {
+        ZipArchiveEntry entry = new ZipArchiveEntry("dir" + (i % 7) + "/sub/file" + i);
+        entry.setUnixMode(0100644);
+        out.putArchiveEntry(entry);
+        out.write(("contents of " + i).getBytes(StandardCharsets.UTF_8));
+        out.closeArchiveEntry();
+      }
+    }
+    Path extractionRoot = tmp.newFolder("extracted").toPath();
+
+    new ZipExtractorProvider(4).extract(testArchive, extractionRoot, mockProgressListener);
+
+    for (int i = 0; i < 200; i++) {
+      Path file = extractionRoot.resolve("dir" + (i % 7) + "/sub/file" + i);
+      Assert.assertEquals(
+          "contents of " + i, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+    Mockito.verify(mockProgressListener, Mockito.times(200)).update(1);
+  }
+
+  @Test
+  public void testCall_parallelDuplicateEntries() throws IOException {
+    Path testArchive = tmp.getRoot().toPath().resolve("duplicates.zip");
+    try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(testArchive.toFile())) {
+      for (int i = 0; i < 100; i++) {
+        // the same two files, under names that differ in form only
+        String name = i % 2 == 0 ? "dir/file" + (i % 4) : "dir/./file" + (i % 4);
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setUnixMode(0100644);
+        out.putArchiveEntry(entry);
+        out.write(("contents of " + i).getBytes(StandardCharsets.UTF_8));
+        out.closeArchiveEntry();
+      }
+    }
+    Path serialRoot = tmp.newFolder("serial").toPath();
+    Path parallelRoot = tmp.newFolder("parallel").toPath();
+
+    zipExtractorProvider.extract(testArchive, serialRoot, mockProgressListener);
+    new ZipExtractorProvider(4).extract(testArchive, parallelRoot, mockProgressListener);
+
+    for (String file : new String[] {"dir/file0", "dir/file1", "dir/file2", "dir/file3"}) {
+      Assert.assertArrayEquals(
+          Files.readAllBytes(serialRoot.resolve(file)),
+          Files.readAllBytes(parallelRoot.resolve(file)));
+    }
+    Assert.assertEquals(
+        "contents of 98",
+        new String(Files.readAllBytes(parallelRoot.resolve("dir/file2")), StandardCharsets.UTF_8));
+    Mockito.verify(mockProgressListener, Mockito.times(200)).update(1);
+  }
+
+  @Test
+  public void testPartition() {
+    List<ZipArchiveEntry> entries = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      ZipArchiveEntry entry = new ZipArchiveEntry("file" + i);
+      entry.setCompressedSize(i == 0 ? 100000 : 1000);
+      entries.add(entry);
+    }
+
+    List<List<ZipArchiveEntry>> partitions = ZipExtractorProvider.partition(entries, 3);
+
+    Assert.assertEquals(3, partitions.size());
+    Assert.assertEquals(entries.subList(0, 1), partitions.get(0));
+    List<ZipArchiveEntry> rejoined = new ArrayList<>();
+    for (List<ZipArchiveEntry> partition : partitions) {
+      Assert.assertFalse(partition.isEmpty());
+      rejoined.addAll(partition);
+    }
+    Assert.assertEquals(entries, rejoined);
+  }
+
+  @Test
+  public void testPartition_fewerEntriesThanPartitions() {
+    List<ZipArchiveEntry> entries = new ArrayList<>();
+    entries.add(new ZipArchiveEntry("a"));
+    entries.add(new ZipArchiveEntry("b"));
+
+    Assert.assertEquals(2, ZipExtractorProvider.partition(entries, 4).size());
+    Assert.assertTrue(ZipExtractorProvider.partition(new ArrayList<>(), 4).isEmpty());
+  }
+
   @Test
   public void testZipSlipVulnerability_windows() throws URISyntaxException {
     Assume.assumeTrue(System.getProperty("os.name").startsWith("Windows"));
@@ -91,6 +200,25 @@ public class ZipExtractorProviderTest {
     }
   }
 
+  @Test
+  public void testZipSlipVulnerability_parallel() throws URISyntaxException {
+    String sample =
+        System.getProperty("os.name").startsWith("Windows")
+            ? "zipSlipSamples/zip-slip-win.zip"
+            : "zipSlipSamples/zip-slip.zip";
+
+    Path extractionRoot = tmp.getRoot().toPath();
+    Path testArchive = getResource(sample);
+    try {
+      new ZipExtractorProvider(4).extract(testArchive, extractionRoot, mockProgressListener);
+      Assert.fail("IOException expected");
+    } catch (IOException expected) {
+      MatcherAssert.assertThat(
+          expected.getMessage(),
+          CoreMatchers.startsWith("Blocked unzipping files outside destination: "));
+    }
+  }
+
   private Path getResource(String resourcePath) throws URISyntaxException {
     Path resource = Paths.get(getClass().getClassLoader().getResource(resourcePath).toURI());
     Assert.assertTrue(Files.exists(resource));
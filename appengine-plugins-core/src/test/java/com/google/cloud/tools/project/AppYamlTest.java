@@ -212,6 +212,30 @@ public class AppYamlTest {
     Assert.assertNull(AppYaml.parse(appYaml).getEnvironmentVariables());
   }
 
+  @Test
+  public void testGetInstanceClass_success() throws AppEngineException {
+    InputStream appYaml = asStream("instance_class: F2\np2: v2");
+    Assert.assertEquals("F2", AppYaml.parse(appYaml).getInstanceClass());
+  }
+
+  @Test
+  public void testGetInstanceClass_nullBecauseNotPresent() throws AppEngineException {
+    InputStream appYaml = asStream("p1: v1\np2: v2");
+    Assert.assertNull(AppYaml.parse(appYaml).getInstanceClass());
+  }
+
+  @Test
+  public void testGetScalingType_success() throws AppEngineException {
+    InputStream appYaml = asStream("basic_scaling:\n  max_instances: 2\np2: v2");
+    Assert.assertEquals("basic", AppYaml.parse(appYaml).getScalingType());
+  }
+
+  @Test
+  public void testGetScalingType_nullBecauseNotPresent() throws AppEngineException {
+    InputStream appYaml = asStream("p1: v1\np2: v2");
+    Assert.assertNull(AppYaml.parse(appYaml).getScalingType());
+  }
+
   private InputStream asStream(String contents) {
     return new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8));
   }